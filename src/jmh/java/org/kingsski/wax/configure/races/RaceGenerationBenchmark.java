@@ -0,0 +1,195 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.TeamPositionTable;
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.kingsski.wax.configure.races.group.RaceGroup.MarkBoothException;
+import org.kingsski.wax.configure.races.group.RaceGroup.RacesUnfinishedException;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * JMH benchmarks for the race generation pipeline, run for every supported number of teams in a
+ * division.
+ * </p>
+ * <p>
+ * The state for each team count is built once per trial: a seeded division of {@link Team}s, the
+ * first set of {@link RaceGroup}s with results filled in and the team position tables which feed the
+ * second set and the knockouts. Results are drawn from a fixed seed so runs are repeatable.
+ * </p>
+ * <p>
+ * Run with {@code ./gradlew jmh}, which also enables the gc profiler to report allocation per
+ * operation. Both throughput and sampled latency (with percentiles) are reported.
+ * </p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RaceGenerationBenchmark {
+    private static final int CONTROL_ID = 1;
+    private static final long RESULT_SEED = 2017L;
+
+    @Param({"4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18",
+            "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31", "32"})
+    private int numTeams;
+
+    private RaceConfigurerSetOne setOneConfigurer;
+    private RaceConfigurerSetTwo setTwoConfigurer;
+    private RaceConfigurerSetTwo knockoutConfigurer;
+
+    private List<Team> teams;
+    private List<Race> setOneRaces;
+    private List<RaceGroup> setOneGroups;
+    private TeamPositionTable setOneTeamPositions;
+    private TeamPositionTable setTwoTeamPositions;
+
+    /**
+     * Builds the teams, races and results used by each of the benchmarks for the current number of
+     * teams
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        RaceControl control = new RaceControl();
+        control.setControlId(CONTROL_ID);
+        control.setLeague(League.NORTHERN);
+
+        setOneConfigurer = new RaceConfigurerSetOne(null, null, control);
+        setTwoConfigurer = new RaceConfigurerSetTwo(null, null, control, 2, false);
+        knockoutConfigurer = new RaceConfigurerSetTwo(null, null, control, 3, true);
+
+        teams = createTeams(numTeams);
+        Random random = new Random(RESULT_SEED);
+
+        setOneRaces = runRaces(setOneConfigurer.generateRaceGroupMap(teams).values(), random);
+        setOneGroups = RaceGroup.racesToList(new ArrayList<>(setOneRaces), teams);
+        setOneTeamPositions = RaceConfigurerSetTwo.getTeamPositionTable(setOneGroups);
+
+        // Divisions of 6 or fewer teams have no second set, knockouts are seeded from the first
+        List<Race> setTwoRaces = runRaces(setTwoConfigurer.createRaceGroups(setOneTeamPositions).values(), random);
+        if (setTwoRaces.isEmpty()) {
+            setTwoTeamPositions = setOneTeamPositions;
+        } else {
+            setTwoTeamPositions = RaceConfigurerSetTwo.getTeamPositionTable(RaceGroup.racesToList(setTwoRaces, teams));
+        }
+    }
+
+    @Benchmark
+    public Map<String, RaceGroup> setOneGenerateRaceGroupMap() throws InvalidNumberOfTeamsException {
+        return setOneConfigurer.generateRaceGroupMap(teams);
+    }
+
+    @Benchmark
+    public Map<String, RaceGroup> setTwoCreateRaceGroups() throws InvalidNumberOfTeamsException {
+        return setTwoConfigurer.createRaceGroups(setOneTeamPositions);
+    }
+
+    @Benchmark
+    public Map<String, RaceGroup> knockoutCreateRaceGroups() throws InvalidNumberOfTeamsException {
+        return knockoutConfigurer.createRaceGroups(setTwoTeamPositions);
+    }
+
+    @Benchmark
+    public TeamPositionTable getTeamPositionTable() throws RacesUnfinishedException, MarkBoothException {
+        return RaceConfigurerSetTwo.getTeamPositionTable(setOneGroups);
+    }
+
+    @Benchmark
+    public List<RaceGroup> racesToList() {
+        // racesToList sorts the list it is given so always pass a fresh copy in run order
+        return RaceGroup.racesToList(new ArrayList<>(setOneRaces), teams);
+    }
+
+    @Benchmark
+    public void getSetOneTeamOrder(Blackhole blackhole) throws RacesUnfinishedException, MarkBoothException {
+        for (int i = 0, n = setOneGroups.size(); i < n; i++) {
+            blackhole.consume(setOneGroups.get(i).getSetOneTeamOrder());
+        }
+    }
+
+    /**
+     * @param numTeams the number of {@link Team}s to create
+     * @return a list of {@link Team}s in a single division ordered by seeding, highest first
+     */
+    private static List<Team> createTeams(int numTeams) {
+        List<Team> teams = new ArrayList<>(numTeams);
+        for (int i = 0; i < numTeams; i++) {
+            Team team = new Team();
+            team.setTeamId(i + 1);
+            team.setLeague(League.NORTHERN);
+            team.setDivision(Division.MIXED);
+            team.setDivisionIndex(1);
+            team.setClubName("Club " + (i + 1));
+            team.setTeamName("Club " + (i + 1));
+            team.setScoreR1(numTeams - i);
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    /**
+     * Randomly decides the winner of every race in the provided groups. Results which leave a group
+     * needing a "massage" are redrawn so every group can be ordered.
+     *
+     * @param groups the {@link RaceGroup}s to run
+     * @param random the source of results
+     * @return all of the races in the order they would be run, numbered as they would be persisted
+     */
+    private static List<Race> runRaces(Collection<RaceGroup> groups, Random random)
+            throws RacesUnfinishedException {
+        for (RaceGroup group : groups) {
+            boolean ordered = false;
+            while (!ordered) {
+                for (Race race : group.getRaces()) {
+                    race.setTeamWin(random.nextBoolean() ? 1 : 2);
+                }
+                try {
+                    group.getSetOneTeamOrder();
+                    ordered = true;
+                } catch (MarkBoothException e) {
+                    // Too many drawn teams, redraw the results for this group
+                }
+            }
+        }
+
+        // Interleave the sections as the configurers do
+        List<Race> races = new ArrayList<>();
+        for (int section = 0; section < 3; section++) {
+            for (RaceGroup group : groups) {
+                races.addAll(group.getRaces(section));
+            }
+        }
+        for (int i = 0, n = races.size(); i < n; i++) {
+            races.get(i).setRaceNo(i + 1);
+        }
+        return races;
+    }
+}
@@ -0,0 +1,86 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * JMH benchmarks for the tournament simulator: a single simulated tournament on one thread, which
+ * with the gc profiler shows the allocation per tournament, and a full simulation across the
+ * common fork/join pool.
+ * </p>
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TournamentSimulatorBenchmark {
+    private static final long SEED = 2017L;
+    private static final long ITERATIONS = 100000;
+
+    @Param({"4", "8", "12", "13", "16", "20", "24", "32"})
+    private int numTeams;
+
+    private List<Team> teams;
+    private SimulatedTournament tournament;
+    private FinishingPositions positions;
+    private SplittableRandom random;
+    private TournamentSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        teams = new ArrayList<>(numTeams);
+        for (int i = 0; i < numTeams; i++) {
+            Team team = new Team();
+            team.setLeague(League.NORTHERN);
+            team.setDivision(Division.MIXED);
+            team.setClubName("Club " + (i + 1));
+            team.setTeamName("Club " + (i + 1));
+            team.setScoreR1(numTeams - i);
+            teams.add(team);
+        }
+
+        WinProbability model = WinProbability.bySeeding(numTeams);
+        tournament = new SimulatedTournament(teams, model);
+        positions = new FinishingPositions(teams);
+        random = new SplittableRandom(SEED);
+        simulator = new TournamentSimulator(model, null);
+    }
+
+    @Benchmark
+    public FinishingPositions runTournament() {
+        tournament.run(random, positions);
+        return positions;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FinishingPositions simulate() throws Exception {
+        return simulator.simulate(teams, ITERATIONS, SEED);
+    }
+}
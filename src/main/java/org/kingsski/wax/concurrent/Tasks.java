@@ -0,0 +1,72 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntFunction;
+
+/**
+ * Runs a number of independent tasks, either one after another on the calling thread or
+ * concurrently on an {@link Executor}, and collects their results in order
+ */
+public final class Tasks {
+
+    private Tasks() {
+    }
+
+    /**
+     * Runs a task for each index from 0 to count - 1, starting them in index order. Every task is
+     * always run to completion before this returns so that a failure in one does not leave the
+     * others running. Tasks should catch and record their own expected failures, the first
+     * unchecked exception or error thrown by any task is rethrown once all have finished, errors
+     * being wrapped in an {@link IllegalStateException}, and any others are suppressed by it.
+     *
+     * @param executor the {@link Executor} to run each task on, or null to run them one after
+     *                 another on the calling thread
+     * @param count    the number of tasks
+     * @param task     the task, given the index it is run for
+     * @param <T>      the type of result produced by each task
+     * @return the result of each task, in index order
+     * @throws InterruptedException if interrupted while waiting for the tasks to complete
+     */
+    public static <T> List<T> run(Executor executor, int count, IntFunction<T> task) throws InterruptedException {
+        List<FutureTask<T>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            FutureTask<T> future = new FutureTask<>(() -> task.apply(index));
+            futures.add(future);
+
+            if (executor == null) {
+                future.run();
+            } else {
+                executor.execute(future);
+            }
+        }
+
+        // Wait for every task before checking the results so no task is left running
+        List<T> results = new ArrayList<>(count);
+        RuntimeException unchecked = null;
+        for (int i = 0; i < count; i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(null);
+                Throwable cause = e.getCause();
+                if (unchecked == null) {
+                    unchecked = cause instanceof RuntimeException
+                            ? (RuntimeException) cause : new IllegalStateException(cause);
+                } else {
+                    unchecked.addSuppressed(cause);
+                }
+            }
+        }
+        if (unchecked != null) {
+            throw unchecked;
+        }
+        return results;
+    }
+}
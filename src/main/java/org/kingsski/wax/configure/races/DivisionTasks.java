@@ -0,0 +1,140 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.concurrent.Tasks;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Runs a task for each division, either one after another on the calling thread or concurrently
+ * on an {@link Executor}, and holds the result, failure and time taken for each.
+ * </p>
+ * <p>
+ * Every task is always run to completion so that a failure in one division does not hide
+ * failures in the others. Checked exceptions are held as the failure for the division, unchecked
+ * exceptions are rethrown once all tasks have finished.
+ * </p>
+ *
+ * @param <T> the type of result produced for each division
+ */
+final class DivisionTasks<T> {
+
+    /**
+     * The work carried out for a single division
+     *
+     * @param <T> the type of result produced
+     */
+    interface Task<T> {
+        /**
+         * @param division the division to carry out the work for
+         * @return the result for the division
+         * @throws Exception if the work for the division failed
+         */
+        T execute(String division) throws Exception;
+    }
+
+    private final String[] divisions;
+    private final List<T> results;
+    private final Exception[] failures;
+    private final long[] timings;
+
+    private DivisionTasks(String[] divisions) {
+        this.divisions = divisions;
+        this.results = new ArrayList<>(divisions.length);
+        this.failures = new Exception[divisions.length];
+        this.timings = new long[divisions.length];
+    }
+
+    /**
+     * @param executor  the {@link Executor} to run each task on, or null to run them one after
+     *                  another on the calling thread
+     * @param divisions the divisions to run the task for
+     * @param task      the {@link Task} to run for each division
+     * @param <T>       the type of result produced for each division
+     * @return the results of each task, in the same order as the divisions
+     * @throws InterruptedException if interrupted while waiting for the tasks to complete
+     */
+    static <T> DivisionTasks<T> run(Executor executor, String[] divisions, Task<T> task) throws InterruptedException {
+        DivisionTasks<T> divisionTasks = new DivisionTasks<>(divisions);
+        divisionTasks.results.addAll(Tasks.run(executor, divisions.length, divisionIdx -> {
+            long start = System.nanoTime();
+            try {
+                return task.execute(divisions[divisionIdx]);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                divisionTasks.failures[divisionIdx] = e;
+                return null;
+            } finally {
+                divisionTasks.timings[divisionIdx] = System.nanoTime() - start;
+            }
+        }));
+        return divisionTasks;
+    }
+
+    /**
+     * @param divisionIdx the index of the division
+     * @return the result for the division, null if it failed
+     */
+    T getResult(int divisionIdx) {
+        return results.get(divisionIdx);
+    }
+
+    /**
+     * @return the result for each division in order, with null for those which failed
+     */
+    List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * @param divisionIdx the index of the division
+     * @return the exception thrown for the division, null if it succeeded
+     */
+    Exception getFailure(int divisionIdx) {
+        return failures[divisionIdx];
+    }
+
+    /**
+     * @return true if the task for any division failed
+     */
+    boolean hasFailures() {
+        for (Exception failure : failures) {
+            if (failure != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the time taken in nanoseconds for each division, in division order
+     */
+    Map<String, Long> getTimings() {
+        Map<String, Long> divisionTimings = new LinkedHashMap<>(divisions.length * 2);
+        for (int i = 0; i < divisions.length; i++) {
+            divisionTimings.put(divisions[i], timings[i]);
+        }
+        return Collections.unmodifiableMap(divisionTimings);
+    }
+
+    /**
+     * Logs the time taken for each division
+     *
+     * @param logger the {@link Logger} to log to
+     */
+    void logTimings(Logger logger) {
+        for (int i = 0; i < divisions.length; i++) {
+            logger.info("{} race groups generated in {} ms", divisions[i], TimeUnit.NANOSECONDS.toMillis(timings[i]));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.data.Team;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The number of times each {@link Team} finished in each position over a number of simulated
+ * tournaments. Teams are referred to by their index in {@link #getTeams()}, which is the seeded
+ * order, and positions are zero based.
+ */
+public class FinishingPositions {
+    private final List<Team> teams;
+    private final long[] counts;
+    private long iterations;
+    private long reruns;
+
+    /**
+     * @param teams the {@link Team}s in seeded order
+     */
+    FinishingPositions(List<Team> teams) {
+        this.teams = Collections.unmodifiableList(teams);
+        this.counts = new long[teams.size() * teams.size()];
+    }
+
+    /**
+     * @return the {@link Team}s in seeded order
+     */
+    public List<Team> getTeams() {
+        return teams;
+    }
+
+    /**
+     * @return the number of tournaments simulated
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of times the races of a group had to be rerun because more than three
+     * teams were drawn and could not be separated
+     */
+    public long getReruns() {
+        return reruns;
+    }
+
+    /**
+     * @param team     the index of the team
+     * @param position the zero based finishing position
+     * @return the number of tournaments the team finished in the position
+     */
+    public long getCount(int team, int position) {
+        return counts[team * teams.size() + position];
+    }
+
+    /**
+     * @param team     the index of the team
+     * @param position the zero based finishing position
+     * @return the proportion of tournaments the team finished in the position
+     */
+    public double getProbability(int team, int position) {
+        return iterations == 0 ? 0 : getCount(team, position) / (double) iterations;
+    }
+
+    /**
+     * @param team the index of the team
+     * @return the average finishing position of the team, where first is 1
+     */
+    public double getExpectedPosition(int team) {
+        if (iterations == 0) {
+            return 0;
+        }
+
+        double total = 0;
+        for (int position = 0, n = teams.size(); position < n; position++) {
+            total += (position + 1) * (double) getCount(team, position);
+        }
+        return total / iterations;
+    }
+
+    /**
+     * Records a tournament
+     *
+     * @param places the index of the team in each finishing position
+     */
+    void record(int[] places) {
+        for (int position = 0, n = places.length; position < n; position++) {
+            counts[places[position] * n + position]++;
+        }
+        iterations++;
+    }
+
+    /**
+     * Records a rerun of the races of a group
+     */
+    void rerun() {
+        reruns++;
+    }
+
+    /**
+     * Adds the tournaments recorded by another instance for the same teams
+     *
+     * @param other the other instance
+     */
+    void add(FinishingPositions other) {
+        for (int i = 0, n = counts.length; i < n; i++) {
+            counts[i] += other.counts[i];
+        }
+        iterations += other.iterations;
+        reruns += other.reruns;
+    }
+}
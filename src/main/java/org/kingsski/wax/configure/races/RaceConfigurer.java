@@ -2,9 +2,17 @@
 
 package org.kingsski.wax.configure.races;
 
+import org.kingsski.wax.data.Division;
 import org.kingsski.wax.data.RaceControl;
 import org.kingsski.wax.data.dao.DaoFactory;
 import org.kingsski.wax.export.RaceListWriter;
+import org.kingsski.wax.standings.Standings;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
@@ -38,13 +46,56 @@ public class RaceConfigurer {
      * @param isKnockouts true if this is a knockout set, false otherwise
      */
     public static void generateRaces(final DaoFactory daoFactory, final RaceListWriter writer, final RaceControl control, final int raceSet, boolean isKnockouts) {
+        generateRaces(daoFactory, writer, control, raceSet, isKnockouts, null);
+    }
+
+    /**
+     * Generates the races for the required set under the control id and league
+     * in the {@link RaceControl} parameter, using live {@link Standings} for the
+     * results of the previous set.
+     *
+     * @param daoFactory  The {@link DaoFactory} which will provide DAOs to this instance
+     * @param writer      The {@link RaceListWriter} which will produce a file containing the races
+     * @param control     The {@link RaceControl} containing the league and control id
+     *                    for race generation is required.
+     * @param raceSet     Which set of races need to be generated (i.e. 1, 2 or 3)
+     * @param isKnockouts true if this is a knockout set, false otherwise
+     * @param standings   The {@link Standings} holding the results of previous sets, or null to
+     *                    load the results from the database
+     */
+    public static void generateRaces(final DaoFactory daoFactory, final RaceListWriter writer, final RaceControl control,
+                                     final int raceSet, boolean isKnockouts, final Standings standings) {
+        generateRaces(daoFactory, writer, control, raceSet, isKnockouts, standings, null);
+    }
+
+    /**
+     * Generates the races for the required set under the control id and league
+     * in the {@link RaceControl} parameter, generating the races for each
+     * division concurrently on the {@link Executor}. See
+     * {@link #newDivisionExecutor()} for a suitable executor.
+     *
+     * @param daoFactory  The {@link DaoFactory} which will provide DAOs to this instance, the
+     *                    DAOs must support being used concurrently from different threads
+     * @param writer      The {@link RaceListWriter} which will produce a file containing the races
+     * @param control     The {@link RaceControl} containing the league and control id
+     *                    for race generation is required.
+     * @param raceSet     Which set of races need to be generated (i.e. 1, 2 or 3)
+     * @param isKnockouts true if this is a knockout set, false otherwise
+     * @param standings   The {@link Standings} holding the results of previous sets, or null to
+     *                    load the results from the database
+     * @param executor    The {@link Executor} which will generate each division, or null to
+     *                    generate them one after another on the calling thread
+     */
+    public static void generateRaces(final DaoFactory daoFactory, final RaceListWriter writer, final RaceControl control,
+                                     final int raceSet, boolean isKnockouts, final Standings standings,
+                                     final Executor executor) {
         switch (raceSet) {
             case 1:
-                new RaceConfigurerSetOne(daoFactory, writer, control).execute();
+                new RaceConfigurerSetOne(daoFactory, writer, control, executor).execute();
                 break;
             case 2:
             case 3:
-                new RaceConfigurerSetTwo(daoFactory, writer, control, raceSet, isKnockouts).execute();
+                new RaceConfigurerSetTwo(daoFactory, writer, control, raceSet, isKnockouts, standings, executor).execute();
                 break;
             default:
                 throw new InvalidSetException("Invalid race set: " + String.valueOf(raceSet));
@@ -52,6 +103,29 @@ public class RaceConfigurer {
 
     }
 
+    /**
+     * Creates an {@link ExecutorService} suitable for generating the races of each division
+     * concurrently. A virtual thread per task executor is used where the runtime supports it,
+     * otherwise a fixed pool with a daemon thread per division. The caller is responsible for
+     * shutting it down.
+     *
+     * @return a new {@link ExecutorService}
+     */
+    public static ExecutorService newDivisionExecutor() {
+        try {
+            // Looked up reflectively as virtual threads are not available on all supported runtimes
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNo = new AtomicInteger();
+            return Executors.newFixedThreadPool(Division.ALL_DIVISIONS.length, runnable -> {
+                Thread thread = new Thread(runnable, "race-configurer-" + threadNo.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     /**
      * Unchecked exception thrown when an invalid round number is passed for configuration
      */
@@ -0,0 +1,167 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.concurrent.Tasks;
+import org.kingsski.wax.configure.races.RaceConfigurer.InvalidSetException;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.impl.DaoFactoryShared;
+import org.kingsski.wax.export.RaceListWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Generates the same set of races for a number of {@link RaceControl}s in one go, for example
+ * every league running on a race day.
+ * </p>
+ * <p>
+ * All controls share a {@link DaoFactoryShared} so the club and team DAOs are opened once and
+ * club and team data is read once for the whole batch rather than once per control. Each control
+ * is generated as a single task on the {@link Executor}, with its divisions generated one after
+ * another within that task, and the outcome for every control is returned whether or not the
+ * others succeed.
+ * </p>
+ */
+public class RaceConfigurerBatch {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaceConfigurerBatch.class);
+
+    private final DaoFactory daoFactory;
+    private final Executor executor;
+
+    /**
+     * @param daoFactory The {@link DaoFactory} which will provide DAOs to this instance, the DAOs
+     *                   must support being used concurrently from different threads when an
+     *                   executor is provided
+     * @param executor   The {@link Executor} which will generate each control, or null to
+     *                   generate them one after another on the calling thread. See
+     *                   {@link RaceConfigurer#newDivisionExecutor()} for a suitable executor.
+     */
+    public RaceConfigurerBatch(DaoFactory daoFactory, Executor executor) {
+        this.daoFactory = daoFactory;
+        this.executor = executor;
+    }
+
+    /**
+     * Generates the required set of races for each {@link RaceControl}
+     *
+     * @param controls    The {@link RaceControl}s to generate races for
+     * @param writers     Provides the {@link RaceListWriter} which will produce a file containing
+     *                    the races for each control
+     * @param raceSet     Which set of races need to be generated (i.e. 1, 2 or 3)
+     * @param isKnockouts true if this is a knockout set, false otherwise
+     * @return the {@link Result} for each control, in the same order as the controls
+     * @throws InterruptedException if interrupted while waiting for the controls to be generated
+     */
+    public List<Result> generateRaces(List<RaceControl> controls, Function<RaceControl, RaceListWriter> writers,
+                                      int raceSet, boolean isKnockouts) throws InterruptedException {
+        if (raceSet < 1 || raceSet > 3) {
+            throw new InvalidSetException("Invalid race set: " + String.valueOf(raceSet));
+        }
+
+        DaoFactoryShared sharedDaoFactory = new DaoFactoryShared(daoFactory);
+        try {
+            return Tasks.run(executor, controls.size(), i -> {
+                RaceControl control = controls.get(i);
+                return generate(sharedDaoFactory, control, writers.apply(control), raceSet, isKnockouts);
+            });
+        } finally {
+            sharedDaoFactory.close();
+        }
+    }
+
+    private static Result generate(DaoFactory daoFactory, RaceControl control, RaceListWriter writer, int raceSet,
+                                   boolean isKnockouts) {
+        long start = System.nanoTime();
+        boolean successful;
+        List<String> failures;
+        Map<String, Long> divisionTimings;
+        try {
+            if (raceSet == 1) {
+                RaceConfigurerSetOne configurer = new RaceConfigurerSetOne(daoFactory, writer, control);
+                successful = configurer.execute();
+                failures = configurer.getFailures();
+                divisionTimings = configurer.getDivisionTimings();
+            } else {
+                RaceConfigurerSetTwo configurer = new RaceConfigurerSetTwo(daoFactory, writer, control, raceSet,
+                        isKnockouts);
+                successful = configurer.execute();
+                failures = configurer.getFailures();
+                divisionTimings = configurer.getDivisionTimings();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to generate set {} for control {}", raceSet, control.getControlId(), e);
+            successful = false;
+            failures = Collections.singletonList(String.valueOf(e.getMessage()));
+            divisionTimings = Collections.emptyMap();
+        }
+
+        long time = System.nanoTime() - start;
+        LOGGER.info("{} control {} set {} generated in {} ms", control.getLeague(), control.getControlId(), raceSet,
+                TimeUnit.NANOSECONDS.toMillis(time));
+        return new Result(control, successful, failures, divisionTimings, time);
+    }
+
+    /**
+     * The outcome of generating the races for a single {@link RaceControl}
+     */
+    public static class Result {
+        private final RaceControl control;
+        private final boolean successful;
+        private final List<String> failures;
+        private final Map<String, Long> divisionTimings;
+        private final long time;
+
+        private Result(RaceControl control, boolean successful, List<String> failures,
+                       Map<String, Long> divisionTimings, long time) {
+            this.control = control;
+            this.successful = successful;
+            this.failures = failures;
+            this.divisionTimings = divisionTimings;
+            this.time = time;
+        }
+
+        /**
+         * @return the {@link RaceControl} the races were generated for
+         */
+        public RaceControl getControl() {
+            return control;
+        }
+
+        /**
+         * @return true if the races were successfully created and written to file, false otherwise
+         */
+        public boolean isSuccessful() {
+            return successful;
+        }
+
+        /**
+         * @return the reasons generation failed, empty if it succeeded or no reason is known
+         */
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the time taken in nanoseconds to generate the race groups for each division
+         */
+        public Map<String, Long> getDivisionTimings() {
+            return divisionTimings;
+        }
+
+        /**
+         * @return the time taken in nanoseconds to generate the races for the control
+         */
+        public long getTime() {
+            return time;
+        }
+    }
+}
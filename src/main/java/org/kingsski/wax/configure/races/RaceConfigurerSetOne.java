@@ -2,8 +2,10 @@
 
 package org.kingsski.wax.configure.races;
 
-import org.kingsski.wax.configure.races.division.DivisionConfiguration;
+import org.kingsski.wax.configure.races.division.CompiledDivisionConfiguration;
 import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
 import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationSetOne;
 import org.kingsski.wax.configure.races.group.GroupConfiguration;
 import org.kingsski.wax.configure.races.group.RaceGroup;
@@ -12,11 +14,10 @@ import org.kingsski.wax.data.Division;
 import org.kingsski.wax.data.Race;
 import org.kingsski.wax.data.RaceControl;
 import org.kingsski.wax.data.Team;
-import org.kingsski.wax.data.dao.ClubDao;
 import org.kingsski.wax.data.dao.DaoFactory;
-import org.kingsski.wax.data.dao.RaceDao;
-import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.DaoSession;
 import org.kingsski.wax.export.RaceListWriter;
+import org.kingsski.wax.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -43,21 +45,31 @@ import java.util.Map;
  * then alphabetically for unseeded.
  * </p>
  * <p>
- * For each set of {@link Team}s a {@link DivisionConfigurationSetOne} object is used
- * to create the corresponding {@link RaceGroup}s. The total overall ordered
+ * For each set of {@link Team}s the {@link DivisionConfigurationSetOne} configuration held by
+ * the {@link DivisionConfigurationRegistry} is used to create the corresponding {@link RaceGroup}s. The total overall ordered
  * list of {@link Race}s for the round is then determined by iterating over each
  * of the sections in each of the groups in each division and pulling out the
  * corresponding races. Finally, this list of races is saved in order to the
  * database.
  * </p>
+ * <p>
+ * The time taken by each phase and the number of teams and races are recorded in the default
+ * {@link MetricsRegistry} under {@code configure.set1}.
+ * </p>
  */
 class RaceConfigurerSetOne {
     private static final Logger LOGGER = LoggerFactory.getLogger(RaceConfigurerSetTwo.class);
     private static final int THIS_ROUND_NO = 1;
+    private static final String METRICS = "configure.set1.";
 
     private final RaceControl control;
     private final RaceListWriter writer;
     private final DaoFactory daoFactory;
+    private final Executor executor;
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+    private Map<String, Long> divisionTimings = Collections.emptyMap();
+    private List<String> failures = Collections.emptyList();
 
     /**
      * Standard constructor
@@ -67,9 +79,24 @@ class RaceConfigurerSetOne {
      * @param control    The {@link RaceControl} for the races we are generating
      */
     public RaceConfigurerSetOne(DaoFactory daoFactory, RaceListWriter writer, RaceControl control) {
+        this(daoFactory, writer, control, null);
+    }
+
+    /**
+     * Constructor which generates the race groups for each division concurrently. The clubs and
+     * teams are still read and the races written in a single session and transaction.
+     *
+     * @param daoFactory The {@link DaoFactory} which will provide DAOs to this instance
+     * @param writer     The {@link RaceListWriter} which will produce a file containing these races
+     * @param control    The {@link RaceControl} for the races we are generating
+     * @param executor   The {@link Executor} which will generate each division, or null to
+     *                   generate them one after another on the calling thread
+     */
+    public RaceConfigurerSetOne(DaoFactory daoFactory, RaceListWriter writer, RaceControl control, Executor executor) {
         this.control = control;
         this.writer = writer;
         this.daoFactory = daoFactory;
+        this.executor = executor;
     }
 
     /**
@@ -93,40 +120,65 @@ class RaceConfigurerSetOne {
      * @return true if the races were successfully created and written to file, false otherwise
      */
     public Boolean execute() {
-        ClubDao clubDatasource = daoFactory.newClubDaoInstance();
-        clubDatasource.open();
+        long start = System.nanoTime();
 
-        String league = this.control.getLeague();
-        List<Club> allClubs = clubDatasource.getClubs(league);
-        clubDatasource.close();
-
-        // Get the list of seeded teams
-        TeamDao teamDatasource = daoFactory.newTeamDaoInstance();
-        teamDatasource.open();
+        // Reading the clubs and teams and writing the races is a single unit of work
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            session.beginTransaction();
+            return execute(session);
+        } finally {
+            session.close();
+            metrics.timer(METRICS + "execute").recordSince(start);
+        }
+    }
 
-        // Retrieve the competing teams for this league and division and sort them
-        List<Team> competingTeams;
+    private Boolean execute(DaoSession session) {
+        String league = this.control.getLeague();
+        long start = System.nanoTime();
+        List<Club> allClubs = session.getClubDao().getClubs(league);
+        metrics.timer(METRICS + "loadClubs").recordSince(start);
+
+        // Read the competing teams of every division in this session so reading the clubs and
+        // teams and writing the races remain a single unit of work
+        Map<String, List<Team>> divisionTeams = new HashMap<>();
+        for (int i = 0; i < Division.ALL_DIVISIONS.length; i++) {
+            String division = Division.ALL_DIVISIONS[i];
+            divisionTeams.put(division, loadDivision(session, division, allClubs, league));
+        }
 
-        // Create the race groups and races for each division
-        List<Map<String, RaceGroup>> allRaceGroups = new ArrayList<>(3);
+        // Create the race groups and races for each division, this needs no DAOs and the
+        // divisions are independent so if we have an executor they are generated concurrently
+        DivisionTasks<Map<String, RaceGroup>> divisionTasks;
         try {
-            for (String division : Division.ALL_DIVISIONS) {
-                competingTeams = teamDatasource.getCompetingTeams(division, allClubs, league);
+            divisionTasks = DivisionTasks.run(this.executor, Division.ALL_DIVISIONS,
+                    division -> generateDivision(divisionTeams.get(division)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Boolean.FALSE;
+        }
 
-                LOGGER.debug("{} teams competing:", division);
-                Collections.sort(competingTeams);
-                for (int i = 0, n = competingTeams.size(); i < n; i++) {
-                    LOGGER.debug(competingTeams.get(i).toString());
-                }
+        divisionTasks.logTimings(LOGGER);
+        this.divisionTimings = divisionTasks.getTimings();
 
-                allRaceGroups.add(generateRaceGroupMap(competingTeams));
+        if (divisionTasks.hasFailures()) {
+            List<String> divisionFailures = new ArrayList<>(Division.ALL_DIVISIONS.length);
+            for (int i = 0; i < Division.ALL_DIVISIONS.length; i++) {
+                if (divisionTasks.getFailure(i) != null) {
+                    LOGGER.warn("{}: {}", Division.ALL_DIVISIONS[i], divisionTasks.getFailure(i).getMessage());
+                    divisionFailures.add(Division.ALL_DIVISIONS[i] + ": " + divisionTasks.getFailure(i).getMessage());
+                }
             }
-        } catch (InvalidNumberOfTeamsException e) {
+            this.failures = Collections.unmodifiableList(divisionFailures);
+            metrics.counter(METRICS + "failures").add(divisionFailures.size());
             return Boolean.FALSE;
         }
+        this.failures = Collections.emptyList();
+        List<Map<String, RaceGroup>> allRaceGroups = divisionTasks.getResults();
 
         // Create a single list of races in the order they will be run
         //TODO Comments!
+        start = System.nanoTime();
         List<Race> allRaces = new ArrayList<>();
         Collection<RaceGroup> groups;
         List<Race> theseRaces;
@@ -142,29 +194,81 @@ class RaceConfigurerSetOne {
                 }
             }
         }
+        metrics.timer(METRICS + "interleave").recordSince(start);
+        metrics.counter(METRICS + "races").add(allRaces.size());
 
-        // Commit these to the database
-        RaceDao raceDatasource = daoFactory.newRaceDaoInstance();
-        raceDatasource.open();
+        // Add the new races as a single batch
+        start = System.nanoTime();
+        session.getRaceDao().addRaces(allRaces);
 
-        // Begin the transaction to the database
-        raceDatasource.beginTransactionNonExclusive();
+        // Mark the transaction to the database as successful and end it
+        session.setTransactionSuccessful();
+        session.endTransaction();
+        metrics.timer(METRICS + "persist").recordSince(start);
 
-        // Add the new races
-        for (int i = 0, n = allRaces.size(); i < n; i++) {
-            raceDatasource.addRace(allRaces.get(i));
-        }
+        // Only the competing teams are needed to write out the races
+        start = System.nanoTime();
+        RaceListExport.write(writer, allRaces, allRaceGroups);
+        metrics.timer(METRICS + "export").recordSince(start);
 
-        // Mark the transaction to the database as successful and end it
-        raceDatasource.setTransactionSuccessful();
-        raceDatasource.endTransaction();
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Retrieves the competing teams for a division, creating any which do not exist yet, and sorts
+     * them in seeded order.
+     *
+     * @param session  The {@link DaoSession} to retrieve the teams through
+     * @param division The division to retrieve the teams for
+     * @param allClubs The {@link Club}s competing
+     * @param league   The league the races are being run under
+     * @return the competing {@link Team}s of the division
+     */
+    private List<Team> loadDivision(DaoSession session, String division, List<Club> allClubs, String league) {
+        long start = System.nanoTime();
+        List<Team> competingTeams = session.getTeamDao().getCompetingTeams(division, allClubs, league);
+
+        LOGGER.debug("{} teams competing:", division);
+        Collections.sort(competingTeams);
+        for (int i = 0, n = competingTeams.size(); i < n; i++) {
+            LOGGER.debug(competingTeams.get(i).toString());
+        }
+        metrics.timer(METRICS + "loadTeams").recordSince(start);
+        metrics.counter(METRICS + "teams").add(competingTeams.size());
+        metrics.histogram(METRICS + "divisionTeams").record(competingTeams.size());
+        return competingTeams;
+    }
 
-        writer.writeRaceList(allRaces, teamDatasource.getTeams(null, null, null));
+    /**
+     * Generates the {@link RaceGroup}s for the competing teams of a division
+     *
+     * @param competingTeams The competing {@link Team}s of the division in seeded order
+     * @return A {@link Map} of {@link RaceGroup}s for the division
+     * @throws InvalidNumberOfTeamsException If {@link RaceGroup}s cannot be created for the
+     *                                       number of teams competing in the division
+     */
+    private Map<String, RaceGroup> generateDivision(List<Team> competingTeams) throws InvalidNumberOfTeamsException {
+        long start = System.nanoTime();
+        Map<String, RaceGroup> raceGroups = generateRaceGroupMap(competingTeams);
+        metrics.timer(METRICS + "buildGroups").recordSince(start);
+        return raceGroups;
+    }
 
-        raceDatasource.close();
-        teamDatasource.close();
+    /**
+     * @return the time taken in nanoseconds to generate the race groups for each division
+     * during the last execution, in the order the divisions were generated. This is empty
+     * until {@link #execute()} has been called.
+     */
+    public Map<String, Long> getDivisionTimings() {
+        return divisionTimings;
+    }
 
-        return Boolean.TRUE;
+    /**
+     * @return the reasons the race groups could not be generated for each division which
+     * failed during the last execution, empty if none failed
+     */
+    public List<String> getFailures() {
+        return failures;
     }
 
     /**
@@ -227,7 +331,7 @@ class RaceConfigurerSetOne {
         // Initialise the Map we are returning
         Map<String, RaceGroup> raceGroups = new HashMap<>();
 
-        DivisionConfiguration config = new DivisionConfigurationSetOne(competingTeams.size());
+        CompiledDivisionConfiguration config = DivisionConfigurationRegistry.get(SetType.SET_ONE, competingTeams.size());
         String[] groupNames = config.getGroupNames();
         GroupConfiguration[] groupGrid = config.getGroupGrid();
 
@@ -2,9 +2,13 @@
 
 package org.kingsski.wax.configure.races;
 
+import org.kingsski.wax.configure.races.division.CompiledDivisionConfiguration;
 import org.kingsski.wax.configure.races.division.DivisionConfiguration;
 import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
-import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationKnockout;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.configure.races.division.Group;
+import org.kingsski.wax.configure.races.division.TeamPositionTable;
 import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationSetTwo;
 import org.kingsski.wax.configure.races.group.GroupConfiguration;
 import org.kingsski.wax.configure.races.group.RaceGroup;
@@ -16,9 +20,11 @@ import org.kingsski.wax.data.Race;
 import org.kingsski.wax.data.RaceControl;
 import org.kingsski.wax.data.Team;
 import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
 import org.kingsski.wax.data.dao.RaceDao;
-import org.kingsski.wax.data.dao.TeamDao;
 import org.kingsski.wax.export.RaceListWriter;
+import org.kingsski.wax.metrics.MetricsRegistry;
+import org.kingsski.wax.standings.Standings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +35,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 // TODO Rename this class, it is actually a configurer for any set which is not the first.
 // TODO Fix copypasta javadoc for the class
 
@@ -47,13 +54,18 @@ import java.util.Map;
  * belongs in for this "next" round
  * </p>
  * <p>
- * For each set of {@link Team}s a {@link DivisionConfigurationSetTwo} object is
- * used to create the corresponding {@link RaceGroup}s. The total overall
+ * For each set of {@link Team}s the {@link DivisionConfigurationSetTwo} configuration held by
+ * the {@link DivisionConfigurationRegistry} is used to create the corresponding
+ * {@link RaceGroup}s. The total overall
  * ordered list of {@link Race}s for the round is then determined by iterating
  * over each of the sections in each of the groups in each division and pulling
  * out the corresponding races. Finally, this list of races is saved in order to
  * the database.
  * </p>
+ * <p>
+ * The time taken by each phase and the number of teams and races are recorded in the default
+ * {@link MetricsRegistry} under {@code configure.set2} or {@code configure.set3}.
+ * </p>
  */
 class RaceConfigurerSetTwo {
     private static final Logger LOGGER = LoggerFactory.getLogger(RaceConfigurerSetTwo.class);
@@ -66,9 +78,13 @@ class RaceConfigurerSetTwo {
     private final boolean isKnockouts;
     private final RaceListWriter writer;
     private final DaoFactory daoFactory;
+    private final Standings standings;
+    private final Executor executor;
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private final String metricsPrefix;
 
-    private RaceDao raceDatasource;
-    private TeamDao teamDatasource;
+    private Map<String, Long> divisionTimings = Collections.emptyMap();
+    private List<String> failures = Collections.emptyList();
 
     /**
      * Standard constructor
@@ -80,6 +96,42 @@ class RaceConfigurerSetTwo {
      * @param isKnockouts true if this round is a knockout round, false otherwise
      */
     public RaceConfigurerSetTwo(DaoFactory daoFactory, RaceListWriter writer, RaceControl control, int raceSetNo, boolean isKnockouts) {
+        this(daoFactory, writer, control, raceSetNo, isKnockouts, null);
+    }
+
+    /**
+     * Constructor which uses live {@link Standings} for the results of the previous set
+     *
+     * @param daoFactory  The {@link DaoFactory} which will provide DAOs to this instance
+     * @param writer      The {@link RaceListWriter} which will write these races out to file
+     * @param control     The {@link RaceControl} these races are being created for
+     * @param raceSetNo   the number of the set to generate races for
+     * @param isKnockouts true if this round is a knockout round, false otherwise
+     * @param standings   The {@link Standings} holding the results of the previous set, or null
+     *                    to load them from the {@link RaceDao}
+     */
+    public RaceConfigurerSetTwo(DaoFactory daoFactory, RaceListWriter writer, RaceControl control, int raceSetNo,
+                                boolean isKnockouts, Standings standings) {
+        this(daoFactory, writer, control, raceSetNo, isKnockouts, standings, null);
+    }
+
+    /**
+     * Constructor which determines the race groups for each division concurrently
+     *
+     * @param daoFactory  The {@link DaoFactory} which will provide DAOs to this instance, the DAOs
+     *                    must support being used concurrently from different threads
+     * @param writer      The {@link RaceListWriter} which will write these races out to file
+     * @param control     The {@link RaceControl} these races are being created for
+     * @param raceSetNo   the number of the set to generate races for
+     * @param isKnockouts true if this round is a knockout round, false otherwise
+     * @param standings   The {@link Standings} holding the results of the previous set, or null
+     *                    to load them from the {@link RaceDao}
+     * @param executor    The {@link Executor} which will determine the race groups for each
+     *                    division, or null to determine them one after another on the calling
+     *                    thread
+     */
+    public RaceConfigurerSetTwo(DaoFactory daoFactory, RaceListWriter writer, RaceControl control, int raceSetNo,
+                                boolean isKnockouts, Standings standings, Executor executor) {
         if (raceSetNo < MINIMUM_SET_NO) {
             throw new SetNumberTooLowException("Param raceSetNo (" + raceSetNo + ") must be " +
                     MINIMUM_SET_NO + " or higher");
@@ -89,6 +141,9 @@ class RaceConfigurerSetTwo {
         this.raceSetNo = raceSetNo;
         this.isKnockouts = isKnockouts;
         this.daoFactory = daoFactory;
+        this.standings = standings;
+        this.executor = executor;
+        this.metricsPrefix = "configure.set" + raceSetNo + ".";
     }
 
     /**
@@ -112,22 +167,43 @@ class RaceConfigurerSetTwo {
      * @return true if the races were successfully created and written to file, false otherwise
      */
     public Boolean execute() {
+        long start = System.nanoTime();
+        try {
+            return executeSet();
+        } finally {
+            metrics.timer(metricsPrefix + "execute").recordSince(start);
+        }
+    }
 
-        // Create and open the DAOs for the generateRaceGroupMap method calls
-        this.teamDatasource = daoFactory.newTeamDaoInstance();
-        this.teamDatasource.open();
-        this.raceDatasource = daoFactory.newRaceDaoInstance();
-        this.raceDatasource.open();
-
-        List<Map<String, RaceGroup>> allRaceGroups = new ArrayList<>(3);
+    private Boolean executeSet() {
+        // Determine the race groups for each division, the divisions are independent so if we
+        // have an executor they are determined concurrently
+        DivisionTasks<Map<String, RaceGroup>> divisionTasks;
         try {
-            allRaceGroups.add(generateRaceGroupMap(Division.MIXED));
-            allRaceGroups.add(generateRaceGroupMap(Division.LADIES));
-            allRaceGroups.add(generateRaceGroupMap(Division.BOARD));
-        } catch (RaceGenerationFailException e) {
-//			publishProgress(e.getMessage());
+            divisionTasks = DivisionTasks.run(this.executor, Division.ALL_DIVISIONS, this::generateRaceGroupMap);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Boolean.FALSE;
+        }
+
+        divisionTasks.logTimings(LOGGER);
+        this.divisionTimings = divisionTasks.getTimings();
+
+        // Report the failures from every division rather than just the first
+        List<String> divisionFailures = new ArrayList<>(Division.ALL_DIVISIONS.length);
+        for (int i = 0; i < Division.ALL_DIVISIONS.length; i++) {
+            if (divisionTasks.getFailure(i) != null) {
+                divisionFailures.add(divisionTasks.getFailure(i).getMessage());
+            }
+        }
+        this.failures = Collections.unmodifiableList(divisionFailures);
+        if (!divisionFailures.isEmpty()) {
+            metrics.counter(metricsPrefix + "failures").add(divisionFailures.size());
+            LOGGER.warn("Failed to generate set {}: {}", this.raceSetNo, String.join("; ", divisionFailures));
+//			publishProgress(String.join("\n", divisionFailures));
             return Boolean.FALSE;
         }
+        List<Map<String, RaceGroup>> allRaceGroups = divisionTasks.getResults();
 
         // TODO Put a better check in - we need to understand if there are no races
         // run for this league yet or if we simply have very low numbers of
@@ -142,6 +218,7 @@ class RaceConfigurerSetTwo {
         }
 
         // Create a single list of races in the order they will be run
+        long start = System.nanoTime();
         List<Race> allRaces = new ArrayList<>();
         Collection<RaceGroup> groups;
         List<Race> theseRaces;
@@ -157,59 +234,98 @@ class RaceConfigurerSetTwo {
                 }
             }
         }
+        metrics.timer(metricsPrefix + "interleave").recordSince(start);
+        metrics.counter(metricsPrefix + "races").add(allRaces.size());
+
+        // Commit these to the database
+        start = System.nanoTime();
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            writeRaces(session, allRaces);
+        } finally {
+            session.close();
+        }
+        metrics.timer(metricsPrefix + "persist").recordSince(start);
+
+        // Only the competing teams are needed to write out the races
+        start = System.nanoTime();
+        RaceListExport.write(writer, allRaces, allRaceGroups);
+        metrics.timer(metricsPrefix + "export").recordSince(start);
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Replaces any races for this set with the new races in a single transaction
+     *
+     * @param session  The {@link DaoSession} to write the races through
+     * @param allRaces The new races in the order they will be run
+     */
+    private void writeRaces(DaoSession session, List<Race> allRaces) {
+        RaceDao raceDatasource = session.getRaceDao();
 
         // Begin the transaction to the database
-        this.raceDatasource.beginTransactionNonExclusive();
+        session.beginTransaction();
 
         // Delete races for this round if they already exist
-        this.raceDatasource.deleteRaces(allRaces.get(0).getControlId(), this.raceSetNo);
+        raceDatasource.deleteRaces(allRaces.get(0).getControlId(), this.raceSetNo);
 
         if (this.isKnockouts) {
             Collections.sort(allRaces, new Comparator<Race>() {
                 @Override
                 public int compare(Race raceOne, Race raceTwo) {
-                    int check = raceTwo.getDivision().toUpperCase().toCharArray()[0] -
-                            raceOne.getDivision().toUpperCase().toCharArray()[0];
-                    String divisionLetter;
+                    int check = knockoutDivisionOrder(raceOne) - knockoutDivisionOrder(raceTwo);
 
                     if (check == 0) {
-                        return raceTwo.getGroup().toUpperCase().toCharArray()[0] -
-                                raceOne.getGroup().toUpperCase().toCharArray()[0];
-                    } else {
-                        divisionLetter = raceOne.getDivision().substring(0, 1);
-                        if (divisionLetter.equalsIgnoreCase("L")) {
-                            // We want ladies first
-                            return -1;
-                        } else if (divisionLetter.equalsIgnoreCase("M")) {
-                            // We want mixed last
-                            return 1;
-                        } else if (raceTwo.getDivision().substring(0, 1).equalsIgnoreCase("M")) {
-                            // Again we want mixed last (after boarders)
-                            return -1;
-                        } else {
-                            // We want ladies first (before boarders)
-                            return 1;
-                        }
+                        // Within a division order by the first character of the group descending
+                        check = Character.toUpperCase(raceTwo.getGroup().charAt(0)) -
+                                Character.toUpperCase(raceOne.getGroup().charAt(0));
                     }
+
+                    return check;
                 }
             });
         }
 
-        // Add the new races
-        for (int i = 0, n = allRaces.size(); i < n; i++) {
-            this.raceDatasource.addRace(allRaces.get(i));
-        }
+        // Add the new races as a single batch
+        raceDatasource.addRaces(allRaces);
 
         // Mark the transaction to the database as successful and end it
-        this.raceDatasource.setTransactionSuccessful();
-        this.raceDatasource.endTransaction();
+        session.setTransactionSuccessful();
+        session.endTransaction();
+    }
 
-        writer.writeRaceList(allRaces, this.teamDatasource.getTeams(null, null, null));
+    /**
+     * @param race the knockout {@link Race}
+     * @return the order the division of the race is run in during knockouts - ladies first, then
+     * boarders, then mixed last
+     */
+    private static int knockoutDivisionOrder(Race race) {
+        switch (race.getDivisionOrdinal()) {
+            case 'L':
+                return 0;
+            case 'M':
+                return 2;
+            default:
+                return 1;
+        }
+    }
 
-        this.teamDatasource.close();
-        this.raceDatasource.close();
+    /**
+     * @return the time taken in nanoseconds to determine the race groups for each division
+     * during the last execution, in the order the divisions were processed. This is empty
+     * until {@link #execute()} has been called.
+     */
+    public Map<String, Long> getDivisionTimings() {
+        return divisionTimings;
+    }
 
-        return Boolean.TRUE;
+    /**
+     * @return the reasons the race groups could not be determined for each division which
+     * failed during the last execution, empty if none failed
+     */
+    public List<String> getFailures() {
+        return failures;
     }
 
     // TODO got to be a better way of doing this
@@ -226,18 +342,34 @@ class RaceConfigurerSetTwo {
     private Map<String, RaceGroup> generateRaceGroupMap(String division) throws
             RaceGenerationFailException {
 
-        List<Team> teamsList = this.teamDatasource.getTeamsByDivision(division);
-
-        // Get the list of races from the previous set
-        List<Race> racesList = this.raceDatasource.getRaces(
-                this.control.getControlId(), division, this.raceSetNo - 1);
-
-        List<RaceGroup> raceGroups = RaceGroup.racesToList(racesList, teamsList);
+        long start = System.nanoTime();
+        List<RaceGroup> raceGroups;
+        if (this.standings == null) {
+            // Each division uses its own session so they may be generated concurrently
+            DaoSession session = daoFactory.newDaoSessionInstance();
+            try {
+                List<Team> teamsList = session.getTeamDao().getTeams(null, division, this.control.getLeague());
+
+                // Get the list of races from the previous set
+                List<Race> racesList = session.getRaceDao().getRaces(
+                        this.control.getControlId(), division, this.raceSetNo - 1);
+
+                raceGroups = RaceGroup.racesToList(racesList, teamsList);
+            } finally {
+                session.close();
+            }
+        } else {
+            // The live standings already hold the races from the previous set
+            raceGroups = this.standings.getRaceGroups(
+                    this.control.getControlId(), division, this.raceSetNo - 1);
+        }
+        metrics.timer(metricsPrefix + "loadResults").recordSince(start);
 
-        // Generate the maps of team position to teams
-        Map<String, Team> teamOrder;
+        // Generate the table of team positions
+        start = System.nanoTime();
+        TeamPositionTable teamOrder;
         try {
-            teamOrder = getOrderedTeamMap(raceGroups);
+            teamOrder = getTeamPositionTable(raceGroups, this.standings);
         } catch (RacesUnfinishedException e) {
             throw new RaceGenerationFailException("Unfinished " + division
                     + " race(s)");
@@ -258,89 +390,67 @@ class RaceConfigurerSetTwo {
             throw new RaceGenerationFailException(division + ": "
                     + e.getMessage());
         }
+        metrics.timer(metricsPrefix + "buildGroups").recordSince(start);
+
+        int teams = 0;
+        for (RaceGroup group : raceGroupList.values()) {
+            teams += group.getTeams().size();
+        }
+        metrics.counter(metricsPrefix + "teams").add(teams);
+        metrics.histogram(metricsPrefix + "divisionTeams").record(teams);
 
         return raceGroupList;
     }
 
     /**
-     * Returns a mapping of {@link Team}s with using their position within the group and the
-     * group letter as the key. This allows races to be determined from the transformation mapping
-     * provided by the corresponding {@link DivisionConfiguration} implementation.
+     * Returns a {@link TeamPositionTable} of the {@link Team}s in each {@link RaceGroup} using
+     * the index of the group and the position within the group. This allows races to be
+     * determined from the transformation mapping provided by the corresponding
+     * {@link DivisionConfiguration} implementation.
      *
-     * @param raceGroups the list of {@link RaceGroup}s which we need to determine the map for
-     * @return a map of {@link Team}s with thei key as their position withing the {@link
-     * RaceGroup} and the race group name.
+     * @param raceGroups the list of {@link RaceGroup}s which we need to determine the table for
+     * @return a {@link TeamPositionTable} of the {@link Team}s in each {@link RaceGroup}
      * @throws RacesUnfinishedException
      * @throws MarkBoothException
      */
-    private static Map<String, Team> getOrderedTeamMap(List<RaceGroup> raceGroups)
+    static TeamPositionTable getTeamPositionTable(List<RaceGroup> raceGroups)
             throws RacesUnfinishedException, MarkBoothException {
-        // Initialise the Map we are returning
-        Map<String, Team> orderedTeamMap = new HashMap<>();
+        return getTeamPositionTable(raceGroups, null);
+    }
 
-        // Variable declarations for processing
-        String groupName;
-        List<Team> groupOrderedTeams;
-        RaceGroup rg;
+    /**
+     * As {@link #getTeamPositionTable(List)} but retrieves the order of each {@link RaceGroup}
+     * from the {@link Standings} so that only groups with changed results are recalculated.
+     *
+     * @param raceGroups the list of {@link RaceGroup}s which we need to determine the table for
+     * @param standings  the {@link Standings} which provided the race groups, or null to
+     *                   calculate the order of every group
+     * @return a {@link TeamPositionTable} of the {@link Team}s in each {@link RaceGroup}
+     * @throws RacesUnfinishedException
+     * @throws MarkBoothException
+     */
+    static TeamPositionTable getTeamPositionTable(List<RaceGroup> raceGroups, Standings standings)
+            throws RacesUnfinishedException, MarkBoothException {
+        TeamPositionTable table = new TeamPositionTable(raceGroups.size(), 4);
 
-        // Loop trough the race groups and retrieve the list of ordered teams,
-        // then add these teams to the map using the group letter and position
-        // as the key
+        // Loop trough the race groups and retrieve the list of ordered teams, then add these
+        // teams to the table by the group index and position
         for (int i = 0, n = raceGroups.size(); i < n; i++) {
-            rg = raceGroups.get(i);
-            groupName = rg.getGroupName();
-            groupName = groupName.substring(groupName.indexOf(" ") + 1);
-
-            // For roman numeral groups convert them to standard numbers
-            switch (groupName) {
-                case "A":
-                case "B":
-                case "C":
-                case "D":
-                case "E":
-                case "F":
-                case "G":
-                case "H":
-                    // Ignore the lettered groups
-                    break;
-                case "I":
-                    groupName = "1";
-                    break;
-                case "II":
-                    groupName = "2";
-                    break;
-                case "III":
-                    groupName = "3";
-                    break;
-                case "IV":
-                    groupName = "4";
-                    break;
-                case "V":
-                    groupName = "5";
-                    break;
-                case "VI":
-                    groupName = "6";
-                    break;
-                case "VII":
-                    groupName = "7";
-                    break;
-                case "VIII":
-                    groupName = "8";
-                    break;
-                default:
-                    throw new DivisionConfiguration.InvalidSetupException("Unrecognised  group " +
-                            "name (" + groupName + ")");
+            RaceGroup rg = raceGroups.get(i);
+            // Groups of the first set are lettered, later sets are roman numerals
+            int group = Group.indexOfQualified(rg.getGroupName(), rg.getRoundNo() == 1);
+            if (group < 0) {
+                throw new DivisionConfiguration.InvalidSetupException("Unrecognised  group " +
+                        "name (" + rg.getGroupName() + ")");
             }
 
-            groupOrderedTeams = rg.getSetOneTeamOrder();
+            List<Team> groupOrderedTeams = standings == null ? rg.getSetOneTeamOrder() : standings.getStandings(rg);
             for (int j = 0, m = groupOrderedTeams.size(); j < m; j++) {
-                orderedTeamMap.put(String.valueOf(j + 1) + groupName,
-                        groupOrderedTeams.get(j));
+                table.put(group, j, groupOrderedTeams.get(j));
             }
         }
 
-        // Return the Map of teams
-        return orderedTeamMap;
+        return table;
     }
 
     /**
@@ -364,44 +474,30 @@ class RaceConfigurerSetTwo {
      */
     public Map<String, RaceGroup> createRaceGroups(Map<String, Team> teamsMap) throws InvalidNumberOfTeamsException {
         // TODO return empty map if the teamMap size is 0
+        return createRaceGroups(TeamPositionTable.of(teamsMap));
+    }
 
-        // Generate the configuration required for this set of races
-        DivisionConfiguration config;
-        // TODO gross - pass in a generic implementation of DivisionConfiguration which is
-        // instantiated here
-        /*
-         * public class Blah<T extends DivisionConfiguration>...
-         *    private Clazz<T> clazz;
-         * public Blah(params..., Class<T> clazz)...
-         *    this.clazz = clazz;...
-         * T config = clazz.newInstance();
-         * config.setupTeams(teamsMap.size());
-         *
-         * etc.
-         */
-        if (this.isKnockouts) {
-            config = new DivisionConfigurationKnockout(teamsMap.size());
-        } else {
-            switch (this.raceSetNo) {
-                case 2:
-                    config = new DivisionConfigurationSetTwo(teamsMap.size());
-                    break;
-                case 3:
-                    config = new DivisionConfigurationKnockout(teamsMap.size());
-                    break;
-                default:
-                    throw new DivisionConfiguration.InvalidSetupException("No division configuration " +
-                            "exists for the required set (" + this.raceSetNo + ")");
-            }
-        }
+    /**
+     * As {@link #createRaceGroups(Map)} but with the {@link Team}s held in a
+     * {@link TeamPositionTable} by the group and position they finished in the previous set.
+     *
+     * @param teamPositions The {@link TeamPositionTable} of {@link Team}s which race groups are
+     *                      needed for
+     * @return A {@link Map} of {@link RaceGroup}s based on the previous rounds
+     * results
+     * @throws InvalidNumberOfTeamsException The {@link RuntimeException} thrown when {@link RaceGroup}s
+     *                                       cannot be created for the required number of teams
+     */
+    public Map<String, RaceGroup> createRaceGroups(TeamPositionTable teamPositions) throws InvalidNumberOfTeamsException {
+        // Retrieve the configuration required for this set of races
+        CompiledDivisionConfiguration config = DivisionConfigurationRegistry.get(getSetType(), teamPositions.size());
 
-        String[][] transformationMapping = config.getTransformationMapping();
         String[] groupNames = config.getGroupNames();
         GroupConfiguration[] groupGrid = config.getGroupGrid();
         int controlId = this.control.getControlId();
 
         // Initialise the map we are returning
-        Map<String, RaceGroup> raceGroups = new HashMap<>(groupNames.length);
+        Map<String, RaceGroup> raceGroups = new HashMap<>(groupNames.length * 2);
 
         // If there are no races to run (sero length groupNames array or a zero length groupGrid
         // array or zero length transformationMapping array) return the empty map
@@ -409,34 +505,23 @@ class RaceConfigurerSetTwo {
             return raceGroups;
         }
 
-        // Create the race groups
-        int numTeams;
-        for (int i = 0, n = transformationMapping.length; i < n; i++) {
-            numTeams = transformationMapping[i].length;
-            ArrayList<Team> teams = new ArrayList<>(numTeams);
+        // Create the race groups and the races for each group
+        for (int i = 0, n = config.getGroupCount(); i < n; i++) {
+            int groupTeams = config.getMappedTeamCount(i);
+            ArrayList<Team> teams = new ArrayList<>(groupTeams);
 
-            for (int j = 0; j < numTeams; j++) {
-                teams.add(teamsMap.get(transformationMapping[i][j]));
+            for (int j = 0; j < groupTeams; j++) {
+                Team team = teamPositions.get(config.getSourceGroup(i, j), config.getSourcePosition(i, j));
+                teams.add(team);
+                if (team != null) {
+                    LOGGER.debug("{} in race group {}", team.getTeamName(), groupNames[i]);
+                }
             }
 
-            // Create a new RageGroup and add the teams who are competing to it
-            RaceGroup group = new RaceGroup(groupNames[i],
-                    teams, groupGrid[i], controlId, this.raceSetNo);
-
-            // Add the group to the map
+            // Create a new RageGroup with the teams who are competing and generate the races
+            RaceGroup group = new RaceGroup(groupNames[i], teams, groupGrid[i], controlId, this.raceSetNo);
+            group.initRaces();
             raceGroups.put(groupNames[i], group);
-        }
-
-        // Create the races for each group
-        List<Team> theseTeams;
-        for (int i = 0; i < groupNames.length; i++) {
-            theseTeams = raceGroups.get(groupNames[i]).getTeams();
-            for (int j = 0, m = theseTeams.size(); j < m; j++) {
-                LOGGER.debug("{} in race group {}", theseTeams.get(j).getTeamName(), groupNames[i]);
-            }
-
-            // Call the method to generate the races inside the RaceGroup
-            raceGroups.get(groupNames[i]).initRaces();
 
             LOGGER.info("race group {} created, initialised and added", groupNames[i]);
         }
@@ -445,6 +530,22 @@ class RaceConfigurerSetTwo {
         return raceGroups;
     }
 
+    private SetType getSetType() {
+        if (this.isKnockouts) {
+            return SetType.KNOCKOUT;
+        }
+
+        switch (this.raceSetNo) {
+            case 2:
+                return SetType.SET_TWO;
+            case 3:
+                return SetType.KNOCKOUT;
+            default:
+                throw new DivisionConfiguration.InvalidSetupException("No division configuration " +
+                        "exists for the required set (" + this.raceSetNo + ")");
+        }
+    }
+
     /**
      * Exception thrown when an error occurs trying to generate this set of races
      */
@@ -0,0 +1,67 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.export.RaceListWriter;
+import org.kingsski.wax.export.StreamingRaceListWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Utility for passing a generated set of races to a {@link RaceListWriter}.
+ * </p>
+ * <p>
+ * The teams written are taken from the {@link RaceGroup}s the races were generated for, so
+ * only teams which are competing are used. {@link StreamingRaceListWriter}s are sent each race
+ * in turn, other writers are sent the complete list.
+ * </p>
+ */
+final class RaceListExport {
+
+    private RaceListExport() {
+        // Utility class
+    }
+
+    /**
+     * @param writer        The {@link RaceListWriter} to write the races with
+     * @param races         The ordered list of {@link Race}s to write
+     * @param allRaceGroups The {@link RaceGroup}s for each division which the races belong to
+     * @return true if the races were written, false otherwise
+     */
+    static boolean write(RaceListWriter writer, List<Race> races, List<Map<String, RaceGroup>> allRaceGroups) {
+        Map<Integer, Team> teams = new HashMap<>();
+        for (int i = 0, n = allRaceGroups.size(); i < n; i++) {
+            for (RaceGroup group : allRaceGroups.get(i).values()) {
+                List<Team> groupTeams = group.getTeams();
+                for (int j = 0, m = groupTeams.size(); j < m; j++) {
+                    teams.put(groupTeams.get(j).getTeamId(), groupTeams.get(j));
+                }
+            }
+        }
+
+        if (writer instanceof StreamingRaceListWriter) {
+            StreamingRaceListWriter streamingWriter = (StreamingRaceListWriter) writer;
+            if (!streamingWriter.open(teamId -> {
+                Team team = teams.get(teamId);
+                return team == null ? null : team.getTeamName();
+            })) {
+                return false;
+            }
+
+            boolean written = true;
+            for (int i = 0, n = races.size(); i < n && written; i++) {
+                written = streamingWriter.append(races.get(i));
+            }
+            return streamingWriter.close() && written;
+        }
+
+        return writer.writeRaceList(races, new ArrayList<>(teams.values()));
+    }
+}
@@ -0,0 +1,278 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.configure.races.division.CompiledDivisionConfiguration;
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.configure.races.division.Group;
+import org.kingsski.wax.configure.races.division.TeamPositionTable;
+import org.kingsski.wax.configure.races.group.GroupConfiguration;
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.kingsski.wax.configure.races.group.RaceGroup.MarkBoothException;
+import org.kingsski.wax.configure.races.group.RaceGroup.RacesUnfinishedException;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * <p>
+ * A single division's tournament which can be run any number of times with random results:
+ * the first set, the second set for divisions which have one and then the knockouts. The groups
+ * are ordered by {@link RaceGroup#getSetOneTeamOrder()} and the teams are moved between sets by
+ * the {@link CompiledDivisionConfiguration}s, exactly as when the races are generated for real.
+ * </p>
+ * <p>
+ * The {@link RaceGroup}s, {@link Race}s, {@link Team}s and {@link TeamPositionTable}s are created
+ * once and reused for every run, only the teams in each race and the results change, so a run
+ * allocates very little. Teams which are not in a knockout take the places after the knockouts in
+ * the order of the group and position they finished in the previous set, followed by any teams
+ * the second set leaves out.
+ * </p>
+ * <p>
+ * An instance is not thread safe, each thread must have its own.
+ * </p>
+ */
+final class SimulatedTournament {
+    private static final int CONTROL_ID = 1;
+    private static final int MAX_RERUNS = 1000;
+
+    private final WinProbability model;
+    private final Team[] teams;
+    private final Stage setOne;
+    private final Stage setTwo;
+    private final CompiledDivisionConfiguration knockouts;
+    private final boolean[] placed;
+    private final int[] places;
+
+    /**
+     * @param seededTeams the {@link Team}s in seeded order, these are copied and the copies are
+     *                    given the IDs 1, 2, 3... in the same order
+     * @param model       the {@link WinProbability} deciding each race
+     * @throws InvalidNumberOfTeamsException if there is no tournament for the number of teams
+     */
+    SimulatedTournament(List<Team> seededTeams, WinProbability model) throws InvalidNumberOfTeamsException {
+        this.model = model;
+        int numTeams = seededTeams.size();
+
+        this.teams = new Team[numTeams];
+        List<Team> copies = new ArrayList<>(numTeams);
+        for (int i = 0; i < numTeams; i++) {
+            teams[i] = new Team(seededTeams.get(i));
+            teams[i].setTeamId(i + 1);
+            if (teams[i].getClubName() == null) {
+                // Used to order unseeded teams
+                teams[i].setClubName("");
+            }
+            copies.add(teams[i]);
+        }
+
+        // The first set groups depend only on the seeding so they are generated as normal
+        RaceControl control = new RaceControl();
+        control.setControlId(CONTROL_ID);
+        Map<String, RaceGroup> setOneGroups = new RaceConfigurerSetOne(null, null, control)
+                .generateRaceGroupMap(copies);
+        CompiledDivisionConfiguration setOneConfig = DivisionConfigurationRegistry.get(SetType.SET_ONE, numTeams);
+        this.setOne = new Stage(setOneConfig, setOneGroups);
+
+        CompiledDivisionConfiguration setTwoConfig = DivisionConfigurationRegistry.get(SetType.SET_TWO, numTeams);
+        this.setTwo = setTwoConfig.getGroupCount() == 0 ? null : new Stage(setTwoConfig);
+        this.knockouts = DivisionConfigurationRegistry.get(SetType.KNOCKOUT, numTeams);
+
+        this.placed = new boolean[numTeams];
+        this.places = new int[numTeams];
+    }
+
+    /**
+     * Runs the tournament once and records the finishing positions
+     *
+     * @param random    the source of the results
+     * @param positions the {@link FinishingPositions} to record the result in
+     */
+    void run(SplittableRandom random, FinishingPositions positions) {
+        setOne.play(random, positions);
+
+        Stage previous = setOne;
+        if (setTwo != null) {
+            setTwo.fill(setOne.table);
+            setTwo.play(random, positions);
+            previous = setTwo;
+        }
+
+        Arrays.fill(placed, false);
+        int place = 0;
+        for (int i = 0, n = knockouts.getGroupCount(); i < n; i++) {
+            Team teamOne = previous.table.get(knockouts.getSourceGroup(i, 0), knockouts.getSourcePosition(i, 0));
+            Team teamTwo = previous.table.get(knockouts.getSourceGroup(i, 1), knockouts.getSourcePosition(i, 1));
+            boolean teamOneWins = random.nextDouble() < model.probability(teamOne, teamTwo);
+            place(teamOneWins ? teamOne : teamTwo, place++);
+            place(teamOneWins ? teamTwo : teamOne, place++);
+        }
+
+        // Everyone else by the group and position they finished in the previous set, then any
+        // teams left out of the second set by the first
+        place = placeRemaining(previous, place);
+        if (previous != setOne) {
+            place = placeRemaining(setOne, place);
+        }
+
+        if (place != teams.length) {
+            throw new IllegalStateException("Only " + place + " of " + teams.length + " teams were placed");
+        }
+        positions.record(places);
+    }
+
+    private int placeRemaining(Stage stage, int place) {
+        for (int i = 0, n = stage.tableIndexes.length; i < n; i++) {
+            Team team;
+            for (int position = 0; (team = stage.table.get(stage.tableIndexes[i], position)) != null; position++) {
+                if (!placed[team.getTeamId() - 1]) {
+                    place(team, place++);
+                }
+            }
+        }
+        return place;
+    }
+
+    private void place(Team team, int place) {
+        placed[team.getTeamId() - 1] = true;
+        places[place] = team.getTeamId() - 1;
+    }
+
+    /**
+     * The groups of one set with the races in each and the table of the positions the teams
+     * finished in
+     */
+    private final class Stage {
+        private final CompiledDivisionConfiguration config;
+        private final RaceGroup[] groups;
+        private final int[] tableIndexes;
+        private final TeamPositionTable table;
+
+        // The zero based position in the group of the teams in each race of each group
+        private final int[][] teamOnes;
+        private final int[][] teamTwos;
+
+        /**
+         * A first set, where the groups have already been generated
+         */
+        private Stage(CompiledDivisionConfiguration config, Map<String, RaceGroup> raceGroups) {
+            this.config = config;
+            int groupCount = config.getGroupCount();
+            this.groups = new RaceGroup[groupCount];
+            this.tableIndexes = new int[groupCount];
+            this.teamOnes = null;
+            this.teamTwos = null;
+            for (int i = 0; i < groupCount; i++) {
+                groups[i] = raceGroups.get(config.getGroupNames()[i]);
+                tableIndexes[i] = Group.indexOfLetters(config.getGroupNames()[i]);
+            }
+            this.table = new TeamPositionTable(groupCount, 4);
+        }
+
+        /**
+         * A later set, where the teams in each group change with each run
+         */
+        private Stage(CompiledDivisionConfiguration config) {
+            this.config = config;
+            int groupCount = config.getGroupCount();
+            this.groups = new RaceGroup[groupCount];
+            this.tableIndexes = new int[groupCount];
+            this.teamOnes = new int[groupCount][];
+            this.teamTwos = new int[groupCount][];
+
+            for (int i = 0; i < groupCount; i++) {
+                GroupConfiguration groupConfig = config.getGroupGrid()[i];
+                int[][][] raceGrid = groupConfig.getRaceGrid();
+                teamOnes[i] = new int[groupConfig.raceCount()];
+                teamTwos[i] = new int[groupConfig.raceCount()];
+                List<Race> races = new ArrayList<>(groupConfig.raceCount());
+                for (int section = 0, race = 0; section < raceGrid.length; section++) {
+                    for (int j = 0; j < raceGrid[section].length; j++, race++) {
+                        teamOnes[i][race] = raceGrid[section][j][0] - 1;
+                        teamTwos[i][race] = raceGrid[section][j][1] - 1;
+                        Race newRace = new Race();
+                        newRace.setControlId(CONTROL_ID);
+                        newRace.setRoundNo(2);
+                        newRace.setGroup(config.getGroupNames()[i]);
+                        races.add(newRace);
+                    }
+                }
+
+                List<Team> groupTeams = new ArrayList<>(config.getMappedTeamCount(i));
+                for (int j = 0, n = config.getMappedTeamCount(i); j < n; j++) {
+                    groupTeams.add(null);
+                }
+                groups[i] = new RaceGroup(config.getGroupNames()[i], groupTeams, groupConfig, CONTROL_ID, 2);
+                groups[i].setRaces(races);
+                tableIndexes[i] = Group.indexOfRomanNumeral(config.getGroupNames()[i]);
+            }
+            this.table = new TeamPositionTable(groupCount, 4);
+        }
+
+        /**
+         * Moves the teams into the groups of this set from the positions they finished in the
+         * previous set
+         */
+        private void fill(TeamPositionTable previous) {
+            for (int i = 0, n = groups.length; i < n; i++) {
+                List<Team> groupTeams = groups[i].getTeams();
+                for (int j = 0, m = groupTeams.size(); j < m; j++) {
+                    Team team = previous.get(config.getSourceGroup(i, j), config.getSourcePosition(i, j));
+                    if (team == null) {
+                        throw new IllegalStateException("No team finished in position " + config.getSourcePosition(i, j)
+                                + " of group " + config.getSourceGroup(i, j));
+                    }
+                    groupTeams.set(j, team);
+                }
+
+                List<Race> races = groups[i].getRaces();
+                for (int j = 0, m = races.size(); j < m; j++) {
+                    races.get(j).setTeamOne(groupTeams.get(teamOnes[i][j]).getTeamId());
+                    races.get(j).setTeamTwo(groupTeams.get(teamTwos[i][j]).getTeamId());
+                }
+            }
+        }
+
+        /**
+         * Decides the result of every race and orders each group into the table
+         */
+        private void play(SplittableRandom random, FinishingPositions positions) {
+            for (int i = 0, n = groups.length; i < n; i++) {
+                List<Race> races = groups[i].getRaces();
+                List<Team> order = null;
+                for (int attempt = 0; order == null; attempt++) {
+                    for (int j = 0, m = races.size(); j < m; j++) {
+                        Race race = races.get(j);
+                        double probability = model.probability(teams[race.getTeamOne() - 1], teams[race.getTeamTwo() - 1]);
+                        race.setTeamWin(random.nextDouble() < probability ? 1 : 2);
+                    }
+
+                    try {
+                        order = groups[i].getSetOneTeamOrder();
+                    } catch (MarkBoothException e) {
+                        // Too many teams drawn to separate, on the day the races would be rerun
+                        if (attempt == MAX_RERUNS) {
+                            throw new IllegalStateException("Group " + groups[i].getGroupName()
+                                    + " could not be separated after " + MAX_RERUNS + " reruns", e);
+                        }
+                        positions.rerun();
+                    } catch (RacesUnfinishedException e) {
+                        throw new IllegalStateException("Every race has a result", e);
+                    }
+                }
+
+                for (int j = 0, m = order.size(); j < m; j++) {
+                    table.put(tableIndexes[i], j, order.get(j));
+                }
+            }
+        }
+    }
+}
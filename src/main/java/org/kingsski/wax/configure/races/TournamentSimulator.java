@@ -0,0 +1,113 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.data.Team;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Simulates a division's tournament many times over with random results to find how likely each
+ * {@link Team} is to finish in each position, for example to compare the fairness of different
+ * formats or to see how much the seeding matters.
+ * </p>
+ * <p>
+ * Each tournament runs the first set, the second set and the knockouts through the same group
+ * configurations and group ordering as real races (see {@link SimulatedTournament}), with the
+ * result of each race decided by a {@link WinProbability}. No DAOs are used and the races and
+ * teams of each tournament are reused, so millions of tournaments can be run a minute.
+ * </p>
+ * <p>
+ * The tournaments are split into chunks run on a {@link ForkJoinPool}, each with its own
+ * tournament and random numbers split from the seed, so a simulation with the same seed gives
+ * the same result however many threads run it.
+ * </p>
+ */
+public class TournamentSimulator {
+    private static final long CHUNK = 8192;
+
+    private final WinProbability model;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param model the {@link WinProbability} deciding each race, this is used by every thread
+     * @param pool  the {@link ForkJoinPool} to run the tournaments on, or null to use the common
+     *              pool
+     */
+    public TournamentSimulator(WinProbability model, ForkJoinPool pool) {
+        this.model = model;
+        this.pool = pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    /**
+     * @param seededTeams the {@link Team}s competing, these are put in seeded order as when the
+     *                    first set of races is generated. The model is given copies of the teams
+     *                    with their IDs replaced by their position in the seeded order.
+     * @param iterations  the number of tournaments to simulate
+     * @param seed        the seed of the random results
+     * @return the {@link FinishingPositions} of the teams
+     * @throws InvalidNumberOfTeamsException if there is no tournament for the number of teams
+     */
+    public FinishingPositions simulate(List<Team> seededTeams, long iterations, long seed)
+            throws InvalidNumberOfTeamsException {
+        List<Team> teams = new ArrayList<>(seededTeams);
+        Collections.sort(teams);
+
+        // Check the tournament can be run before starting any of the chunks
+        new SimulatedTournament(teams, model);
+
+        return pool.invoke(new Chunk(teams, 0, iterations, new SplittableRandom(seed)));
+    }
+
+    /**
+     * Runs a range of the tournaments, splitting it in two while it is larger than a chunk
+     */
+    private final class Chunk extends RecursiveTask<FinishingPositions> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Team> teams;
+        private final long from;
+        private final long to;
+        private final SplittableRandom random;
+
+        private Chunk(List<Team> teams, long from, long to, SplittableRandom random) {
+            this.teams = teams;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected FinishingPositions compute() {
+            if (to - from > CHUNK) {
+                long middle = (from + to) >>> 1;
+                Chunk first = new Chunk(teams, from, middle, random.split());
+                Chunk second = new Chunk(teams, middle, to, random);
+                first.fork();
+                FinishingPositions positions = second.compute();
+                positions.add(first.join());
+                return positions;
+            }
+
+            FinishingPositions positions = new FinishingPositions(teams);
+            SimulatedTournament tournament;
+            try {
+                tournament = new SimulatedTournament(teams, model);
+            } catch (InvalidNumberOfTeamsException e) {
+                // Checked before the simulation started
+                throw new IllegalStateException(e);
+            }
+            for (long i = from; i < to; i++) {
+                tournament.run(random, positions);
+            }
+            return positions;
+        }
+    }
+}
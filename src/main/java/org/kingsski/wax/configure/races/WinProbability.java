@@ -0,0 +1,45 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races;
+
+import org.kingsski.wax.data.Team;
+
+/**
+ * <p>
+ * A model of the chance of a {@link Team} winning a race, used by the {@link TournamentSimulator}
+ * to decide the result of each simulated race.
+ * </p>
+ * <p>
+ * Models are called concurrently from every thread of a simulation and many millions of times,
+ * so they must be thread safe and should not allocate.
+ * </p>
+ */
+@FunctionalInterface
+public interface WinProbability {
+
+    /**
+     * @param teamOne the first {@link Team} in the race
+     * @param teamTwo the second {@link Team} in the race
+     * @return the probability, from 0 to 1, that the first team wins
+     */
+    double probability(Team teamOne, Team teamTwo);
+
+    /**
+     * @return a model where each team is equally likely to win any race
+     */
+    static WinProbability even() {
+        return (teamOne, teamTwo) -> 0.5;
+    }
+
+    /**
+     * A model where the team with the higher seeding score is more likely to win, by a logistic
+     * curve of the difference between the total scores of the teams
+     *
+     * @param spread the difference in total score which makes the higher seeded team about 73%
+     *               likely to win, smaller values make results more predictable
+     * @return the model
+     */
+    static WinProbability bySeeding(double spread) {
+        return (teamOne, teamTwo) -> 1 / (1 + Math.exp((teamTwo.getScoreTotal() - teamOne.getScoreTotal()) / spread));
+    }
+}
@@ -0,0 +1,136 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races.division;
+
+import org.kingsski.wax.configure.races.group.GroupConfiguration;
+
+/**
+ * <p>
+ * An immutable snapshot of a {@link DivisionConfiguration} for a single number of teams.
+ * </p>
+ * <p>
+ * As well as the group grid, group names and transformation mapping of the configuration the
+ * transformation mapping is compiled to pairs of integers. For each team in each group of this
+ * set {@link #getSourceGroup(int, int)} returns the index of the group in the previous set the
+ * team came from (see {@link Group#indexOf(String)}) and {@link #getSourcePosition(int, int)}
+ * returns the zero based position the team finished in that group.
+ * </p>
+ * <p>
+ * The arrays returned are shared by every user of the configuration and must not be modified.
+ * </p>
+ */
+public final class CompiledDivisionConfiguration {
+
+    private final int numTeams;
+    private final GroupConfiguration[] groupGrid;
+    private final String[] groupNames;
+    private final String[][] transformationMapping;
+    private final int[][] sourceGroups;
+    private final int[][] sourcePositions;
+
+    /**
+     * @param numTeams      the number of teams the configuration is for
+     * @param configuration the {@link DivisionConfiguration} configured for the number of teams
+     * @throws DivisionConfiguration.InvalidSetupException if the transformation mapping refers to
+     *                                                     a group which is not recognised
+     */
+    public CompiledDivisionConfiguration(int numTeams, DivisionConfiguration configuration) {
+        this.numTeams = numTeams;
+        this.groupGrid = configuration.getGroupGrid();
+        this.groupNames = configuration.getGroupNames();
+        this.transformationMapping = configuration.getTransformationMapping();
+
+        if (transformationMapping == null) {
+            this.sourceGroups = null;
+            this.sourcePositions = null;
+            return;
+        }
+
+        this.sourceGroups = new int[transformationMapping.length][];
+        this.sourcePositions = new int[transformationMapping.length][];
+        for (int i = 0, n = transformationMapping.length; i < n; i++) {
+            String[] groupMapping = transformationMapping[i];
+            sourceGroups[i] = new int[groupMapping.length];
+            sourcePositions[i] = new int[groupMapping.length];
+
+            for (int j = 0, m = groupMapping.length; j < m; j++) {
+                // Each mapping is the single digit position followed by the group
+                String mapping = groupMapping[j];
+                sourcePositions[i][j] = mapping.charAt(0) - '1';
+                sourceGroups[i][j] = Group.indexOfMappedGroup(mapping.substring(1));
+                if (sourcePositions[i][j] < 0 || sourceGroups[i][j] < 0) {
+                    throw new DivisionConfiguration.InvalidSetupException("Unrecognised mapping (" +
+                            mapping + ") for " + numTeams + " teams");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of teams this configuration is for
+     */
+    public int getNumTeams() {
+        return numTeams;
+    }
+
+    /**
+     * @return the number of groups in this set
+     */
+    public int getGroupCount() {
+        return groupNames.length;
+    }
+
+    /**
+     * @param group the index of the group in this set
+     * @return the number of teams mapped into the group from the previous set
+     */
+    public int getMappedTeamCount(int group) {
+        return sourceGroups[group].length;
+    }
+
+    /**
+     * @param group the index of the group in this set
+     * @param team  the index of the team within the group
+     * @return the index of the group in the previous set the team is taken from
+     */
+    public int getSourceGroup(int group, int team) {
+        return sourceGroups[group][team];
+    }
+
+    /**
+     * @param group the index of the group in this set
+     * @param team  the index of the team within the group
+     * @return the zero based position in the previous set group the team is taken from
+     */
+    public int getSourcePosition(int group, int team) {
+        return sourcePositions[group][team];
+    }
+
+    /**
+     * @return true if teams are mapped from a previous set, false if this is a first set
+     */
+    public boolean hasTransformationMapping() {
+        return transformationMapping != null;
+    }
+
+    /**
+     * @return the transformation mapping, see {@link DivisionConfiguration#getTransformationMapping()}
+     */
+    public String[][] getTransformationMapping() {
+        return transformationMapping;
+    }
+
+    /**
+     * @return the group names, see {@link DivisionConfiguration#getGroupNames()}
+     */
+    public String[] getGroupNames() {
+        return groupNames;
+    }
+
+    /**
+     * @return the group grid, see {@link DivisionConfiguration#getGroupGrid()}
+     */
+    public GroupConfiguration[] getGroupGrid() {
+        return groupGrid;
+    }
+}
@@ -0,0 +1,128 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races.division;
+
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidSetupException;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationGeneric;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationKnockout;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationSetOne;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationSetTwo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Registry of {@link CompiledDivisionConfiguration}s for each set type and number of teams.
+ * </p>
+ * <p>
+ * Every configuration is built once when the class is loaded so retrieving one is an array
+ * lookup. Numbers of teams which a configuration does not support are remembered along with the
+ * reason and the same exception is thrown each time they are requested.
+ * </p>
+ * <p>
+ * Divisions larger than {@link #MAX_TEAMS} use a {@link DivisionConfigurationGeneric} which is
+ * calculated the first time the number of teams is requested and then held.
+ * </p>
+ */
+public final class DivisionConfigurationRegistry {
+
+    /**
+     * The smallest number of teams held in the registry
+     */
+    public static final int MIN_TEAMS = 4;
+
+    /**
+     * The largest number of teams with a hand written configuration
+     */
+    public static final int MAX_TEAMS = 32;
+
+    /**
+     * The type of set a configuration is for
+     */
+    public enum SetType {
+        SET_ONE,
+        SET_TWO,
+        KNOCKOUT
+    }
+
+    private static final CompiledDivisionConfiguration[][] CONFIGURATIONS =
+            new CompiledDivisionConfiguration[SetType.values().length][MAX_TEAMS + 1];
+    private static final String[][] INVALID_REASONS = new String[SetType.values().length][MAX_TEAMS + 1];
+    private static final boolean[][] INVALID_SETUP = new boolean[SetType.values().length][MAX_TEAMS + 1];
+    private static final ConcurrentMap<Long, CompiledDivisionConfiguration> GENERIC_CONFIGURATIONS =
+            new ConcurrentHashMap<>();
+
+    static {
+        for (SetType setType : SetType.values()) {
+            for (int numTeams = MIN_TEAMS; numTeams <= MAX_TEAMS; numTeams++) {
+                try {
+                    CONFIGURATIONS[setType.ordinal()][numTeams] =
+                            new CompiledDivisionConfiguration(numTeams, configure(setType, numTeams));
+                } catch (InvalidNumberOfTeamsException e) {
+                    INVALID_REASONS[setType.ordinal()][numTeams] = e.getMessage();
+                } catch (InvalidSetupException e) {
+                    INVALID_REASONS[setType.ordinal()][numTeams] = e.getMessage();
+                    INVALID_SETUP[setType.ordinal()][numTeams] = true;
+                }
+            }
+        }
+    }
+
+    private DivisionConfigurationRegistry() {
+    }
+
+    /**
+     * @param setType  the type of set the configuration is required for
+     * @param numTeams the number of teams competing
+     * @return the {@link CompiledDivisionConfiguration} for the set type and number of teams
+     * @throws InvalidNumberOfTeamsException if there is no configuration for the number of teams
+     * @throws InvalidSetupException         if the configuration for the number of teams is
+     *                                       invalid
+     */
+    public static CompiledDivisionConfiguration get(SetType setType, int numTeams) throws InvalidNumberOfTeamsException {
+        if (numTeams < MIN_TEAMS) {
+            throw new InvalidNumberOfTeamsException("Too many/few teams (" + String.valueOf(numTeams) + ")");
+        }
+        if (numTeams > MAX_TEAMS) {
+            return getGeneric(setType, numTeams);
+        }
+
+        CompiledDivisionConfiguration configuration = CONFIGURATIONS[setType.ordinal()][numTeams];
+        if (configuration == null) {
+            if (INVALID_SETUP[setType.ordinal()][numTeams]) {
+                throw new InvalidSetupException(INVALID_REASONS[setType.ordinal()][numTeams]);
+            }
+            throw new InvalidNumberOfTeamsException(INVALID_REASONS[setType.ordinal()][numTeams]);
+        }
+
+        return configuration;
+    }
+
+    private static CompiledDivisionConfiguration getGeneric(SetType setType, int numTeams) throws InvalidNumberOfTeamsException {
+        Long key = (long) setType.ordinal() << 32 | numTeams;
+        CompiledDivisionConfiguration configuration = GENERIC_CONFIGURATIONS.get(key);
+        if (configuration == null) {
+            configuration = new CompiledDivisionConfiguration(numTeams, new DivisionConfigurationGeneric(setType, numTeams));
+            CompiledDivisionConfiguration existing = GENERIC_CONFIGURATIONS.putIfAbsent(key, configuration);
+            if (existing != null) {
+                configuration = existing;
+            }
+        }
+        return configuration;
+    }
+
+    private static DivisionConfiguration configure(SetType setType, int numTeams) throws InvalidNumberOfTeamsException {
+        switch (setType) {
+            case SET_ONE:
+                return new DivisionConfigurationSetOne(numTeams);
+            case SET_TWO:
+                return new DivisionConfigurationSetTwo(numTeams);
+            case KNOCKOUT:
+                return new DivisionConfigurationKnockout(numTeams);
+            default:
+                throw new InvalidSetupException("No division configuration exists for " + setType);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races.division;
+
+import org.kingsski.wax.data.GroupName;
+
+/**
+ * <p>
+ * Converts between group names and group indexes.
+ * </p>
+ * <p>
+ * Groups in the first set of races are lettered (A, B, C... Z, AA, AB...) and groups in the
+ * second set are numbered with roman numerals (I, II, III...). Transformation mappings refer to
+ * second set groups by their decimal number. Each of these forms resolves to the same zero based
+ * index so that group A, group I and group 1 are all index 0. Letters and roman numerals are
+ * converted by {@link GroupName}.
+ * </p>
+ */
+public final class Group {
+
+    private Group() {
+    }
+
+    /**
+     * Resolves a group name of any form. As some lettered names are also roman numerals a
+     * single letter from A to H is treated as a letter, otherwise roman numerals take precedence.
+     * Use {@link #indexOfLetters(String)} when the group is known to be lettered.
+     *
+     * @param groupName the name of the group, letters, a roman numeral or a decimal number
+     * @return the zero based index of the group, or -1 if the name is not recognised
+     */
+    public static int indexOf(String groupName) {
+        if (groupName == null || groupName.isEmpty()) {
+            return -1;
+        }
+
+        char first = Character.toUpperCase(groupName.charAt(0));
+        if (groupName.length() == 1 && first >= 'A' && first <= 'H') {
+            return first - 'A';
+        }
+
+        if (first >= '0' && first <= '9') {
+            return indexOfNumber(groupName);
+        }
+
+        int index = indexOfRomanNumeral(groupName);
+        return index < 0 ? indexOfLetters(groupName) : index;
+    }
+
+    /**
+     * @param groupName the name of the group, optionally prefixed with the division and a space
+     *                  e.g. "Mixed A"
+     * @return the zero based index of the group, or -1 if the name is not recognised
+     */
+    public static int indexOfQualified(String groupName) {
+        return groupName == null ? -1 : indexOf(unqualified(groupName));
+    }
+
+    /**
+     * @param groupName the name of the group, optionally prefixed with the division and a space
+     * @param lettered  true if the group is lettered i.e. from the first set, false if it is a
+     *                  roman numeral i.e. from a later set
+     * @return the zero based index of the group, or -1 if the name is not recognised
+     */
+    public static int indexOfQualified(String groupName, boolean lettered) {
+        if (groupName == null) {
+            return -1;
+        }
+        return lettered ? indexOfLetters(unqualified(groupName)) : indexOfRomanNumeral(unqualified(groupName));
+    }
+
+    /**
+     * @param groupName the lettered group name e.g. "C" or "AB"
+     * @return the zero based index of the group, or -1 if the name is not letters
+     */
+    public static int indexOfLetters(String groupName) {
+        return GroupName.indexOfLetters(groupName);
+    }
+
+    /**
+     * @param groupName the roman numeral group name e.g. "IV"
+     * @return the zero based index of the group, or -1 if the name is not a roman numeral
+     */
+    public static int indexOfRomanNumeral(String groupName) {
+        return GroupName.indexOfRomanNumeral(groupName);
+    }
+
+    /**
+     * @param groupName the decimal group number e.g. "3"
+     * @return the zero based index of the group, or -1 if the name is not a number
+     */
+    public static int indexOfNumber(String groupName) {
+        return GroupName.indexOfNumber(groupName);
+    }
+
+    /**
+     * @param index the zero based index of the group
+     * @return the letters used to name the group in the first set of races
+     */
+    public static String letters(int index) {
+        return GroupName.letters(index);
+    }
+
+    /**
+     * @param index the zero based index of the group
+     * @return the roman numeral used to name the group in the second set of races
+     */
+    public static String romanNumeral(int index) {
+        return GroupName.romanNumeral(index);
+    }
+
+    /**
+     * @param groupName the group as it appears in a transformation mapping, a decimal number for
+     *                  groups of the second set and letters for groups of the first set
+     * @return the zero based index of the group, or -1 if the name is not recognised
+     */
+    static int indexOfMappedGroup(String groupName) {
+        if (groupName == null || groupName.isEmpty()) {
+            return -1;
+        }
+        char first = groupName.charAt(0);
+        return first >= '0' && first <= '9' ? indexOfNumber(groupName) : indexOfLetters(groupName);
+    }
+
+    private static String unqualified(String groupName) {
+        return groupName.substring(groupName.indexOf(' ') + 1);
+    }
+}
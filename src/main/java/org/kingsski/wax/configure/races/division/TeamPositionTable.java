@@ -0,0 +1,117 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races.division;
+
+import org.kingsski.wax.data.Team;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>
+ * The finishing positions of {@link Team}s in each group of a set of races, used to place the
+ * teams into the groups of the next set.
+ * </p>
+ * <p>
+ * Teams are held in a single array indexed by group (see {@link Group#indexOf(String)}) and
+ * then by zero based finishing position. The table grows as required when a team is placed
+ * outside of its current size.
+ * </p>
+ */
+public final class TeamPositionTable {
+
+    private int groupCount;
+    private int positionCount;
+    private Team[] teams;
+    private int size;
+
+    /**
+     * @param groupCount    the expected number of groups
+     * @param positionCount the expected number of teams in the largest group
+     */
+    public TeamPositionTable(int groupCount, int positionCount) {
+        this.groupCount = Math.max(groupCount, 1);
+        this.positionCount = Math.max(positionCount, 1);
+        this.teams = new Team[this.groupCount * this.positionCount];
+    }
+
+    /**
+     * Creates a table from a map of teams keyed by their position and group in the form
+     * (position in group)(group) e.g. "1A" or "21", see
+     * {@link DivisionConfiguration#getTransformationMapping()}.
+     *
+     * @param teamsMap the {@link Map} of {@link Team}s
+     * @return the table holding each of the teams
+     * @throws DivisionConfiguration.InvalidSetupException if a key is not recognised
+     */
+    public static TeamPositionTable of(Map<String, Team> teamsMap) {
+        TeamPositionTable table = new TeamPositionTable(teamsMap.size() / 3 + 1, 4);
+        for (Map.Entry<String, Team> entry : teamsMap.entrySet()) {
+            String key = entry.getKey();
+            int position = key.isEmpty() ? -1 : key.charAt(0) - '1';
+            int group = key.isEmpty() ? -1 : Group.indexOfMappedGroup(key.substring(1));
+            if (position < 0 || group < 0) {
+                throw new DivisionConfiguration.InvalidSetupException("Unrecognised team position (" + key + ")");
+            }
+            table.put(group, position, entry.getValue());
+        }
+        return table;
+    }
+
+    /**
+     * @param group    the index of the group
+     * @param position the zero based position the team finished in the group
+     * @param team     the {@link Team}
+     */
+    public void put(int group, int position, Team team) {
+        if (group < 0 || position < 0) {
+            throw new IndexOutOfBoundsException("group " + group + ", position " + position);
+        }
+        if (group >= groupCount || position >= positionCount) {
+            resize(Math.max(group + 1, groupCount), Math.max(position + 1, positionCount));
+        }
+
+        int idx = group * positionCount + position;
+        if (teams[idx] == null && team != null) {
+            size++;
+        } else if (teams[idx] != null && team == null) {
+            size--;
+        }
+        teams[idx] = team;
+    }
+
+    /**
+     * @param group    the index of the group
+     * @param position the zero based position in the group
+     * @return the {@link Team} which finished in the position, null if there is none
+     */
+    public Team get(int group, int position) {
+        if (group < 0 || group >= groupCount || position < 0 || position >= positionCount) {
+            return null;
+        }
+        return teams[group * positionCount + position];
+    }
+
+    /**
+     * @return the number of teams in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    private void resize(int newGroupCount, int newPositionCount) {
+        Team[] resized;
+        if (newPositionCount == positionCount) {
+            resized = Arrays.copyOf(teams, newGroupCount * newPositionCount);
+        } else {
+            resized = new Team[newGroupCount * newPositionCount];
+            for (int group = 0; group < groupCount; group++) {
+                System.arraycopy(teams, group * positionCount, resized, group * newPositionCount, positionCount);
+            }
+        }
+
+        this.teams = resized;
+        this.groupCount = newGroupCount;
+        this.positionCount = newPositionCount;
+    }
+}
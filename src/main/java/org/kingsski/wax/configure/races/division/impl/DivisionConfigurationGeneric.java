@@ -0,0 +1,208 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.configure.races.division.impl;
+
+import org.kingsski.wax.configure.races.division.DivisionConfiguration;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.configure.races.division.Group;
+import org.kingsski.wax.configure.races.group.GroupConfiguration;
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * An implementation of {@link DivisionConfiguration} which calculates the configuration for any
+ * number of teams rather than looking it up from the cheat sheet. It is used for divisions too
+ * large for the hand written configurations.
+ * </p>
+ * <p>
+ * For the first and second sets the teams are split into {@link RaceGroup}s of four and three,
+ * using as few groups as possible with the groups of four first. First set groups are lettered
+ * (A, B... Z, AA, AB...) and second set groups are numbered with roman numerals.
+ * </p>
+ * <p>
+ * The second set is seeded by finishing position in the first set: all of the group winners,
+ * then all of the second placed teams and so on. Each position is taken snaking across the
+ * groups, left to right for winners then right to left for second place, so the strongest
+ * groups of one position meet the weakest of the next. These are then split into the second
+ * set groups in order.
+ * </p>
+ * <p>
+ * Knockouts pair the teams finishing in the same position in neighbouring second set groups
+ * (I with II, III with IV...). A group without a neighbour does not take part.
+ * </p>
+ * <p>
+ * Everything is calculated in a single pass over the teams.
+ * </p>
+ */
+public class DivisionConfigurationGeneric implements DivisionConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DivisionConfigurationGeneric.class);
+
+    /**
+     * The smallest number of teams which can be split into groups of four and three
+     */
+    public static final int MIN_TEAMS = 6;
+
+    private final SetType setType;
+    private GroupConfiguration[] groupGrid;
+    private String[] groupNames;
+    private String[][] transformationMapping;
+
+    /**
+     * @param setType  the type of set to configure
+     * @param numTeams the number of teams competing
+     * @throws InvalidNumberOfTeamsException If there are too few teams to split into groups
+     */
+    public DivisionConfigurationGeneric(final SetType setType, final int numTeams) throws InvalidNumberOfTeamsException {
+        this.setType = setType;
+        setTeams(numTeams);
+    }
+
+    @Override
+    public String[][] getTransformationMapping() {
+        return this.transformationMapping;
+    }
+
+    @Override
+    public String[] getGroupNames() {
+        return this.groupNames;
+    }
+
+    @Override
+    public GroupConfiguration[] getGroupGrid() {
+        return this.groupGrid;
+    }
+
+    @Override
+    public void setTeams(final int numTeams) throws InvalidNumberOfTeamsException {
+
+        LOGGER.debug("configuring {} for {} teams", setType, numTeams);
+
+        if (numTeams < MIN_TEAMS) {
+            throw new InvalidNumberOfTeamsException("Too few teams (" + String.valueOf(numTeams) + ")");
+        }
+
+        int[] setOneSizes = groupSizes(numTeams);
+        switch (setType) {
+            case SET_ONE:
+                configureSetOne(setOneSizes);
+                break;
+            case SET_TWO:
+                configureSetTwo(numTeams, setOneSizes);
+                break;
+            case KNOCKOUT:
+                // The second set is split the same way as the first
+                configureKnockout(setOneSizes);
+                break;
+            default:
+                throw new InvalidSetupException("No division configuration exists for " + setType);
+        }
+
+        if (this.groupGrid.length != this.groupNames.length) {
+            throw new InvalidSetupException("Number of groups (" + this.groupGrid.length + ") and" +
+                    " number of group names (" + this.groupNames.length + ") do not match");
+        }
+    }
+
+    private void configureSetOne(int[] sizes) {
+        this.groupGrid = new GroupConfiguration[sizes.length];
+        this.groupNames = new String[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            this.groupGrid[i] = groupConfiguration(sizes[i]);
+            this.groupNames[i] = Group.letters(i);
+        }
+        this.transformationMapping = null;
+    }
+
+    private void configureSetTwo(int numTeams, int[] setOneSizes) {
+        // Order every team by finishing position, snaking across the first set groups
+        String[] seeded = new String[numTeams];
+        int seed = 0;
+        for (int position = 0; seed < numTeams; position++) {
+            boolean forward = position % 2 == 0;
+            for (int i = 0; i < setOneSizes.length; i++) {
+                int group = forward ? i : setOneSizes.length - 1 - i;
+                if (position < setOneSizes[group]) {
+                    seeded[seed++] = String.valueOf(position + 1) + Group.letters(group);
+                }
+            }
+        }
+
+        int[] sizes = groupSizes(numTeams);
+        this.groupGrid = new GroupConfiguration[sizes.length];
+        this.groupNames = new String[sizes.length];
+        this.transformationMapping = new String[sizes.length][];
+        seed = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            this.groupGrid[i] = groupConfiguration(sizes[i]);
+            this.groupNames[i] = Group.romanNumeral(i);
+            this.transformationMapping[i] = new String[sizes[i]];
+            for (int j = 0; j < sizes[i]; j++) {
+                this.transformationMapping[i][j] = seeded[seed++];
+            }
+        }
+    }
+
+    private void configureKnockout(int[] setTwoSizes) {
+        int numGroups = 0;
+        for (int i = 0; i + 1 < setTwoSizes.length; i += 2) {
+            numGroups += Math.min(setTwoSizes[i], setTwoSizes[i + 1]);
+        }
+
+        this.groupGrid = new GroupConfiguration[numGroups];
+        this.groupNames = new String[numGroups];
+        this.transformationMapping = new String[numGroups][];
+        int knockout = 0;
+        for (int i = 0; i + 1 < setTwoSizes.length; i += 2) {
+            for (int position = 0, n = Math.min(setTwoSizes[i], setTwoSizes[i + 1]); position < n; position++) {
+                this.groupGrid[knockout] = GroupConfiguration.KNOCKOUT;
+                this.groupNames[knockout] = ordinal(2 * knockout + 1) + "/" + ordinal(2 * knockout + 2);
+                this.transformationMapping[knockout] = new String[]{
+                        String.valueOf(position + 1) + (i + 1),
+                        String.valueOf(position + 1) + (i + 2)};
+                knockout++;
+            }
+        }
+    }
+
+    /**
+     * @param numTeams the number of teams
+     * @return the size of each group when splitting the teams into as few groups of four and
+     * three as possible, with the groups of four first
+     */
+    private static int[] groupSizes(int numTeams) {
+        int numGroups = (numTeams + 3) / 4;
+        int groupsOfFour = numTeams - 3 * numGroups;
+
+        int[] sizes = new int[numGroups];
+        for (int i = 0; i < numGroups; i++) {
+            sizes[i] = i < groupsOfFour ? 4 : 3;
+        }
+        return sizes;
+    }
+
+    private static GroupConfiguration groupConfiguration(int size) {
+        return size == 4 ? GroupConfiguration.FOUR : GroupConfiguration.THREE;
+    }
+
+    /**
+     * @param place the place
+     * @return the place with its ordinal suffix e.g. 1st, 12th, 23rd
+     */
+    private static String ordinal(int place) {
+        if (place % 100 >= 11 && place % 100 <= 13) {
+            return place + "th";
+        }
+        switch (place % 10) {
+            case 1:
+                return place + "st";
+            case 2:
+                return place + "nd";
+            case 3:
+                return place + "rd";
+            default:
+                return place + "th";
+        }
+    }
+}
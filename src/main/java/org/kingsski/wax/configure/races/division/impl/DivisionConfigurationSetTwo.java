@@ -153,7 +153,7 @@ public class DivisionConfigurationSetTwo implements DivisionConfiguration {
                         {"1A", "2B", "1C", "2D"},
                         {"2A", "1B", "2C", "1D"},
                         {"3A", "4B", "3C"},
-                        {"4A", "3B ", "4D"}};
+                        {"4A", "3B", "3D"}};
                 break;
             case 15:
                 this.groupGrid = new GroupConfiguration[]{
@@ -162,7 +162,7 @@ public class DivisionConfigurationSetTwo implements DivisionConfiguration {
                 this.setTwoTransformation = new String[][]{
                         {"1A", "2B", "1C", "2D"},
                         {"2A", "1B", "2C", "1D"},
-                        {"3A", "3B", "4D"},
+                        {"3A", "3B", "3D"},
                         {"4A", "4B", "3C", "4C"}};
                 break;
             case 16:
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +28,18 @@ public class RaceGroup {
     private int roundNo;
     private String groupName;
 
+    // Scratch space for tallying results, indexed by the slot of the team in the teams list
+    private int[] slotTeamIds;
+    private int[] slotWins;
+    private int[] slotDsqs;
+    private boolean[] slotRaced;
+    private int[] slotPoints;
+
+    // Head to head results, indexed by (slot of team one * number of teams) + slot of team two
+    private int[] headToHead;
+    private int[] headToHeadRaces;
+    private int[] headToHeadUnrun;
+
     /**
      * Blank constructor
      */
@@ -221,70 +234,121 @@ public class RaceGroup {
      * @return the list of teams from this group
      */
     public List<Team> getTeamWinsAndDsqs() {
-        List<Team> teamWinsAndDsqs = new ArrayList<Team>();
-        int oldScore;
+        tallyWinsAndDsqs();
+
+        // Teams are returned in the order they are held in this group
+        List<Team> teamWinsAndDsqs = new ArrayList<Team>(this.teams.size());
+        Team team;
+        for (int slot = 0, n = this.teams.size(); slot < n; slot++) {
+            if (this.slotRaced[slot]) {
+                team = this.teams.get(slot);
+                team.setSetOneWins(this.slotWins[slot]);
+                team.setSetOneDsqs(this.slotDsqs[slot]);
+                teamWinsAndDsqs.add(team);
+            }
+        }
 
-        Map<Integer, Team> allTeams = new HashMap(this.teams.size());
-        Team objTeam;
-        for (int i = 0, n = teams.size(); i < n; i++) {
-            objTeam = teams.get(i);
-            allTeams.put(objTeam.getTeamId(), objTeam);
+        return teamWinsAndDsqs;
+    }
+
+    /**
+     * Counts the wins and DSQs of each team in this group into the slot
+     * arrays, where the slot of a team is its index in the list of
+     * {@link Team}s, and the head to head results between each pair of teams
+     * into the slot by slot matrices. The arrays are reused between calls so
+     * recomputing the results of a group allocates nothing once they are sized.
+     */
+    private void tallyWinsAndDsqs() {
+        int teamCount = this.teams.size();
+        if (this.slotTeamIds == null || this.slotTeamIds.length < teamCount) {
+            this.slotTeamIds = new int[teamCount];
+            this.slotWins = new int[teamCount];
+            this.slotDsqs = new int[teamCount];
+            this.slotRaced = new boolean[teamCount];
+            this.slotPoints = new int[teamCount];
+        }
+        if (this.headToHead == null || this.headToHead.length < teamCount * teamCount) {
+            this.headToHead = new int[teamCount * teamCount];
+            this.headToHeadRaces = new int[teamCount * teamCount];
+            this.headToHeadUnrun = new int[teamCount * teamCount];
+        } else {
+            Arrays.fill(this.headToHead, 0, teamCount * teamCount, 0);
+            Arrays.fill(this.headToHeadRaces, 0, teamCount * teamCount, 0);
+            Arrays.fill(this.headToHeadUnrun, 0, teamCount * teamCount, 0);
         }
 
-        // TODO Do we need these SparseIntArrays? I suspect not
-        // Get a list of unique teams competing
-        Map<Integer, Integer> teamWins = new HashMap<>(6);
-        Map<Integer, Integer> teamDsqs = new HashMap(6);
-        int team;
-        Race race;
+        for (int slot = 0; slot < teamCount; slot++) {
+            this.slotTeamIds[slot] = this.teams.get(slot).getTeamId();
+            this.slotWins[slot] = 0;
+            this.slotDsqs[slot] = 0;
+            this.slotRaced[slot] = false;
+        }
 
+        Race race;
+        int slotOne;
+        int slotTwo;
         for (int i = 0, n = this.races.size(); i < n; i++) {
-
             race = this.races.get(i);
+            slotOne = slotOf(race.getTeamOne(), teamCount);
+            slotTwo = slotOf(race.getTeamTwo(), teamCount);
 
-            team = race.getTeamOne();
-            for (int j = 1; j <= 2; j++) {
-                if (j == 2) {
-                    team = race.getTeamTwo();
-                }
-
-                // Ensure that the team is added (in the case of no wins)
-                if (teamWins.getOrDefault(team, TEAM_NOT_FOUND) == TEAM_NOT_FOUND) {
-                    teamWins.put(team, 0);
-                }
-                if (teamDsqs.getOrDefault(team, TEAM_NOT_FOUND) == TEAM_NOT_FOUND) {
-                    teamDsqs.put(team, 0);
-                }
+            // Races against teams which are not in this group are not counted
+            if (slotOne == TEAM_NOT_FOUND || slotTwo == TEAM_NOT_FOUND) {
+                LOGGER.warn("Race {} has a team which is not in group {}", race.getRaceNo(), this.groupName);
+                continue;
+            }
 
-                // Update the wins if appropriate
-                if (race.getTeamWin() == j) {
-                    oldScore = teamWins.get(team);
-                    teamWins.put(team, oldScore + 1);
-                }
+            this.slotRaced[slotOne] = true;
+            this.slotRaced[slotTwo] = true;
+
+            // Both directions of the head to head matrix are kept so lookups need not care about order
+            this.headToHeadRaces[slotOne * teamCount + slotTwo]++;
+            this.headToHeadRaces[slotTwo * teamCount + slotOne]++;
+
+            if (race.getTeamWin() == 1) {
+                this.slotWins[slotOne]++;
+                this.headToHead[slotOne * teamCount + slotTwo]++;
+                this.headToHead[slotTwo * teamCount + slotOne]--;
+            } else if (race.getTeamWin() == 2) {
+                this.slotWins[slotTwo]++;
+                this.headToHead[slotOne * teamCount + slotTwo]--;
+                this.headToHead[slotTwo * teamCount + slotOne]++;
+            } else {
+                this.headToHeadUnrun[slotOne * teamCount + slotTwo]++;
+                this.headToHeadUnrun[slotTwo * teamCount + slotOne]++;
             }
 
-            // Update the DSQs if appropriate
             if (race.getTeamOneDsq() != null && !race.getTeamOneDsq().isEmpty()) {
-                oldScore = teamDsqs.get(team);
-                teamDsqs.put(team, oldScore + 1);
+                this.slotDsqs[slotOne]++;
             }
             if (race.getTeamTwoDsq() != null && !race.getTeamTwoDsq().isEmpty()) {
-                oldScore = teamDsqs.get(team);
-                teamDsqs.put(team, oldScore + 1);
+                this.slotDsqs[slotTwo]++;
             }
-
         }
+    }
 
-        for (int key : teamWins.keySet()) {
-//		for (int i = 0, n = teamWins.size(); i < n; i++) {
-//			key = teamWins.keyAt(i);
-            objTeam = allTeams.get(key);
-            objTeam.setSetOneWins(teamWins.get(key));
-            objTeam.setSetOneDsqs(teamDsqs.get(key));
-            teamWinsAndDsqs.add(objTeam);
-        }
+    /**
+     * @param team the team, which must be in this group
+     * @return the slot of the team
+     */
+    private int slotOf(Team team) {
+        return slotOf(team.getTeamId(), this.teams.size());
+    }
 
-        return teamWinsAndDsqs;
+    /**
+     * @param teamId    the ID of the team
+     * @param teamCount the number of teams in this group
+     * @return the slot of the team, or {@link #TEAM_NOT_FOUND} if it is not in
+     * this group
+     */
+    private int slotOf(int teamId, int teamCount) {
+        // Groups are small so a linear scan beats hashing
+        for (int slot = 0; slot < teamCount; slot++) {
+            if (this.slotTeamIds[slot] == teamId) {
+                return slot;
+            }
+        }
+        return TEAM_NOT_FOUND;
     }
 
     //  TODO Move to utility group
@@ -298,8 +362,8 @@ public class RaceGroup {
      * first set of races
      * @throws RacesUnfinishedException Exception thrown when races for this group have not been
      *                                  completed
-     * @throws MarkBoothException       Exception thrown when there are more than 3 drawn teams in
-     *                                  this group
+     * @throws MarkBoothException       Exception thrown when more than 3 teams in this group are
+     *                                  drawn and cannot be separated by the races between them
      */
     public List<Team> getSetOneTeamOrder() throws RacesUnfinishedException, MarkBoothException {
         List<Team> teamOrder = getTeamWinsAndDsqs();
@@ -337,167 +401,167 @@ public class RaceGroup {
         // ---Why the fuck do you even have a division with 4 teams in it?
         // ---Anyway, as above take the highest seeded, then compare the
         // ---lower teams. If they have drawn require a rerun.
-        // -four drawing teams (surprisingly, possible in a group of 6):
-        // ---this is too complex for my poor brain. Basically you can
-        // ---take into account of how races played out between these 4
-        // ---teams with the undrawn teams to determine who is better/worse
-        // ---splitting them into a drawn group of 3 and 1 or two drawn groups
-        // ---of two.
-        // ---Yeah so, I'm not coding the 4 case draw for shit.
-        // ---Lob in an exception for this, relay info to user via Toast and
-        // ---tell them to "massage" (Mark Booth) the figures.
-
-        Team[] passTwo = new Team[passOne.length];
-        List<Team> seedCheck = new ArrayList<Team>(3);
-        int whoWon;
+        // -four or more drawing teams (surprisingly, possible in a group of 6):
+        // ---take into account how races played out between the drawn teams
+        // ---only (a mini league from the head to head results) to split
+        // ---them into smaller draws, then resolve each of those as above.
+        // ---If the mini league can't split them at all then lob in an
+        // ---exception, relay info to user via Toast and tell them to
+        // ---"massage" (Mark Booth) the figures.
         for (int i = 0, n = passOne.length, idx = 0; i < n; i = idx) {
-            passTwo[i] = passOne[i];
-
-            while (idx < n - 1 && passTwo[i].getSetWeighting() == passOne[idx + 1].getSetWeighting()) {
-                // Add teams if they have the same weighting
+            idx = i + 1;
+            while (idx < n && passOne[i].getSetWeighting() == passOne[idx].getSetWeighting()) {
+                // Include teams if they have the same weighting
                 idx++;
-                passTwo[idx] = passOne[idx];
             }
 
-            // We now have idx - i + 1 elements in passTwo with matching weightings
-            // in position i to idx
-            int numDrawnTeams = idx - i + 1;
-            if (numDrawnTeams == 2) {
-                try {
-                    whoWon = whoWon(passTwo[i], passTwo[i + 1]);
-                } catch (RaceNotRunException e) {
-                    throw new RacesUnfinishedException(e);
-                }
-                if (whoWon < 0) {
-                    passTwo[i] = passOne[i + 1];
-                    passTwo[i + 1] = passOne[i];
-                } else if (whoWon == 0 && passTwo[i].compareTo(passTwo[i + 1]) > 0) {
-                    // TODO Add rerace functionality here instead of seeding
-                    passTwo[i] = passOne[i + 1];
-                    passTwo[i + 1] = passOne[i];
-                }
-            } else if (numDrawnTeams == 3) {
-                seedCheck.clear();
-                for (int j = i; j < i + 3; j++) {
-                    seedCheck.add(passTwo[j]);
-                }
+            // We now have idx - i elements in passOne with matching weightings
+            resolveDraw(passOne, i, idx - i);
+        }
 
-                // Get the highest seed then the next two arbitrarily
-                Collections.sort(seedCheck);
-                passTwo[i] = seedCheck.get(0);
-                passTwo[i + 1] = seedCheck.get(1);
-                passTwo[i + 2] = seedCheck.get(2);
-
-                // See who won of the other two
-                try {
-                    whoWon = whoWon(passTwo[i + 1], passTwo[i + 2]);
-                } catch (RaceNotRunException e) {
-                    throw new RacesUnfinishedException(e);
-                }
+        // We now have the ordered teams in passOne, just put them into teamOrder
+        teamOrder.clear();
+        for (int i = 0, n = passOne.length; i < n; i++) {
+            teamOrder.add(passOne[i]);
+        }
+        return teamOrder;
+    }
+
+    /**
+     * Orders a run of drawn {@link Team}s in place
+     *
+     * @param order the array of {@link Team}s
+     * @param from  the index of the first drawn team
+     * @param count the number of drawn teams
+     */
+    private void resolveDraw(Team[] order, int from, int count)
+            throws RacesUnfinishedException, MarkBoothException {
+        if (count == 2) {
+            resolveTwoWayDraw(order, from);
+        } else if (count == 3) {
+            // Get the highest seed then see who won of the other two
+            Arrays.sort(order, from, from + 3);
+            resolveTwoWayDraw(order, from + 1);
+        } else if (count > 3) {
+            resolveMultiWayDraw(order, from, count);
+        }
+    }
 
-                // Use teamOne as a temporary variable
-                // Note: if whoWon > 0 then the teams are already in the correct order
-                if (whoWon < 0) {
-                    tempTeam = passTwo[i + 1];
-                    passTwo[i + 1] = passOne[i + 2];
-                    passTwo[i + 2] = tempTeam;
-                } else if (whoWon == 0 && passTwo[i + 1].compareTo(passTwo[i + 2]) > 0) {
-                    // TODO Add rerace functionality here instead of seeding
-                    tempTeam = passTwo[i + 1];
-                    passTwo[i + 1] = passOne[i + 2];
-                    passTwo[i + 2] = tempTeam;
+    /**
+     * Orders two drawn {@link Team}s in place by the races between them, then by seeding
+     *
+     * @param order the array of {@link Team}s
+     * @param from  the index of the first drawn team
+     */
+    private void resolveTwoWayDraw(Team[] order, int from) throws RacesUnfinishedException {
+        int whoWon;
+        try {
+            whoWon = whoWon(slotOf(order[from]), slotOf(order[from + 1]));
+        } catch (RaceNotRunException e) {
+            throw new RacesUnfinishedException(e);
+        }
+
+        // Note: if whoWon > 0 then the teams are already in the correct order
+        // TODO Add rerace functionality here instead of seeding
+        if (whoWon < 0 || (whoWon == 0 && order[from].compareTo(order[from + 1]) > 0)) {
+            Team tempTeam = order[from];
+            order[from] = order[from + 1];
+            order[from + 1] = tempTeam;
+        }
+    }
+
+    /**
+     * Orders more than three drawn {@link Team}s in place by the net wins from the races between
+     * only those teams. Any smaller draws which remain are then resolved as normal.
+     *
+     * @param order the array of {@link Team}s
+     * @param from  the index of the first drawn team
+     * @param count the number of drawn teams
+     */
+    private void resolveMultiWayDraw(Team[] order, int from, int count)
+            throws RacesUnfinishedException, MarkBoothException {
+        int to = from + count;
+        int teamCount = this.teams.size();
+
+        // Build the mini league from the head to head results between the drawn teams
+        for (int i = from; i < to; i++) {
+            int slot = slotOf(order[i]);
+            int points = 0;
+            for (int j = from; j < to; j++) {
+                int other = slotOf(order[j]);
+                if (this.headToHeadUnrun[slot * teamCount + other] > 0) {
+                    throw new RacesUnfinishedException(this.headToHeadUnrun[slot * teamCount + other]
+                            + " unrun races for team " + order[i].getTeamId() + " and team " + order[j].getTeamId());
                 }
-            } else if (numDrawnTeams > 3) {
-                // More than 3 drawn teams throw exception
-                throw new MarkBoothException(String.valueOf(numDrawnTeams) + " team draw, massage required");
+                points += this.headToHead[slot * teamCount + other];
             }
+            this.slotPoints[slot] = points;
+        }
 
-            idx++;
+        // Insertion sort with most points first, keeping the order of teams with equal points
+        for (int i = from + 1; i < to; i++) {
+            Team team = order[i];
+            int points = this.slotPoints[slotOf(team)];
+            int j = i - 1;
+            while (j >= from && this.slotPoints[slotOf(order[j])] < points) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = team;
         }
 
-        // We now have the ordered teams in passTwo, just put them into teamOrder
-        teamOrder.clear();
-        for (int i = 0, n = passTwo.length; i < n; i++) {
-            teamOrder.add(passTwo[i]);
+        if (this.slotPoints[slotOf(order[from])] == this.slotPoints[slotOf(order[to - 1])]) {
+            // The mini league didn't separate any of the teams
+            throw new MarkBoothException(String.valueOf(count) + " team draw, massage required");
+        }
+
+        // Resolve any draws left in the mini league
+        for (int i = from, idx; i < to; i = idx) {
+            int points = this.slotPoints[slotOf(order[i])];
+            idx = i + 1;
+            while (idx < to && this.slotPoints[slotOf(order[idx])] == points) {
+                idx++;
+            }
+            resolveDraw(order, i, idx - i);
         }
-        return teamOrder;
     }
 
     // TODO Move to utility group
-    // TODO Use a interface annotation and private static ints for compile time checking
-    // WHY THE FUCK DOESN'T THE INTDEF ANNOTATION WORK IN ECLIPSE?!?!?!
 
     /**
      * <p>
-     * Given two team IDs, returns the difference between the number of races
+     * Given the slots of two teams, returns the difference between the number of races
      * won by each. In the case where a race has not been raced, a
      * {@link RaceNotRunException} is thrown.
      * </p>
      * <p>
-     * <p>
      * Note that in some group sizes teams will race each other team more than
-     * once and hence values are not limited to -1. 0 and 1. In the case
+     * once and hence values are not limited to -1. 0 and 1.
      * </p>
      *
-     * @param teamOne the id of the first competing team
-     * @param teamTwo the id of the second competing team
+     * @param slotOne the slot of the first competing team
+     * @param slotTwo the slot of the second competing team
      * @return positive value if teamOne won, negative value if teamTwo won, 0
-     * if the battle has yet to be fought (or, in the case of multiple
-     * races, finished)
+     * if the races between them are drawn
      * @throws RaceNotRunException if there is a race between the two teams which has yet to be
      *                             completed
      */
-    private int whoWon(Team teamOne, Team teamTwo) throws RaceNotRunException {
-        Race race = null;
-        int teamOneId = teamOne.getTeamId();
-        int teamTwoId = teamTwo.getTeamId();
-        // We keep track of the return value as in some cases teams can race
-        // each other multiple times in a single set
-        int retval = 0;
-        int racesFound = 0;
-        int unrunRaces = 0;
-
-        for (int i = 0, n = this.races.size(); i < n; i++) {
-            race = this.races.get(i);
-            // TODO sort out duplicated code
-            if (race.getTeamOne() == teamOneId && race.getTeamTwo() == teamTwoId) {
-                retval += race.getTeamWin() == 0 ? 0
-                        : race.getTeamWin() == 1 ? 1 : -1;
-                if (race.getTeamWin() == 1) {
-                    retval += 1;
-                } else if (race.getTeamWin() == 2) {
-                    retval -= 1;
-                } else {
-                    unrunRaces += 1;
-                }
-                racesFound += 1;
-            } else if (race.getTeamOne() == teamTwoId
-                    && race.getTeamTwo() == teamOneId) {
-                if (race.getTeamWin() == 1) {
-                    retval -= 1;
-                } else if (race.getTeamWin() == 2) {
-                    retval += 1;
-                } else {
-                    unrunRaces += 1;
-                }
-
-                racesFound += 1;
-            }
-        }
+    private int whoWon(int slotOne, int slotTwo) throws RaceNotRunException {
+        int cell = slotOne * this.teams.size() + slotTwo;
 
         // If the race doesn't exist throw an unchecked exception - the way we
         // currently run races, all teams in a group compete against each other.
-        if (racesFound == 0) {
-            throw new RaceNotFoundException("Race for team " + teamOneId
-                    + " and team " + teamTwoId + " not found");
+        if (this.headToHeadRaces[cell] == 0) {
+            throw new RaceNotFoundException("Race for team " + this.slotTeamIds[slotOne]
+                    + " and team " + this.slotTeamIds[slotTwo] + " not found");
         }
 
-        if (unrunRaces > 0) {
-            throw new RaceNotRunException(unrunRaces + " unrun races for team " + teamOneId
-                    + " and team " + teamTwoId + " not found");
+        if (this.headToHeadUnrun[cell] > 0) {
+            throw new RaceNotRunException(this.headToHeadUnrun[cell] + " unrun races for team "
+                    + this.slotTeamIds[slotOne] + " and team " + this.slotTeamIds[slotTwo]);
         }
 
-        return retval;
+        return this.headToHead[cell];
     }
 
     /**
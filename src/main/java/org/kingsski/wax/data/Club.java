@@ -21,6 +21,27 @@ public class Club {
     private int ladiesTeams;
     private int boardTeams;
 
+    /**
+     * Standard constructor
+     */
+    public Club() {
+        // Empty default constructor
+    }
+
+    /**
+     * Convenience constructor which clones another instance
+     *
+     * @param clubToCopy The {@link Club} to be cloned.
+     */
+    public Club(Club clubToCopy) {
+        this.clubName = clubToCopy.clubName;
+        this.league = clubToCopy.league;
+        this.clubShortName = clubToCopy.clubShortName;
+        this.mixedTeams = clubToCopy.mixedTeams;
+        this.ladiesTeams = clubToCopy.ladiesTeams;
+        this.boardTeams = clubToCopy.boardTeams;
+    }
+
     /**
      * @return the clubName
      */
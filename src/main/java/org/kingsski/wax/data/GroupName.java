@@ -0,0 +1,111 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data;
+
+/**
+ * Converts between the names of the groups races are in and their zero based indexes. Groups in
+ * the first set of races are lettered (A, B, C... Z, AA, AB...) and groups in later sets are
+ * numbered with roman numerals (I, II, III...), so group A and group I are both index 0.
+ */
+public final class GroupName {
+
+    private static final int[] ROMAN_VALUES = {1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1};
+    private static final String[] ROMAN_SYMBOLS = {"M", "CM", "D", "CD", "C", "XC", "L", "XL", "X", "IX", "V", "IV", "I"};
+
+    private GroupName() {
+    }
+
+    /**
+     * @param groupName the lettered group name e.g. "C" or "AB"
+     * @return the zero based index of the group, or -1 if the name is not letters
+     */
+    public static int indexOfLetters(String groupName) {
+        if (groupName == null || groupName.isEmpty() || groupName.length() > 6) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = 0, n = groupName.length(); i < n; i++) {
+            char c = Character.toUpperCase(groupName.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            value = value * 26 + (c - 'A' + 1);
+        }
+        return value - 1;
+    }
+
+    /**
+     * @param groupName the roman numeral group name e.g. "IV"
+     * @return the zero based index of the group, or -1 if the name is not a roman numeral
+     */
+    public static int indexOfRomanNumeral(String groupName) {
+        if (groupName == null || groupName.isEmpty()) {
+            return -1;
+        }
+
+        String upper = groupName.toUpperCase();
+        int value = 0;
+        int pos = 0;
+        for (int i = 0; i < ROMAN_VALUES.length && pos < upper.length(); i++) {
+            while (upper.startsWith(ROMAN_SYMBOLS[i], pos)) {
+                value += ROMAN_VALUES[i];
+                pos += ROMAN_SYMBOLS[i].length();
+            }
+        }
+
+        // Reject anything left over and non-canonical forms such as IIII
+        if (pos != upper.length() || value == 0 || !romanNumeral(value - 1).equals(upper)) {
+            return -1;
+        }
+        return value - 1;
+    }
+
+    /**
+     * @param groupName the decimal group number e.g. "3"
+     * @return the zero based index of the group, or -1 if the name is not a number
+     */
+    public static int indexOfNumber(String groupName) {
+        if (groupName == null || groupName.isEmpty() || groupName.length() > 9) {
+            return -1;
+        }
+
+        int number = 0;
+        for (int i = 0, n = groupName.length(); i < n; i++) {
+            char c = groupName.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number - 1;
+    }
+
+    /**
+     * @param index the zero based index of the group
+     * @return the letters used to name the group in the first set of races
+     */
+    public static String letters(int index) {
+        StringBuilder name = new StringBuilder(2);
+        for (int value = index + 1; value > 0; value = (value - 1) / 26) {
+            name.append((char) ('A' + (value - 1) % 26));
+        }
+        return name.reverse().toString();
+    }
+
+    /**
+     * @param index the zero based index of the group
+     * @return the roman numeral used to name the group in the second set of races
+     */
+    public static String romanNumeral(int index) {
+        StringBuilder name = new StringBuilder(4);
+        int value = index + 1;
+        for (int i = 0; i < ROMAN_VALUES.length; i++) {
+            while (value >= ROMAN_VALUES[i]) {
+                name.append(ROMAN_SYMBOLS[i]);
+                value -= ROMAN_VALUES[i];
+            }
+        }
+        return name.toString();
+    }
+}
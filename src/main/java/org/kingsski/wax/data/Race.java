@@ -19,6 +19,17 @@ public class Race implements Comparable<Race> {
             "A", "E", "B", "F", "C", "G", "D", "H",
             "I", "II", "III", "IV", "V", "VI", "VII", "VIII" };
 
+    // The first ordinal of other lettered groups, after every roman numeral up to MMMCMXCIX
+    private static final int ROMAN_NUMERALS = 3999;
+    private static final int LETTERED_ORDINAL = groups.length + ROMAN_NUMERALS;
+    private static final int MAX_GROUP_ORDINAL = 0xFFFF;
+
+    /**
+     * Offset applied to the race number in the sort key so negative race numbers still order
+     * correctly as unsigned values
+     */
+    private static final long RACE_NO_OFFSET = -(long) Integer.MIN_VALUE;
+
     private int controlId;
     private String league;
     private int roundNo;
@@ -33,11 +44,16 @@ public class Race implements Comparable<Race> {
     private String teamTwoDsq;
     private boolean next;
 
+    // Ordinals derived from the above when they are set, used for ordering
+    private int divisionOrdinal;
+    private int groupOrdinal;
+    private long sortKey;
+
     /**
      * Standard constructor
      */
     public Race() {
-        // Empty default constructor
+        updateSortKey();
     }
 
     /**
@@ -72,6 +88,9 @@ public class Race implements Comparable<Race> {
         this.teamOneDsq = teamOneDsq;
         this.teamTwoDsq = teamTwoDsq;
         this.next = next;
+        this.divisionOrdinal = divisionOrdinal(division);
+        this.groupOrdinal = groupOrdinal(group, roundNo);
+        updateSortKey();
     }
 
     /**
@@ -93,6 +112,9 @@ public class Race implements Comparable<Race> {
         this.teamOneDsq = raceToCopy.getTeamOneDsq();
         this.teamTwoDsq = raceToCopy.getTeamTwoDsq();
         this.next = raceToCopy.isNext();
+        this.divisionOrdinal = raceToCopy.divisionOrdinal;
+        this.groupOrdinal = raceToCopy.groupOrdinal;
+        this.sortKey = raceToCopy.sortKey;
     }
 
     /**
@@ -138,6 +160,9 @@ public class Race implements Comparable<Race> {
      */
     public void setRoundNo(int roundNo) {
         this.roundNo = roundNo;
+        // Whether a group is lettered or numbered depends on the set
+        this.groupOrdinal = groupOrdinal(group, roundNo);
+        updateSortKey();
     }
 
     /**
@@ -167,6 +192,8 @@ public class Race implements Comparable<Race> {
      */
     public void setDivision(String division) {
         this.division = division;
+        this.divisionOrdinal = divisionOrdinal(division);
+        updateSortKey();
     }
 
     /**
@@ -181,6 +208,8 @@ public class Race implements Comparable<Race> {
      */
     public void setGroup(String group) {
         this.group = group;
+        this.groupOrdinal = groupOrdinal(group, roundNo);
+        updateSortKey();
     }
 
     /**
@@ -196,6 +225,7 @@ public class Race implements Comparable<Race> {
      */
     public void setRaceNo(int raceNo) {
         this.raceNo = raceNo;
+        updateSortKey();
     }
 
     /**
@@ -291,34 +321,90 @@ public class Race implements Comparable<Race> {
         this.teamTwoDsq = teamTwoDsq;
     }
 
+    /**
+     * @return the ordinal of the division this race is being run under, this is the upper case
+     * first character of the division or 0 if there is no division
+     */
+    public int getDivisionOrdinal() {
+        return divisionOrdinal;
+    }
+
+    /**
+     * @return the ordinal of the group this race is being run under, this is the position of the
+     * group in the order groups are run or 0 if the group is not recognised
+     */
+    public int getGroupOrdinal() {
+        return groupOrdinal;
+    }
+
+    /**
+     * @return a key which orders races by division ordinal, then group ordinal, then race number.
+     * Comparing the keys of two races is equivalent to {@link #compareTo(Race)}.
+     */
+    public long getSortKey() {
+        return sortKey;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Comparable#compareTo(java.lang.Object)
      */
     @Override
     public int compareTo(Race another) {
-        // Order by the division, then group ID, then race number finally
-
-        int check = this.division.toUpperCase().toCharArray()[0] - another.division.toUpperCase().toCharArray()[0];
-
-        if (check == 0) {
-            // Find ordinal version of the group
-            int ordThis = 0;
-            int ordAnother = 0;
-            for (int i = 0, n = groups.length; i < n; i++) {
-                if (this.group.equalsIgnoreCase(groups[i])) {
-                    ordThis = i;
-                }
-                if (another.group.equalsIgnoreCase(groups[i])) {
-                    ordAnother = i;
-                }
-            }
-            check = ordThis - ordAnother;
+        // Order by the division, then group ID, then race number finally - all packed into the key
+        return Long.compare(this.sortKey, another.sortKey);
+    }
+
+    /**
+     * Packs the division ordinal (16 bits), group ordinal (16 bits) and race number (32 bits) into
+     * the sort key. This must be called whenever any of them change.
+     */
+    private void updateSortKey() {
+        this.sortKey = (long) this.divisionOrdinal << 48
+                | (long) this.groupOrdinal << 32
+                | (this.raceNo + RACE_NO_OFFSET);
+    }
+
+    /**
+     * @param division the division
+     * @return the upper case first character of the division, 0 if the division is null or empty
+     */
+    private static int divisionOrdinal(String division) {
+        if (division == null || division.isEmpty()) {
+            return 0;
         }
-        if (check == 0) {
-            check = this.raceNo - another.raceNo;
+        return Character.toUpperCase(division.charAt(0)) & 0xFFFF;
+    }
+
+    /**
+     * @param group   the group name
+     * @param roundNo the set the group is in, groups of the first set are lettered and groups of
+     *                later sets are roman numerals
+     * @return the index of the group in the order groups are run, 0 if the group is not recognised.
+     * Other groups, as used by large divisions, follow in order of their numeral or letters.
+     */
+    private static int groupOrdinal(String group, int roundNo) {
+        if (group == null) {
+            return 0;
+        }
+        for (int i = 0, n = groups.length; i < n; i++) {
+            if (group.equalsIgnoreCase(groups[i])) {
+                return i;
+            }
         }
 
-        return check;
+        // Roman numerals run to MMMCMXCIX so are followed by the letters, which are limited to
+        // what fits in the sort key (any 3 letters)
+        if (roundNo != 1) {
+            int numeral = GroupName.indexOfRomanNumeral(group);
+            if (numeral >= 0 && numeral < ROMAN_NUMERALS) {
+                return groups.length + numeral;
+            }
+        }
+        int letters = GroupName.indexOfLetters(group);
+        if (letters < 0 || LETTERED_ORDINAL + letters > MAX_GROUP_ORDINAL) {
+            return 0;
+        }
+        return LETTERED_ORDINAL + letters;
     }
 
     /* (non-Javadoc)
@@ -18,6 +18,24 @@ public class RaceControl {
     private String league;
     private String date;
 
+    /**
+     * Standard constructor
+     */
+    public RaceControl() {
+        // Empty default constructor
+    }
+
+    /**
+     * Convenience constructor which clones another instance
+     *
+     * @param raceControlToCopy The {@link RaceControl} to be cloned.
+     */
+    public RaceControl(RaceControl raceControlToCopy) {
+        this.controlId = raceControlToCopy.controlId;
+        this.league = raceControlToCopy.league;
+        this.date = raceControlToCopy.date;
+    }
+
     /**
      * @return the control ID
      */
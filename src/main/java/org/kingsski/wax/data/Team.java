@@ -39,6 +39,41 @@ public class Team implements Comparable<Team> {
     private int setOneDsqs;
     private int setWeighting;
 
+    /**
+     * Standard constructor
+     */
+    public Team() {
+        // Empty default constructor
+    }
+
+    /**
+     * Convenience constructor which clones another instance
+     *
+     * @param teamToCopy The {@link Team} to be cloned.
+     */
+    public Team(Team teamToCopy) {
+        this.teamId = teamToCopy.teamId;
+        this.league = teamToCopy.league;
+        this.clubName = teamToCopy.clubName;
+        this.division = teamToCopy.division;
+        this.divisionIndex = teamToCopy.divisionIndex;
+        this.teamName = teamToCopy.teamName;
+        this.scoreR1 = teamToCopy.scoreR1;
+        this.scoreR2 = teamToCopy.scoreR2;
+        this.scoreR3 = teamToCopy.scoreR3;
+        this.scoreR4 = teamToCopy.scoreR4;
+        this.scoreR5 = teamToCopy.scoreR5;
+        this.scoreTotal = teamToCopy.scoreTotal;
+        this.orderedScore1 = teamToCopy.orderedScore1;
+        this.orderedScore2 = teamToCopy.orderedScore2;
+        this.orderedScore3 = teamToCopy.orderedScore3;
+        this.orderedScore4 = teamToCopy.orderedScore4;
+        this.orderedScore5 = teamToCopy.orderedScore5;
+        this.setOneWins = teamToCopy.setOneWins;
+        this.setOneDsqs = teamToCopy.setOneDsqs;
+        this.setWeighting = teamToCopy.setWeighting;
+    }
+
     /**
      * @return the team id
      */
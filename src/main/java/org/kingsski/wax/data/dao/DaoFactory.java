@@ -15,6 +15,7 @@ package org.kingsski.wax.data.dao;
  * <li>{@link RaceControlDao}</li>
  * <li>{@link TeamDao}</li>
  * </ul>
+ * and {@link DaoSession}s which share a single connection between these.
  * </p>
  */
 public interface DaoFactory {
@@ -43,4 +44,9 @@ public interface DaoFactory {
      * @return An implementation of {@link TeamDao}
      */
     TeamDao newTeamDaoInstance();
+
+    /**
+     * @return A {@link DaoSession} whose DAOs share a single connection
+     */
+    DaoSession newDaoSessionInstance();
 }
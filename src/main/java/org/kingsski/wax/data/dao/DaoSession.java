@@ -0,0 +1,59 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao;
+
+/**
+ * <p>
+ * A unit of work against the RaceOrganiser database. Every DAO provided by a session shares one
+ * underlying connection so work done through several of them, such as reading clubs, reading
+ * teams and writing races, can be made in a single transaction.
+ * </p>
+ * <p>
+ * The DAOs are opened by the session when first requested and remain owned by it: they must not
+ * be opened or closed by the caller and must not be used after the session is closed. A session
+ * is not safe for concurrent use, each thread should obtain its own from
+ * {@link DaoFactory#newDaoSessionInstance()}.
+ * </p>
+ */
+public interface DaoSession {
+
+    /**
+     * @return The session's {@link ClubDao}
+     */
+    ClubDao getClubDao();
+
+    /**
+     * @return The session's {@link TeamDao}
+     */
+    TeamDao getTeamDao();
+
+    /**
+     * @return The session's {@link RaceDao}
+     */
+    RaceDao getRaceDao();
+
+    /**
+     * @return The session's {@link RaceControlDao}
+     */
+    RaceControlDao getRaceControlDao();
+
+    /**
+     * Begin a transaction covering every DAO in the session
+     */
+    void beginTransaction();
+
+    /**
+     * Mark the current transaction as successful
+     */
+    void setTransactionSuccessful();
+
+    /**
+     * End the current transaction, the work is only committed if it was marked as successful
+     */
+    void endTransaction();
+
+    /**
+     * Finish with the session, ending any transaction left open without committing it
+     */
+    void close();
+}
@@ -36,6 +36,27 @@ public interface RaceDao extends RaceOrganiserDao {
      */
     Race addRace(Race race);
 
+    /**
+     * Adds a set of races in a single operation. Race numbers are assigned in
+     * list order, continuing from the next race number for each control id and
+     * round number. Implementations should override this to assign the race
+     * numbers in one pass and write the races as a single batch; by default each
+     * race is added in turn with {@link #addRace(Race)}.
+     *
+     * @param races The {@link Race} objects containing the control id, division,
+     *              round number and teams
+     * @return The {@link Race} objects with the race numbers set if successful,
+     * null otherwise
+     */
+    default List<Race> addRaces(List<Race> races) {
+        for (int i = 0, n = races.size(); i < n; i++) {
+            if (addRace(races.get(i)) == null) {
+                return null;
+            }
+        }
+        return races;
+    }
+
     /**
      * @param race The {@link Race} object containing the control id, round
      *             number and race number of the race to be deleted
@@ -0,0 +1,30 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao;
+
+import org.kingsski.wax.data.Race;
+
+/**
+ * Listener which is notified of changes made to {@link Race}s through a {@link RaceDao}
+ */
+public interface RaceUpdateListener {
+
+    /**
+     * Called after the result of a race has been successfully updated with
+     * {@link RaceDao#updateRace(Race)}
+     *
+     * @param race The {@link Race} containing the control id, round number, race number,
+     *             division, group and the updated winning team and disqualification information
+     */
+    void raceUpdated(Race race);
+
+    /**
+     * Called after races have been added to or removed from a set
+     *
+     * @param controlId The control id of the races which changed
+     * @param roundNo   The round number of the races which changed
+     */
+    default void racesChanged(int controlId, int roundNo) {
+        // Most listeners are only interested in results
+    }
+}
@@ -5,6 +5,7 @@ package org.kingsski.wax.data.dao;
 import org.kingsski.wax.data.Club;
 import org.kingsski.wax.data.Team;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -115,6 +116,27 @@ public interface TeamDao extends RaceOrganiserDao {
      */
     Team updateTeam(Team team, boolean add);
 
+    /**
+     * Updates a set of {@link Team}s in a single operation. Implementations should override this
+     * to write the teams as a single batch; by default each team is updated in turn with
+     * {@link #updateTeam(Team, boolean)}.
+     *
+     * @param teams The {@link Team} objects to be updated, the Team ids must be set for existing
+     *              teams
+     * @param add   If set to true then any teams which do not already exist will be added
+     * @return The {@link Team} objects which could not be updated (or added), empty if all were
+     * successful
+     */
+    default List<Team> updateTeams(List<Team> teams, boolean add) {
+        List<Team> failed = new ArrayList<>();
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            if (updateTeam(teams.get(i), add) == null) {
+                failed.add(teams.get(i));
+            }
+        }
+        return failed;
+    }
+
     /**
      * @param league   the league for which {@link Team}s should have their scores
      *                 reset
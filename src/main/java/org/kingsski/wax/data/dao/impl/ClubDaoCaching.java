@@ -0,0 +1,106 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.dao.ClubDao;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link ClubDao} which wraps another {@link ClubDao} so that the clubs of each
+ * league are read through the cache of a {@link DaoFactoryCaching}. Any change discards everything
+ * held as teams depend on their clubs.
+ */
+class ClubDaoCaching implements ClubDao {
+    private static final String ALL_LEAGUES = "";
+
+    private final ClubDao clubDao;
+    private final DaoFactoryCaching cache;
+
+    /**
+     * @param clubDao the {@link ClubDao} to wrap
+     * @param cache   the {@link DaoFactoryCaching} holding the cache
+     */
+    ClubDaoCaching(ClubDao clubDao, DaoFactoryCaching cache) {
+        this.clubDao = clubDao;
+        this.cache = cache;
+    }
+
+    @Override
+    public List<Club> getClubs(String league) {
+        return DaoFactoryCaching.copyClubs(cache.clubs.get(league == null ? ALL_LEAGUES : league,
+                () -> DaoFactoryCaching.copyClubs(clubDao.getClubs(league))));
+    }
+
+    @Override
+    public Club addClub(Club club) {
+        try {
+            return clubDao.addClub(club);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteClub(Club club) {
+        try {
+            clubDao.deleteClub(club);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public Club updateClub(Club club) {
+        try {
+            return clubDao.updateClub(club);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return clubDao.isOpen();
+    }
+
+    @Override
+    public void open() {
+        clubDao.open();
+    }
+
+    @Override
+    public void close() {
+        clubDao.close();
+    }
+
+    @Override
+    public void deleteDb() {
+        try {
+            clubDao.deleteDb();
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        clubDao.beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        clubDao.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        try {
+            clubDao.endTransaction();
+        } finally {
+            // The transaction may have been rolled back
+            cache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.dao.ClubDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link ClubDao} backed by an {@link InMemoryDatabase}. {@link Club}s are keyed
+ * by club name and are returned in club name order.
+ */
+public class ClubDaoInMemory extends RaceOrganiserDaoInMemory implements ClubDao {
+
+    /**
+     * @param database the store this DAO reads from and writes to
+     */
+    ClubDaoInMemory(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public List<Club> getClubs(String league) {
+        List<Club> clubs = new ArrayList<>();
+        for (Club club : database.clubs.values()) {
+            if (league == null || league.equals(club.getLeague())) {
+                clubs.add(new Club(club));
+            }
+        }
+        return clubs;
+    }
+
+    @Override
+    public Club addClub(Club club) {
+        if (club.getClubName() == null
+                || database.clubs.putIfAbsent(club.getClubName(), new Club(club)) != null) {
+            return null;
+        }
+        return club;
+    }
+
+    @Override
+    public void deleteClub(Club club) {
+        if (club.getClubName() != null) {
+            database.clubs.remove(club.getClubName());
+        }
+    }
+
+    @Override
+    public Club updateClub(Club club) {
+        if (club.getClubName() == null
+                || database.clubs.replace(club.getClubName(), new Club(club)) == null) {
+            return null;
+        }
+        return club;
+    }
+}
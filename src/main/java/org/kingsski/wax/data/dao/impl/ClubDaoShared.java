@@ -0,0 +1,100 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.dao.ClubDao;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link ClubDao} which is a view of the shared {@link ClubDao} of a
+ * {@link DaoFactoryShared}. Opening and closing has no effect, clubs are served from those held
+ * by the factory and any change discards them.
+ */
+class ClubDaoShared implements ClubDao {
+    private final DaoFactoryShared daoFactory;
+
+    /**
+     * @param daoFactory the {@link DaoFactoryShared} holding the shared DAO
+     */
+    ClubDaoShared(DaoFactoryShared daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public List<Club> getClubs(String league) {
+        return daoFactory.getClubs(league);
+    }
+
+    @Override
+    public Club addClub(Club club) {
+        try {
+            return daoFactory.clubDao().addClub(club);
+        } finally {
+            daoFactory.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteClub(Club club) {
+        try {
+            daoFactory.clubDao().deleteClub(club);
+        } finally {
+            daoFactory.invalidate();
+        }
+    }
+
+    @Override
+    public Club updateClub(Club club) {
+        try {
+            return daoFactory.clubDao().updateClub(club);
+        } finally {
+            daoFactory.invalidate();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void open() {
+        // The shared DAO is opened on first use
+    }
+
+    @Override
+    public void close() {
+        // The shared DAO is closed by the factory
+    }
+
+    @Override
+    public void deleteDb() {
+        try {
+            daoFactory.clubDao().deleteDb();
+        } finally {
+            daoFactory.invalidate();
+        }
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        daoFactory.clubDao().beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        daoFactory.clubDao().setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        try {
+            daoFactory.clubDao().endTransaction();
+        } finally {
+            // The transaction may have been rolled back
+            daoFactory.invalidate();
+        }
+    }
+}
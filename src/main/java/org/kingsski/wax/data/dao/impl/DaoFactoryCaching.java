@@ -0,0 +1,149 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which wraps another {@link DaoFactory} so that the
+ * {@link TeamDao}s and {@link ClubDao}s it provides read through a cache. Team and club data
+ * barely changes during a race day so generating each set and each set of standings can reuse
+ * what has already been read.
+ * </p>
+ * <p>
+ * The cache is shared by every DAO from the factory. It holds teams by ID, by division and the
+ * competing teams of a division, along with the clubs of each league. Each of these is bounded by
+ * the number of entries, evicting the least recently used, and how long an entry is held. Any
+ * change to a team made through the factory discards the held teams and any change to a club
+ * discards everything, as does a transaction of a {@link DaoSession} which is not successful.
+ * Changes made to the database by other means are seen once the entries expire. Copies are
+ * always returned so callers may modify them.
+ * </p>
+ * <p>
+ * {@link RaceDao}s and {@link RaceControlDao}s are provided by the wrapped factory unchanged.
+ * </p>
+ */
+public class DaoFactoryCaching implements DaoFactory {
+    private final DaoFactory daoFactory;
+
+    final ReadThroughCache<Integer, Team> teamsById;
+    final ReadThroughCache<String, List<Team>> teamLists;
+    final ReadThroughCache<String, List<Club>> clubs;
+
+    /**
+     * @param daoFactory the {@link DaoFactory} to wrap
+     * @param maxEntries the most entries held for each of teams by ID, lists of teams and clubs
+     * @param timeToLive how long each entry is held
+     * @param unit       the unit of the time to live
+     */
+    public DaoFactoryCaching(DaoFactory daoFactory, int maxEntries, long timeToLive, TimeUnit unit) {
+        this(daoFactory, maxEntries, unit.toNanos(timeToLive), System::nanoTime);
+    }
+
+    DaoFactoryCaching(DaoFactory daoFactory, int maxEntries, long timeToLive, LongSupplier clock) {
+        this.daoFactory = daoFactory;
+        this.teamsById = new ReadThroughCache<>(maxEntries, timeToLive, clock);
+        this.teamLists = new ReadThroughCache<>(maxEntries, timeToLive, clock);
+        this.clubs = new ReadThroughCache<>(maxEntries, timeToLive, clock);
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return new RaceOrganiserDaoCaching(daoFactory.newRaceOrganiserDaoInstance(), this);
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return daoFactory.newRaceDaoInstance();
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return new ClubDaoCaching(daoFactory.newClubDaoInstance(), this);
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return daoFactory.newRaceControlDaoInstance();
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return new TeamDaoCaching(daoFactory.newTeamDaoInstance(), this);
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return new DaoSessionShared(this);
+    }
+
+    /**
+     * @return the number of reads answered from the cache
+     */
+    public long getHitCount() {
+        return teamsById.getHits() + teamLists.getHits() + clubs.getHits();
+    }
+
+    /**
+     * @return the number of reads which went to the wrapped DAOs
+     */
+    public long getMissCount() {
+        return teamsById.getMisses() + teamLists.getMisses() + clubs.getMisses();
+    }
+
+    /**
+     * Discards everything held so it is read again on next use
+     */
+    public void invalidate() {
+        clubs.invalidate();
+        invalidateTeams();
+    }
+
+    /**
+     * Discards the teams held so they are read again on next use
+     */
+    void invalidateTeams() {
+        teamsById.invalidate();
+        teamLists.invalidate();
+    }
+
+    static Team copy(Team team) {
+        return team == null ? null : new Team(team);
+    }
+
+    static List<Team> copyTeams(List<Team> teams) {
+        if (teams == null) {
+            return null;
+        }
+        List<Team> copies = new ArrayList<>(teams.size());
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            copies.add(new Team(teams.get(i)));
+        }
+        return copies;
+    }
+
+    static List<Club> copyClubs(List<Club> clubs) {
+        if (clubs == null) {
+            return null;
+        }
+        List<Club> copies = new ArrayList<>(clubs.size());
+        for (int i = 0, n = clubs.size(); i < n; i++) {
+            copies.add(new Club(clubs.get(i)));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,149 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which keeps {@link org.kingsski.wax.data.RaceControl}s and
+ * {@link org.kingsski.wax.data.Race}s in memory and records every change to them in an
+ * append-only log file. When the factory is created the log is replayed, so an event day can be
+ * recovered exactly as it was if the process stops part way through. Clubs and teams are provided
+ * by another {@link DaoFactory}.
+ * </p>
+ * <p>
+ * Each change is appended to the memory-mapped log before the DAO method returns, which is much
+ * cheaper than a database commit. Appends survive the process stopping; {@link #flush()} should
+ * be called when they must also survive the machine stopping. The log grows with every change
+ * so it is rewritten with only the current state by {@link #checkpoint()}, either when called or
+ * automatically after a given number of records.
+ * </p>
+ * <p>
+ * {@link RaceDao#deleteDb()} and {@link RaceControlDao#deleteDb()} clear all races and controls
+ * but not the clubs and teams.
+ * </p>
+ */
+public class DaoFactoryEventLog implements DaoFactory {
+    private final DaoFactory daoFactory;
+    private final InMemoryDatabase database = new InMemoryDatabase();
+    private final RaceEventLog log;
+    private final int checkpointRecords;
+
+    /**
+     * @param file       the file holding the log, created if it does not exist
+     * @param daoFactory the {@link DaoFactory} providing the clubs and teams
+     * @throws java.io.UncheckedIOException if the log cannot be opened
+     */
+    public DaoFactoryEventLog(Path file, DaoFactory daoFactory) {
+        this(file, daoFactory, 0);
+    }
+
+    /**
+     * @param file              the file holding the log, created if it does not exist
+     * @param daoFactory        the {@link DaoFactory} providing the clubs and teams
+     * @param checkpointRecords the number of records in the log after which it is checkpointed,
+     *                          0 to only checkpoint when {@link #checkpoint()} is called
+     * @throws java.io.UncheckedIOException if the log cannot be opened
+     */
+    public DaoFactoryEventLog(Path file, DaoFactory daoFactory, int checkpointRecords) {
+        this.daoFactory = daoFactory;
+        this.checkpointRecords = checkpointRecords;
+        this.log = new RaceEventLog(file, database);
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return daoFactory.newRaceOrganiserDaoInstance();
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return new RaceDaoEventLog(database, this);
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return daoFactory.newClubDaoInstance();
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return new RaceControlDaoEventLog(database, this);
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return daoFactory.newTeamDaoInstance();
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return new DaoSessionShared(this);
+    }
+
+    /**
+     * @return the number of records in the log
+     */
+    public int getRecords() {
+        synchronized (log) {
+            return log.getRecords();
+        }
+    }
+
+    /**
+     * Rewrites the log with only the current races and controls so it is replayed as quickly as
+     * possible
+     *
+     * @throws java.io.UncheckedIOException if the log cannot be written
+     */
+    public void checkpoint() {
+        synchronized (log) {
+            log.checkpoint(database);
+        }
+    }
+
+    /**
+     * Forces every change recorded so far to the disk
+     */
+    public void flush() {
+        synchronized (log) {
+            log.flush();
+        }
+    }
+
+    /**
+     * Forces every change recorded so far to the disk and closes the log. The DAOs must not be
+     * used to make changes afterwards.
+     */
+    public void close() {
+        synchronized (log) {
+            log.close();
+        }
+    }
+
+    /**
+     * @return the log, changes must be made and recorded while synchronized on it
+     */
+    RaceEventLog log() {
+        return log;
+    }
+
+    /**
+     * Checkpoints the log if it has reached the number of records to do so, this must be called
+     * while synchronized on the log
+     */
+    void recorded() {
+        if (checkpointRecords > 0 && log.getRecords() >= checkpointRecords) {
+            log.checkpoint(database);
+        }
+    }
+}
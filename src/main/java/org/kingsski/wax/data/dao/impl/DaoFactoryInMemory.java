@@ -0,0 +1,56 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which keeps all data in memory. This allows races to be
+ * configured without a database, either as a cache in front of one or for tests and benchmarks.
+ * </p>
+ * <p>
+ * Every DAO returned by an instance shares the same store, so data added through one DAO is
+ * visible through all others. The store is safe for concurrent use; lookups by ID, by league and
+ * division and by control ID, round number and division are direct map accesses.
+ * </p>
+ */
+public class DaoFactoryInMemory implements DaoFactory {
+    private final InMemoryDatabase database = new InMemoryDatabase();
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return new RaceOrganiserDaoInMemory(database);
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return new RaceDaoInMemory(database);
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return new ClubDaoInMemory(database);
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return new RaceControlDaoInMemory(database);
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return new TeamDaoInMemory(database);
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return new DaoSessionShared(this);
+    }
+}
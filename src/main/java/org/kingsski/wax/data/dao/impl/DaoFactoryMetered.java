@@ -0,0 +1,172 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.metrics.MetricsRegistry;
+import org.kingsski.wax.metrics.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which wraps another {@link DaoFactory} so that every call
+ * to the DAOs and {@link DaoSession}s it provides is timed in a {@link MetricsRegistry}.
+ * </p>
+ * <p>
+ * Each method has a timer named after the DAO and the method, e.g. {@code dao.raceDao.addRaces}
+ * or {@code dao.session.endTransaction}, and a counter of the calls which threw with
+ * {@code .errors} appended. Sessions are provided by the wrapped factory so any sharing or
+ * pooling it does is kept.
+ * </p>
+ */
+public class DaoFactoryMetered implements DaoFactory {
+    private static final String PREFIX = "dao.";
+
+    private final DaoFactory daoFactory;
+    private final MetricsRegistry metrics;
+    // The timer of each method, by the DAO interface it was called through
+    private final Map<Class<?>, Map<Method, Timer>> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param daoFactory the {@link DaoFactory} to wrap
+     */
+    public DaoFactoryMetered(DaoFactory daoFactory) {
+        this(daoFactory, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * @param daoFactory the {@link DaoFactory} to wrap
+     * @param metrics    the {@link MetricsRegistry} to record the calls in
+     */
+    public DaoFactoryMetered(DaoFactory daoFactory, MetricsRegistry metrics) {
+        this.daoFactory = daoFactory;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return meter(RaceOrganiserDao.class, daoFactory.newRaceOrganiserDaoInstance());
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return meter(RaceDao.class, daoFactory.newRaceDaoInstance());
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return meter(ClubDao.class, daoFactory.newClubDaoInstance());
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return meter(RaceControlDao.class, daoFactory.newRaceControlDaoInstance());
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return meter(TeamDao.class, daoFactory.newTeamDaoInstance());
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return meter(DaoSession.class, daoFactory.newDaoSessionInstance());
+    }
+
+    /**
+     * @return the {@link MetricsRegistry} the calls are recorded in
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    private <T> T meter(Class<T> type, T dao) {
+        if (dao == null) {
+            return null;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Metered(type, dao)));
+    }
+
+    /**
+     * The name is taken from the interface the method was called through rather than the one
+     * which declares it, so the methods every DAO inherits are timed separately for each DAO
+     */
+    private static String name(Class<?> type, Method method) {
+        String dao = type == DaoSession.class
+                ? "session"
+                : Character.toLowerCase(type.getSimpleName().charAt(0)) + type.getSimpleName().substring(1);
+        return PREFIX + dao + '.' + method.getName();
+    }
+
+    /**
+     * Times each call to a DAO or session. The DAOs returned by a session are wrapped in turn,
+     * once each.
+     */
+    private final class Metered implements InvocationHandler {
+        private final Class<?> type;
+        private final Object dao;
+        private final Map<Method, Timer> typeTimers;
+        private final Map<Object, Object> wrapped = new IdentityHashMap<>();
+
+        private Metered(Class<?> type, Object dao) {
+            this.type = type;
+            this.dao = dao;
+            this.typeTimers = timers.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(dao, args);
+            }
+
+            Timer timer = timer(method);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(dao, args);
+            } catch (InvocationTargetException e) {
+                metrics.counter(name(type, method) + ".errors").increment();
+                throw e.getCause();
+            } finally {
+                timer.recordSince(start);
+            }
+
+            if (result != null && dao instanceof DaoSession && method.getReturnType().isInterface()) {
+                result = wrap(method.getReturnType(), result);
+            }
+            return result;
+        }
+
+        private Timer timer(Method method) {
+            Timer timer = typeTimers.get(method);
+            if (timer == null) {
+                timer = typeTimers.computeIfAbsent(method, k -> metrics.timer(name(type, k)));
+            }
+            return timer;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized Object wrap(Class<?> type, Object result) {
+            Object metered = wrapped.get(result);
+            if (metered == null) {
+                metered = meter((Class<Object>) type, result);
+                wrapped.put(result, metered);
+            }
+            return metered;
+        }
+    }
+}
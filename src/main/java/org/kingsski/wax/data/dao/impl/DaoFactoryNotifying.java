@@ -0,0 +1,80 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.RaceUpdateListener;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Implementation of {@link DaoFactory} which wraps another {@link DaoFactory} so that changes
+ * made through any {@link RaceDao} it provides are passed to the registered
+ * {@link RaceUpdateListener}s. Changes made in a transaction, whether begun on the
+ * {@link RaceDao} or on a {@link RaceOrganiserDao} from this factory such as the connection of a
+ * session, are held until the transaction is committed. All other DAOs are provided by the
+ * wrapped factory unchanged.
+ */
+public class DaoFactoryNotifying implements DaoFactory {
+    private final DaoFactory daoFactory;
+    private final List<RaceUpdateListener> listeners = new CopyOnWriteArrayList<>();
+    private final RaceUpdateNotifier notifier = new RaceUpdateNotifier(listeners);
+
+    /**
+     * @param daoFactory the {@link DaoFactory} to wrap
+     */
+    public DaoFactoryNotifying(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    /**
+     * @param listener the {@link RaceUpdateListener} to notify of race changes
+     */
+    public void addRaceUpdateListener(RaceUpdateListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the {@link RaceUpdateListener} to stop notifying of race changes
+     */
+    public void removeRaceUpdateListener(RaceUpdateListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return new RaceOrganiserDaoNotifying(daoFactory.newRaceOrganiserDaoInstance(), notifier);
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return new RaceDaoNotifying(daoFactory.newRaceDaoInstance(), notifier);
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return daoFactory.newClubDaoInstance();
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return daoFactory.newRaceControlDaoInstance();
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return daoFactory.newTeamDaoInstance();
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return new DaoSessionShared(this);
+    }
+}
@@ -0,0 +1,219 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which wraps another {@link DaoFactory} and keeps a bounded
+ * pool of {@link DaoSession}s so their DAOs are opened once and reused rather than opened and
+ * closed by every user.
+ * </p>
+ * <p>
+ * At most the given number of sessions are in use at once, further requests for a session block
+ * until one is closed. Closing a session ends any transaction left open and returns it to the
+ * pool with its DAOs still open. Generating the first set uses a single session however many
+ * divisions are generated concurrently. The second set holds a session for each division while
+ * reading the previous set and closes them before opening the one it writes the races with, so
+ * it needs no more sessions than the divisions it generates at once. Controls generated
+ * concurrently each need their own. The pooled DAOs are closed by {@link #close()}.
+ * </p>
+ * <p>
+ * The DAOs provided individually are from the wrapped factory unchanged.
+ * </p>
+ */
+public class DaoFactoryPooled implements DaoFactory {
+    private final DaoFactory daoFactory;
+    private final int maxSessions;
+    private final Semaphore permits;
+    private final Deque<DaoSessionShared> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * @param daoFactory  the {@link DaoFactory} to wrap
+     * @param maxSessions the most sessions which may be in use at once
+     */
+    public DaoFactoryPooled(DaoFactory daoFactory, int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("At least one session is required: " + maxSessions);
+        }
+        this.daoFactory = daoFactory;
+        this.maxSessions = maxSessions;
+        this.permits = new Semaphore(maxSessions, true);
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return daoFactory.newRaceOrganiserDaoInstance();
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return daoFactory.newRaceDaoInstance();
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return daoFactory.newClubDaoInstance();
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return daoFactory.newRaceControlDaoInstance();
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return daoFactory.newTeamDaoInstance();
+    }
+
+    /**
+     * Takes a session from the pool, waiting for one to be closed if they are all in use
+     *
+     * @return A pooled {@link DaoSession}
+     * @throws SessionUnavailableException if interrupted while waiting or the pool is closed
+     */
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionUnavailableException("Interrupted waiting for a session");
+        }
+
+        DaoSessionShared session;
+        synchronized (idle) {
+            if (closed) {
+                permits.release();
+                throw new SessionUnavailableException("The session pool is closed");
+            }
+            session = idle.pollFirst();
+        }
+        return new PooledSession(session == null ? new DaoSessionShared(daoFactory) : session);
+    }
+
+    /**
+     * @return the most sessions which may be in use at once
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @return the number of sessions in the pool which are not in use
+     */
+    public int getIdleSessions() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Closes the sessions in the pool, sessions still in use are closed when they are returned
+     */
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            DaoSessionShared session;
+            while ((session = idle.pollFirst()) != null) {
+                session.close();
+            }
+        }
+    }
+
+    private void release(DaoSessionShared session) {
+        // Anything left uncommitted is not carried over to the next user
+        session.endTransaction();
+        synchronized (idle) {
+            if (closed) {
+                session.close();
+            } else {
+                idle.offerFirst(session);
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * The view of a pooled session given to a user, closing it returns the session to the pool
+     * and it may not be used afterwards.
+     */
+    private class PooledSession implements DaoSession {
+        private DaoSessionShared session;
+
+        private PooledSession(DaoSessionShared session) {
+            this.session = session;
+        }
+
+        @Override
+        public ClubDao getClubDao() {
+            return session().getClubDao();
+        }
+
+        @Override
+        public TeamDao getTeamDao() {
+            return session().getTeamDao();
+        }
+
+        @Override
+        public RaceDao getRaceDao() {
+            return session().getRaceDao();
+        }
+
+        @Override
+        public RaceControlDao getRaceControlDao() {
+            return session().getRaceControlDao();
+        }
+
+        @Override
+        public void beginTransaction() {
+            session().beginTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            session().setTransactionSuccessful();
+        }
+
+        @Override
+        public void endTransaction() {
+            session().endTransaction();
+        }
+
+        @Override
+        public void close() {
+            if (session != null) {
+                DaoSessionShared released = session;
+                session = null;
+                release(released);
+            }
+        }
+
+        private DaoSessionShared session() {
+            if (session == null) {
+                throw new IllegalStateException("The session has been closed");
+            }
+            return session;
+        }
+    }
+
+    public static class SessionUnavailableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public SessionUnavailableException(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Implementation of {@link DaoFactory} which wraps another {@link DaoFactory} so that a number of
+ * users, such as the events of a race day, share a single open {@link ClubDao} and
+ * {@link TeamDao} and the club and team data read through them.
+ * </p>
+ * <p>
+ * The {@link ClubDao}s and {@link TeamDao}s provided are views of the shared DAOs, opening and
+ * closing them has no effect. The shared DAOs are opened when first used and stay open until
+ * {@link #close()} is called, so they must support being used concurrently from different
+ * threads. All clubs are read once and the teams of a league and division, read with
+ * {@link TeamDao#getTeams(Club, String, String)} without a club, are read once for each league and
+ * division. These are held until a change is made through any of the views, although a change to a
+ * team only discards the teams. Copies are always returned so callers may modify them.
+ * </p>
+ * <p>
+ * {@link RaceDao}s and {@link RaceControlDao}s are provided by the wrapped factory unchanged as
+ * each user writes its own races.
+ * </p>
+ */
+public class DaoFactoryShared implements DaoFactory {
+    private final DaoFactory daoFactory;
+
+    private ClubDao clubDao;
+    private TeamDao teamDao;
+    private volatile List<Club> clubs;
+    private final ConcurrentMap<String, List<Team>> teamsByLeagueDivision = new ConcurrentHashMap<>();
+
+    /**
+     * @param daoFactory the {@link DaoFactory} to wrap
+     */
+    public DaoFactoryShared(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+        return daoFactory.newRaceOrganiserDaoInstance();
+    }
+
+    @Override
+    public RaceDao newRaceDaoInstance() {
+        return daoFactory.newRaceDaoInstance();
+    }
+
+    @Override
+    public ClubDao newClubDaoInstance() {
+        return new ClubDaoShared(this);
+    }
+
+    @Override
+    public RaceControlDao newRaceControlDaoInstance() {
+        return daoFactory.newRaceControlDaoInstance();
+    }
+
+    @Override
+    public TeamDao newTeamDaoInstance() {
+        return new TeamDaoShared(this);
+    }
+
+    @Override
+    public DaoSession newDaoSessionInstance() {
+        return new DaoSessionShared(this);
+    }
+
+    /**
+     * Closes the shared DAOs and discards everything which has been read
+     */
+    public synchronized void close() {
+        if (clubDao != null) {
+            clubDao.close();
+            clubDao = null;
+        }
+        if (teamDao != null) {
+            teamDao.close();
+            teamDao = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * Discards the club and team data which has been read so it is read again on next use
+     */
+    public void invalidate() {
+        clubs = null;
+        teamsByLeagueDivision.clear();
+    }
+
+    /**
+     * Discards the team data which has been read so it is read again on next use
+     */
+    void invalidateTeams() {
+        teamsByLeagueDivision.clear();
+    }
+
+    synchronized ClubDao clubDao() {
+        if (clubDao == null) {
+            clubDao = daoFactory.newClubDaoInstance();
+            clubDao.open();
+        }
+        return clubDao;
+    }
+
+    synchronized TeamDao teamDao() {
+        if (teamDao == null) {
+            teamDao = daoFactory.newTeamDaoInstance();
+            teamDao.open();
+        }
+        return teamDao;
+    }
+
+    /**
+     * @param league the league to filter on, or null for all leagues
+     * @return copies of the held {@link Club}s for the league, reading them if necessary
+     */
+    List<Club> getClubs(String league) {
+        List<Club> allClubs = this.clubs;
+        if (allClubs == null) {
+            allClubs = clubDao().getClubs(null);
+            this.clubs = allClubs;
+        }
+
+        List<Club> leagueClubs = new ArrayList<>();
+        for (int i = 0, n = allClubs.size(); i < n; i++) {
+            Club club = allClubs.get(i);
+            if (league == null || league.equals(club.getLeague())) {
+                leagueClubs.add(new Club(club));
+            }
+        }
+        return leagueClubs;
+    }
+
+    /**
+     * @param division the division to filter on
+     * @param league   the league to filter on
+     * @return copies of the held {@link Team}s for the league and division, reading them if
+     * necessary
+     */
+    List<Team> getTeams(String division, String league) {
+        List<Team> divisionTeams = teamsByLeagueDivision.computeIfAbsent(league + '\u0000' + division,
+                k -> teamDao().getTeams(null, division, league));
+
+        List<Team> copies = new ArrayList<>(divisionTeams.size());
+        for (int i = 0, n = divisionTeams.size(); i < n; i++) {
+            copies.add(new Team(divisionTeams.get(i)));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,130 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+/**
+ * <p>
+ * Implementation of {@link DaoSession} which opens each DAO from a {@link DaoFactory} the first
+ * time it is requested and keeps it open until the session is closed.
+ * </p>
+ * <p>
+ * The connection of the session is a single {@link RaceOrganiserDao} from the same factory and
+ * transactions are made through it. DAOs from the same factory share the RaceOrganiser database
+ * so a transaction begun on the connection covers the work done through all of them.
+ * </p>
+ */
+public class DaoSessionShared implements DaoSession {
+    private final DaoFactory daoFactory;
+
+    private RaceOrganiserDao connection;
+    private ClubDao clubDao;
+    private TeamDao teamDao;
+    private RaceDao raceDao;
+    private RaceControlDao raceControlDao;
+    private boolean inTransaction;
+
+    /**
+     * @param daoFactory the {@link DaoFactory} providing the DAOs of the session
+     */
+    public DaoSessionShared(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public ClubDao getClubDao() {
+        if (clubDao == null) {
+            clubDao = open(daoFactory.newClubDaoInstance());
+        }
+        return clubDao;
+    }
+
+    @Override
+    public TeamDao getTeamDao() {
+        if (teamDao == null) {
+            teamDao = open(daoFactory.newTeamDaoInstance());
+        }
+        return teamDao;
+    }
+
+    @Override
+    public RaceDao getRaceDao() {
+        if (raceDao == null) {
+            raceDao = open(daoFactory.newRaceDaoInstance());
+        }
+        return raceDao;
+    }
+
+    @Override
+    public RaceControlDao getRaceControlDao() {
+        if (raceControlDao == null) {
+            raceControlDao = open(daoFactory.newRaceControlDaoInstance());
+        }
+        return raceControlDao;
+    }
+
+    @Override
+    public void beginTransaction() {
+        connection().beginTransactionNonExclusive();
+        inTransaction = true;
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        connection().setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        if (inTransaction) {
+            inTransaction = false;
+            connection.endTransaction();
+        }
+    }
+
+    /**
+     * @return true if a transaction has been begun and not yet ended
+     */
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    @Override
+    public void close() {
+        endTransaction();
+        clubDao = close(clubDao);
+        teamDao = close(teamDao);
+        raceDao = close(raceDao);
+        raceControlDao = close(raceControlDao);
+        connection = close(connection);
+    }
+
+    private RaceOrganiserDao connection() {
+        if (connection == null) {
+            connection = daoFactory.newRaceOrganiserDaoInstance();
+            connection.open();
+        }
+        return connection;
+    }
+
+    private <T extends RaceOrganiserDao> T open(T dao) {
+        // The connection is always opened first so the DAOs share it
+        connection();
+        dao.open();
+        return dao;
+    }
+
+    private static <T extends RaceOrganiserDao> T close(T dao) {
+        if (dao != null) {
+            dao.close();
+        }
+        return null;
+    }
+}
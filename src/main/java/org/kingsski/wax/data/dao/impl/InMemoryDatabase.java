@@ -0,0 +1,210 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * The shared store behind each of the in-memory DAOs created by a {@link DaoFactoryInMemory}.
+ * </p>
+ * <p>
+ * Everything is held in concurrent maps which act as the indexes for the DAO queries:
+ * <ul>
+ * <li>{@link Club}s by club name</li>
+ * <li>{@link Team}s by team ID and by league then division</li>
+ * <li>{@link RaceControl}s by control ID</li>
+ * <li>{@link Race}s by control ID, round number then race number (and division)</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Stored objects are private copies which are never modified once stored, an update replaces the
+ * stored copy. This allows reads to go without locking; writes to teams lock on {@link #teamLock}
+ * and writes to races lock on the {@link RaceRound} they belong to.
+ * </p>
+ */
+final class InMemoryDatabase {
+    /**
+     * Key used in place of null since null keys are not permitted by the concurrent maps
+     */
+    private static final String NULL_KEY = "";
+
+    final ConcurrentNavigableMap<String, Club> clubs = new ConcurrentSkipListMap<>();
+    final ConcurrentNavigableMap<Integer, Team> teams = new ConcurrentSkipListMap<>();
+    final ConcurrentMap<String, ConcurrentMap<String, ConcurrentNavigableMap<Integer, Team>>> teamsByLeague =
+            new ConcurrentHashMap<>();
+    final ConcurrentNavigableMap<Integer, RaceControl> raceControls = new ConcurrentSkipListMap<>();
+    final ConcurrentMap<Integer, ConcurrentNavigableMap<Integer, RaceRound>> races = new ConcurrentHashMap<>();
+
+    final AtomicInteger lastTeamId = new AtomicInteger();
+    final AtomicInteger lastControlId = new AtomicInteger();
+
+    final Object teamLock = new Object();
+
+    /**
+     * Removes all data from the store
+     */
+    void clear() {
+        synchronized (teamLock) {
+            clubs.clear();
+            teams.clear();
+            teamsByLeague.clear();
+            raceControls.clear();
+            races.clear();
+            lastTeamId.set(0);
+            lastControlId.set(0);
+        }
+    }
+
+    /**
+     * @param value the value being used as a key
+     * @return the value, or a placeholder if it is null
+     */
+    static String key(String value) {
+        return value == null ? NULL_KEY : value;
+    }
+
+    /**
+     * @param league   the league to retrieve {@link Team}s for
+     * @param division the division to retrieve {@link Team}s for
+     * @return the {@link Team}s indexed under the league and division, keyed by team ID
+     */
+    Collection<Team> teamsFor(String league, String division) {
+        ConcurrentMap<String, ConcurrentNavigableMap<Integer, Team>> divisions = teamsByLeague.get(key(league));
+        if (divisions == null) {
+            return Collections.emptyList();
+        }
+
+        ConcurrentNavigableMap<Integer, Team> divisionTeams = divisions.get(key(division));
+        if (divisionTeams == null) {
+            return Collections.emptyList();
+        }
+
+        return divisionTeams.values();
+    }
+
+    /**
+     * Stores a {@link Team}, replacing any existing entry with the same ID and moving it between
+     * league and division indexes as necessary. Callers must hold {@link #teamLock}.
+     *
+     * @param team the {@link Team} to store, this must be a private copy
+     */
+    void putTeam(Team team) {
+        Team existing = teams.put(team.getTeamId(), team);
+        if (existing != null) {
+            unindexTeam(existing);
+        }
+
+        teamsByLeague.computeIfAbsent(key(team.getLeague()), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(team.getDivision()), k -> new ConcurrentSkipListMap<>())
+                .put(team.getTeamId(), team);
+
+        lastTeamId.accumulateAndGet(team.getTeamId(), Math::max);
+    }
+
+    /**
+     * Removes a {@link Team} from the store. Callers must hold {@link #teamLock}.
+     *
+     * @param teamId the ID of the {@link Team} to remove
+     */
+    void removeTeam(int teamId) {
+        Team existing = teams.remove(teamId);
+        if (existing != null) {
+            unindexTeam(existing);
+        }
+    }
+
+    private void unindexTeam(Team team) {
+        ConcurrentMap<String, ConcurrentNavigableMap<Integer, Team>> divisions = teamsByLeague.get(key(team.getLeague()));
+        if (divisions != null) {
+            ConcurrentNavigableMap<Integer, Team> divisionTeams = divisions.get(key(team.getDivision()));
+            if (divisionTeams != null) {
+                divisionTeams.remove(team.getTeamId());
+            }
+        }
+    }
+
+    /**
+     * @param controlId the control ID of the round
+     * @param roundNo   the round number
+     * @return the {@link RaceRound} if it exists, null otherwise
+     */
+    RaceRound round(int controlId, int roundNo) {
+        ConcurrentNavigableMap<Integer, RaceRound> rounds = races.get(controlId);
+        return rounds == null ? null : rounds.get(roundNo);
+    }
+
+    /**
+     * @param controlId the control ID of the round
+     * @param roundNo   the round number
+     * @return the {@link RaceRound}, created if it did not already exist
+     */
+    RaceRound roundForUpdate(int controlId, int roundNo) {
+        return races.computeIfAbsent(controlId, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(roundNo, k -> new RaceRound());
+    }
+
+    /**
+     * The {@link Race}s for a single control ID and round number, indexed by race number and by
+     * division. Writes must synchronize on the instance.
+     */
+    static final class RaceRound {
+        final ConcurrentNavigableMap<Integer, Race> byRaceNo = new ConcurrentSkipListMap<>();
+        final ConcurrentMap<String, ConcurrentNavigableMap<Integer, Race>> byDivision = new ConcurrentHashMap<>();
+
+        /**
+         * @return the next race number for this round
+         */
+        int nextRaceNo() {
+            return byRaceNo.isEmpty() ? 1 : byRaceNo.lastKey() + 1;
+        }
+
+        /**
+         * @param race the {@link Race} to store, this must be a private copy
+         */
+        void put(Race race) {
+            Race existing = byRaceNo.put(race.getRaceNo(), race);
+            if (existing != null) {
+                unindex(existing);
+            }
+            byDivision.computeIfAbsent(key(race.getDivision()), k -> new ConcurrentSkipListMap<>())
+                    .put(race.getRaceNo(), race);
+        }
+
+        /**
+         * @param raceNo the number of the {@link Race} to remove
+         */
+        void remove(int raceNo) {
+            Race existing = byRaceNo.remove(raceNo);
+            if (existing != null) {
+                unindex(existing);
+            }
+        }
+
+        /**
+         * Removes all {@link Race}s from this round
+         */
+        void clear() {
+            byRaceNo.clear();
+            byDivision.clear();
+        }
+
+        private void unindex(Race race) {
+            ConcurrentNavigableMap<Integer, Race> divisionRaces = byDivision.get(key(race.getDivision()));
+            if (divisionRaces != null) {
+                divisionRaces.remove(race.getRaceNo());
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A read-only store of historical {@link Race}s held off the heap in columns rather than as
+ * objects. The control ID, round number, race number and team columns are ints; the league, set,
+ * division, group and disqualification columns are codes into a dictionary holding each distinct
+ * string once and the next flag is a byte, so each race takes 37 bytes.
+ * </p>
+ * <p>
+ * Races are ordered by control ID, round number and race number so the races of a control or
+ * round are found by a binary search and are adjacent. A whole column can be scanned without
+ * creating any {@link Race}s using the accessors which take the index of a race, and
+ * {@link #newRaceDaoInstance()} provides a {@link RaceDao} to read the races as usual.
+ * </p>
+ * <p>
+ * The store is created from races with {@link #of(Collection)} in a direct buffer, or is mapped
+ * from a file written by {@link #save(Path)} with {@link #open(Path)} so only the parts read are
+ * loaded. It is never changed once created so it is safe to read from any number of threads.
+ * </p>
+ */
+public final class RaceColumnStore {
+    private static final int MAGIC = 0x57415843;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_CODE = 0xffff;
+
+    private static final Comparator<Race> ORDER = Comparator.comparingInt(Race::getControlId)
+            .thenComparingInt(Race::getRoundNo)
+            .thenComparingInt(Race::getRaceNo);
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String[] dictionary;
+    private final Map<String, Integer> codes;
+
+    private final IntBuffer controlIds;
+    private final IntBuffer roundNos;
+    private final IntBuffer raceNos;
+    private final IntBuffer teamOnes;
+    private final IntBuffer teamTwos;
+    private final IntBuffer teamWins;
+    private final ShortBuffer leagues;
+    private final ShortBuffer sets;
+    private final ShortBuffer divisions;
+    private final ShortBuffer groups;
+    private final ShortBuffer teamOneDsqs;
+    private final ShortBuffer teamTwoDsqs;
+    private final ByteBuffer nexts;
+
+    private RaceColumnStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a race column store");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported race column store version " + buffer.getInt(4));
+        }
+
+        size = buffer.getInt(8);
+        int dictionarySize = buffer.getInt(12);
+        if (size < 0 || dictionarySize < 0 || dictionarySize > MAX_CODE) {
+            throw new IOException("Race column store is corrupt");
+        }
+        dictionary = new String[dictionarySize + 1];
+        codes = new HashMap<>();
+        int position = HEADER_SIZE;
+        for (int code = 1; code <= dictionarySize; code++) {
+            int length = position + 4 <= buffer.capacity() ? buffer.getInt(position) : -1;
+            if (length < 0 || position + 4 + length > buffer.capacity()) {
+                throw new IOException("Race column store is truncated");
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer string = buffer.duplicate();
+            string.position(position + 4);
+            string.get(bytes);
+            dictionary[code] = new String(bytes, StandardCharsets.UTF_8);
+            codes.put(dictionary[code], code);
+            position += 4 + length;
+        }
+
+        position = align(position);
+        controlIds = intColumn(position);
+        roundNos = intColumn(position += 4 * size);
+        raceNos = intColumn(position += 4 * size);
+        teamOnes = intColumn(position += 4 * size);
+        teamTwos = intColumn(position += 4 * size);
+        teamWins = intColumn(position += 4 * size);
+        leagues = shortColumn(position += 4 * size);
+        sets = shortColumn(position += 2 * size);
+        divisions = shortColumn(position += 2 * size);
+        groups = shortColumn(position += 2 * size);
+        teamOneDsqs = shortColumn(position += 2 * size);
+        teamTwoDsqs = shortColumn(position += 2 * size);
+        nexts = slice(position += 2 * size, size);
+    }
+
+    /**
+     * Creates a store holding the races in a direct buffer
+     *
+     * @param races the {@link Race}s to hold, in any order
+     * @return the store
+     * @throws IllegalArgumentException if the races have more distinct strings than can be coded
+     */
+    public static RaceColumnStore of(Collection<Race> races) {
+        List<Race> sorted = new ArrayList<>(races);
+        sorted.sort(ORDER);
+        int size = sorted.size();
+
+        // Number each distinct string, 0 is null
+        Map<String, Integer> codes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int dictionaryBytes = 0;
+        for (int i = 0; i < size; i++) {
+            Race race = sorted.get(i);
+            String[] values = {race.getLeague(), race.getSet(), race.getDivision(), race.getGroup(),
+                    race.getTeamOneDsq(), race.getTeamTwoDsq()};
+            for (String value : values) {
+                if (value != null && !codes.containsKey(value)) {
+                    if (codes.size() == MAX_CODE) {
+                        throw new IllegalArgumentException("More than " + MAX_CODE + " distinct race strings");
+                    }
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    codes.put(value, codes.size() + 1);
+                    strings.add(bytes);
+                    dictionaryBytes += 4 + bytes.length;
+                }
+            }
+        }
+
+        int columns = align(HEADER_SIZE + dictionaryBytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(columns + 37 * size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(strings.size());
+        for (int i = 0, n = strings.size(); i < n; i++) {
+            buffer.putInt(strings.get(i).length).put(strings.get(i));
+        }
+
+        int position = columns;
+        for (int i = 0; i < size; i++) {
+            Race race = sorted.get(i);
+            buffer.putInt(position + 4 * i, race.getControlId());
+            buffer.putInt(position + 4 * (size + i), race.getRoundNo());
+            buffer.putInt(position + 4 * (2 * size + i), race.getRaceNo());
+            buffer.putInt(position + 4 * (3 * size + i), race.getTeamOne());
+            buffer.putInt(position + 4 * (4 * size + i), race.getTeamTwo());
+            buffer.putInt(position + 4 * (5 * size + i), race.getTeamWin());
+        }
+        position += 24 * size;
+        for (int i = 0; i < size; i++) {
+            Race race = sorted.get(i);
+            buffer.putShort(position + 2 * i, code(codes, race.getLeague()));
+            buffer.putShort(position + 2 * (size + i), code(codes, race.getSet()));
+            buffer.putShort(position + 2 * (2 * size + i), code(codes, race.getDivision()));
+            buffer.putShort(position + 2 * (3 * size + i), code(codes, race.getGroup()));
+            buffer.putShort(position + 2 * (4 * size + i), code(codes, race.getTeamOneDsq()));
+            buffer.putShort(position + 2 * (5 * size + i), code(codes, race.getTeamTwoDsq()));
+        }
+        position += 12 * size;
+        for (int i = 0; i < size; i++) {
+            buffer.put(position + i, (byte) (sorted.get(i).isNext() ? 1 : 0));
+        }
+
+        try {
+            return new RaceColumnStore(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the race column store which was written", e);
+        }
+    }
+
+    /**
+     * Maps a store written by {@link #save(Path)}. The file must not be changed while the store is
+     * in use.
+     *
+     * @param file the file holding the store
+     * @return the store
+     * @throws IOException if the file cannot be mapped or is not a race column store
+     */
+    public static RaceColumnStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new RaceColumnStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the store to a file, replacing any existing file
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.clear();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * @return a read-only {@link RaceDao} for the races in the store
+     */
+    public RaceDao newRaceDaoInstance() {
+        return new RaceDaoColumnar(this);
+    }
+
+    /**
+     * @return the number of races in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used by the store
+     */
+    public long getMemorySize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @param index the index of a race
+     * @return a new {@link Race} holding the race at the index
+     */
+    public Race getRace(int index) {
+        return new Race(controlIds.get(index), dictionary[leagues.get(index) & MAX_CODE], roundNos.get(index),
+                dictionary[sets.get(index) & MAX_CODE], dictionary[divisions.get(index) & MAX_CODE],
+                dictionary[groups.get(index) & MAX_CODE], raceNos.get(index), teamOnes.get(index),
+                teamTwos.get(index), teamWins.get(index), dictionary[teamOneDsqs.get(index) & MAX_CODE],
+                dictionary[teamTwoDsqs.get(index) & MAX_CODE], nexts.get(index) != 0);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the control ID of the race
+     */
+    public int getControlId(int index) {
+        return controlIds.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the round number of the race
+     */
+    public int getRoundNo(int index) {
+        return roundNos.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the race number of the race
+     */
+    public int getRaceNo(int index) {
+        return raceNos.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the ID of the first team of the race
+     */
+    public int getTeamOne(int index) {
+        return teamOnes.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the ID of the second team of the race
+     */
+    public int getTeamTwo(int index) {
+        return teamTwos.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return 1 if team one of the race won, 2 if team two won, 0 if it has not been run. This
+     * is not a team ID, see {@link #getTeamOne(int)} and {@link #getTeamTwo(int)} for those.
+     */
+    public int getTeamWin(int index) {
+        return teamWins.get(index);
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the league of the race
+     */
+    public String getLeague(int index) {
+        return dictionary[leagues.get(index) & MAX_CODE];
+    }
+
+    /**
+     * @param index the index of a race
+     * @return the division of the race
+     */
+    public String getDivision(int index) {
+        return dictionary[divisions.get(index) & MAX_CODE];
+    }
+
+    /**
+     * @param controlId the control ID to find
+     * @param roundNo   the round number to find, 0 for any round
+     * @return the index of the first race of the control and round, or of the first race after
+     * them if there are none
+     */
+    public int indexOf(int controlId, int roundNo) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int compare = Integer.compare(controlIds.get(mid), controlId);
+            if (compare == 0 && roundNo != 0) {
+                compare = Integer.compare(roundNos.get(mid), roundNo);
+            }
+            if (compare < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the race, or -1 if it is not in the store
+     */
+    int indexOf(int controlId, int roundNo, int raceNo) {
+        int low = indexOf(controlId, roundNo);
+        int high = low;
+        while (high < size && controlIds.get(high) == controlId && roundNos.get(high) == roundNo) {
+            high++;
+        }
+
+        // Race numbers are ordered within the round
+        high--;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = Integer.compare(raceNos.get(mid), raceNo);
+            if (compare == 0) {
+                return mid;
+            } else if (compare < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the code of the division, 0 for null or -1 if no race has the division
+     */
+    int divisionCode(String division) {
+        if (division == null) {
+            return 0;
+        }
+        Integer code = codes.get(division);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * @return the code of the division of the race at the index
+     */
+    int divisionCodeAt(int index) {
+        return divisions.get(index) & MAX_CODE;
+    }
+
+    private static short code(Map<String, Integer> codes, String value) {
+        return value == null ? 0 : (short) (int) codes.get(value);
+    }
+
+    private static int align(int position) {
+        return (position + 3) & ~3;
+    }
+
+    private IntBuffer intColumn(int position) throws IOException {
+        return slice(position, 4 * size).asIntBuffer();
+    }
+
+    private ShortBuffer shortColumn(int position) throws IOException {
+        return slice(position, 2 * size).asShortBuffer();
+    }
+
+    private ByteBuffer slice(int position, int length) throws IOException {
+        if ((long) position + length > buffer.capacity()) {
+            throw new IOException("Race column store is truncated");
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position).limit(position + length);
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,47 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.dao.RaceControlDao;
+
+/**
+ * Implementation of {@link RaceControlDao} which records each {@link RaceControl} added to an
+ * {@link InMemoryDatabase} in the log of a {@link DaoFactoryEventLog}, before it is added to
+ * memory. Reads are served from memory.
+ */
+class RaceControlDaoEventLog extends RaceControlDaoInMemory {
+    private final DaoFactoryEventLog daoFactory;
+
+    /**
+     * @param database   the store this DAO reads from and writes to
+     * @param daoFactory the {@link DaoFactoryEventLog} holding the log
+     */
+    RaceControlDaoEventLog(InMemoryDatabase database, DaoFactoryEventLog daoFactory) {
+        super(database);
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public RaceControl addNewRaceControl(String league) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            // The control is only added once it has been logged
+            RaceControl raceControl = newRaceControl(database.lastControlId.get() + 1, league);
+            log.controlAdded(raceControl);
+            database.raceControls.put(raceControl.getControlId(), new RaceControl(raceControl));
+            database.lastControlId.accumulateAndGet(raceControl.getControlId(), Math::max);
+            daoFactory.recorded();
+            return raceControl;
+        }
+    }
+
+    @Override
+    public void deleteDb() {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            log.cleared();
+            super.deleteDb();
+        }
+    }
+}
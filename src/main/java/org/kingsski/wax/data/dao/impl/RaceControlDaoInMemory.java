@@ -0,0 +1,72 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.dao.RaceControlDao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link RaceControlDao} backed by an {@link InMemoryDatabase}. Control IDs are
+ * allocated sequentially and each new {@link RaceControl} is dated with the current date.
+ */
+public class RaceControlDaoInMemory extends RaceOrganiserDaoInMemory implements RaceControlDao {
+
+    /**
+     * @param database the store this DAO reads from and writes to
+     */
+    RaceControlDaoInMemory(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public RaceControl getRaceControl(RaceControl raceControl) throws NonExistentRaceControlException {
+        RaceControl stored = database.raceControls.get(raceControl.getControlId());
+        if (stored == null) {
+            throw new NonExistentRaceControlException("No race control with id " + raceControl.getControlId());
+        }
+        return new RaceControl(stored);
+    }
+
+    @Override
+    public RaceControl getLastRaceControl(String league) throws NonExistentRaceControlException {
+        for (RaceControl raceControl : database.raceControls.descendingMap().values()) {
+            if (league == null || league.equals(raceControl.getLeague())) {
+                return new RaceControl(raceControl);
+            }
+        }
+        throw new NonExistentRaceControlException("No race control for league " + league);
+    }
+
+    @Override
+    public List<RaceControl> getAllRaceControl() {
+        List<RaceControl> raceControls = new ArrayList<>(database.raceControls.size());
+        for (RaceControl raceControl : database.raceControls.values()) {
+            raceControls.add(new RaceControl(raceControl));
+        }
+        return raceControls;
+    }
+
+    @Override
+    public RaceControl addNewRaceControl(String league) {
+        RaceControl raceControl = newRaceControl(database.lastControlId.incrementAndGet(), league);
+        database.raceControls.put(raceControl.getControlId(), new RaceControl(raceControl));
+        return raceControl;
+    }
+
+    /**
+     * @param controlId the ID of the new {@link RaceControl}
+     * @param league    the league of the new {@link RaceControl}
+     * @return a {@link RaceControl} dated with the current date
+     */
+    static RaceControl newRaceControl(int controlId, String league) {
+        RaceControl raceControl = new RaceControl();
+        raceControl.setControlId(controlId);
+        raceControl.setLeague(league);
+        raceControl.setDate(LocalDate.now().toString());
+        return raceControl;
+    }
+}
@@ -0,0 +1,125 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link RaceDao} which reads the races of a {@link RaceColumnStore}. The
+ * store is read-only so every change throws an {@link UnsupportedOperationException}, and the
+ * transaction methods do nothing.
+ */
+class RaceDaoColumnar implements RaceDao {
+    private final RaceColumnStore store;
+    private volatile boolean open;
+
+    /**
+     * @param store the {@link RaceColumnStore} to read from
+     */
+    RaceDaoColumnar(RaceColumnStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Race getRace(Race race) {
+        int index = store.indexOf(race.getControlId(), race.getRoundNo(), race.getRaceNo());
+        return index < 0 ? null : store.getRace(index);
+    }
+
+    @Override
+    public List<Race> getRaces(int controlId, String division, int roundNo) {
+        List<Race> races = new ArrayList<>();
+        int code = store.divisionCode(division);
+        if (code < 0) {
+            return races;
+        }
+
+        for (int i = store.indexOf(controlId, roundNo), n = store.size(); i < n; i++) {
+            if (store.getControlId(i) != controlId || roundNo != 0 && store.getRoundNo(i) != roundNo) {
+                break;
+            }
+            if (division == null || store.divisionCodeAt(i) == code) {
+                races.add(store.getRace(i));
+            }
+        }
+        return races;
+    }
+
+    @Override
+    public Race addRace(Race race) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<Race> addRaces(List<Race> races) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteRace(Race race) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteRaces(int controlId, int roundNo) {
+        throw readOnly();
+    }
+
+    @Override
+    public Race updateRace(Race race) {
+        throw readOnly();
+    }
+
+    @Override
+    public int getNextRaceNo(int controlId, int roundNo) {
+        int i = store.indexOf(controlId, roundNo);
+        int raceNo = 0;
+        for (int n = store.size(); i < n && store.getControlId(i) == controlId && store.getRoundNo(i) == roundNo; i++) {
+            raceNo = store.getRaceNo(i);
+        }
+        return raceNo + 1;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void open() {
+        open = true;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void deleteDb() {
+        throw readOnly();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        // The store is read-only
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        // The store is read-only
+    }
+
+    @Override
+    public void endTransaction() {
+        // The store is read-only
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Race column stores are read-only");
+    }
+}
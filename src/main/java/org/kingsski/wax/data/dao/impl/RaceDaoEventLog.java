@@ -0,0 +1,120 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.impl.InMemoryDatabase.RaceRound;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link RaceDao} which records every change made to the races of an
+ * {@link InMemoryDatabase} in the log of a {@link DaoFactoryEventLog}. Each change is appended to
+ * the log before it is made in memory, so a change which could not be logged is not made and
+ * memory always matches what replaying the log gives. Reads are served from memory.
+ */
+class RaceDaoEventLog extends RaceDaoInMemory {
+    private final DaoFactoryEventLog daoFactory;
+
+    /**
+     * @param database   the store this DAO reads from and writes to
+     * @param daoFactory the {@link DaoFactoryEventLog} holding the log
+     */
+    RaceDaoEventLog(InMemoryDatabase database, DaoFactoryEventLog daoFactory) {
+        super(database);
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public Race addRace(Race race) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            add(log, database.roundForUpdate(race.getControlId(), race.getRoundNo()), race);
+            daoFactory.recorded();
+        }
+        return race;
+    }
+
+    @Override
+    public List<Race> addRaces(List<Race> races) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            try {
+                RaceRound round = null;
+                for (int i = 0, n = races.size(); i < n; i++) {
+                    Race race = races.get(i);
+                    if (i == 0 || race.getControlId() != races.get(i - 1).getControlId()
+                            || race.getRoundNo() != races.get(i - 1).getRoundNo()) {
+                        round = database.roundForUpdate(race.getControlId(), race.getRoundNo());
+                    }
+                    add(log, round, race);
+                }
+            } finally {
+                // Any races added before a failure are in the log
+                daoFactory.recorded();
+            }
+        }
+        return races;
+    }
+
+    @Override
+    public void deleteRace(Race race) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            log.raceDeleted(race);
+            super.deleteRace(race);
+            daoFactory.recorded();
+        }
+    }
+
+    @Override
+    public void deleteRaces(int controlId, int roundNo) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            log.racesDeleted(controlId, roundNo);
+            super.deleteRaces(controlId, roundNo);
+            daoFactory.recorded();
+        }
+    }
+
+    @Override
+    public Race updateRace(Race race) {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            RaceRound round = database.round(race.getControlId(), race.getRoundNo());
+            if (round == null || !round.byRaceNo.containsKey(race.getRaceNo())) {
+                return null;
+            }
+
+            log.raceUpdated(race);
+            Race updated = super.updateRace(race);
+            daoFactory.recorded();
+            return updated;
+        }
+    }
+
+    /**
+     * Numbers the race as the next in its round, appends it to the log and only then adds it to
+     * memory, so a race which could not be logged is never held. Must be called while
+     * synchronized on the log.
+     */
+    private static void add(RaceEventLog log, RaceRound round, Race race) {
+        synchronized (round) {
+            Race added = new Race(race);
+            added.setRaceNo(round.nextRaceNo());
+            log.raceAdded(added);
+            round.put(added);
+            race.setRaceNo(added.getRaceNo());
+        }
+    }
+
+    @Override
+    public void deleteDb() {
+        RaceEventLog log = daoFactory.log();
+        synchronized (log) {
+            log.cleared();
+            super.deleteDb();
+        }
+    }
+}
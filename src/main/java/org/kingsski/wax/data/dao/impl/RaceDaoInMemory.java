@@ -0,0 +1,170 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.impl.InMemoryDatabase.RaceRound;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * Implementation of {@link RaceDao} backed by an {@link InMemoryDatabase}. Races are indexed by
+ * control ID, round number and race number (and by division within a round) so each lookup is a
+ * direct map access. {@link Race}s are returned in race number order.
+ */
+public class RaceDaoInMemory extends RaceOrganiserDaoInMemory implements RaceDao {
+
+    /**
+     * @param database the store this DAO reads from and writes to
+     */
+    RaceDaoInMemory(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public Race getRace(Race race) {
+        RaceRound round = database.round(race.getControlId(), race.getRoundNo());
+        if (round == null) {
+            return null;
+        }
+
+        Race stored = round.byRaceNo.get(race.getRaceNo());
+        return stored == null ? null : new Race(stored);
+    }
+
+    @Override
+    public List<Race> getRaces(int controlId, String division, int roundNo) {
+        List<Race> races = new ArrayList<>();
+
+        if (roundNo == 0) {
+            ConcurrentNavigableMap<Integer, RaceRound> rounds = database.races.get(controlId);
+            if (rounds != null) {
+                for (RaceRound round : rounds.values()) {
+                    copyRaces(round, division, races);
+                }
+            }
+        } else {
+            RaceRound round = database.round(controlId, roundNo);
+            if (round != null) {
+                copyRaces(round, division, races);
+            }
+        }
+
+        return races;
+    }
+
+    @Override
+    public Race addRace(Race race) {
+        RaceRound round = database.roundForUpdate(race.getControlId(), race.getRoundNo());
+        synchronized (round) {
+            race.setRaceNo(round.nextRaceNo());
+            round.put(new Race(race));
+        }
+        return race;
+    }
+
+    @Override
+    public List<Race> addRaces(List<Race> races) {
+        int start = 0;
+        int n = races.size();
+
+        while (start < n) {
+            Race first = races.get(start);
+
+            // Find the run of races in the same round, for a set this is usually the whole list
+            int end = start + 1;
+            while (end < n && races.get(end).getControlId() == first.getControlId()
+                    && races.get(end).getRoundNo() == first.getRoundNo()) {
+                end++;
+            }
+
+            RaceRound round = database.roundForUpdate(first.getControlId(), first.getRoundNo());
+            synchronized (round) {
+                int raceNo = round.nextRaceNo();
+                for (int i = start; i < end; i++) {
+                    Race race = races.get(i);
+                    race.setRaceNo(raceNo++);
+                    round.put(new Race(race));
+                }
+            }
+
+            start = end;
+        }
+
+        return races;
+    }
+
+    @Override
+    public void deleteRace(Race race) {
+        RaceRound round = database.round(race.getControlId(), race.getRoundNo());
+        if (round != null) {
+            synchronized (round) {
+                round.remove(race.getRaceNo());
+            }
+        }
+    }
+
+    @Override
+    public void deleteRaces(int controlId, int roundNo) {
+        RaceRound round = database.round(controlId, roundNo);
+        if (round != null) {
+            // Clear rather than remove the round so concurrent adds are never lost
+            synchronized (round) {
+                round.clear();
+            }
+        }
+    }
+
+    @Override
+    public Race updateRace(Race race) {
+        RaceRound round = database.round(race.getControlId(), race.getRoundNo());
+        if (round == null) {
+            return null;
+        }
+
+        synchronized (round) {
+            Race stored = round.byRaceNo.get(race.getRaceNo());
+            if (stored == null) {
+                return null;
+            }
+
+            Race updated = new Race(stored);
+            updated.setTeamWin(race.getTeamWin());
+            updated.setTeamOneDsq(race.getTeamOneDsq());
+            updated.setTeamTwoDsq(race.getTeamTwoDsq());
+            updated.setNext(race.isNext());
+            round.put(updated);
+        }
+        return race;
+    }
+
+    @Override
+    public int getNextRaceNo(int controlId, int roundNo) {
+        RaceRound round = database.round(controlId, roundNo);
+        return round == null ? 1 : round.nextRaceNo();
+    }
+
+    /**
+     * Adds copies of the {@link Race}s in the round to the list, optionally filtered by division
+     */
+    private static void copyRaces(RaceRound round, String division, List<Race> races) {
+        Collection<Race> stored;
+        if (division == null) {
+            stored = round.byRaceNo.values();
+        } else {
+            ConcurrentNavigableMap<Integer, Race> divisionRaces = round.byDivision.get(division);
+            if (divisionRaces == null) {
+                return;
+            }
+            stored = divisionRaces.values();
+        }
+
+        for (Race race : stored) {
+            races.add(new Race(race));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceUpdateListener;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link RaceDao} which delegates to another {@link RaceDao} and notifies
+ * {@link RaceUpdateListener}s of successful changes. Changes made while a transaction is in
+ * progress on the thread are only passed on once it is committed, if it is rolled back each round
+ * changed is passed on as changed instead.
+ */
+public class RaceDaoNotifying implements RaceDao {
+    private final RaceDao raceDao;
+    private final RaceUpdateNotifier notifier;
+
+    /**
+     * @param raceDao   the {@link RaceDao} to delegate to
+     * @param listeners the {@link RaceUpdateListener}s to notify, this list is read each time a
+     *                  notification is made so it may be shared and modified
+     */
+    public RaceDaoNotifying(RaceDao raceDao, List<RaceUpdateListener> listeners) {
+        this(raceDao, new RaceUpdateNotifier(listeners));
+    }
+
+    /**
+     * @param raceDao  the {@link RaceDao} to delegate to
+     * @param notifier the {@link RaceUpdateNotifier} shared by the DAOs of a factory, so that a
+     *                 transaction made through any of them holds the notifications
+     */
+    RaceDaoNotifying(RaceDao raceDao, RaceUpdateNotifier notifier) {
+        this.raceDao = raceDao;
+        this.notifier = notifier;
+    }
+
+    @Override
+    public Race getRace(Race race) {
+        return raceDao.getRace(race);
+    }
+
+    @Override
+    public List<Race> getRaces(int controlId, String division, int roundNo) {
+        return raceDao.getRaces(controlId, division, roundNo);
+    }
+
+    @Override
+    public Race addRace(Race race) {
+        Race added = raceDao.addRace(race);
+        if (added != null) {
+            notifier.racesChanged(race.getControlId(), race.getRoundNo());
+        }
+        return added;
+    }
+
+    @Override
+    public List<Race> addRaces(List<Race> races) {
+        List<Race> added = raceDao.addRaces(races);
+        if (added != null) {
+            for (int i = 0, n = races.size(); i < n; i++) {
+                Race race = races.get(i);
+                if (i == 0 || race.getControlId() != races.get(i - 1).getControlId()
+                        || race.getRoundNo() != races.get(i - 1).getRoundNo()) {
+                    notifier.racesChanged(race.getControlId(), race.getRoundNo());
+                }
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public void deleteRace(Race race) {
+        raceDao.deleteRace(race);
+        notifier.racesChanged(race.getControlId(), race.getRoundNo());
+    }
+
+    @Override
+    public void deleteRaces(int controlId, int roundNo) {
+        raceDao.deleteRaces(controlId, roundNo);
+        notifier.racesChanged(controlId, roundNo);
+    }
+
+    @Override
+    public Race updateRace(Race race) {
+        Race updated = raceDao.updateRace(race);
+        if (updated != null) {
+            notifier.raceUpdated(race);
+        }
+        return updated;
+    }
+
+    @Override
+    public int getNextRaceNo(int controlId, int roundNo) {
+        return raceDao.getNextRaceNo(controlId, roundNo);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return raceDao.isOpen();
+    }
+
+    @Override
+    public void open() {
+        raceDao.open();
+    }
+
+    @Override
+    public void close() {
+        raceDao.close();
+    }
+
+    @Override
+    public void deleteDb() {
+        raceDao.deleteDb();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        raceDao.beginTransactionNonExclusive();
+        notifier.beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        raceDao.setTransactionSuccessful();
+        notifier.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        boolean ended = false;
+        try {
+            raceDao.endTransaction();
+            ended = true;
+        } finally {
+            notifier.endTransaction(ended);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.dao.impl.InMemoryDatabase.RaceRound;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * An append-only log of race events held in a memory-mapped file. The {@link RaceControl}s and
+ * {@link Race}s of an {@link InMemoryDatabase} are rebuilt by replaying the log when it is opened
+ * and every change made afterwards is appended to it.
+ * </p>
+ * <p>
+ * The file starts with a magic number and version followed by the records, each of which is
+ * <pre>
+ * [int length][byte type][payload][int CRC32 of the type and payload]
+ * </pre>
+ * where the length covers the type and payload. Unused space at the end of the file is zero so a
+ * length of zero marks the end of the log. A record which was only partly written when the
+ * process stopped fails its checksum, so replay stops there and the record is overwritten by the
+ * next append.
+ * </p>
+ * <p>
+ * Appends are written to the mapped file so they survive the process stopping once they return;
+ * {@link #flush()} forces them to the disk so they also survive the machine stopping. A
+ * {@link #checkpoint(InMemoryDatabase)} rewrites the log with only the current state, replacing
+ * the file atomically, so replay is as quick as possible.
+ * </p>
+ * <p>
+ * This class is not thread safe, callers must synchronize on the instance.
+ * </p>
+ */
+final class RaceEventLog {
+    private static final int MAGIC = 0x5741584c;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    static final byte CONTROL_ADDED = 1;
+    static final byte RACE_ADDED = 2;
+    static final byte RACE_UPDATED = 3;
+    static final byte RACE_DELETED = 4;
+    static final byte RACES_DELETED = 5;
+    static final byte CLEARED = 6;
+
+    private final Path file;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private ByteBuffer record = ByteBuffer.allocate(256);
+    private int records;
+
+    /**
+     * Opens the log, creating it if it does not exist, and replays it into the database
+     *
+     * @param file     the file holding the log
+     * @param database the {@link InMemoryDatabase} to replay the log into
+     * @throws UncheckedIOException if the log cannot be opened or is not a race event log
+     */
+    RaceEventLog(Path file, InMemoryDatabase database) {
+        this.file = file;
+        try {
+            map(Math.max(INITIAL_SIZE, Files.exists(file) ? Files.size(file) : 0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open race event log " + file, e);
+        }
+
+        if (buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new UncheckedIOException(new IOException(file + " is not a version " + VERSION + " race event log"));
+        }
+
+        buffer.position(HEADER_SIZE);
+        replay(database);
+
+        // Clear anything after the last complete record so it cannot be mistaken for one later
+        for (int i = buffer.position(), n = buffer.capacity(); i < n; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * @return the number of records in the log
+     */
+    int getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the number of bytes used by the log
+     */
+    int getSize() {
+        return buffer.position();
+    }
+
+    /**
+     * @param raceControl the {@link RaceControl} which was added
+     */
+    void controlAdded(RaceControl raceControl) {
+        ByteBuffer payload = begin(CONTROL_ADDED);
+        payload.putInt(raceControl.getControlId());
+        putString(raceControl.getLeague());
+        putString(raceControl.getDate());
+        append();
+    }
+
+    /**
+     * @param race the {@link Race} which was added, with its race number set
+     */
+    void raceAdded(Race race) {
+        begin(RACE_ADDED);
+        putRace(race);
+        append();
+    }
+
+    /**
+     * @param race the {@link Race} with its new result
+     */
+    void raceUpdated(Race race) {
+        ByteBuffer payload = begin(RACE_UPDATED);
+        payload.putInt(race.getControlId()).putInt(race.getRoundNo()).putInt(race.getRaceNo())
+                .putInt(race.getTeamWin()).put((byte) (race.isNext() ? 1 : 0));
+        putString(race.getTeamOneDsq());
+        putString(race.getTeamTwoDsq());
+        append();
+    }
+
+    /**
+     * @param race the {@link Race} which was deleted
+     */
+    void raceDeleted(Race race) {
+        begin(RACE_DELETED).putInt(race.getControlId()).putInt(race.getRoundNo()).putInt(race.getRaceNo());
+        append();
+    }
+
+    /**
+     * @param controlId the control ID of the races which were deleted
+     * @param roundNo   the round number of the races which were deleted
+     */
+    void racesDeleted(int controlId, int roundNo) {
+        begin(RACES_DELETED).putInt(controlId).putInt(roundNo);
+        append();
+    }
+
+    /**
+     * Records that all races and controls were removed
+     */
+    void cleared() {
+        begin(CLEARED);
+        append();
+    }
+
+    /**
+     * Forces everything appended to the disk
+     */
+    void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Rewrites the log with a record for each {@link RaceControl} and {@link Race} currently held
+     * by the database and replaces the existing log with it
+     *
+     * @param database the {@link InMemoryDatabase} holding the current state
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    void checkpoint(InMemoryDatabase database) {
+        Path checkpoint = file.resolveSibling(file.getFileName() + ".checkpoint");
+        try {
+            try (FileChannel out = FileChannel.open(checkpoint, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                writeFully(out, header);
+
+                int checkpointRecords = 0;
+                for (RaceControl raceControl : database.raceControls.values()) {
+                    ByteBuffer payload = begin(CONTROL_ADDED);
+                    payload.putInt(raceControl.getControlId());
+                    putString(raceControl.getLeague());
+                    putString(raceControl.getDate());
+                    writeFully(out, frame());
+                    checkpointRecords++;
+                }
+                for (ConcurrentNavigableMap<Integer, RaceRound> rounds : database.races.values()) {
+                    for (RaceRound round : rounds.values()) {
+                        for (Race race : round.byRaceNo.values()) {
+                            begin(RACE_ADDED);
+                            putRace(race);
+                            writeFully(out, frame());
+                            checkpointRecords++;
+                        }
+                    }
+                }
+                out.force(true);
+                records = checkpointRecords;
+            }
+
+            Files.move(checkpoint, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            long size = Files.size(file);
+            map(Math.max(INITIAL_SIZE, size));
+            buffer.position((int) size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to checkpoint race event log " + file, e);
+        }
+    }
+
+    /**
+     * Forces everything appended to the disk and closes the log
+     */
+    void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close race event log " + file, e);
+        }
+    }
+
+    private void map(long size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void replay(InMemoryDatabase database) {
+        byte[] bytes = new byte[256];
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length + 4 > buffer.remaining()) {
+                buffer.position(start);
+                return;
+            }
+
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+            }
+            buffer.get(bytes, 0, length);
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                // Only partly written when the process stopped
+                buffer.position(start);
+                return;
+            }
+
+            apply(database, ByteBuffer.wrap(bytes, 0, length));
+            records++;
+        }
+    }
+
+    private static void apply(InMemoryDatabase database, ByteBuffer payload) {
+        byte type = payload.get();
+        switch (type) {
+            case CONTROL_ADDED: {
+                RaceControl raceControl = new RaceControl();
+                raceControl.setControlId(payload.getInt());
+                raceControl.setLeague(getString(payload));
+                raceControl.setDate(getString(payload));
+                database.raceControls.put(raceControl.getControlId(), raceControl);
+                database.lastControlId.accumulateAndGet(raceControl.getControlId(), Math::max);
+                break;
+            }
+            case RACE_ADDED: {
+                Race race = getRace(payload);
+                database.roundForUpdate(race.getControlId(), race.getRoundNo()).put(race);
+                break;
+            }
+            case RACE_UPDATED: {
+                RaceRound round = database.round(payload.getInt(), payload.getInt());
+                int raceNo = payload.getInt();
+                Race stored = round == null ? null : round.byRaceNo.get(raceNo);
+                if (stored != null) {
+                    Race updated = new Race(stored);
+                    updated.setTeamWin(payload.getInt());
+                    updated.setNext(payload.get() != 0);
+                    updated.setTeamOneDsq(getString(payload));
+                    updated.setTeamTwoDsq(getString(payload));
+                    round.put(updated);
+                }
+                break;
+            }
+            case RACE_DELETED: {
+                RaceRound round = database.round(payload.getInt(), payload.getInt());
+                if (round != null) {
+                    round.remove(payload.getInt());
+                }
+                break;
+            }
+            case RACES_DELETED: {
+                RaceRound round = database.round(payload.getInt(), payload.getInt());
+                if (round != null) {
+                    round.clear();
+                }
+                break;
+            }
+            case CLEARED:
+                database.raceControls.clear();
+                database.races.clear();
+                database.lastControlId.set(0);
+                break;
+            default:
+                throw new IllegalStateException("Unknown race event type " + type);
+        }
+    }
+
+    private ByteBuffer begin(byte type) {
+        record.clear();
+        record.put(type);
+        return record;
+    }
+
+    /**
+     * Appends the record which has been built to the log
+     */
+    private void append() {
+        int length = record.position();
+        if (buffer.remaining() < length + 8) {
+            grow(length + 8);
+        }
+
+        crc.reset();
+        crc.update(record.array(), 0, length);
+        buffer.putInt(length).put(record.array(), 0, length).putInt((int) crc.getValue());
+        records++;
+    }
+
+    /**
+     * @return the record which has been built with its length and checksum
+     */
+    private ByteBuffer frame() {
+        int length = record.position();
+        crc.reset();
+        crc.update(record.array(), 0, length);
+        int checksum = (int) crc.getValue();
+
+        ByteBuffer framed = ByteBuffer.allocate(length + 8);
+        framed.putInt(length).put(record.array(), 0, length).putInt(checksum);
+        framed.flip();
+        return framed;
+    }
+
+    private void grow(int required) {
+        int position = buffer.position();
+        long size = Math.max(2L * buffer.capacity(), (long) position + required);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Race event log " + file + " is full, it must be checkpointed");
+        }
+
+        try {
+            buffer.force();
+            channel.close();
+            map(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to grow race event log " + file, e);
+        }
+        buffer.position(position);
+    }
+
+    private void ensureCapacity(int required) {
+        if (record.remaining() < required) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * record.capacity(), record.position() + required));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    private void putRace(Race race) {
+        ensureCapacity(28);
+        record.putInt(race.getControlId()).putInt(race.getRoundNo()).putInt(race.getRaceNo())
+                .putInt(race.getTeamOne()).putInt(race.getTeamTwo()).putInt(race.getTeamWin())
+                .put((byte) (race.isNext() ? 1 : 0));
+        putString(race.getLeague());
+        putString(race.getSet());
+        putString(race.getDivision());
+        putString(race.getGroup());
+        putString(race.getTeamOneDsq());
+        putString(race.getTeamTwoDsq());
+    }
+
+    private static Race getRace(ByteBuffer payload) {
+        int controlId = payload.getInt();
+        int roundNo = payload.getInt();
+        int raceNo = payload.getInt();
+        int teamOne = payload.getInt();
+        int teamTwo = payload.getInt();
+        int teamWin = payload.getInt();
+        boolean next = payload.get() != 0;
+        String league = getString(payload);
+        String set = getString(payload);
+        String division = getString(payload);
+        String group = getString(payload);
+        return new Race(controlId, league, roundNo, set, division, group, raceNo, teamOne, teamTwo, teamWin,
+                getString(payload), getString(payload), next);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensureCapacity(4);
+            record.putInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + bytes.length);
+        record.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+                StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+}
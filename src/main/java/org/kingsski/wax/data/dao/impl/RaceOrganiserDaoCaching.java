@@ -0,0 +1,82 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Implementation of {@link RaceOrganiserDao} which wraps another {@link RaceOrganiserDao} so that
+ * a transaction which ends without being marked successful discards everything held by the cache
+ * of a {@link DaoFactoryCaching}. Anything read or written during the transaction may have been
+ * rolled back. Sessions make their transactions through this DAO.
+ */
+class RaceOrganiserDaoCaching implements RaceOrganiserDao {
+    private final RaceOrganiserDao raceOrganiserDao;
+    private final DaoFactoryCaching cache;
+
+    // Whether each of the transactions begun is marked successful, innermost first
+    private final Deque<Boolean> successful = new ArrayDeque<>();
+
+    /**
+     * @param raceOrganiserDao the {@link RaceOrganiserDao} to wrap
+     * @param cache            the {@link DaoFactoryCaching} holding the cache
+     */
+    RaceOrganiserDaoCaching(RaceOrganiserDao raceOrganiserDao, DaoFactoryCaching cache) {
+        this.raceOrganiserDao = raceOrganiserDao;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return raceOrganiserDao.isOpen();
+    }
+
+    @Override
+    public void open() {
+        raceOrganiserDao.open();
+    }
+
+    @Override
+    public void close() {
+        raceOrganiserDao.close();
+    }
+
+    @Override
+    public void deleteDb() {
+        try {
+            raceOrganiserDao.deleteDb();
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        raceOrganiserDao.beginTransactionNonExclusive();
+        successful.push(Boolean.FALSE);
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        raceOrganiserDao.setTransactionSuccessful();
+        if (!successful.isEmpty()) {
+            successful.pop();
+            successful.push(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void endTransaction() {
+        boolean rolledBack = successful.isEmpty() || !successful.pop();
+        try {
+            raceOrganiserDao.endTransaction();
+        } finally {
+            if (rolledBack) {
+                cache.invalidate();
+            }
+        }
+    }
+}
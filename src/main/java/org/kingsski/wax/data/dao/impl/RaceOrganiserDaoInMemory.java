@@ -0,0 +1,63 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+
+/**
+ * <p>
+ * Implementation of {@link RaceOrganiserDao} backed by an {@link InMemoryDatabase}. This is the base
+ * of each of the in-memory DAOs created by a {@link DaoFactoryInMemory}.
+ * </p>
+ * <p>
+ * Opening and closing only track the state of this instance. Changes are applied to the store
+ * immediately so the transaction methods are accepted for compatibility but provide no isolation
+ * or rollback.
+ * </p>
+ */
+public class RaceOrganiserDaoInMemory implements RaceOrganiserDao {
+    final InMemoryDatabase database;
+    private volatile boolean open;
+
+    /**
+     * @param database the store this DAO reads from and writes to
+     */
+    RaceOrganiserDaoInMemory(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void open() {
+        open = true;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void deleteDb() {
+        database.clear();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        // Changes are applied immediately
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        // Changes are applied immediately
+    }
+
+    @Override
+    public void endTransaction() {
+        // Changes are applied immediately
+    }
+}
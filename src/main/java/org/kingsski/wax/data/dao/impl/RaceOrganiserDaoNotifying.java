@@ -0,0 +1,67 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+
+/**
+ * Implementation of {@link RaceOrganiserDao} which wraps another {@link RaceOrganiserDao} so that
+ * the race notifications of a {@link DaoFactoryNotifying} are held until a transaction made
+ * through it ends. Sessions make their transactions through this DAO.
+ */
+class RaceOrganiserDaoNotifying implements RaceOrganiserDao {
+    private final RaceOrganiserDao raceOrganiserDao;
+    private final RaceUpdateNotifier notifier;
+
+    /**
+     * @param raceOrganiserDao the {@link RaceOrganiserDao} to wrap
+     * @param notifier         the {@link RaceUpdateNotifier} of the factory
+     */
+    RaceOrganiserDaoNotifying(RaceOrganiserDao raceOrganiserDao, RaceUpdateNotifier notifier) {
+        this.raceOrganiserDao = raceOrganiserDao;
+        this.notifier = notifier;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return raceOrganiserDao.isOpen();
+    }
+
+    @Override
+    public void open() {
+        raceOrganiserDao.open();
+    }
+
+    @Override
+    public void close() {
+        raceOrganiserDao.close();
+    }
+
+    @Override
+    public void deleteDb() {
+        raceOrganiserDao.deleteDb();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        raceOrganiserDao.beginTransactionNonExclusive();
+        notifier.beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        raceOrganiserDao.setTransactionSuccessful();
+        notifier.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        boolean ended = false;
+        try {
+            raceOrganiserDao.endTransaction();
+            ended = true;
+        } finally {
+            notifier.endTransaction(ended);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceUpdateListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Passes changes made through {@link RaceDaoNotifying}s on to {@link RaceUpdateListener}s.
+ * </p>
+ * <p>
+ * A transaction is bound to the thread which begins it, so changes made by a thread while it has
+ * a transaction in progress are held until its outermost transaction ends. If every level of the
+ * transaction was marked successful the held changes are passed on in the order they were made,
+ * otherwise the changes may have been rolled back so each round changed during the transaction is
+ * passed on as changed instead, for listeners to reload.
+ * </p>
+ */
+final class RaceUpdateNotifier {
+    private final List<RaceUpdateListener> listeners;
+    private final ThreadLocal<Transaction> transactions = new ThreadLocal<>();
+
+    /**
+     * @param listeners the {@link RaceUpdateListener}s to notify, this list is read each time a
+     *                  notification is made so it may be shared and modified
+     */
+    RaceUpdateNotifier(List<RaceUpdateListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    void beginTransaction() {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            transaction = new Transaction();
+            transactions.set(transaction);
+        }
+        transaction.successful.push(Boolean.FALSE);
+    }
+
+    void setTransactionSuccessful() {
+        Transaction transaction = transactions.get();
+        if (transaction != null && !transaction.successful.isEmpty()) {
+            transaction.successful.pop();
+            transaction.successful.push(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @param ended true if the transaction was ended by the wrapped DAO, false if that failed
+     */
+    void endTransaction(boolean ended) {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            return;
+        }
+
+        // Any level which was not successful rolls back the whole transaction
+        if (!transaction.successful.pop() || !ended) {
+            transaction.rolledBack = true;
+        }
+        if (!transaction.successful.isEmpty()) {
+            return;
+        }
+
+        transactions.remove();
+        if (transaction.rolledBack) {
+            for (long round : transaction.rounds) {
+                notifyListeners(listener -> listener.racesChanged((int) (round >>> 32), (int) round));
+            }
+        } else {
+            for (int i = 0, n = transaction.held.size(); i < n; i++) {
+                notifyListeners(transaction.held.get(i));
+            }
+        }
+    }
+
+    void raceUpdated(Race race) {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            notifyListeners(listener -> listener.raceUpdated(race));
+        } else {
+            // The caller may change the race before the transaction ends
+            Race copy = new Race(race);
+            transaction.hold(race.getControlId(), race.getRoundNo(), listener -> listener.raceUpdated(copy));
+        }
+    }
+
+    void racesChanged(int controlId, int roundNo) {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            notifyListeners(listener -> listener.racesChanged(controlId, roundNo));
+        } else {
+            transaction.hold(controlId, roundNo, listener -> listener.racesChanged(controlId, roundNo));
+        }
+    }
+
+    private void notifyListeners(Consumer<RaceUpdateListener> notification) {
+        for (int i = 0, n = listeners.size(); i < n; i++) {
+            notification.accept(listeners.get(i));
+        }
+    }
+
+    /**
+     * The changes held for the transaction in progress on a thread
+     */
+    private static final class Transaction {
+        // Whether each level of the transaction is marked successful, innermost first
+        private final Deque<Boolean> successful = new ArrayDeque<>();
+        private final List<Consumer<RaceUpdateListener>> held = new ArrayList<>();
+        // The control ID and round number of each round changed, packed into one value
+        private final Set<Long> rounds = new LinkedHashSet<>();
+        private boolean rolledBack;
+
+        private void hold(int controlId, int roundNo, Consumer<RaceUpdateListener> notification) {
+            held.add(notification);
+            rounds.add(((long) controlId << 32) | (roundNo & 0xFFFFFFFFL));
+        }
+    }
+}
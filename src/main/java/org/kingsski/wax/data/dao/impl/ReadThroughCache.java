@@ -0,0 +1,185 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * A cache of values read from a DAO, bounded by both the number of entries and how long each
+ * entry is held. When full the least recently used entry is evicted and entries older than the
+ * time to live are read again on their next use.
+ * </p>
+ * <p>
+ * Values are read outside of the lock so a slow read does not hold up other users. A value read
+ * while the cache is invalidated is returned but not held, as it may be from before the change
+ * which caused the invalidation.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values, these are shared so must not be modified
+ */
+final class ReadThroughCache<K, V> {
+    private final int maxEntries;
+    private final long timeToLive;
+    private final LongSupplier clock;
+    private final Map<K, CachedValue<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long generation;
+
+    /**
+     * @param maxEntries the most entries to hold
+     * @param timeToLive how long in nanoseconds each entry is held
+     * @param clock      provides the current time in nanoseconds
+     */
+    ReadThroughCache(int maxEntries, long timeToLive, LongSupplier clock) {
+        if (maxEntries < 1 || timeToLive < 1) {
+            throw new IllegalArgumentException("Cache size (" + maxEntries + ") and time to live ("
+                    + timeToLive + ") must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                return size() > ReadThroughCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param key    the key of the value
+     * @param loader reads the value when it is not held, null values are not held
+     * @return the held value for the key, reading it if necessary
+     */
+    V get(K key, Supplier<V> loader) {
+        long readGeneration;
+        synchronized (this) {
+            V value = getIfPresent(key);
+            if (value != null) {
+                return value;
+            }
+            readGeneration = generation;
+        }
+
+        V value = loader.get();
+        if (value != null) {
+            putIfCurrent(key, value, readGeneration);
+        }
+        return value;
+    }
+
+    /**
+     * @param key the key of the value
+     * @return the held value for the key, or null if it is not held or has expired
+     */
+    synchronized V getIfPresent(K key) {
+        CachedValue<V> entry = entries.get(key);
+        if (entry != null) {
+            if (clock.getAsLong() - entry.loaded < timeToLive) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param key   the key of the value
+     * @param value the value to hold
+     */
+    synchronized void put(K key, V value) {
+        entries.put(key, new CachedValue<>(value, clock.getAsLong()));
+    }
+
+    /**
+     * Holds a value read outside of the cache, unless the cache has been invalidated since the read
+     * began as the value may be from before the change which caused the invalidation
+     *
+     * @param key        the key of the value
+     * @param value      the value to hold
+     * @param generation the {@link #generation()} recorded before the value was read
+     * @return true if the value is held, false if it was discarded
+     */
+    synchronized boolean putIfCurrent(K key, V value, long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * @return the number of times the cache has been invalidated, to be recorded before reading a
+     * value for {@link #putIfCurrent(Object, Object, long)}
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Discards every held value
+     */
+    synchronized void invalidate() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * Discards the held values with matching keys. Values being read at the time are not held
+     * whatever their key.
+     *
+     * @param keys matches the keys of the values to discard
+     */
+    synchronized void invalidate(Predicate<K> keys) {
+        generation++;
+        for (Iterator<K> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+            if (keys.test(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of values currently held, including any which have expired
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of requests answered by a held value
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests which required the value to be read
+     */
+    long getMisses() {
+        return misses.get();
+    }
+
+    private static final class CachedValue<V> {
+        private final V value;
+        private final long loaded;
+
+        private CachedValue(V value, long loaded) {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of {@link TeamDao} which wraps another {@link TeamDao} so that teams by ID, by
+ * division and the competing teams of a division are read through the cache of a
+ * {@link DaoFactoryCaching}. Any change to teams discards the teams held.
+ */
+class TeamDaoCaching implements TeamDao {
+    private static final String BY_DIVISION = "division:";
+    private static final String COMPETING = "competing:";
+
+    private final TeamDao teamDao;
+    private final DaoFactoryCaching cache;
+
+    /**
+     * @param teamDao the {@link TeamDao} to wrap
+     * @param cache   the {@link DaoFactoryCaching} holding the cache
+     */
+    TeamDaoCaching(TeamDao teamDao, DaoFactoryCaching cache) {
+        this.teamDao = teamDao;
+        this.cache = cache;
+    }
+
+    @Override
+    public Team getTeam(Team team) {
+        return teamDao.getTeam(team);
+    }
+
+    @Override
+    public Team getTeam(int teamId) {
+        return DaoFactoryCaching.copy(cache.teamsById.get(teamId,
+                () -> DaoFactoryCaching.copy(teamDao.getTeam(teamId))));
+    }
+
+    @Override
+    public List<Team> getAllTeams() {
+        return teamDao.getAllTeams();
+    }
+
+    @Override
+    public List<Team> getTeamsByClub(Club club) {
+        return teamDao.getTeamsByClub(club);
+    }
+
+    @Override
+    public List<Team> getTeamsByDivision(String division) {
+        return DaoFactoryCaching.copyTeams(cache.teamLists.get(BY_DIVISION + division,
+                () -> DaoFactoryCaching.copyTeams(teamDao.getTeamsByDivision(division))));
+    }
+
+    @Override
+    public List<Team> getSeededTeams(String division) {
+        return teamDao.getSeededTeams(division);
+    }
+
+    @Override
+    public List<Team> getCompetingTeams(String division, List<Club> competingClubs, String league) {
+        String key = competingKey(division, competingClubs, league);
+        List<Team> competingTeams = cache.teamLists.getIfPresent(key);
+        if (competingTeams != null) {
+            return DaoFactoryCaching.copyTeams(competingTeams);
+        }
+
+        // The teams are only held if nothing changed while they were read
+        long generation = cache.teamLists.generation();
+        competingTeams = teamDao.getCompetingTeams(division, competingClubs, league);
+        cache.teamLists.putIfCurrent(key, DaoFactoryCaching.copyTeams(competingTeams), generation);
+
+        // Teams which do not exist yet are added to the league and division so the other lists
+        // held for it may be out of date. New teams have new IDs so the teams held by ID are
+        // unaffected.
+        String competingPrefix = competingKey(division, Collections.emptyList(), league);
+        cache.teamLists.invalidate(k -> !k.equals(key) && (k.equals(BY_DIVISION + division)
+                || k.equals(competingPrefix) || k.startsWith(competingPrefix + ':')));
+        return competingTeams;
+    }
+
+    @Override
+    public List<Team> getTeams(Club club, String division, String league) {
+        return teamDao.getTeams(club, division, league);
+    }
+
+    @Override
+    public Team addTeam(Team team) {
+        try {
+            return teamDao.addTeam(team);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteTeam(Team team) {
+        try {
+            teamDao.deleteTeam(team);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteTeam(int teamId) {
+        try {
+            teamDao.deleteTeam(teamId);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteAllClubTeams(Club club) {
+        try {
+            teamDao.deleteAllClubTeams(club);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public Team updateTeam(Team team, boolean add) {
+        try {
+            return teamDao.updateTeam(team, add);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public List<Team> updateTeams(List<Team> teams, boolean add) {
+        try {
+            return teamDao.updateTeams(teams, add);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void resetTeams(String league, String division) {
+        try {
+            teamDao.resetTeams(league, division);
+        } finally {
+            cache.invalidateTeams();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return teamDao.isOpen();
+    }
+
+    @Override
+    public void open() {
+        teamDao.open();
+    }
+
+    @Override
+    public void close() {
+        teamDao.close();
+    }
+
+    @Override
+    public void deleteDb() {
+        try {
+            teamDao.deleteDb();
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        teamDao.beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        teamDao.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        try {
+            teamDao.endTransaction();
+        } finally {
+            // The transaction may have been rolled back
+            cache.invalidateTeams();
+        }
+    }
+
+    /**
+     * @return the key of the competing teams, these depend on how many teams each club has
+     * entered in the division
+     */
+    private static String competingKey(String division, List<Club> competingClubs, String league) {
+        StringBuilder key = new StringBuilder(COMPETING).append(league).append(':').append(division);
+        for (int i = 0, n = competingClubs.size(); i < n; i++) {
+            Club club = competingClubs.get(i);
+            key.append(':').append(club.getClubName())
+                    .append('/').append(club.getMixedTeams())
+                    .append('/').append(club.getLadiesTeams())
+                    .append('/').append(club.getBoardTeams());
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,268 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * <p>
+ * Implementation of {@link TeamDao} backed by an {@link InMemoryDatabase}.
+ * </p>
+ * <p>
+ * There is no notion of a "current league" in memory so queries which would normally be filtered
+ * by the current league ({@link #getAllTeams()}, {@link #getTeamsByDivision(String)},
+ * {@link #getSeededTeams(String)} and {@link #getTeams(Club, String, String)} without a league)
+ * cover all leagues. {@link Team}s are returned in team ID order.
+ * </p>
+ */
+public class TeamDaoInMemory extends RaceOrganiserDaoInMemory implements TeamDao {
+
+    /**
+     * @param database the store this DAO reads from and writes to
+     */
+    TeamDaoInMemory(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public Team getTeam(Team team) {
+        Team found = findTeam(team.getLeague(), team.getDivision(), team.getClubName(),
+                team.getDivisionIndex(), team.getTeamName());
+        return found == null ? null : new Team(found);
+    }
+
+    @Override
+    public Team getTeam(int teamId) {
+        Team team = database.teams.get(teamId);
+        return team == null ? null : new Team(team);
+    }
+
+    @Override
+    public List<Team> getAllTeams() {
+        return copyOf(database.teams.values());
+    }
+
+    @Override
+    public List<Team> getTeamsByClub(Club club) {
+        List<Team> teams = new ArrayList<>();
+        for (Team team : database.teams.values()) {
+            if (club.getClubName() != null && club.getClubName().equals(team.getClubName())) {
+                teams.add(new Team(team));
+            }
+        }
+        return teams;
+    }
+
+    @Override
+    public List<Team> getTeamsByDivision(String division) {
+        return getTeams(null, division, null);
+    }
+
+    @Override
+    public List<Team> getSeededTeams(String division) {
+        List<Team> teams = new ArrayList<>();
+        for (Team team : getTeamsByDivision(division)) {
+            if (team.getScoreTotal() > 0) {
+                teams.add(team);
+            }
+        }
+        Collections.sort(teams);
+        return teams;
+    }
+
+    @Override
+    public List<Team> getCompetingTeams(String division, List<Club> competingClubs, String league) {
+        List<Team> teams = new ArrayList<>();
+
+        synchronized (database.teamLock) {
+            for (int i = 0, n = competingClubs.size(); i < n; i++) {
+                Club club = competingClubs.get(i);
+                for (int divisionIndex = 1, m = competingTeams(club, division); divisionIndex <= m; divisionIndex++) {
+                    Team team = findTeam(league, division, club.getClubName(), divisionIndex, null);
+                    if (team == null) {
+                        // Create the team if it doesn't already exist
+                        team = new Team();
+                        team.setLeague(league);
+                        team.setClubName(club.getClubName());
+                        team.setDivision(division);
+                        team.setDivisionIndex(divisionIndex);
+                        team.setTeamName(divisionIndex == 1 ? club.getClubName() : club.getClubName() + " " + divisionIndex);
+                        team = addTeam(team);
+                    }
+                    teams.add(new Team(team));
+                }
+            }
+        }
+
+        return teams;
+    }
+
+    @Override
+    public List<Team> getTeams(Club club, String division, String league) {
+        Collection<Team> candidates;
+        if (league != null && division != null) {
+            candidates = database.teamsFor(league, division);
+        } else {
+            candidates = database.teams.values();
+        }
+
+        List<Team> teams = new ArrayList<>();
+        for (Team team : candidates) {
+            if ((league == null || league.equals(team.getLeague()))
+                    && (division == null || division.equals(team.getDivision()))
+                    && (club == null || club.getClubName() == null || club.getClubName().equals(team.getClubName()))) {
+                teams.add(new Team(team));
+            }
+        }
+        return teams;
+    }
+
+    @Override
+    public Team addTeam(Team team) {
+        synchronized (database.teamLock) {
+            // Keep the provided ID where possible so references to it remain valid
+            if (team.getTeamId() < 1 || database.teams.containsKey(team.getTeamId())) {
+                team.setTeamId(database.lastTeamId.incrementAndGet());
+            }
+            database.putTeam(new Team(team));
+        }
+        return team;
+    }
+
+    @Override
+    public void deleteTeam(Team team) {
+        deleteTeam(team.getTeamId());
+    }
+
+    @Override
+    public void deleteTeam(int teamId) {
+        synchronized (database.teamLock) {
+            database.removeTeam(teamId);
+        }
+    }
+
+    @Override
+    public void deleteAllClubTeams(Club club) {
+        synchronized (database.teamLock) {
+            for (Team team : database.teams.values()) {
+                if (club.getClubName() != null && club.getClubName().equals(team.getClubName())) {
+                    database.removeTeam(team.getTeamId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Team updateTeam(Team team, boolean add) {
+        synchronized (database.teamLock) {
+            if (database.teams.containsKey(team.getTeamId())) {
+                database.putTeam(new Team(team));
+                return team;
+            }
+        }
+        return add ? addTeam(team) : null;
+    }
+
+    @Override
+    public List<Team> updateTeams(List<Team> teams, boolean add) {
+        List<Team> failed = new ArrayList<>();
+        synchronized (database.teamLock) {
+            for (int i = 0, n = teams.size(); i < n; i++) {
+                if (updateTeam(teams.get(i), add) == null) {
+                    failed.add(teams.get(i));
+                }
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void resetTeams(String league, String division) {
+        synchronized (database.teamLock) {
+            for (Team team : new ArrayList<>(database.teamsFor(league, division))) {
+                Team reset = new Team(team);
+                reset.setScoreR1(0);
+                reset.setScoreR2(0);
+                reset.setScoreR3(0);
+                reset.setScoreR4(0);
+                reset.setScoreR5(0);
+                database.putTeam(reset);
+            }
+        }
+    }
+
+    /**
+     * Searches for a stored {@link Team} either by club name, division and division index or, if
+     * the club name or division index are not set, by team name and division.
+     *
+     * @return the stored {@link Team} if found, null otherwise
+     */
+    private Team findTeam(String league, String division, String clubName, int divisionIndex, String teamName) {
+        boolean byClub = clubName != null && divisionIndex > 0;
+
+        if (league == null) {
+            for (Map<String, ConcurrentNavigableMap<Integer, Team>> divisions : database.teamsByLeague.values()) {
+                Team found = findTeam(divisions.get(InMemoryDatabase.key(division)), byClub, clubName, divisionIndex, teamName);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        return findTeam(database.teamsFor(league, division), byClub, clubName, divisionIndex, teamName);
+    }
+
+    private static Team findTeam(Map<Integer, Team> teams, boolean byClub, String clubName,
+                                 int divisionIndex, String teamName) {
+        return teams == null ? null : findTeam(teams.values(), byClub, clubName, divisionIndex, teamName);
+    }
+
+    private static Team findTeam(Collection<Team> teams, boolean byClub, String clubName,
+                                 int divisionIndex, String teamName) {
+        for (Team team : teams) {
+            if (byClub) {
+                if (clubName.equals(team.getClubName()) && divisionIndex == team.getDivisionIndex()) {
+                    return team;
+                }
+            } else if (teamName != null && teamName.equals(team.getTeamName())) {
+                return team;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param club     the {@link Club} which is competing
+     * @param division the division which is competing
+     * @return the number of teams the club has competing in the division
+     */
+    private static int competingTeams(Club club, String division) {
+        if (Division.MIXED.equalsIgnoreCase(division)) {
+            return club.getMixedTeams();
+        } else if (Division.LADIES.equalsIgnoreCase(division)) {
+            return club.getLadiesTeams();
+        } else if (Division.BOARD.equalsIgnoreCase(division)) {
+            return club.getBoardTeams();
+        }
+        return 0;
+    }
+
+    private static List<Team> copyOf(Collection<Team> teams) {
+        List<Team> copies = new ArrayList<>(teams.size());
+        for (Team team : teams) {
+            copies.add(new Team(team));
+        }
+        return copies;
+    }
+}
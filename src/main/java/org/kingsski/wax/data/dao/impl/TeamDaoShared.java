@@ -0,0 +1,180 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.dao.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link TeamDao} which is a view of the shared {@link TeamDao} of a
+ * {@link DaoFactoryShared}. Opening and closing has no effect, the teams of a league and division
+ * are served from those held by the factory and any change to teams discards them.
+ */
+class TeamDaoShared implements TeamDao {
+    private final DaoFactoryShared daoFactory;
+
+    /**
+     * @param daoFactory the {@link DaoFactoryShared} holding the shared DAO
+     */
+    TeamDaoShared(DaoFactoryShared daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public Team getTeam(Team team) {
+        return daoFactory.teamDao().getTeam(team);
+    }
+
+    @Override
+    public Team getTeam(int teamId) {
+        return daoFactory.teamDao().getTeam(teamId);
+    }
+
+    @Override
+    public List<Team> getAllTeams() {
+        return daoFactory.teamDao().getAllTeams();
+    }
+
+    @Override
+    public List<Team> getTeamsByClub(Club club) {
+        return daoFactory.teamDao().getTeamsByClub(club);
+    }
+
+    @Override
+    public List<Team> getTeamsByDivision(String division) {
+        return daoFactory.teamDao().getTeamsByDivision(division);
+    }
+
+    @Override
+    public List<Team> getSeededTeams(String division) {
+        return daoFactory.teamDao().getSeededTeams(division);
+    }
+
+    @Override
+    public List<Team> getCompetingTeams(String division, List<Club> competingClubs, String league) {
+        // Teams which do not exist yet are added
+        try {
+            return daoFactory.teamDao().getCompetingTeams(division, competingClubs, league);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public List<Team> getTeams(Club club, String division, String league) {
+        if (club == null && division != null && league != null) {
+            return daoFactory.getTeams(division, league);
+        }
+        return daoFactory.teamDao().getTeams(club, division, league);
+    }
+
+    @Override
+    public Team addTeam(Team team) {
+        try {
+            return daoFactory.teamDao().addTeam(team);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteTeam(Team team) {
+        try {
+            daoFactory.teamDao().deleteTeam(team);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteTeam(int teamId) {
+        try {
+            daoFactory.teamDao().deleteTeam(teamId);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void deleteAllClubTeams(Club club) {
+        try {
+            daoFactory.teamDao().deleteAllClubTeams(club);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public Team updateTeam(Team team, boolean add) {
+        try {
+            return daoFactory.teamDao().updateTeam(team, add);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public List<Team> updateTeams(List<Team> teams, boolean add) {
+        try {
+            return daoFactory.teamDao().updateTeams(teams, add);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public void resetTeams(String league, String division) {
+        try {
+            daoFactory.teamDao().resetTeams(league, division);
+        } finally {
+            daoFactory.invalidateTeams();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void open() {
+        // The shared DAO is opened on first use
+    }
+
+    @Override
+    public void close() {
+        // The shared DAO is closed by the factory
+    }
+
+    @Override
+    public void deleteDb() {
+        try {
+            daoFactory.teamDao().deleteDb();
+        } finally {
+            daoFactory.invalidate();
+        }
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        daoFactory.teamDao().beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        daoFactory.teamDao().setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        try {
+            daoFactory.teamDao().endTransaction();
+        } finally {
+            // The transaction may have been rolled back
+            daoFactory.invalidateTeams();
+        }
+    }
+}
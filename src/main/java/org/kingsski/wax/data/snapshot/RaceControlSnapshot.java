@@ -0,0 +1,216 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.snapshot;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao.NonExistentRaceControlException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * The complete state of a single {@link RaceControl}: the control itself, the {@link Club}s and
+ * {@link Team}s of its league and all of its {@link Race}s with their results. A snapshot is
+ * taken with {@link #capture(DaoFactory, RaceControl)}, written to a single file with
+ * {@link #save(Path)} and read back with {@link #load(Path)}, so a standby machine can be brought
+ * to the state of an event with one file read rather than a query per division and round.
+ * </p>
+ * <p>
+ * The file is a compact, versioned binary format with each distinct string held once and a
+ * checksum over the whole file. {@link #restore(DaoFactory)} writes a loaded snapshot through the
+ * DAOs of another {@link DaoFactory}.
+ * </p>
+ */
+public final class RaceControlSnapshot {
+    private final RaceControl raceControl;
+    private final List<Club> clubs;
+    private final List<Team> teams;
+    private final List<Race> races;
+
+    /**
+     * @param raceControl the {@link RaceControl}
+     * @param clubs       the {@link Club}s of the league
+     * @param teams       the {@link Team}s of the league
+     * @param races       the {@link Race}s of the control in round and race number order
+     */
+    public RaceControlSnapshot(RaceControl raceControl, List<Club> clubs, List<Team> teams, List<Race> races) {
+        this.raceControl = raceControl;
+        this.clubs = Collections.unmodifiableList(clubs);
+        this.teams = Collections.unmodifiableList(teams);
+        this.races = Collections.unmodifiableList(races);
+    }
+
+    /**
+     * Reads the current state of a {@link RaceControl} in a single transaction
+     *
+     * @param daoFactory  the {@link DaoFactory} to read from
+     * @param raceControl the {@link RaceControl} to take a snapshot of, only the control ID is
+     *                    required
+     * @return the snapshot
+     * @throws NonExistentRaceControlException if the control does not exist
+     */
+    public static RaceControlSnapshot capture(DaoFactory daoFactory, RaceControl raceControl)
+            throws NonExistentRaceControlException {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            session.beginTransaction();
+            try {
+                RaceControl stored = session.getRaceControlDao().getRaceControl(raceControl);
+                List<Club> clubs = session.getClubDao().getClubs(stored.getLeague());
+                List<Team> teams = session.getTeamDao().getTeams(null, null, stored.getLeague());
+                List<Race> races = session.getRaceDao().getRaces(stored.getControlId(), null, 0);
+                session.setTransactionSuccessful();
+                return new RaceControlSnapshot(stored, clubs, teams, races);
+            } finally {
+                session.endTransaction();
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing any existing file
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Files.write(file, SnapshotCodec.encode(this));
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save(Path)}
+     *
+     * @param file the file to read
+     * @return the snapshot
+     * @throws InvalidSnapshotException if the file is not a snapshot, is an unsupported version or
+     *                                  is corrupt
+     * @throws IOException              if the file cannot be read
+     */
+    public static RaceControlSnapshot load(Path file) throws IOException {
+        return SnapshotCodec.decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * <p>
+     * Writes the snapshot through the DAOs of a {@link DaoFactory} in a single transaction. A new
+     * {@link RaceControl} is added for the league; clubs and teams which already exist are updated
+     * and the others are added. Clubs are matched by name and teams by league, division and name,
+     * so teams of the store which only share an ID with a team of the snapshot are left alone.
+     * The races are added to the new control with their results.
+     * </p>
+     * <p>
+     * The DAOs may allocate different control and team IDs to those in the snapshot, the races
+     * added refer to the IDs allocated. The races of each round are numbered from the next race
+     * number of the round, so they keep their numbers when restored to a new control unless races
+     * had been deleted from the middle of a round.
+     * </p>
+     *
+     * @param daoFactory the {@link DaoFactory} to write to
+     * @return the {@link RaceControl} which was added
+     * @throws IllegalStateException if a team could not be written
+     */
+    public RaceControl restore(DaoFactory daoFactory) {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            session.beginTransaction();
+            try {
+                RaceControl restored = session.getRaceControlDao().addNewRaceControl(raceControl.getLeague());
+
+                for (int i = 0, n = clubs.size(); i < n; i++) {
+                    Club club = new Club(clubs.get(i));
+                    if (session.getClubDao().updateClub(club) == null) {
+                        session.getClubDao().addClub(club);
+                    }
+                }
+
+                // Teams are matched by league, division and name as the IDs in the snapshot may
+                // belong to unrelated teams in this store
+                Map<Integer, Integer> teamIds = new HashMap<>();
+                for (int i = 0, n = teams.size(); i < n; i++) {
+                    Team team = new Team(teams.get(i));
+                    Team existing = session.getTeamDao().getTeam(team);
+                    team.setTeamId(existing == null ? 0 : existing.getTeamId());
+                    Team written = session.getTeamDao().updateTeam(team, existing == null);
+                    if (written == null) {
+                        throw new IllegalStateException("Unable to restore team " + team.getTeamName());
+                    }
+                    teamIds.put(teams.get(i).getTeamId(), written.getTeamId());
+                }
+
+                List<Race> restoredRaces = new ArrayList<>(races.size());
+                for (int i = 0, n = races.size(); i < n; i++) {
+                    Race race = new Race(races.get(i));
+                    race.setControlId(restored.getControlId());
+                    race.setTeamOne(teamIds.getOrDefault(race.getTeamOne(), race.getTeamOne()));
+                    race.setTeamTwo(teamIds.getOrDefault(race.getTeamTwo(), race.getTeamTwo()));
+                    restoredRaces.add(race);
+                }
+                session.getRaceDao().addRaces(restoredRaces);
+
+                session.setTransactionSuccessful();
+                return restored;
+            } finally {
+                session.endTransaction();
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * @return the {@link RaceControl}
+     */
+    public RaceControl getRaceControl() {
+        return raceControl;
+    }
+
+    /**
+     * @return the {@link Club}s of the league
+     */
+    public List<Club> getClubs() {
+        return clubs;
+    }
+
+    /**
+     * @return the {@link Team}s of the league
+     */
+    public List<Team> getTeams() {
+        return teams;
+    }
+
+    /**
+     * @return the {@link Race}s of the control in round and race number order
+     */
+    public List<Race> getRaces() {
+        return races;
+    }
+
+    /**
+     * Thrown when a file is not a valid snapshot
+     */
+    public static class InvalidSnapshotException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param reason the reason the snapshot is not valid
+         */
+        public InvalidSnapshotException(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.data.snapshot;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.snapshot.RaceControlSnapshot.InvalidSnapshotException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * Encodes and decodes {@link RaceControlSnapshot}s. The format is
+ * <pre>
+ * [int magic][byte version][strings][control][clubs][teams][races][int CRC32 of everything before]
+ * </pre>
+ * where each list is its size followed by its entries. Every number is written as a variable
+ * length zig-zag integer, so most take a single byte, and every string is written as its index
+ * in the strings list which holds each distinct string once; index 0 is null.
+ * </p>
+ * <p>
+ * A new version must be used for any change to the format so older snapshots are rejected
+ * rather than misread.
+ * </p>
+ */
+final class SnapshotCodec {
+    private static final int MAGIC = 0x57415853;
+    private static final byte VERSION = 1;
+
+    private SnapshotCodec() {
+        // Static methods only
+    }
+
+    /**
+     * @param snapshot the {@link RaceControlSnapshot} to encode
+     * @return the encoded snapshot
+     */
+    static byte[] encode(RaceControlSnapshot snapshot) {
+        Output body = new Output(64 + 48 * snapshot.getRaces().size() + 32 * snapshot.getTeams().size());
+
+        RaceControl raceControl = snapshot.getRaceControl();
+        body.putInt(raceControl.getControlId());
+        body.putString(raceControl.getLeague());
+        body.putString(raceControl.getDate());
+
+        List<Club> clubs = snapshot.getClubs();
+        body.putInt(clubs.size());
+        for (int i = 0, n = clubs.size(); i < n; i++) {
+            putClub(body, clubs.get(i));
+        }
+
+        List<Team> teams = snapshot.getTeams();
+        body.putInt(teams.size());
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            putTeam(body, teams.get(i));
+        }
+
+        List<Race> races = snapshot.getRaces();
+        body.putInt(races.size());
+        for (int i = 0, n = races.size(); i < n; i++) {
+            putRace(body, races.get(i));
+        }
+
+        // The strings are only known once the body has been encoded but are needed first to decode it
+        Output out = new Output(body.size + 16 * body.strings.size() + 16);
+        out.ensureCapacity(5);
+        out.bytes[0] = (byte) (MAGIC >>> 24);
+        out.bytes[1] = (byte) (MAGIC >>> 16);
+        out.bytes[2] = (byte) (MAGIC >>> 8);
+        out.bytes[3] = (byte) MAGIC;
+        out.bytes[4] = VERSION;
+        out.size = 5;
+
+        out.putInt(body.strings.size());
+        for (String string : body.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length);
+            out.put(bytes, bytes.length);
+        }
+        out.put(body.bytes, body.size);
+
+        CRC32 crc = new CRC32();
+        crc.update(out.bytes, 0, out.size);
+        int checksum = (int) crc.getValue();
+        out.put(new byte[]{(byte) (checksum >>> 24), (byte) (checksum >>> 16), (byte) (checksum >>> 8),
+                (byte) checksum}, 4);
+
+        return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    /**
+     * @param buffer the encoded snapshot
+     * @return the decoded {@link RaceControlSnapshot}
+     * @throws InvalidSnapshotException if the buffer does not hold a valid snapshot
+     */
+    static RaceControlSnapshot decode(ByteBuffer buffer) throws InvalidSnapshotException {
+        if (buffer.remaining() < 9 || buffer.getInt(buffer.position()) != MAGIC) {
+            throw new InvalidSnapshotException("Not a race control snapshot");
+        }
+        if (buffer.get(buffer.position() + 4) != VERSION) {
+            throw new InvalidSnapshotException("Unsupported snapshot version " + buffer.get(buffer.position() + 4));
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(buffer.limit() - 4);
+        crc.update(checked);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new InvalidSnapshotException("Snapshot checksum does not match, the file is corrupt");
+        }
+
+        Input in = new Input(buffer.duplicate());
+        in.buffer.position(buffer.position() + 5).limit(buffer.limit() - 4);
+        try {
+            int stringCount = in.getCount();
+            in.strings = new String[stringCount + 1];
+            for (int i = 1; i <= stringCount; i++) {
+                int length = in.getCount();
+                byte[] bytes = new byte[length];
+                in.buffer.get(bytes);
+                in.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            RaceControl raceControl = new RaceControl();
+            raceControl.setControlId(in.getInt());
+            raceControl.setLeague(in.getString());
+            raceControl.setDate(in.getString());
+
+            int clubCount = in.getCount();
+            List<Club> clubs = new ArrayList<>(clubCount);
+            for (int i = 0; i < clubCount; i++) {
+                clubs.add(getClub(in));
+            }
+
+            int teamCount = in.getCount();
+            List<Team> teams = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                teams.add(getTeam(in));
+            }
+
+            int raceCount = in.getCount();
+            List<Race> races = new ArrayList<>(raceCount);
+            for (int i = 0; i < raceCount; i++) {
+                races.add(getRace(in));
+            }
+
+            if (in.buffer.hasRemaining()) {
+                throw new InvalidSnapshotException("Unexpected data at the end of the snapshot");
+            }
+            return new RaceControlSnapshot(raceControl, clubs, teams, races);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidSnapshotException("Snapshot is truncated or corrupt");
+        }
+    }
+
+    private static void putClub(Output out, Club club) {
+        out.putString(club.getClubName());
+        out.putString(club.getLeague());
+        out.putString(club.getClubShortName());
+        out.putInt(club.getMixedTeams());
+        out.putInt(club.getLadiesTeams());
+        out.putInt(club.getBoardTeams());
+    }
+
+    private static Club getClub(Input in) {
+        Club club = new Club();
+        club.setClubName(in.getString());
+        club.setLeague(in.getString());
+        club.setClubShortName(in.getString());
+        club.setMixedTeams(in.getInt());
+        club.setLadiesTeams(in.getInt());
+        club.setBoardTeams(in.getInt());
+        return club;
+    }
+
+    private static void putTeam(Output out, Team team) {
+        out.putInt(team.getTeamId());
+        out.putString(team.getLeague());
+        out.putString(team.getClubName());
+        out.putString(team.getDivision());
+        out.putInt(team.getDivisionIndex());
+        out.putString(team.getTeamName());
+        out.putInt(team.getScoreR1());
+        out.putInt(team.getScoreR2());
+        out.putInt(team.getScoreR3());
+        out.putInt(team.getScoreR4());
+        out.putInt(team.getScoreR5());
+        out.putInt(team.getSetOneWins());
+        out.putInt(team.getSetOneDsqs());
+        out.putInt(team.getSetWeighting());
+    }
+
+    private static Team getTeam(Input in) {
+        Team team = new Team();
+        team.setTeamId(in.getInt());
+        team.setLeague(in.getString());
+        team.setClubName(in.getString());
+        team.setDivision(in.getString());
+        team.setDivisionIndex(in.getInt());
+        team.setTeamName(in.getString());
+        team.setScoreR1(in.getInt());
+        team.setScoreR2(in.getInt());
+        team.setScoreR3(in.getInt());
+        team.setScoreR4(in.getInt());
+        team.setScoreR5(in.getInt());
+        team.setSetOneWins(in.getInt());
+        team.setSetOneDsqs(in.getInt());
+        team.setSetWeighting(in.getInt());
+        return team;
+    }
+
+    private static void putRace(Output out, Race race) {
+        out.putInt(race.getControlId());
+        out.putString(race.getLeague());
+        out.putInt(race.getRoundNo());
+        out.putString(race.getSet());
+        out.putString(race.getDivision());
+        out.putString(race.getGroup());
+        out.putInt(race.getRaceNo());
+        out.putInt(race.getTeamOne());
+        out.putInt(race.getTeamTwo());
+        out.putInt(race.getTeamWin());
+        out.putString(race.getTeamOneDsq());
+        out.putString(race.getTeamTwoDsq());
+        out.putInt(race.isNext() ? 1 : 0);
+    }
+
+    private static Race getRace(Input in) {
+        int controlId = in.getInt();
+        String league = in.getString();
+        int roundNo = in.getInt();
+        String set = in.getString();
+        String division = in.getString();
+        String group = in.getString();
+        int raceNo = in.getInt();
+        int teamOne = in.getInt();
+        int teamTwo = in.getInt();
+        int teamWin = in.getInt();
+        String teamOneDsq = in.getString();
+        String teamTwoDsq = in.getString();
+        return new Race(controlId, league, roundNo, set, division, group, raceNo, teamOne, teamTwo, teamWin,
+                teamOneDsq, teamTwoDsq, in.getInt() != 0);
+    }
+
+    /**
+     * A growing byte array which numbers the strings written to it
+     */
+    private static final class Output {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private byte[] bytes;
+        private int size;
+
+        private Output(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void putInt(int value) {
+            ensureCapacity(5);
+            int zigZag = (value << 1) ^ (value >> 31);
+            while ((zigZag & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((zigZag & 0x7f) | 0x80);
+                zigZag >>>= 7;
+            }
+            bytes[size++] = (byte) zigZag;
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                putInt(0);
+                return;
+            }
+
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size() + 1;
+                strings.put(value, index);
+            }
+            putInt(index);
+        }
+
+        private void put(byte[] values, int length) {
+            ensureCapacity(length);
+            System.arraycopy(values, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int required) {
+            if (bytes.length - size < required) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + required));
+            }
+        }
+    }
+
+    /**
+     * Reads the values written by an {@link Output} from a buffer
+     */
+    private static final class Input {
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        private Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int getInt() {
+            int zigZag = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                zigZag |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                if (shift >= 28) {
+                    throw new BufferUnderflowException();
+                }
+            }
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        private int getCount() {
+            int count = getInt();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return count;
+        }
+
+        private String getString() {
+            return strings[getInt()];
+        }
+    }
+}
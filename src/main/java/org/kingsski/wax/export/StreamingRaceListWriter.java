@@ -0,0 +1,78 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.export;
+
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.Team;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * <p>
+ * A {@link RaceListWriter} which writes races one at a time as they become available rather
+ * than requiring the complete list up front. Usage is:
+ * <ol>
+ * <li>{@link #open(IntFunction)} once, with a lookup from team ID to team name</li>
+ * <li>{@link #append(Race)} for each race, in the order they will be run</li>
+ * <li>{@link #close()} once all races have been appended</li>
+ * </ol>
+ * </p>
+ * <p>
+ * Only the team names for the races written are looked up so there is no need to load every
+ * team to write the races for a single event.
+ * </p>
+ */
+public interface StreamingRaceListWriter extends RaceListWriter {
+
+    /**
+     * Starts a new race list
+     *
+     * @param teamNames Function returning the name of a team from its ID
+     * @return true if the race list was started, false otherwise
+     */
+    boolean open(IntFunction<String> teamNames);
+
+    /**
+     * Writes the next race to the race list
+     *
+     * @param race The {@link Race} to write
+     * @return true if the race was written, false otherwise
+     */
+    boolean append(Race race);
+
+    /**
+     * Completes the race list
+     *
+     * @return true if the race list was successfully completed, false otherwise
+     */
+    boolean close();
+
+    /**
+     * Writes the complete list of races by streaming each of them in turn
+     *
+     * @param races     The ordered list of {@link Race}s which are to be added
+     * @param teamsList The {@link List} of {@link Team}s which will be used to lookup team names
+     * @return true if the race list was successfully written, false otherwise
+     */
+    @Override
+    default boolean writeRaceList(List<Race> races, List<Team> teamsList) {
+        Map<Integer, String> teamNames = new HashMap<>(teamsList.size() * 2);
+        for (int i = 0, n = teamsList.size(); i < n; i++) {
+            teamNames.put(teamsList.get(i).getTeamId(), teamsList.get(i).getTeamName());
+        }
+
+        if (!open(teamNames::get)) {
+            return false;
+        }
+
+        boolean written = true;
+        for (int i = 0, n = races.size(); i < n && written; i++) {
+            written = append(races.get(i));
+        }
+
+        return close() && written;
+    }
+}
@@ -0,0 +1,37 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events, such as the number of races generated, which may be incremented from any
+ * number of threads at once
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Adds one to the count
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * @param amount the amount to add to the count
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * @return the current count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+}
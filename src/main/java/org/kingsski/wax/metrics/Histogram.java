@@ -0,0 +1,188 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * The distribution of a non-negative value, such as the number of teams in a division, which may
+ * be recorded from any number of threads at once.
+ * </p>
+ * <p>
+ * Values are counted in buckets in the same way as an HDR histogram: values below
+ * {@value #SUB_BUCKETS} have a bucket each and every power of two above is split into
+ * {@value #SUB_BUCKETS} equal buckets. Every value from 0 to {@link Long#MAX_VALUE} therefore
+ * has a bucket no more than 1/{@value #SUB_BUCKETS} of the value wide, in a fixed number of
+ * buckets, and recording a value never allocates. Negative values are recorded as 0.
+ * </p>
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    Histogram() {
+    }
+
+    /**
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the values recorded so far. Values recorded while the snapshot is taken may be
+     * missing from some of its figures.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return total == 0
+                ? new Snapshot(counts, 0, 0, 0, 0)
+                : new Snapshot(counts, total, sum.sum(), min.get(), max.get());
+    }
+
+    /**
+     * @param value a non-negative value
+     * @return the index of the bucket holding the value
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @param bucket the index of a bucket
+     * @return the lowest value held by the bucket
+     */
+    static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    /**
+     * @param bucket the index of a bucket
+     * @return the highest value held by the bucket
+     */
+    static long highestOf(int bucket) {
+        return bucket + 1 < BUCKET_COUNT ? lowestOf(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * The values recorded by a {@link Histogram} at a point in time
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the total of the values recorded
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return the smallest value recorded, 0 if there are none
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * @return the largest value recorded, 0 if there are none
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the mean of the values recorded, 0 if there are none
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile the percentile from 0 to 100
+         * @return the highest value of the bucket holding the percentile, never more than the
+         * largest value recorded, or 0 if there are none
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile: " + percentile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, highestOf(i)));
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @param value a value
+         * @return the number of values recorded in buckets no higher than the bucket holding the
+         * value
+         */
+        public long getCountAtOrBelow(long value) {
+            long seen = 0;
+            for (int i = 0, last = bucketOf(Math.max(0, value)); i <= last; i++) {
+                seen += counts[i];
+            }
+            return seen;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Holds the {@link Counter}s, {@link Timer}s and {@link Histogram}s of an application by name,
+ * creating each the first time it is requested. All of the metrics may be read at once as a
+ * {@link MetricsSnapshot}, for example to be scraped by a monitoring system.
+ * </p>
+ * <p>
+ * The race configurers and seed persistence record to the registry set by
+ * {@link #setDefault(MetricsRegistry)}, so an application can plug in its own registry to
+ * collect them. Names are dotted and lower camel case, e.g. {@code configure.set1.persist}.
+ * </p>
+ */
+public class MetricsRegistry {
+    private static volatile MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry metrics are recorded to when none is given
+     */
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * @param registry the registry to record metrics to when none is given
+     */
+    public static void setDefault(MetricsRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("The default metrics registry cannot be null");
+        }
+        defaultRegistry = registry;
+    }
+
+    /**
+     * @param name the name of the {@link Counter}
+     * @return the {@link Counter} with the name
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * @param name the name of the {@link Timer}
+     * @return the {@link Timer} with the name
+     */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    /**
+     * @param name the name of the {@link Histogram}
+     * @return the {@link Histogram} with the name
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * @return the current value of every metric
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().getCount());
+        }
+        return new MetricsSnapshot(counterValues, snapshot(timers), snapshot(histograms));
+    }
+
+    /**
+     * Removes every metric. Any metrics held elsewhere are no longer part of this registry.
+     */
+    public void clear() {
+        counters.clear();
+        timers.clear();
+        histograms.clear();
+    }
+
+    private static Map<String, Histogram.Snapshot> snapshot(Map<String, ? extends Histogram> histograms) {
+        Map<String, Histogram.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, ? extends Histogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,112 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The value of every metric in a {@link MetricsRegistry} at a point in time, each in order of
+ * name
+ */
+public final class MetricsSnapshot {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Long> counters;
+    private final Map<String, Histogram.Snapshot> timers;
+    private final Map<String, Histogram.Snapshot> histograms;
+
+    MetricsSnapshot(Map<String, Long> counters, Map<String, Histogram.Snapshot> timers,
+                    Map<String, Histogram.Snapshot> histograms) {
+        this.counters = Collections.unmodifiableMap(counters);
+        this.timers = Collections.unmodifiableMap(timers);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return the count of each {@link Counter}
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return the durations in nanoseconds recorded by each {@link Timer}
+     */
+    public Map<String, Histogram.Snapshot> getTimers() {
+        return timers;
+    }
+
+    /**
+     * @return the values recorded by each {@link Histogram}
+     */
+    public Map<String, Histogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * @param name the name of a {@link Counter}
+     * @return the count of the counter, 0 if there is none with the name
+     */
+    public long getCount(String name) {
+        Long count = counters.get(name);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * <p>
+     * Writes every metric as text, one value per line in the form {@code name value} with the
+     * names made safe for Prometheus by replacing anything other than letters, digits and
+     * underscores with underscores.
+     * </p>
+     * <p>
+     * Counters are written as they are. Timers are written in seconds and histograms as
+     * recorded, each as a summary of its count, sum, maximum and the 50th, 90th, 99th and 99.9th
+     * percentiles.
+     * </p>
+     *
+     * @return the text
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            String name = sanitise(entry.getKey());
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Histogram.Snapshot> entry : timers.entrySet()) {
+            appendSummary(text, sanitise(entry.getKey()) + "_seconds", entry.getValue(),
+                    1.0 / TimeUnit.SECONDS.toNanos(1));
+        }
+        for (Map.Entry<String, Histogram.Snapshot> entry : histograms.entrySet()) {
+            appendSummary(text, sanitise(entry.getKey()), entry.getValue(), 1);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+
+    private static void appendSummary(StringBuilder text, String name, Histogram.Snapshot snapshot, double scale) {
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (double percentile : PERCENTILES) {
+            text.append(name).append("{quantile=\"").append(percentile / 100).append("\"} ")
+                    .append(snapshot.getPercentile(percentile) * scale).append('\n');
+        }
+        text.append(name).append("_max ").append(snapshot.getMax() * scale).append('\n');
+        text.append(name).append("_sum ").append(snapshot.getSum() * scale).append('\n');
+        text.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+    }
+
+    private static String sanitise(String name) {
+        StringBuilder sanitised = new StringBuilder(name.length());
+        for (int i = 0, n = name.length(); i < n; i++) {
+            char c = name.charAt(i);
+            sanitised.append(c < 128 && Character.isLetterOrDigit(c) ? c : '_');
+        }
+        return sanitised.toString();
+    }
+}
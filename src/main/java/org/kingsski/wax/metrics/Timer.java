@@ -0,0 +1,39 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A {@link Histogram} of durations in nanoseconds. Timing a section of code does not allocate:
+ * </p>
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.recordSince(start);
+ * </pre>
+ */
+public final class Timer extends Histogram {
+
+    Timer() {
+    }
+
+    /**
+     * @param duration the duration to record
+     * @param unit     the unit of the duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    /**
+     * @param startNanos the {@link System#nanoTime()} at the start of the section being timed
+     * @return the duration recorded in nanoseconds
+     */
+    public long recordSince(long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        record(duration);
+        return duration;
+    }
+}
@@ -0,0 +1,118 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.seeding;
+
+import org.kingsski.wax.data.Team;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * An {@link Iterator} of seeded {@link Team}s which reads ahead of its user on an
+ * {@link Executor}, so teams are retrieved while those already retrieved are persisted.
+ * </p>
+ * <p>
+ * At most the given number of teams are held waiting to be used. When the buffer is full the
+ * retrieval waits, so a slow user holds back a fast source rather than the whole source being
+ * read into memory. Any failure of the source is thrown to the user when it reaches that point.
+ * The iterator must be closed if it is not used to the end so the retrieval stops.
+ * </p>
+ */
+class BufferedSeedIterator implements Iterator<Team>, AutoCloseable {
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<Object> buffer;
+    private volatile boolean closed;
+    private Object next;
+
+    /**
+     * @param source   the {@link Iterator} retrieving the teams
+     * @param capacity the most teams held waiting to be used
+     * @param executor the {@link Executor} to retrieve the teams on
+     */
+    BufferedSeedIterator(Iterator<Team> source, int capacity, Executor executor) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        executor.execute(() -> retrieve(source));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return take() != END;
+    }
+
+    @Override
+    public Team next() {
+        Object team = take();
+        if (team == END) {
+            throw new NoSuchElementException();
+        }
+        next = null;
+        return (Team) team;
+    }
+
+    /**
+     * Stops the retrieval and discards any teams held
+     */
+    @Override
+    public void close() {
+        closed = true;
+        buffer.clear();
+    }
+
+    private Object take() {
+        if (next == null) {
+            try {
+                next = buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for seeds", e);
+            }
+        }
+        if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        }
+        if (next instanceof Error) {
+            throw (Error) next;
+        }
+        if (next instanceof Throwable) {
+            throw new IllegalStateException("Failed to retrieve seeds", (Throwable) next);
+        }
+        return next;
+    }
+
+    private void retrieve(Iterator<Team> source) {
+        try {
+            while (source.hasNext()) {
+                if (!put(source.next())) {
+                    return;
+                }
+            }
+            put(END);
+        } catch (Throwable e) {
+            // Anything thrown must reach the user or it would wait for seeds forever
+            put(e);
+        }
+    }
+
+    /**
+     * @return true if the item was buffered, false if the iterator was closed while waiting
+     */
+    private boolean put(Object item) {
+        try {
+            while (!closed) {
+                if (buffer.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.seeding;
+
+import org.kingsski.wax.data.Club;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * An index of {@link Club}s by both their name and short name, ignoring case, used to match the
+ * club of a seeded team.
+ * </p>
+ * <p>
+ * Where more than one club matches a name the club added last is returned. Clubs without a name
+ * or short name are only indexed by the one they have.
+ * </p>
+ */
+public final class ClubNameIndex {
+    private final Map<String, Club> clubs;
+
+    /**
+     * @param clubList the {@link Club}s to index, in order
+     */
+    public ClubNameIndex(List<Club> clubList) {
+        this.clubs = new HashMap<>(clubList.size() * 4);
+        for (int i = 0, n = clubList.size(); i < n; i++) {
+            add(clubList.get(i));
+        }
+    }
+
+    /**
+     * @param club the {@link Club} to index by its name and short name
+     */
+    public void add(Club club) {
+        if (club.getClubName() != null) {
+            clubs.put(fold(club.getClubName()), club);
+        }
+        if (club.getClubShortName() != null) {
+            clubs.put(fold(club.getClubShortName()), club);
+        }
+    }
+
+    /**
+     * @param name the name or short name of a club
+     * @return the {@link Club} with the name or short name ignoring case, null if there is none
+     */
+    public Club find(String name) {
+        return name == null ? null : clubs.get(fold(name));
+    }
+
+    /**
+     * Folds the case of a name so names which are equal ignoring case have the same key
+     */
+    private static String fold(String name) {
+        return name.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+}
@@ -5,6 +5,7 @@ package org.kingsski.wax.seeding;
 import org.kingsski.wax.data.Club;
 import org.kingsski.wax.data.Team;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /* TODO Not sure this class is necessary since it just amounts to an additional layer of abstraction
@@ -66,6 +67,81 @@ public interface SeedPersister {
      */
     Team getExistingTeamDetails(Team team);
 
+    /**
+     * Retrieves details for a number of {@link Team}s in a single operation. Implementations should
+     * override this to look up every team by name and division at once; by default each team is
+     * retrieved in turn with {@link #getExistingTeamDetails(Team)}.
+     *
+     * @param teams the {@link Team}s to retrieve existing details for
+     * @return a List holding the existing details of each {@link Team} at the same index, or null
+     * at that index if the {@link Team} didn't exist
+     */
+    default List<Team> getExistingTeamDetails(List<Team> teams) {
+        List<Team> existing = new ArrayList<>(teams.size());
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            existing.add(getExistingTeamDetails(teams.get(i)));
+        }
+        return existing;
+    }
+
+    /**
+     * Persists a number of teams in a single operation, either updating existing entries or adding
+     * new ones. Implementations should override this to write the teams as a single batch; by
+     * default each team is persisted in turn with {@link #addOrUpdateTeam(Team)}.
+     *
+     * @param teams the {@link Team}s which should be updated/added
+     * @return the {@link Team}s which could not be persisted, empty if all were successful
+     */
+    default List<Team> addOrUpdateTeams(List<Team> teams) {
+        List<Team> failed = new ArrayList<>();
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            if (!addOrUpdateTeam(teams.get(i))) {
+                failed.add(teams.get(i));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Persists a number of new clubs in a single operation. By default each {@link Club} is added
+     * in turn with {@link #addClub(Club)}.
+     *
+     * @param clubs the {@link Club}s to add
+     * @return the {@link Club}s which were successfully added
+     */
+    default List<Club> addClubs(List<Club> clubs) {
+        List<Club> added = new ArrayList<>(clubs.size());
+        for (int i = 0, n = clubs.size(); i < n; i++) {
+            if (addClub(clubs.get(i))) {
+                added.add(clubs.get(i));
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Begin a transaction covering all of the following operations until
+     * {@link #endTransaction()} is called. By default there is no transaction.
+     */
+    default void beginTransaction() {
+        // No transaction by default
+    }
+
+    /**
+     * Mark the current transaction as successful
+     */
+    default void setTransactionSuccessful() {
+        // No transaction by default
+    }
+
+    /**
+     * End the current transaction, the operations are only committed if it was marked as
+     * successful
+     */
+    default void endTransaction() {
+        // No transaction by default
+    }
+
     /**
      * The list of already existing {@link Club}s. This should return all {@link Club}s regardless
      * of league to account for the potential of large national scale clubs who could potentially
@@ -4,6 +4,7 @@ package org.kingsski.wax.seeding;
 
 import org.kingsski.wax.data.Team;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -17,4 +18,15 @@ public interface SeedRetriever {
      * @return The List of {@link Team}s and the seed information for them which was retrieved
      */
     List<Team> getSeeds();
+
+    /**
+     * Retrieve the seed information for {@link Team}s as it is required. Implementations reading
+     * large sources should override this to retrieve each {@link Team} as the iterator reaches it
+     * rather than holding them all; by default the List from {@link #getSeeds()} is iterated.
+     *
+     * @return An {@link Iterator} over the {@link Team}s and the seed information for them
+     */
+    default Iterator<Team> getSeedIterator() {
+        return getSeeds().iterator();
+    }
 }
@@ -4,9 +4,17 @@ package org.kingsski.wax.seeding;
 
 import org.kingsski.wax.data.Club;
 import org.kingsski.wax.data.Team;
+import org.kingsski.wax.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * This class manages the retrieval of seed information for {@link Team}s and persisting them. This
@@ -15,12 +23,20 @@ import java.util.List;
  * <li>{@link SeedRetriever} implementation - retrieves the seed information for teams</li>
  * <li>{@link SeedPersister} implementation - persists the seed information for teams</li>
  * </ul>
+ * The time taken by each phase and the number of teams persisted are recorded in the default
+ * {@link MetricsRegistry} under {@code seeding}.
  */
 public class SeedRetrieverPersisterManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeedRetrieverPersisterManager.class);
+    private static final String METRICS = "seeding.";
+
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
 
     private SeedRetriever seedRetriever;
     private SeedPersister seedPersister;
     private List<Club> clubList;
+    private ClubNameIndex clubIndex;
+    private List<Team> failedTeams = Collections.emptyList();
 
     /**
      * Create a {@link SeedRetrieverPersisterManager} instance with the provided retriever and
@@ -43,58 +59,257 @@ public class SeedRetrieverPersisterManager {
      * @return the List of {@link Team}s which were retrieved and persisted.
      */
     public List<Team> execute() {
+        long start = System.nanoTime();
         seedPersister.init();
-        List<Team> teamSeedings = seedRetriever.getSeeds();
-        teamSeedings = persistSeededTeams(teamSeedings);
-        seedPersister.uninit();
-        return teamSeedings;
+        try {
+            List<Team> teamSeedings = seedRetriever.getSeeds();
+            metrics.timer(METRICS + "retrieve").recordSince(start);
+            return persistSeededTeams(teamSeedings);
+        } finally {
+            seedPersister.uninit();
+            metrics.timer(METRICS + "execute").recordSince(start);
+        }
     }
 
     /**
-     * Persists the List of seeded {@link Team}s.
+     * Persists the List of seeded {@link Team}s. The existing details of every team are retrieved,
+     * any new clubs are added and the teams are persisted in batches within a single transaction.
      *
-     * @param teams
-     * @return
+     * @param teams The List of seeded {@link Team}s, the existing teams of each league and
+     *              division they are for are reset first
+     * @return the List of seeded {@link Team}s, sorted and with their details set
      */
     public List<Team> persistSeededTeams(List<Team> teams) {
 
-        // We know what league and division we have, reset all scores for
-        // existing teams to 0. Doing it this way means we don't retain bad data
-        // i.e. teams which did have scores but are no longer seeded, and also
-        // means we don't have to delete any teams
+        failedTeams = new ArrayList<>();
+
         if (teams.size() > 0) {
             Collections.sort(teams);
-            clubList = seedPersister.getClubs();
-            seedPersister.resetTeams(teams.get(0).getLeague(), teams.get(0).getDivision());
+            loadClubs();
+
+            seedPersister.beginTransaction();
+            try {
+                resetTeams(teams, new HashSet<>());
+                persistBatch(teams);
+                seedPersister.setTransactionSuccessful();
+            } finally {
+                seedPersister.endTransaction();
+            }
+        }
+
+        return teams;
+    }
+
+    /**
+     * <p>
+     * Retrieves the seeded {@link Team}s from the {@link SeedRetriever#getSeedIterator()} of the
+     * {@link SeedRetriever} component and persists them in batches as they arrive using the
+     * {@link SeedPersister} component, all within a single transaction. Only one batch is held at a
+     * time so the seeds do not all need to fit in memory. Unlike {@link #execute()} the teams are
+     * persisted in the order they are retrieved.
+     * </p>
+     * <p>
+     * If an {@link Executor} is provided the teams are retrieved on it while the previous batch is
+     * persisted, holding at most two batches ahead.
+     * </p>
+     *
+     * @param batchSize The number of {@link Team}s to persist together
+     * @param executor  The {@link Executor} to retrieve the teams on, or null to retrieve them
+     *                  only as each batch is required
+     * @return the number of {@link Team}s which were retrieved
+     */
+    public int executeStreaming(int batchSize, Executor executor) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        failedTeams = new ArrayList<>();
+        int retrieved = 0;
+
+        long start = System.nanoTime();
+        seedPersister.init();
+        Iterator<Team> seeds = seedRetriever.getSeedIterator();
+        BufferedSeedIterator buffered = null;
+        if (executor != null) {
+            buffered = new BufferedSeedIterator(seeds, 2 * batchSize, executor);
+            seeds = buffered;
+        }
 
-            String lf = System.getProperty("line.separator");
-            StringBuilder refreshErrors = new StringBuilder();
+        try {
+            List<Team> batch = nextBatch(seeds, batchSize);
+            if (!batch.isEmpty()) {
+                loadClubs();
 
-            for (int i = 0, n = teams.size(); i < n; i++) {
-                setAndAddClub(teams.get(i));
-                if (seedPersister.addOrUpdateTeam(teams.get(i))) {
-                    refreshErrors.append("update failed for ").append(teams.get(i).toString()).append(lf);
+                seedPersister.beginTransaction();
+                try {
+                    Set<String> reset = new HashSet<>();
+                    while (!batch.isEmpty()) {
+                        resetTeams(batch, reset);
+                        persistBatch(batch);
+                        retrieved += batch.size();
+                        LOGGER.debug("Persisted {} seeded teams", retrieved);
+                        batch = nextBatch(seeds, batchSize);
+                    }
+                    seedPersister.setTransactionSuccessful();
+                } finally {
+                    seedPersister.endTransaction();
                 }
             }
+        } finally {
+            if (buffered != null) {
+                buffered.close();
+            }
+            seedPersister.uninit();
+            metrics.timer(METRICS + "executeStreaming").recordSince(start);
         }
 
-        return teams;
+        return retrieved;
+    }
+
+    private static List<Team> nextBatch(Iterator<Team> seeds, int batchSize) {
+        List<Team> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && seeds.hasNext()) {
+            batch.add(seeds.next());
+        }
+        return batch;
+    }
+
+    /**
+     * Loads the existing {@link Club}s and indexes them for matching against the teams
+     */
+    private void loadClubs() {
+        long start = System.nanoTime();
+        clubList = seedPersister.getClubs();
+        clubIndex = new ClubNameIndex(clubList);
+        metrics.timer(METRICS + "loadClubs").recordSince(start);
+    }
+
+    /**
+     * For each league and division in the teams which has not been reset yet, reset all scores for
+     * existing teams to 0. Doing it this way means we don't retain bad data i.e. teams which did
+     * have scores but are no longer seeded, and also means we don't have to delete any teams. This
+     * must be called before the teams are persisted so that none of them are reset.
+     *
+     * @param teams the seeded {@link Team}s about to be persisted
+     * @param reset the league and division of each one already reset, added to as they are reset
+     */
+    private void resetTeams(List<Team> teams, Set<String> reset) {
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            Team team = teams.get(i);
+            if (reset.add(team.getLeague() + '\u0000' + team.getDivision())) {
+                long start = System.nanoTime();
+                seedPersister.resetTeams(team.getLeague(), team.getDivision());
+                metrics.timer(METRICS + "reset").recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * Sets the details of a batch of {@link Team}s, adds any new clubs and persists the teams. The
+     * existing details of every team are retrieved at once and any failures are recorded.
+     *
+     * @param teams the {@link Team}s to persist
+     */
+    private void persistBatch(List<Team> teams) {
+        long start = System.nanoTime();
+
+        setDetailsAndAddClubs(teams);
+
+        List<Team> failed = seedPersister.addOrUpdateTeams(teams);
+        for (int i = 0, n = failed.size(); i < n; i++) {
+            LOGGER.warn("update failed for {}", failed.get(i));
+        }
+        failedTeams.addAll(failed);
+
+        metrics.timer(METRICS + "persist").recordSince(start);
+        metrics.counter(METRICS + "teams").add(teams.size() - failed.size());
+        metrics.counter(METRICS + "failedTeams").add(failed.size());
+        metrics.histogram(METRICS + "batchTeams").record(teams.size());
+    }
+
+    /**
+     * Sets the details of the {@link Team}s and adds any new clubs. The existing details of every
+     * team are retrieved at once.
+     *
+     * @param teams the {@link Team}s to set the details of
+     * @return the number of {@link Club}s added
+     */
+    private int setDetailsAndAddClubs(List<Team> teams) {
+        List<Team> existingTeams = seedPersister.getExistingTeamDetails(teams);
+        List<Club> newClubs = new ArrayList<>();
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            setAndAddClub(teams.get(i), existingTeams.get(i), newClubs);
+        }
+
+        if (newClubs.isEmpty()) {
+            return 0;
+        }
+        List<Club> addedClubs = seedPersister.addClubs(newClubs);
+        metrics.counter(METRICS + "clubs").add(addedClubs.size());
+        if (addedClubs.size() < newClubs.size()) {
+            // Only keep the clubs which were persisted for future checks
+            newClubs.removeAll(addedClubs);
+            clubList.removeAll(newClubs);
+            clubIndex = new ClubNameIndex(clubList);
+        }
+        return addedClubs.size();
+    }
+
+    /**
+     * Adds the {@link Club}s of any new {@link Team}s, from any number of leagues and divisions,
+     * within a single transaction. The teams themselves are not persisted. Teams of one club can
+     * be in several divisions so this must be done before the divisions are persisted
+     * concurrently, otherwise each would add the club.
+     *
+     * @param teams The seeded {@link Team}s for any number of leagues and divisions
+     * @return the number of {@link Club}s added
+     */
+    public int addNewClubs(List<Team> teams) {
+        long start = System.nanoTime();
+        seedPersister.init();
+        try {
+            if (teams.isEmpty()) {
+                return 0;
+            }
+            loadClubs();
+
+            seedPersister.beginTransaction();
+            try {
+                int added = setDetailsAndAddClubs(teams);
+                seedPersister.setTransactionSuccessful();
+                return added;
+            } finally {
+                seedPersister.endTransaction();
+            }
+        } finally {
+            seedPersister.uninit();
+            metrics.timer(METRICS + "addNewClubs").recordSince(start);
+        }
+    }
+
+    /**
+     * @return the {@link Team}s which could not be persisted by the last call to
+     * {@link #persistSeededTeams(List)} or {@link #executeStreaming(int, Executor)}, empty if all
+     * were successful
+     */
+    public List<Team> getFailedTeams() {
+        return failedTeams;
     }
 
     /**
      * Sets or guesses the club name and division index of the provided club
-     * either by retrieving an existing team from the database or, if it doesn't
+     * either from the existing team in the database or, if it doesn't
      * already exist, working it out based entirely on the team name.
      *
-     * @param team the {@link Team} object which requires the details setting
+     * @param team         the {@link Team} object which requires the details setting
+     * @param detailedTeam the existing details of the {@link Team}, null if it
+     *                     doesn't already exist
+     * @param newClubs     the {@link Club}s which need to be added, any new club
+     *                     for this team is added to these
      * @return the updated {@link Team} object, this is the same object passed
      * in as the param
      */
-    private Team setAndAddClub(Team team) {
-        // Search against team name and division in the database. If the team
-        // can't be found then work out the details
-        Team detailedTeam = seedPersister.getExistingTeamDetails(team);
-
+    private Team setAndAddClub(Team team, Team detailedTeam, List<Club> newClubs) {
         if (detailedTeam != null) {
             // Set the team details
             team.setClubName(detailedTeam.getClubName());
@@ -111,11 +326,9 @@ public class SeedRetrieverPersisterManager {
             team.setClubName("");
 
             // Now check if the club exists and set the club name if it does
-            for (int i = 0; i < clubList.size(); i++) {
-                if (clubList.get(i).getClubName().equalsIgnoreCase(genClubName)
-                        || clubList.get(i).getClubShortName().equalsIgnoreCase(genClubName)) {
-                    team.setClubName(clubList.get(i).getClubName());
-                }
+            Club existingClub = clubIndex.find(genClubName);
+            if (existingClub != null) {
+                team.setClubName(existingClub.getClubName());
             }
 
             // If the club didn't exist then create a new club and set the team's club name
@@ -128,11 +341,10 @@ public class SeedRetrieverPersisterManager {
                 club.setClubShortName(genClubName);
                 club.setLeague(team.getLeague());
 
-                // Persist the club and add it to the list
-                if (seedPersister.addClub(club)) {
-                    // Add the club to the list for future chceks
-                    clubList.add(club);
-                }
+                // Add the club to be persisted and to the list and index for future checks
+                newClubs.add(club);
+                clubList.add(club);
+                clubIndex.add(club);
             }
         }
 
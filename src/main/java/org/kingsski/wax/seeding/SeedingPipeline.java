@@ -0,0 +1,198 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.seeding;
+
+import org.kingsski.wax.concurrent.Tasks;
+import org.kingsski.wax.data.Team;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Persists seeded {@link Team}s from any number of leagues and divisions, such as a full national
+ * seed refresh. The teams are partitioned by league and division and each partition is reset and
+ * persisted by its own {@link SeedRetrieverPersisterManager} with its own {@link SeedPersister}.
+ * A club can have teams in several partitions so the clubs of any new teams are added for the
+ * whole feed first, failing the refresh if they cannot be.
+ * </p>
+ * <p>
+ * The partitions are independent so if an {@link Executor} is provided they are persisted
+ * concurrently, the largest first, so the whole refresh takes about as long as the largest
+ * partition. The outcome and throughput of each partition is returned whether or not the others
+ * succeed.
+ * </p>
+ */
+public class SeedingPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeedingPipeline.class);
+
+    private final Supplier<SeedPersister> seedPersisters;
+    private final Executor executor;
+
+    /**
+     * @param seedPersisters Provides a new {@link SeedPersister} for each partition
+     * @param executor       The {@link Executor} to persist the partitions on, or null to persist
+     *                       them one after another on the calling thread. This bounds how many
+     *                       partitions are persisted at once.
+     */
+    public SeedingPipeline(Supplier<SeedPersister> seedPersisters, Executor executor) {
+        this.seedPersisters = seedPersisters;
+        this.executor = executor;
+    }
+
+    /**
+     * Retrieves the seeded {@link Team}s using the {@link SeedRetriever} and persists them
+     *
+     * @param seedRetriever The {@link SeedRetriever} to retrieve the seeds from
+     * @return the {@link PartitionResult} of each league and division, largest first
+     * @throws InterruptedException if interrupted while waiting for the partitions to be persisted
+     */
+    public List<PartitionResult> execute(SeedRetriever seedRetriever) throws InterruptedException {
+        return persistSeededTeams(seedRetriever.getSeeds());
+    }
+
+    /**
+     * Adds any new clubs, then partitions the seeded {@link Team}s by league and division and
+     * persists each partition
+     *
+     * @param teams The seeded {@link Team}s for any number of leagues and divisions
+     * @return the {@link PartitionResult} of each league and division, largest first
+     * @throws InterruptedException if interrupted while waiting for the partitions to be persisted
+     */
+    public List<PartitionResult> persistSeededTeams(List<Team> teams) throws InterruptedException {
+        // A club can have teams in several partitions so new clubs are added before fanning out
+        new SeedRetrieverPersisterManager(() -> teams, seedPersisters.get()).addNewClubs(teams);
+
+        List<List<Team>> partitions = partition(teams);
+
+        // Start the largest partitions first so they are not left until last
+        Collections.sort(partitions, (one, two) -> two.size() - one.size());
+
+        return Tasks.run(executor, partitions.size(), i -> persistPartition(partitions.get(i)));
+    }
+
+    /**
+     * @param teams The seeded {@link Team}s for any number of leagues and divisions
+     * @return the {@link Team}s for each league and division, in the order each is first seen
+     */
+    static List<List<Team>> partition(List<Team> teams) {
+        Map<String, List<Team>> partitions = new LinkedHashMap<>();
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            Team team = teams.get(i);
+            partitions.computeIfAbsent(team.getLeague() + '\u0000' + team.getDivision(), k -> new ArrayList<>())
+                    .add(team);
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    private PartitionResult persistPartition(List<Team> partition) {
+        String league = partition.get(0).getLeague();
+        String division = partition.get(0).getDivision();
+
+        long start = System.nanoTime();
+        List<Team> failedTeams;
+        String failure = null;
+        try {
+            SeedRetrieverPersisterManager manager = new SeedRetrieverPersisterManager(
+                    () -> partition, seedPersisters.get());
+            manager.execute();
+            failedTeams = manager.getFailedTeams();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to persist {} {} seeds", league, division, e);
+            failedTeams = Collections.emptyList();
+            failure = String.valueOf(e.getMessage());
+        }
+
+        PartitionResult result = new PartitionResult(league, division, partition.size(), failedTeams, failure,
+                System.nanoTime() - start);
+        LOGGER.info("{} {}: {} seeded teams persisted in {} ms ({} teams/s)", league, division, partition.size(),
+                TimeUnit.NANOSECONDS.toMillis(result.getTime()), (long) result.getTeamsPerSecond());
+        return result;
+    }
+
+    /**
+     * The outcome of persisting the seeded {@link Team}s of a single league and division
+     */
+    public static class PartitionResult {
+        private final String league;
+        private final String division;
+        private final int teams;
+        private final List<Team> failedTeams;
+        private final String failure;
+        private final long time;
+
+        private PartitionResult(String league, String division, int teams, List<Team> failedTeams,
+                                String failure, long time) {
+            this.league = league;
+            this.division = division;
+            this.teams = teams;
+            this.failedTeams = failedTeams;
+            this.failure = failure;
+            this.time = time;
+        }
+
+        /**
+         * @return the league of the partition
+         */
+        public String getLeague() {
+            return league;
+        }
+
+        /**
+         * @return the division of the partition
+         */
+        public String getDivision() {
+            return division;
+        }
+
+        /**
+         * @return the number of seeded {@link Team}s in the partition
+         */
+        public int getTeams() {
+            return teams;
+        }
+
+        /**
+         * @return the {@link Team}s which could not be persisted, empty if all were successful
+         */
+        public List<Team> getFailedTeams() {
+            return failedTeams;
+        }
+
+        /**
+         * @return the reason the partition could not be persisted, null if it was
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return true if the partition and all of its {@link Team}s were persisted
+         */
+        public boolean isSuccessful() {
+            return failure == null && failedTeams.isEmpty();
+        }
+
+        /**
+         * @return the time taken in nanoseconds to persist the partition
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return the number of {@link Team}s persisted per second
+         */
+        public double getTeamsPerSecond() {
+            return time > 0 ? teams * (double) TimeUnit.SECONDS.toNanos(1) / time : 0;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.seeding.impl;
+
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.seeding.SeedPersister;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Implementation of {@link SeedPersister} which persists {@link Team}s and {@link Club}s through
+ * the DAOs of a single {@link DaoSession}, opened by {@link #init()} and closed by
+ * {@link #uninit()}, so a transaction covers all of them.
+ * </p>
+ * <p>
+ * Existing teams are looked up by name, reading the teams of each league and division once for
+ * the whole batch, and teams are written with {@link org.kingsski.wax.data.dao.TeamDao#updateTeams(List, boolean)}.
+ * </p>
+ */
+public class SeedPersisterDao implements SeedPersister {
+    private final DaoFactory daoFactory;
+    private DaoSession session;
+
+    /**
+     * @param daoFactory The {@link DaoFactory} providing the session used for persistence
+     */
+    public SeedPersisterDao(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Override
+    public void init() {
+        if (session == null) {
+            session = daoFactory.newDaoSessionInstance();
+        }
+    }
+
+    @Override
+    public void uninit() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+
+    @Override
+    public void resetTeams(String league, String division) {
+        session().getTeamDao().resetTeams(league, division);
+    }
+
+    @Override
+    public boolean addOrUpdateTeam(Team team) {
+        return session().getTeamDao().updateTeam(team, true) != null;
+    }
+
+    @Override
+    public List<Team> addOrUpdateTeams(List<Team> teams) {
+        return session().getTeamDao().updateTeams(teams, true);
+    }
+
+    @Override
+    public boolean addClub(Club club) {
+        return session().getClubDao().addClub(club) != null;
+    }
+
+    @Override
+    public Team getExistingTeamDetails(Team team) {
+        return session().getTeamDao().getTeam(team);
+    }
+
+    @Override
+    public List<Team> getExistingTeamDetails(List<Team> teams) {
+        // The existing teams of each league and division by team name
+        Map<String, Map<String, Team>> teamsByDivision = new HashMap<>();
+
+        List<Team> existing = new ArrayList<>(teams.size());
+        for (int i = 0, n = teams.size(); i < n; i++) {
+            Team team = teams.get(i);
+            Map<String, Team> divisionTeams = teamsByDivision.get(team.getLeague() + ':' + team.getDivision());
+            if (divisionTeams == null) {
+                divisionTeams = new HashMap<>();
+                List<Team> found = session().getTeamDao().getTeams(null, team.getDivision(), team.getLeague());
+                for (int j = 0, m = found.size(); j < m; j++) {
+                    divisionTeams.put(found.get(j).getTeamName(), found.get(j));
+                }
+                teamsByDivision.put(team.getLeague() + ':' + team.getDivision(), divisionTeams);
+            }
+            existing.add(divisionTeams.get(team.getTeamName()));
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Club> getClubs() {
+        return session().getClubDao().getClubs(null);
+    }
+
+    @Override
+    public void beginTransaction() {
+        session().beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        session().setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        session().endTransaction();
+    }
+
+    private DaoSession session() {
+        if (session == null) {
+            throw new IllegalStateException("The seed persister has not been initialised");
+        }
+        return session;
+    }
+}
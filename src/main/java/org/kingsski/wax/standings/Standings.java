@@ -0,0 +1,260 @@
+// Kings Ski Club 2017
+
+package org.kingsski.wax.standings;
+
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.kingsski.wax.configure.races.group.RaceGroup.MarkBoothException;
+import org.kingsski.wax.configure.races.group.RaceGroup.RacesUnfinishedException;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceUpdateListener;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryNotifying;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Live standings for each group of a set, kept up to date as results are entered.
+ * </p>
+ * <p>
+ * The races and teams for a division are loaded into {@link RaceGroup}s the first time the
+ * standings for the division are requested. After that each result passed to
+ * {@link #raceUpdated(Race)} is applied to the loaded race and only the standings of the group
+ * containing that race are recalculated, the next time they are requested. Standings for all
+ * other groups are served from the cache.
+ * </p>
+ * <p>
+ * To receive results this must be registered with the {@link DaoFactoryNotifying} through which
+ * races are updated:
+ * <pre>
+ * DaoFactoryNotifying daoFactory = new DaoFactoryNotifying(databaseDaoFactory);
+ * Standings standings = new Standings(daoFactory);
+ * daoFactory.addRaceUpdateListener(standings);
+ * </pre>
+ * When races are added to or deleted from a set the loaded races for that set are discarded and
+ * reloaded on the next request.
+ * </p>
+ */
+public class Standings implements RaceUpdateListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Standings.class);
+
+    private final DaoFactory daoFactory;
+    private final ConcurrentMap<Long, RoundStandings> rounds = new ConcurrentHashMap<>();
+
+    /**
+     * @param daoFactory the {@link DaoFactory} used to load races and teams
+     */
+    public Standings(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    /**
+     * Returns the {@link RaceGroup}s for a division, loading them if necessary. The groups and
+     * their races are shared and must not be modified; use {@link #getStandings(RaceGroup)} to
+     * retrieve the order of the teams in each group.
+     *
+     * @param controlId the control ID the races were run under
+     * @param division  the division the races were run under
+     * @param roundNo   the round number the races were run under
+     * @return the {@link RaceGroup}s for the division
+     */
+    public List<RaceGroup> getRaceGroups(int controlId, String division, int roundNo) {
+        RoundStandings round = round(controlId, roundNo);
+        synchronized (round) {
+            return round.division(division).raceGroups;
+        }
+    }
+
+    /**
+     * @param controlId the control ID the races were run under
+     * @param division  the division the races were run under
+     * @param roundNo   the round number the races were run under
+     * @param group     the group the races were run under
+     * @return the {@link Team}s in the group ordered by performance with best first, or an empty
+     * list if there are no races for the group
+     * @throws RacesUnfinishedException when races for the group have not been completed
+     * @throws MarkBoothException       when teams in the group are drawn and cannot be separated
+     */
+    public List<Team> getStandings(int controlId, String division, int roundNo, String group)
+            throws RacesUnfinishedException, MarkBoothException {
+        RoundStandings round = round(controlId, roundNo);
+        synchronized (round) {
+            DivisionStandings standings = round.division(division);
+            for (int i = 0, n = standings.raceGroups.size(); i < n; i++) {
+                if (group.equalsIgnoreCase(standings.raceGroups.get(i).getRaces().get(0).getGroup())) {
+                    return standings.getStandings(i);
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the order of the {@link Team}s in a {@link RaceGroup}. If the group was provided
+     * by {@link #getRaceGroups(int, String, int)} the cached order is returned when the results
+     * for the group have not changed, otherwise the order is calculated.
+     *
+     * @param raceGroup the {@link RaceGroup}
+     * @return the {@link Team}s in the group ordered by performance with best first
+     * @throws RacesUnfinishedException when races for the group have not been completed
+     * @throws MarkBoothException       when teams in the group are drawn and cannot be separated
+     */
+    public List<Team> getStandings(RaceGroup raceGroup) throws RacesUnfinishedException, MarkBoothException {
+        RoundStandings round = rounds.get(roundKey(raceGroup.getControlId(), raceGroup.getRoundNo()));
+        if (round != null && raceGroup.getRaces() != null && !raceGroup.getRaces().isEmpty()) {
+            synchronized (round) {
+                DivisionStandings standings = round.divisions.get(raceGroup.getRaces().get(0).getDivision());
+                if (standings != null) {
+                    for (int i = 0, n = standings.raceGroups.size(); i < n; i++) {
+                        if (standings.raceGroups.get(i) == raceGroup) {
+                            return standings.getStandings(i);
+                        }
+                    }
+                }
+            }
+        }
+
+        return raceGroup.getSetOneTeamOrder();
+    }
+
+    @Override
+    public void raceUpdated(Race race) {
+        RoundStandings round = rounds.get(roundKey(race.getControlId(), race.getRoundNo()));
+        if (round == null) {
+            // Nothing loaded for this round, it will be read from the DAO when requested
+            return;
+        }
+
+        synchronized (round) {
+            for (DivisionStandings standings : round.divisions.values()) {
+                if (standings.update(race)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void racesChanged(int controlId, int roundNo) {
+        rounds.remove(roundKey(controlId, roundNo));
+    }
+
+    /**
+     * Discards everything which has been loaded
+     */
+    public void clear() {
+        rounds.clear();
+    }
+
+    private RoundStandings round(int controlId, int roundNo) {
+        return rounds.computeIfAbsent(roundKey(controlId, roundNo), k -> new RoundStandings(controlId, roundNo));
+    }
+
+    private static Long roundKey(int controlId, int roundNo) {
+        return ((long) controlId << 32) | (roundNo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The loaded divisions for a single control ID and round number. Access must synchronize on
+     * the instance.
+     */
+    private final class RoundStandings {
+        private final int controlId;
+        private final int roundNo;
+        private final Map<String, DivisionStandings> divisions = new HashMap<>(4);
+
+        private RoundStandings(int controlId, int roundNo) {
+            this.controlId = controlId;
+            this.roundNo = roundNo;
+        }
+
+        private DivisionStandings division(String division) {
+            DivisionStandings standings = divisions.get(division);
+            if (standings == null) {
+                standings = load(division);
+                divisions.put(division, standings);
+            }
+            return standings;
+        }
+
+        private DivisionStandings load(String division) {
+            LOGGER.debug("Loading {} races for control {} round {}", division, controlId, roundNo);
+
+            RaceDao raceDao = daoFactory.newRaceDaoInstance();
+            TeamDao teamDao = daoFactory.newTeamDaoInstance();
+            raceDao.open();
+            teamDao.open();
+            try {
+                List<Race> races = raceDao.getRaces(controlId, division, roundNo);
+                List<Team> teams = teamDao.getTeamsByDivision(division);
+                return new DivisionStandings(RaceGroup.racesToList(races, teams));
+            } finally {
+                teamDao.close();
+                raceDao.close();
+            }
+        }
+    }
+
+    /**
+     * The {@link RaceGroup}s for a division with the cached order of each group
+     */
+    private static final class DivisionStandings {
+        private final List<RaceGroup> raceGroups;
+        private final List<List<Team>> orders;
+        private final Map<Integer, Race> racesByNo = new HashMap<>();
+        private final Map<Integer, Integer> groupByRaceNo = new HashMap<>();
+
+        private DivisionStandings(List<RaceGroup> raceGroups) {
+            this.raceGroups = Collections.unmodifiableList(raceGroups);
+            this.orders = new ArrayList<>(Collections.nCopies(raceGroups.size(), (List<Team>) null));
+
+            for (int i = 0, n = raceGroups.size(); i < n; i++) {
+                List<Race> races = raceGroups.get(i).getRaces();
+                for (int j = 0, m = races.size(); j < m; j++) {
+                    racesByNo.put(races.get(j).getRaceNo(), races.get(j));
+                    groupByRaceNo.put(races.get(j).getRaceNo(), i);
+                }
+            }
+        }
+
+        private List<Team> getStandings(int group) throws RacesUnfinishedException, MarkBoothException {
+            List<Team> order = orders.get(group);
+            if (order == null) {
+                order = Collections.unmodifiableList(raceGroups.get(group).getSetOneTeamOrder());
+                orders.set(group, order);
+            }
+            return order;
+        }
+
+        /**
+         * @param race the updated {@link Race}
+         * @return true if the race was in this division and has been applied, false otherwise
+         */
+        private boolean update(Race race) {
+            Race loaded = racesByNo.get(race.getRaceNo());
+            if (loaded == null) {
+                return false;
+            }
+
+            loaded.setTeamWin(race.getTeamWin());
+            loaded.setTeamOneDsq(race.getTeamOneDsq());
+            loaded.setTeamTwoDsq(race.getTeamTwoDsq());
+            loaded.setNext(race.isNext());
+
+            // Only the group containing the race needs to be recalculated
+            orders.set(groupByRaceNo.get(race.getRaceNo()), null);
+            return true;
+        }
+    }
+}
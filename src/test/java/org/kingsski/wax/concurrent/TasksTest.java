@@ -0,0 +1,65 @@
+package org.kingsski.wax.concurrent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TasksTest {
+
+    @Test
+    public void testResultsInOrder() throws Exception {
+        assertEquals(Arrays.asList(0, 1, 4, 9), Tasks.run(null, 4, i -> i * i));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(Arrays.asList(0, 1, 4, 9, 16, 25), Tasks.run(executor, 6, i -> i * i));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailuresRethrownOnceAllFinished() throws Exception {
+        AtomicInteger finished = new AtomicInteger();
+        IllegalArgumentException first = new IllegalArgumentException("first");
+        try {
+            Tasks.run(null, 4, i -> {
+                finished.incrementAndGet();
+                if (i == 1) {
+                    throw first;
+                } else if (i == 2) {
+                    throw new LinkageError("second");
+                }
+                return i;
+            });
+            fail("Expected the failure to be rethrown");
+        } catch (IllegalArgumentException e) {
+            assertSame(first, e);
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("second", e.getSuppressed()[0].getMessage());
+        }
+        assertEquals(4, finished.get());
+    }
+
+    @Test
+    public void testErrorsWrapped() throws Exception {
+        try {
+            Tasks.run(null, 2, i -> {
+                if (i == 1) {
+                    throw new LinkageError("error");
+                }
+                return i;
+            });
+            fail("Expected the error to be wrapped");
+        } catch (IllegalStateException e) {
+            assertEquals(LinkageError.class, e.getCause().getClass());
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package org.kingsski.wax.configure.races;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.RaceOrganiserDao;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryInMemory;
+import org.kingsski.wax.data.dao.impl.DaoFactoryMetered;
+import org.kingsski.wax.data.dao.impl.DaoFactoryPooled;
+import org.kingsski.wax.data.dao.impl.DaoSessionShared;
+import org.kingsski.wax.export.RaceListWriter;
+import org.kingsski.wax.export.StreamingRaceListWriter;
+import org.kingsski.wax.metrics.MetricsRegistry;
+import org.kingsski.wax.metrics.MetricsSnapshot;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RaceConfigurerTest {
+    private static final int CLUBS = 8;
+
+    private DaoFactoryInMemory daoFactory;
+    private RaceControl control;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryInMemory();
+
+        // 12 mixed teams, 8 ladies teams and 8 board teams
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        for (int i = 1; i <= CLUBS; i++) {
+            Club club = new Club();
+            club.setClubName("Club " + i);
+            club.setLeague(League.NORTHERN);
+            club.setMixedTeams(i <= 4 ? 2 : 1);
+            club.setLadiesTeams(1);
+            club.setBoardTeams(1);
+            clubDao.addClub(club);
+        }
+
+        // An unrelated league which must not be written out
+        Club club = new Club();
+        club.setClubName("Southern Club");
+        club.setLeague(League.SOUTHERN);
+        club.setMixedTeams(1);
+        clubDao.addClub(club);
+        daoFactory.newTeamDaoInstance().getCompetingTeams(Division.MIXED, Collections.singletonList(club), League.SOUTHERN);
+
+        control = daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.NORTHERN);
+    }
+
+    @Test
+    public void testStreamingWriter() {
+        RecordingWriter writer = new RecordingWriter();
+
+        RaceConfigurer.generateRaces(daoFactory, writer, control, 1, false);
+
+        List<Race> stored = daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 1);
+        assertTrue(writer.closed);
+        assertFalse(stored.isEmpty());
+        assertEquals(stored.size(), writer.races.size());
+        for (int i = 0, n = writer.races.size(); i < n; i++) {
+            Race race = writer.races.get(i);
+            assertEquals(i + 1, race.getRaceNo());
+            assertNotNull(writer.teamNames.apply(race.getTeamOne()));
+            assertNotNull(writer.teamNames.apply(race.getTeamTwo()));
+        }
+    }
+
+    @Test
+    public void testConcurrentDivisions() throws Exception {
+        ListWriter sequentialWriter = new ListWriter();
+        new RaceConfigurerSetOne(daoFactory, sequentialWriter, control).execute();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ListWriter concurrentWriter = new ListWriter();
+            RaceConfigurerSetOne configurer = new RaceConfigurerSetOne(daoFactory, concurrentWriter, control, executor);
+
+            assertTrue(configurer.execute());
+            assertEquals(Arrays.asList(Division.ALL_DIVISIONS), new ArrayList<>(configurer.getDivisionTimings().keySet()));
+
+            // The races must be generated in the same order as when run sequentially
+            assertEquals(sequentialWriter.races.size(), concurrentWriter.races.size());
+            for (int i = 0, n = sequentialWriter.races.size(); i < n; i++) {
+                Race expected = sequentialWriter.races.get(i);
+                Race actual = concurrentWriter.races.get(i);
+                assertEquals(expected.getDivision(), actual.getDivision());
+                assertEquals(expected.getGroup(), actual.getGroup());
+                assertEquals(expected.getTeamOne(), actual.getTeamOne());
+                assertEquals(expected.getTeamTwo(), actual.getTeamTwo());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPooledSessions() {
+        // One session for the run and one for each division generated concurrently
+        DaoFactoryPooled pooled = new DaoFactoryPooled(daoFactory, Division.ALL_DIVISIONS.length + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertTrue(new RaceConfigurerSetOne(pooled, new ListWriter(), control, executor).execute());
+            completeRaces(1);
+            assertTrue(new RaceConfigurerSetTwo(pooled, new ListWriter(), control, 2, false, null, executor).execute());
+
+            assertFalse(daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 2).isEmpty());
+            assertTrue(pooled.getIdleSessions() <= pooled.getMaxSessions());
+        } finally {
+            executor.shutdown();
+            pooled.close();
+        }
+    }
+
+    /**
+     * The first set reads and writes in a single session however many divisions are generated
+     * concurrently, so it needs no more than one session
+     */
+    @Test
+    public void testSingleSessionPool() {
+        DaoFactoryPooled pooled = new DaoFactoryPooled(daoFactory, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertTrue(new RaceConfigurerSetOne(pooled, new ListWriter(), control, executor).execute());
+            assertFalse(daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 1).isEmpty());
+            assertEquals(1, pooled.getIdleSessions());
+        } finally {
+            executor.shutdown();
+            pooled.close();
+        }
+    }
+
+    @Test
+    public void testWriterOnlyGivenCompetingTeams() {
+        ListWriter writer = new ListWriter();
+
+        RaceConfigurer.generateRaces(daoFactory, writer, control, 1, false);
+
+        assertEquals(28, writer.teams.size());
+        for (Team team : writer.teams) {
+            assertEquals(League.NORTHERN, team.getLeague());
+        }
+    }
+
+    @Test
+    public void testSetTwo() {
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 1, false);
+        completeRaces(1);
+
+        RecordingWriter writer = new RecordingWriter();
+        RaceConfigurer.generateRaces(daoFactory, writer, control, 2, false);
+
+        List<Race> stored = daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 2);
+        assertFalse(stored.isEmpty());
+        assertEquals(stored.size(), writer.races.size());
+    }
+
+    /**
+     * Each phase of generation is timed and the teams and races are counted, along with the calls
+     * made to the DAOs
+     */
+    @Test
+    public void testMetrics() {
+        MetricsRegistry previous = MetricsRegistry.getDefault();
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricsRegistry.setDefault(metrics);
+        try {
+            DaoFactoryMetered metered = new DaoFactoryMetered(daoFactory);
+            RaceConfigurer.generateRaces(metered, new ListWriter(), control, 1, false);
+            completeRaces(1);
+            RaceConfigurer.generateRaces(metered, new ListWriter(), control, 2, false);
+        } finally {
+            MetricsRegistry.setDefault(previous);
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        assertEquals(28, snapshot.getCount("configure.set1.teams"));
+        assertEquals(raceDao.getRaces(control.getControlId(), null, 1).size(),
+                snapshot.getCount("configure.set1.races"));
+        assertEquals(28, snapshot.getCount("configure.set2.teams"));
+        assertEquals(raceDao.getRaces(control.getControlId(), null, 2).size(),
+                snapshot.getCount("configure.set2.races"));
+
+        for (String phase : new String[]{"loadClubs", "loadTeams", "buildGroups", "interleave", "persist", "export"}) {
+            assertTrue(phase, snapshot.getTimers().containsKey("configure.set1." + phase));
+        }
+        assertEquals(1, snapshot.getTimers().get("configure.set1.execute").getCount());
+        assertEquals(Division.ALL_DIVISIONS.length, snapshot.getTimers().get("configure.set2.loadResults").getCount());
+        assertEquals(Division.ALL_DIVISIONS.length, snapshot.getHistograms().get("configure.set1.divisionTeams").getCount());
+        assertEquals(2, snapshot.getTimers().get("dao.raceDao.addRaces").getCount());
+        assertTrue(snapshot.getTimers().containsKey("dao.session.endTransaction"));
+    }
+
+    @Test
+    public void testSetTwoConcurrentDivisions() {
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 1, false);
+        completeRaces(1);
+
+        ExecutorService executor = RaceConfigurer.newDivisionExecutor();
+        try {
+            RaceConfigurerSetTwo configurer = new RaceConfigurerSetTwo(daoFactory, new ListWriter(), control, 2,
+                    false, null, executor);
+
+            assertTrue(configurer.execute());
+            assertTrue(configurer.getFailures().isEmpty());
+            assertEquals(Arrays.asList(Division.ALL_DIVISIONS), new ArrayList<>(configurer.getDivisionTimings().keySet()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSetTwoFailuresAggregated() {
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 1, false);
+
+        // Leave the ladies and board races unfinished
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        for (Race race : raceDao.getRaces(control.getControlId(), Division.MIXED, 1)) {
+            race.setTeamWin(1);
+            raceDao.updateRace(race);
+        }
+
+        ExecutorService executor = RaceConfigurer.newDivisionExecutor();
+        try {
+            RaceConfigurerSetTwo configurer = new RaceConfigurerSetTwo(daoFactory, new ListWriter(), control, 2,
+                    false, null, executor);
+
+            assertFalse(configurer.execute());
+            assertEquals(2, configurer.getFailures().size());
+            assertTrue(configurer.getFailures().get(0).contains(Division.LADIES));
+            assertTrue(configurer.getFailures().get(1).contains(Division.BOARD));
+            assertTrue(daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 2).isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeDivision() {
+        // Take the mixed division to 42 teams, beyond the hand written configurations
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        for (int i = CLUBS + 1; i <= CLUBS + 15; i++) {
+            Club club = new Club();
+            club.setClubName("Club " + i);
+            club.setLeague(League.NORTHERN);
+            club.setMixedTeams(2);
+            clubDao.addClub(club);
+        }
+
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 1, false);
+        completeRaces(1);
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 2, false);
+        completeRaces(2);
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 3, true);
+
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        for (int roundNo = 1; roundNo <= 2; roundNo++) {
+            List<Race> races = raceDao.getRaces(control.getControlId(), Division.MIXED, roundNo);
+            Set<Integer> teamIds = new HashSet<>();
+            Set<String> groups = new HashSet<>();
+            for (Race race : races) {
+                teamIds.add(race.getTeamOne());
+                teamIds.add(race.getTeamTwo());
+                groups.add(race.getGroup());
+            }
+            // 42 teams split into 9 groups of four and 2 of three
+            assertEquals(42, teamIds.size());
+            assertEquals(11, groups.size());
+        }
+        // Groups I to X pair off by position, XI has no neighbour
+        assertEquals(19, raceDao.getRaces(control.getControlId(), Division.MIXED, 3).size());
+    }
+
+    /**
+     * Hundreds of teams need groups named beyond XII in the later sets, each of which must still be
+     * kept together when the races are read back
+     */
+    @Test
+    public void testHundredTeamDivision() throws Exception {
+        // Take the mixed division from 12 to 100 teams
+        assertLargeDivision(44, 0);
+    }
+
+    @Test
+    public void testFourHundredTeamDivision() throws Exception {
+        // Take the mixed division from 12 to 401 teams, the second set then has groups such as
+        // C and D which are roman numerals rather than letters
+        assertLargeDivision(194, 1);
+    }
+
+    /**
+     * Adds clubs to the mixed division and runs it through both sets and the knockouts, checking
+     * every team races in each set and the knockouts are filled from the second set
+     */
+    private void assertLargeDivision(int twoTeamClubs, int oneTeamClubs) throws Exception {
+        int numTeams = 12 + twoTeamClubs * 2 + oneTeamClubs;
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        for (int i = CLUBS + 1; i <= CLUBS + twoTeamClubs + oneTeamClubs; i++) {
+            Club club = new Club();
+            club.setClubName("Club " + i);
+            club.setLeague(League.NORTHERN);
+            club.setMixedTeams(i <= CLUBS + twoTeamClubs ? 2 : 1);
+            clubDao.addClub(club);
+        }
+
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 1, false);
+        completeRaces(1);
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 2, false);
+        completeRaces(2);
+        RaceConfigurer.generateRaces(daoFactory, new ListWriter(), control, 3, true);
+
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        for (int roundNo = 1; roundNo <= 2; roundNo++) {
+            Set<Integer> teamIds = new HashSet<>();
+            for (Race race : raceDao.getRaces(control.getControlId(), Division.MIXED, roundNo)) {
+                teamIds.add(race.getTeamOne());
+                teamIds.add(race.getTeamTwo());
+            }
+            assertEquals(numTeams, teamIds.size());
+        }
+
+        List<Race> knockouts = raceDao.getRaces(control.getControlId(), Division.MIXED, 3);
+        assertEquals(DivisionConfigurationRegistry.get(SetType.KNOCKOUT, numTeams).getGroupCount(), knockouts.size());
+        Set<Integer> knockoutTeamIds = new HashSet<>();
+        for (Race race : knockouts) {
+            assertTrue(knockoutTeamIds.add(race.getTeamOne()));
+            assertTrue(knockoutTeamIds.add(race.getTeamTwo()));
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        RaceControl southern = daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.SOUTHERN);
+        Map<RaceControl, ListWriter> writers = new ConcurrentHashMap<>();
+
+        ExecutorService executor = RaceConfigurer.newDivisionExecutor();
+        try {
+            List<RaceConfigurerBatch.Result> results = new RaceConfigurerBatch(daoFactory, executor)
+                    .generateRaces(Arrays.asList(control, southern),
+                            c -> writers.computeIfAbsent(c, k -> new ListWriter()), 1, false);
+
+            assertEquals(2, results.size());
+            assertEquals(control, results.get(0).getControl());
+            assertTrue(results.get(0).isSuccessful());
+            assertTrue(results.get(0).getFailures().isEmpty());
+            assertEquals(Arrays.asList(Division.ALL_DIVISIONS),
+                    new ArrayList<>(results.get(0).getDivisionTimings().keySet()));
+            assertEquals(28, writers.get(control).teams.size());
+
+            // A single southern team is too few to race so that control fails on its own
+            assertEquals(southern, results.get(1).getControl());
+            assertFalse(results.get(1).isSuccessful());
+            assertFalse(results.get(1).getFailures().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Race> stored = daoFactory.newRaceDaoInstance().getRaces(control.getControlId(), null, 1);
+        assertEquals(stored.size(), writers.get(control).races.size());
+    }
+
+    @Test
+    public void testBatchSetTwoLeagues() throws Exception {
+        // Enough southern teams in every division to race
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        for (int i = 1; i <= CLUBS; i++) {
+            Club club = new Club();
+            club.setClubName("Southern Club " + i);
+            club.setLeague(League.SOUTHERN);
+            club.setMixedTeams(1);
+            club.setLadiesTeams(1);
+            club.setBoardTeams(1);
+            clubDao.addClub(club);
+        }
+        RaceControl southern = daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.SOUTHERN);
+        List<RaceControl> controls = Arrays.asList(control, southern);
+        DaoFactory northernDatabase = currentLeague(daoFactory, League.NORTHERN);
+
+        ExecutorService executor = RaceConfigurer.newDivisionExecutor();
+        try {
+            RaceConfigurerBatch batch = new RaceConfigurerBatch(northernDatabase, executor);
+            for (RaceConfigurerBatch.Result result : batch.generateRaces(controls, c -> new ListWriter(), 1, false)) {
+                assertTrue(result.isSuccessful());
+            }
+            completeRaces(control.getControlId(), 1);
+            completeRaces(southern.getControlId(), 1);
+
+            List<RaceConfigurerBatch.Result> results = batch.generateRaces(controls, c -> new ListWriter(), 2, false);
+            assertEquals(2, results.size());
+            assertTrue(results.get(0).getFailures().toString(), results.get(0).isSuccessful());
+            assertTrue(results.get(1).getFailures().toString(), results.get(1).isSuccessful());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Every race of each control is between teams of its own league
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        for (RaceControl raceControl : controls) {
+            List<Race> races = daoFactory.newRaceDaoInstance().getRaces(raceControl.getControlId(), null, 2);
+            assertFalse(races.isEmpty());
+            for (Race race : races) {
+                assertEquals(raceControl.getLeague(), teamDao.getTeam(race.getTeamOne()).getLeague());
+                assertEquals(raceControl.getLeague(), teamDao.getTeam(race.getTeamTwo()).getLeague());
+            }
+        }
+    }
+
+    /**
+     * As a database does, the team DAOs of the returned factory read teams by division for the
+     * current league only
+     */
+    private static DaoFactory currentLeague(DaoFactory daoFactory, String league) {
+        return new DaoFactory() {
+            @Override
+            public RaceOrganiserDao newRaceOrganiserDaoInstance() {
+                return daoFactory.newRaceOrganiserDaoInstance();
+            }
+
+            @Override
+            public RaceDao newRaceDaoInstance() {
+                return daoFactory.newRaceDaoInstance();
+            }
+
+            @Override
+            public ClubDao newClubDaoInstance() {
+                return daoFactory.newClubDaoInstance();
+            }
+
+            @Override
+            public RaceControlDao newRaceControlDaoInstance() {
+                return daoFactory.newRaceControlDaoInstance();
+            }
+
+            @Override
+            public TeamDao newTeamDaoInstance() {
+                TeamDao teamDao = daoFactory.newTeamDaoInstance();
+                return (TeamDao) Proxy.newProxyInstance(TeamDao.class.getClassLoader(), new Class<?>[]{TeamDao.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("getTeamsByDivision")) {
+                                return teamDao.getTeams(null, (String) args[0], league);
+                            }
+                            try {
+                                return method.invoke(teamDao, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+
+            @Override
+            public DaoSession newDaoSessionInstance() {
+                return new DaoSessionShared(this);
+            }
+        };
+    }
+
+    /**
+     * Completes the races in a round, the team with the lowest ID always wins
+     */
+    private void completeRaces(int roundNo) {
+        completeRaces(control.getControlId(), roundNo);
+    }
+
+    private void completeRaces(int controlId, int roundNo) {
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        for (Race race : raceDao.getRaces(controlId, null, roundNo)) {
+            race.setTeamWin(race.getTeamOne() < race.getTeamTwo() ? 1 : 2);
+            raceDao.updateRace(race);
+        }
+    }
+
+    private static class RecordingWriter implements StreamingRaceListWriter {
+        private final List<Race> races = new ArrayList<>();
+        private IntFunction<String> teamNames;
+        private boolean closed;
+
+        @Override
+        public boolean open(IntFunction<String> teamNames) {
+            this.teamNames = teamNames;
+            return true;
+        }
+
+        @Override
+        public boolean append(Race race) {
+            races.add(race);
+            return true;
+        }
+
+        @Override
+        public boolean close() {
+            closed = true;
+            return true;
+        }
+    }
+
+    private static class ListWriter implements RaceListWriter {
+        private List<Race> races;
+        private List<Team> teams;
+
+        @Override
+        public boolean writeRaceList(List<Race> races, List<Team> teamsList) {
+            this.races = races;
+            this.teams = teamsList;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.kingsski.wax.configure.races;
+
+import org.junit.Test;
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TournamentSimulator}
+ */
+public class TournamentSimulatorTest {
+    private static final long ITERATIONS = 20000;
+
+    /**
+     * Every team finishes in exactly one position in every tournament, for every supported number
+     * of teams
+     */
+    @Test
+    public void testAllPositionsFilled() throws Exception {
+        TournamentSimulator simulator = new TournamentSimulator(WinProbability.even(), null);
+        for (int numTeams = 4; numTeams <= 40; numTeams++) {
+            FinishingPositions positions = simulator.simulate(teams(numTeams), 500, numTeams);
+            assertEquals(500, positions.getIterations());
+
+            for (int i = 0; i < numTeams; i++) {
+                long teamTotal = 0;
+                long positionTotal = 0;
+                for (int j = 0; j < numTeams; j++) {
+                    teamTotal += positions.getCount(i, j);
+                    positionTotal += positions.getCount(j, i);
+                }
+                assertEquals(numTeams + " teams", 500, teamTotal);
+                assertEquals(numTeams + " teams", 500, positionTotal);
+            }
+        }
+    }
+
+    /**
+     * When the better team always wins the tournament finishes in seeded order
+     */
+    @Test
+    public void testPredictable() throws Exception {
+        TournamentSimulator simulator = new TournamentSimulator(
+                (teamOne, teamTwo) -> teamOne.getScoreTotal() > teamTwo.getScoreTotal() ? 1 : 0, null);
+        FinishingPositions positions = simulator.simulate(teams(16), 1000, 1);
+
+        assertEquals(1.0, positions.getProbability(0, 0), 0);
+        assertEquals(1.0, positions.getProbability(1, 1), 0);
+        assertEquals(1.0, positions.getExpectedPosition(0), 0);
+    }
+
+    /**
+     * Higher seeds finish higher on average when the seeding matters, and the same seed gives the
+     * same result whatever the parallelism
+     */
+    @Test
+    public void testSeeding() throws InvalidNumberOfTeamsException {
+        List<Team> teams = teams(12);
+        FinishingPositions parallel = new TournamentSimulator(WinProbability.bySeeding(20), null)
+                .simulate(teams, ITERATIONS, 2017);
+        FinishingPositions single = new TournamentSimulator(WinProbability.bySeeding(20), new ForkJoinPool(1))
+                .simulate(teams, ITERATIONS, 2017);
+
+        assertEquals(ITERATIONS, parallel.getIterations());
+        assertTrue(parallel.getExpectedPosition(0) < parallel.getExpectedPosition(5));
+        assertTrue(parallel.getExpectedPosition(5) < parallel.getExpectedPosition(11));
+        for (int i = 0; i < teams.size(); i++) {
+            for (int j = 0; j < teams.size(); j++) {
+                assertEquals(single.getCount(i, j), parallel.getCount(i, j));
+            }
+        }
+    }
+
+    /**
+     * Teams are reported in seeded order whatever order they are given in
+     */
+    @Test
+    public void testSeededOrder() throws Exception {
+        List<Team> teams = teams(8);
+        List<Team> reversed = new ArrayList<>(teams);
+        java.util.Collections.reverse(reversed);
+
+        FinishingPositions positions = new TournamentSimulator(WinProbability.even(), null)
+                .simulate(reversed, 100, 1);
+        for (int i = 0; i < teams.size(); i++) {
+            assertEquals(teams.get(i).getTeamName(), positions.getTeams().get(i).getTeamName());
+        }
+    }
+
+    @Test(expected = InvalidNumberOfTeamsException.class)
+    public void testTooFewTeams() throws Exception {
+        new TournamentSimulator(WinProbability.even(), null).simulate(teams(3), 100, 1);
+    }
+
+    /**
+     * @return teams seeded in order of their names, team 1 being the highest seed
+     */
+    private static List<Team> teams(int numTeams) {
+        List<Team> teams = new ArrayList<>(numTeams);
+        for (int i = 1; i <= numTeams; i++) {
+            Team team = new Team();
+            team.setTeamId(100 + i);
+            team.setLeague(League.NORTHERN);
+            team.setDivision(Division.MIXED);
+            team.setClubName("Club " + i);
+            team.setTeamName("Club " + i);
+            team.setScoreR1(10 * (numTeams - i + 1));
+            teams.add(team);
+        }
+        return teams;
+    }
+}
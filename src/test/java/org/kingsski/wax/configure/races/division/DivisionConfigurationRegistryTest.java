@@ -0,0 +1,100 @@
+package org.kingsski.wax.configure.races.division;
+
+import org.junit.Test;
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationKnockout;
+import org.kingsski.wax.configure.races.division.impl.DivisionConfigurationSetTwo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DivisionConfigurationRegistryTest {
+
+    @Test
+    public void testConfigurationsCached() throws Exception {
+        for (SetType setType : SetType.values()) {
+            for (int numTeams = DivisionConfigurationRegistry.MIN_TEAMS; numTeams <= DivisionConfigurationRegistry.MAX_TEAMS; numTeams++) {
+                assertSame(DivisionConfigurationRegistry.get(setType, numTeams), DivisionConfigurationRegistry.get(setType, numTeams));
+            }
+        }
+    }
+
+    @Test
+    public void testSetOneHasNoMapping() throws Exception {
+        CompiledDivisionConfiguration config = DivisionConfigurationRegistry.get(SetType.SET_ONE, 24);
+
+        assertFalse(config.hasTransformationMapping());
+        assertNull(config.getTransformationMapping());
+        assertArrayEquals(new String[]{"A", "E", "B", "F", "C", "G", "D", "H"}, config.getGroupNames());
+    }
+
+    @Test
+    public void testMappingsCompiled() throws Exception {
+        for (int numTeams = DivisionConfigurationRegistry.MIN_TEAMS; numTeams <= DivisionConfigurationRegistry.MAX_TEAMS; numTeams++) {
+            assertCompiled(new DivisionConfigurationSetTwo(numTeams), DivisionConfigurationRegistry.get(SetType.SET_TWO, numTeams));
+            assertCompiled(new DivisionConfigurationKnockout(numTeams), DivisionConfigurationRegistry.get(SetType.KNOCKOUT, numTeams));
+        }
+    }
+
+    @Test
+    public void testCompiledPairs() throws Exception {
+        CompiledDivisionConfiguration setTwo = DivisionConfigurationRegistry.get(SetType.SET_TWO, 15);
+        // {"4A", "4B", "3C", "4C"}
+        assertEquals(1, setTwo.getSourceGroup(3, 1));
+        assertEquals(3, setTwo.getSourcePosition(3, 1));
+        assertEquals(2, setTwo.getSourceGroup(3, 2));
+        assertEquals(2, setTwo.getSourcePosition(3, 2));
+
+        CompiledDivisionConfiguration knockout = DivisionConfigurationRegistry.get(SetType.KNOCKOUT, 16);
+        // {"13", "23"}
+        assertEquals(2, knockout.getSourceGroup(4, 0));
+        assertEquals(0, knockout.getSourcePosition(4, 0));
+        assertEquals(1, knockout.getSourcePosition(4, 1));
+    }
+
+    @Test(expected = InvalidNumberOfTeamsException.class)
+    public void testTooFewTeams() throws Exception {
+        DivisionConfigurationRegistry.get(SetType.SET_ONE, 3);
+    }
+
+    @Test
+    public void testGenericAboveMaxTeams() throws Exception {
+        CompiledDivisionConfiguration config = DivisionConfigurationRegistry.get(SetType.KNOCKOUT, 33);
+
+        assertSame(config, DivisionConfigurationRegistry.get(SetType.KNOCKOUT, 33));
+        assertEquals(33, config.getNumTeams());
+    }
+
+    @Test
+    public void testGroupIndexOf() {
+        assertEquals(0, Group.indexOf("A"));
+        assertEquals(7, Group.indexOf("h"));
+        assertEquals(0, Group.indexOf("I"));
+        assertEquals(3, Group.indexOf("IV"));
+        assertEquals(7, Group.indexOf("VIII"));
+        assertEquals(0, Group.indexOf("1"));
+        assertEquals(11, Group.indexOf("12"));
+        assertEquals(4, Group.indexOfQualified("Mixed E"));
+        assertEquals(-1, Group.indexOf("1st/2nd"));
+        assertEquals(-1, Group.indexOf(""));
+    }
+
+    private static void assertCompiled(DivisionConfiguration expected, CompiledDivisionConfiguration actual) {
+        assertArrayEquals(expected.getGroupNames(), actual.getGroupNames());
+        assertArrayEquals(expected.getGroupGrid(), actual.getGroupGrid());
+
+        String[][] mapping = expected.getTransformationMapping();
+        assertEquals(mapping.length, actual.getGroupCount());
+        for (int i = 0; i < mapping.length; i++) {
+            assertEquals(mapping[i].length, actual.getMappedTeamCount(i));
+            for (int j = 0; j < mapping[i].length; j++) {
+                assertEquals(mapping[i][j].charAt(0) - '1', actual.getSourcePosition(i, j));
+                assertEquals(Group.indexOfMappedGroup(mapping[i][j].substring(1)), actual.getSourceGroup(i, j));
+            }
+        }
+    }
+}
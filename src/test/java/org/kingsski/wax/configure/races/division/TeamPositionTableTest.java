@@ -0,0 +1,67 @@
+package org.kingsski.wax.configure.races.division;
+
+import org.junit.Test;
+import org.kingsski.wax.data.Team;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TeamPositionTableTest {
+
+    @Test
+    public void testPutAndGet() {
+        TeamPositionTable table = new TeamPositionTable(2, 2);
+        Team first = team(1);
+        Team second = team(2);
+        Team third = team(3);
+
+        table.put(0, 0, first);
+        table.put(1, 1, second);
+        // Outside of the initial size so the table grows
+        table.put(5, 3, third);
+
+        assertSame(first, table.get(0, 0));
+        assertSame(second, table.get(1, 1));
+        assertSame(third, table.get(5, 3));
+        assertNull(table.get(0, 1));
+        assertNull(table.get(6, 0));
+        assertNull(table.get(0, 4));
+        assertEquals(3, table.size());
+
+        table.put(1, 1, null);
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testOf() {
+        Map<String, Team> teamsMap = new HashMap<>();
+        teamsMap.put("1A", team(1));
+        teamsMap.put("3C", team(2));
+        teamsMap.put("21", team(3));
+
+        TeamPositionTable table = TeamPositionTable.of(teamsMap);
+
+        assertSame(teamsMap.get("1A"), table.get(0, 0));
+        assertSame(teamsMap.get("3C"), table.get(2, 2));
+        assertSame(teamsMap.get("21"), table.get(0, 1));
+        assertEquals(3, table.size());
+    }
+
+    @Test(expected = DivisionConfiguration.InvalidSetupException.class)
+    public void testOfUnrecognisedKey() {
+        Map<String, Team> teamsMap = new HashMap<>();
+        teamsMap.put("1-", team(1));
+
+        TeamPositionTable.of(teamsMap);
+    }
+
+    private static Team team(int teamId) {
+        Team team = new Team();
+        team.setTeamId(teamId);
+        return team;
+    }
+}
@@ -0,0 +1,75 @@
+package org.kingsski.wax.configure.races.division.impl;
+
+import org.junit.Test;
+import org.kingsski.wax.configure.races.division.DivisionConfiguration.InvalidNumberOfTeamsException;
+import org.kingsski.wax.configure.races.division.DivisionConfigurationRegistry.SetType;
+import org.kingsski.wax.configure.races.group.GroupConfiguration;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DivisionConfigurationGenericTest {
+
+    @Test
+    public void testSetOne() throws Exception {
+        DivisionConfigurationGeneric config = new DivisionConfigurationGeneric(SetType.SET_ONE, 33);
+
+        // 9 groups, 6 of four and 3 of three
+        assertEquals(9, config.getGroupNames().length);
+        assertEquals("A", config.getGroupNames()[0]);
+        assertEquals("I", config.getGroupNames()[8]);
+        assertEquals(GroupConfiguration.FOUR, config.getGroupGrid()[5]);
+        assertEquals(GroupConfiguration.THREE, config.getGroupGrid()[6]);
+        assertNull(config.getTransformationMapping());
+    }
+
+    @Test
+    public void testSetTwoSnakeSeeded() throws Exception {
+        DivisionConfigurationGeneric config = new DivisionConfigurationGeneric(SetType.SET_TWO, 33);
+        String[][] mapping = config.getTransformationMapping();
+
+        assertArrayEquals(new String[]{"1A", "1B", "1C", "1D"}, mapping[0]);
+        assertArrayEquals(new String[]{"1E", "1F", "1G", "1H"}, mapping[1]);
+        // Second place snakes back from the last group
+        assertArrayEquals(new String[]{"1I", "2I", "2H", "2G"}, mapping[2]);
+        assertEquals("IX", config.getGroupNames()[8]);
+    }
+
+    @Test
+    public void testSetTwoMapsEveryTeamOnce() throws Exception {
+        for (int numTeams = DivisionConfigurationGeneric.MIN_TEAMS; numTeams <= 400; numTeams++) {
+            DivisionConfigurationGeneric config = new DivisionConfigurationGeneric(SetType.SET_TWO, numTeams);
+
+            Set<String> mapped = new HashSet<>();
+            for (String[] group : config.getTransformationMapping()) {
+                assertTrue(group.length == 3 || group.length == 4);
+                for (String team : group) {
+                    assertTrue(team, mapped.add(team));
+                }
+            }
+            assertEquals(numTeams, mapped.size());
+        }
+    }
+
+    @Test
+    public void testKnockout() throws Exception {
+        DivisionConfigurationGeneric config = new DivisionConfigurationGeneric(SetType.KNOCKOUT, 40);
+
+        // 10 groups of four, each neighbouring pair has 4 knockouts
+        assertEquals(20, config.getGroupNames().length);
+        assertArrayEquals(new String[]{"11", "12"}, config.getTransformationMapping()[0]);
+        assertArrayEquals(new String[]{"43", "44"}, config.getTransformationMapping()[7]);
+        assertEquals("1st/2nd", config.getGroupNames()[0]);
+        assertEquals("21st/22nd", config.getGroupNames()[10]);
+    }
+
+    @Test(expected = InvalidNumberOfTeamsException.class)
+    public void testTooFewTeams() throws Exception {
+        new DivisionConfigurationGeneric(SetType.SET_ONE, 5);
+    }
+}
@@ -0,0 +1,178 @@
+package org.kingsski.wax.configure.races.group;
+
+import org.junit.Test;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.Team;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RaceGroupTest {
+
+    private static final String GROUP = "A";
+    private static final String DSQ = "DSQ";
+
+    @Test
+    public void testTeamWinsAndDsqs() {
+        List<Team> teams = teams(3);
+        RaceGroup group = group(teams,
+                race(1, 2, 1, DSQ, null),
+                race(2, 3, 2, null, DSQ),
+                race(3, 1, 1, null, null));
+
+        List<Team> result = group.getTeamWinsAndDsqs();
+
+        assertEquals(3, result.size());
+        assertWinsAndDsqs(result.get(0), 1, 1, 1);
+        assertWinsAndDsqs(result.get(1), 2, 0, 0);
+        assertWinsAndDsqs(result.get(2), 3, 2, 1);
+    }
+
+    @Test
+    public void testTeamWinsAndDsqsExcludesTeamsWithoutRaces() {
+        List<Team> teams = teams(3);
+        RaceGroup group = group(teams, race(1, 3, 2, null, null));
+
+        List<Team> result = group.getTeamWinsAndDsqs();
+
+        assertEquals(2, result.size());
+        assertWinsAndDsqs(result.get(0), 1, 0, 0);
+        assertWinsAndDsqs(result.get(1), 3, 1, 0);
+    }
+
+    @Test
+    public void testTeamWinsAndDsqsRecalculated() {
+        List<Team> teams = teams(2);
+        Race race = race(1, 2, 1, null, null);
+        RaceGroup group = group(teams, race);
+
+        group.getTeamWinsAndDsqs();
+        race.setTeamWin(2);
+        List<Team> result = group.getTeamWinsAndDsqs();
+
+        assertWinsAndDsqs(result.get(0), 1, 0, 0);
+        assertWinsAndDsqs(result.get(1), 2, 1, 0);
+    }
+
+    @Test
+    public void testSetOneTeamOrder() throws Exception {
+        List<Team> teams = teams(3);
+        RaceGroup group = group(teams,
+                race(1, 2, 2, null, null),
+                race(2, 3, 1, null, null),
+                race(3, 1, 1, null, null));
+
+        assertTeamOrder(group.getSetOneTeamOrder(), 2, 3, 1);
+    }
+
+    @Test
+    public void testSetOneTeamOrderThreeWayDraw() throws Exception {
+        // Each team wins once, the highest seed goes first then the winner of the other two
+        List<Team> teams = teams(3);
+        Collections.reverse(teams);
+        RaceGroup group = group(teams,
+                race(1, 3, 1, null, null),
+                race(3, 2, 1, null, null),
+                race(2, 1, 1, null, null));
+
+        assertTeamOrder(group.getSetOneTeamOrder(), 1, 3, 2);
+    }
+
+    @Test
+    public void testSetOneTeamOrderFourWayDraw() throws Exception {
+        // Teams 1-4 all win 3 but team 1 beat each of the others, leaving a 3 way draw
+        List<Team> teams = teams(6);
+        RaceGroup group = group(teams,
+                race(1, 2, 1, null, null),
+                race(1, 3, 1, null, null),
+                race(1, 4, 1, null, null),
+                race(2, 3, 1, null, null),
+                race(3, 4, 1, null, null),
+                race(4, 2, 1, null, null),
+                race(1, 5, 2, null, null),
+                race(1, 6, 2, null, null),
+                race(2, 5, 1, null, null),
+                race(2, 6, 1, null, null),
+                race(3, 5, 1, null, null),
+                race(3, 6, 1, null, null),
+                race(4, 5, 1, null, null),
+                race(4, 6, 1, null, null),
+                race(5, 6, 1, null, null));
+
+        assertTeamOrder(group.getSetOneTeamOrder(), 1, 2, 3, 4, 5, 6);
+    }
+
+    @Test(expected = RaceGroup.MarkBoothException.class)
+    public void testSetOneTeamOrderUnresolvableDraw() throws Exception {
+        // Each team beats the next two teams and loses to the previous two
+        List<Team> teams = teams(5);
+        List<Race> races = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            races.add(race(i + 1, (i + 1) % 5 + 1, 1, null, null));
+            races.add(race(i + 1, (i + 2) % 5 + 1, 1, null, null));
+        }
+        RaceGroup group = group(teams, races.toArray(new Race[0]));
+
+        group.getSetOneTeamOrder();
+    }
+
+    @Test(expected = RaceGroup.RacesUnfinishedException.class)
+    public void testSetOneTeamOrderUnfinished() throws Exception {
+        List<Team> teams = teams(2);
+        RaceGroup group = group(teams, race(1, 2, 0, null, null));
+
+        group.getSetOneTeamOrder();
+    }
+
+    static List<Team> teams(int count) {
+        List<Team> teams = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Team team = new Team();
+            team.setTeamId(i);
+            team.setTeamName("Team " + i);
+            team.setClubName("Club " + i);
+            team.setDivisionIndex(1);
+            // Lower IDs are seeded higher
+            team.setScoreR1(100 - i);
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    static RaceGroup group(List<Team> teams, Race... races) {
+        RaceGroup group = new RaceGroup(GROUP, teams, null, 1, 1);
+        group.setRaces(Arrays.asList(races));
+        return group;
+    }
+
+    static Race race(int teamOne, int teamTwo, int teamWin, String teamOneDsq, String teamTwoDsq) {
+        return new Race.RaceBuilder()
+                .setControlId(1)
+                .setRoundNo(1)
+                .setDivision("M")
+                .setGroup(GROUP)
+                .setTeamOne(teamOne)
+                .setTeamTwo(teamTwo)
+                .setTeamWin(teamWin)
+                .setTeamOneDsq(teamOneDsq)
+                .setTeamTwoDsq(teamTwoDsq)
+                .build();
+    }
+
+    static void assertTeamOrder(List<Team> teams, int... teamIds) {
+        assertEquals(teamIds.length, teams.size());
+        for (int i = 0; i < teamIds.length; i++) {
+            assertEquals("position " + (i + 1), teamIds[i], teams.get(i).getTeamId());
+        }
+    }
+
+    private static void assertWinsAndDsqs(Team team, int teamId, int wins, int dsqs) {
+        assertEquals(teamId, team.getTeamId());
+        assertEquals(wins, team.getSetOneWins());
+        assertEquals(dsqs, team.getSetOneDsqs());
+    }
+}
@@ -2,9 +2,15 @@ package org.kingsski.wax.data;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 public class RaceTest {
 
@@ -165,6 +171,67 @@ public class RaceTest {
         assertNotEquals(RACE_1A, race3);
     }
 
+    @Test
+    public void testCompareTo() {
+        Race ladiesA = new Race(CONTROL_1, LEAGUE_N, RND_1, SET_1, DIV_L, "A", NO_2, TEAM_1, TEAM_2, 0, null, null, false);
+        Race mixedA1 = new Race(CONTROL_1, LEAGUE_N, RND_1, SET_1, DIV_M, "a", NO_1, TEAM_1, TEAM_2, 0, null, null, false);
+        Race mixedA2 = new Race(CONTROL_1, LEAGUE_N, RND_1, SET_1, DIV_M, "A", NO_2, TEAM_1, TEAM_2, 0, null, null, false);
+        Race mixedE = new Race(CONTROL_1, LEAGUE_N, RND_1, SET_1, DIV_M, "E", NO_1, TEAM_1, TEAM_2, 0, null, null, false);
+        Race mixedB = new Race(CONTROL_1, LEAGUE_N, RND_1, SET_1, "mixed", "B", NO_1, TEAM_1, TEAM_2, 0, null, null, false);
+        Race mixedVIII = new Race(CONTROL_1, LEAGUE_N, RND_2, SET_1, DIV_M, "VIII", NO_1, TEAM_1, TEAM_2, 0, null, null, false);
+
+        List<Race> races = new ArrayList<>(Arrays.asList(mixedVIII, mixedB, mixedA2, ladiesA, mixedE, mixedA1));
+        Collections.sort(races);
+
+        assertEquals(Arrays.asList(ladiesA, mixedA1, mixedA2, mixedE, mixedB, mixedVIII), races);
+        assertEquals(0, RACE_1A.compareTo(RACE_1C));
+        assertTrue(RACE_1A.compareTo(RACE_2A) < 0);
+        assertTrue(RACE_2A.compareTo(RACE_1A) > 0);
+    }
+
+    @Test
+    public void testSortKeyUpdated() {
+        Race race = new Race(RACE_1A);
+        Race other = new Race(RACE_1A);
+
+        assertEquals(race.getSortKey(), other.getSortKey());
+
+        race.setRaceNo(NO_2);
+        assertTrue(race.getSortKey() > other.getSortKey());
+
+        other.setGroup("E");
+        assertTrue(race.getSortKey() < other.getSortKey());
+
+        race.setDivision(DIV_L);
+        other.setDivision(DIV_L);
+        other.setGroup("A");
+        assertEquals('L', race.getDivisionOrdinal());
+        assertEquals(1, new Race.RaceBuilder().setGroup("e").build().getGroupOrdinal());
+        // Lettered groups of large divisions are distinct and follow the standard groups
+        assertTrue(new Race.RaceBuilder().setGroup("J").build().getGroupOrdinal() > 15);
+        assertTrue(new Race.RaceBuilder().setGroup("AA").build().getGroupOrdinal()
+                > new Race.RaceBuilder().setGroup("Z").build().getGroupOrdinal());
+        assertTrue(race.getSortKey() > other.getSortKey());
+    }
+
+    @Test
+    public void testRomanNumeralGroupOrdinals() {
+        // Later sets of large divisions are numbered in order, however long the numeral
+        String[] numerals = {"VIII", "IX", "X", "XI", "XIII", "XIV", "XVII", "XVIII", "XXII", "XXIII", "XXXVIII"};
+        for (int i = 1; i < numerals.length; i++) {
+            assertTrue(numerals[i], new Race.RaceBuilder().setRoundNo(2).setGroup(numerals[i - 1]).build().getGroupOrdinal()
+                    < new Race.RaceBuilder().setRoundNo(2).setGroup(numerals[i]).build().getGroupOrdinal());
+        }
+
+        // The same names in the first set are letters
+        Race race = new Race.RaceBuilder().setRoundNo(2).setGroup("X").build();
+        int numeral = race.getGroupOrdinal();
+        race.setRoundNo(1);
+        assertTrue(race.getGroupOrdinal() > numeral);
+        assertTrue(new Race.RaceBuilder().setRoundNo(1).setGroup("XI").build().getGroupOrdinal()
+                > new Race.RaceBuilder().setRoundNo(1).setGroup("X").build().getGroupOrdinal());
+    }
+
     private static void assertNotEqualsAndHashCode(Race expected, Race actual) {
         assertEqualsAndHashCode(expected, actual, false);
     }
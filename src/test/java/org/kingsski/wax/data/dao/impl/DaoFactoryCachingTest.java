@@ -0,0 +1,242 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Test class for {@link DaoFactoryCaching}
+ */
+public class DaoFactoryCachingTest {
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private DaoFactoryInMemory store;
+    private DaoFactoryCaching daoFactory;
+
+    @Before
+    public void setup() {
+        store = new DaoFactoryInMemory();
+        store.newClubDaoInstance().addClub(club("Kings", League.NORTHERN));
+        store.newClubDaoInstance().addClub(club("Queens", League.SOUTHERN));
+        daoFactory = new DaoFactoryCaching(store, 2, TIME_TO_LIVE, clock::get);
+    }
+
+    /**
+     * Repeated reads are answered from the cache, the first from the wrapped DAOs
+     */
+    @Test
+    public void testHitsAndMisses() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        List<Club> clubs = clubDao.getClubs(League.NORTHERN);
+        assertEquals(0, daoFactory.getHitCount());
+        assertEquals(1, daoFactory.getMissCount());
+
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Team> competing = teamDao.getCompetingTeams(Division.MIXED, clubs, League.NORTHERN);
+        teamDao.getCompetingTeams(Division.MIXED, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN),
+                League.NORTHERN);
+        teamDao.getTeamsByDivision(Division.MIXED);
+        teamDao.getTeamsByDivision(Division.MIXED);
+        int teamId = competing.get(0).getTeamId();
+        teamDao.getTeam(teamId);
+        assertEquals("Kings", teamDao.getTeam(teamId).getTeamName());
+
+        assertEquals(4, daoFactory.getHitCount());
+        assertEquals(4, daoFactory.getMissCount());
+    }
+
+    /**
+     * Changes made behind the factory are seen once the entries expire
+     */
+    @Test
+    public void testExpiry() {
+        assertEquals(1, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+        store.newClubDaoInstance().addClub(club("Jesters", League.NORTHERN));
+
+        clock.set(TIME_TO_LIVE - 1);
+        assertEquals(1, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+
+        clock.set(TIME_TO_LIVE);
+        assertEquals(2, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+    }
+
+    /**
+     * The least recently used entry is evicted when the cache is full
+     */
+    @Test
+    public void testEviction() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        clubDao.getClubs(League.NORTHERN);
+        clubDao.getClubs(League.SOUTHERN);
+        clubDao.getClubs(League.NORTHERN);
+        clubDao.getClubs(null);
+        assertEquals(2, daoFactory.clubs.size());
+
+        long misses = daoFactory.getMissCount();
+        clubDao.getClubs(League.NORTHERN);
+        clubDao.getClubs(League.SOUTHERN);
+        assertEquals(misses + 1, daoFactory.getMissCount());
+    }
+
+    /**
+     * Changes made through the factory discard what is held
+     */
+    @Test
+    public void testWritesInvalidate() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Team> competing = teamDao.getCompetingTeams(Division.MIXED, clubDao.getClubs(League.NORTHERN),
+                League.NORTHERN);
+
+        Team team = competing.get(0);
+        team.setTeamName("Renamed");
+        teamDao.updateTeam(team, false);
+        assertEquals("Renamed", teamDao.getTeamsByDivision(Division.MIXED).get(0).getTeamName());
+
+        clubDao.addClub(club("Jesters", League.NORTHERN));
+        assertEquals(2, clubDao.getClubs(League.NORTHERN).size());
+    }
+
+    /**
+     * Reading the competing teams of one division keeps those held for the others, so repeated
+     * generation of every division is answered from the cache
+     */
+    @Test
+    public void testCompetingTeamsByDivision() {
+        daoFactory = new DaoFactoryCaching(store, 10, TIME_TO_LIVE, clock::get);
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Club> clubs = daoFactory.newClubDaoInstance().getClubs(League.NORTHERN);
+        for (String division : Division.ALL_DIVISIONS) {
+            teamDao.getCompetingTeams(division, clubs, League.NORTHERN);
+        }
+        teamDao.getTeamsByDivision(Division.LADIES);
+
+        long misses = daoFactory.getMissCount();
+        long hits = daoFactory.getHitCount();
+        for (String division : Division.ALL_DIVISIONS) {
+            teamDao.getCompetingTeams(division, clubs, League.NORTHERN);
+        }
+        teamDao.getTeamsByDivision(Division.LADIES);
+        assertEquals(misses, daoFactory.getMissCount());
+        assertEquals(hits + Division.ALL_DIVISIONS.length + 1, daoFactory.getHitCount());
+
+        // More teams for a division only discard what is held for that division
+        Club kings = clubs.get(0);
+        kings.setMixedTeams(2);
+        List<Club> moreTeams = Collections.singletonList(kings);
+        assertEquals(2, teamDao.getCompetingTeams(Division.MIXED, moreTeams, League.NORTHERN).size());
+        assertEquals(2, teamDao.getTeamsByDivision(Division.MIXED).size());
+        hits = daoFactory.getHitCount();
+        teamDao.getTeamsByDivision(Division.LADIES);
+        assertEquals(hits + 1, daoFactory.getHitCount());
+    }
+
+    /**
+     * Competing teams read while a change is made through the factory are returned but not held
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompetingTeamsChangedDuringRead() {
+        AtomicReference<Consumer<List<Team>>> duringRead = new AtomicReference<>();
+        DaoFactoryInMemory slowStore = new DaoFactoryInMemory() {
+            @Override
+            public TeamDao newTeamDaoInstance() {
+                TeamDao teamDao = super.newTeamDaoInstance();
+                return (TeamDao) Proxy.newProxyInstance(TeamDao.class.getClassLoader(), new Class<?>[]{TeamDao.class},
+                        (proxy, method, args) -> {
+                            try {
+                                Object result = method.invoke(teamDao, args);
+                                if (method.getName().equals("getCompetingTeams") && duringRead.get() != null) {
+                                    duringRead.getAndSet(null).accept(DaoFactoryCaching.copyTeams((List<Team>) result));
+                                }
+                                return result;
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+        slowStore.newClubDaoInstance().addClub(club("Kings", League.NORTHERN));
+        daoFactory = new DaoFactoryCaching(slowStore, 10, TIME_TO_LIVE, clock::get);
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Club> clubs = daoFactory.newClubDaoInstance().getClubs(League.NORTHERN);
+
+        duringRead.set(teams -> {
+            Team team = teams.get(0);
+            team.setTeamName("Renamed");
+            daoFactory.newTeamDaoInstance().updateTeam(team, false);
+        });
+        assertEquals("Kings", teamDao.getCompetingTeams(Division.MIXED, clubs, League.NORTHERN).get(0).getTeamName());
+        assertEquals("Renamed", teamDao.getCompetingTeams(Division.MIXED, clubs, League.NORTHERN).get(0).getTeamName());
+    }
+
+    /**
+     * What is read in a session transaction which is rolled back is discarded, what is read in
+     * one which succeeds is kept
+     */
+    @Test
+    public void testSessionRollback() {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            session.beginTransaction();
+            session.getTeamDao().getCompetingTeams(Division.MIXED,
+                    session.getClubDao().getClubs(League.NORTHERN), League.NORTHERN);
+            session.setTransactionSuccessful();
+            session.endTransaction();
+            assertEquals(1, daoFactory.teamLists.size());
+            assertEquals(1, daoFactory.clubs.size());
+
+            session.beginTransaction();
+            session.getTeamDao().getCompetingTeams(Division.LADIES,
+                    session.getClubDao().getClubs(League.NORTHERN), League.NORTHERN);
+            session.endTransaction();
+            assertEquals(0, daoFactory.teamLists.size());
+            assertEquals(0, daoFactory.clubs.size());
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Modifying what is returned must not modify what is held
+     */
+    @Test
+    public void testCopiesReturned() {
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        teamDao.getCompetingTeams(Division.MIXED, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN),
+                League.NORTHERN);
+
+        Team team = teamDao.getTeamsByDivision(Division.MIXED).get(0);
+        team.setTeamName("Changed");
+        Team held = teamDao.getTeamsByDivision(Division.MIXED).get(0);
+
+        assertNotSame(team, held);
+        assertEquals("Kings", held.getTeamName());
+    }
+
+    private static Club club(String name, String league) {
+        Club club = new Club();
+        club.setClubName(name);
+        club.setLeague(league);
+        club.setMixedTeams(1);
+        return club;
+    }
+}
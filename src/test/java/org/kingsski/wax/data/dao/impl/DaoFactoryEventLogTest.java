@@ -0,0 +1,237 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.dao.RaceDao;
+
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link DaoFactoryEventLog}
+ */
+public class DaoFactoryEventLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private DaoFactoryEventLog daoFactory;
+
+    @Before
+    public void setup() throws Exception {
+        file = folder.getRoot().toPath().resolve("races.log");
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+    }
+
+    @After
+    public void tearDown() {
+        daoFactory.close();
+    }
+
+    /**
+     * Controls, races, results and deletions are all recovered when the log is replayed
+     */
+    @Test
+    public void testReplay() {
+        int controlId = populate();
+
+        daoFactory.close();
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+
+        assertRecovered(controlId);
+        assertEquals(8, daoFactory.getRecords());
+
+        // New controls continue from the last recovered ID
+        assertEquals(controlId + 1,
+                daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.SOUTHERN).getControlId());
+    }
+
+    /**
+     * A checkpoint leaves only the current state in the log
+     */
+    @Test
+    public void testCheckpoint() {
+        int controlId = populate();
+
+        daoFactory.checkpoint();
+        assertEquals(3, daoFactory.getRecords());
+        assertRecovered(controlId);
+
+        daoFactory.close();
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+
+        assertRecovered(controlId);
+        assertEquals(3, daoFactory.getRecords());
+
+        // Changes after the checkpoint are appended as before
+        daoFactory.newRaceDaoInstance().addRace(race(controlId, 2));
+        assertEquals(4, daoFactory.getRecords());
+    }
+
+    /**
+     * The log is checkpointed automatically once it holds the given number of records
+     */
+    @Test
+    public void testAutomaticCheckpoint() {
+        daoFactory.close();
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory(), 5);
+        int controlId = populate();
+
+        assertTrue(daoFactory.getRecords() < 5);
+        assertRecovered(controlId);
+    }
+
+    /**
+     * A record which was only partly written is ignored and overwritten by the next change
+     */
+    @Test
+    public void testTornRecord() throws Exception {
+        int controlId = populate();
+        daoFactory.close();
+
+        // Corrupt the end of a last record as if it was only partly written
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+        daoFactory.newRaceDaoInstance().addRace(race(controlId, 3));
+        daoFactory.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(findEnd(raf) - 3);
+            raf.write(new byte[]{0x7f, 0x7f, 0x7f});
+        }
+
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+        assertRecovered(controlId);
+        assertEquals(8, daoFactory.getRecords());
+        assertTrue(daoFactory.newRaceDaoInstance().getRaces(controlId, null, 3).isEmpty());
+
+        daoFactory.newRaceDaoInstance().addRace(race(controlId, 3));
+        daoFactory.close();
+        daoFactory = new DaoFactoryEventLog(file, new DaoFactoryInMemory());
+        assertEquals(9, daoFactory.getRecords());
+        assertEquals(1, daoFactory.newRaceDaoInstance().getRaces(controlId, null, 3).size());
+    }
+
+    /**
+     * A change which cannot be appended to the log is not made in memory either
+     */
+    @Test
+    public void testFailedAppend() throws Exception {
+        int controlId = populate();
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+
+        // Growing the log to fit a large record fails once its directory has gone
+        Files.delete(file);
+        Files.delete(folder.getRoot().toPath());
+        String large = new String(new char[2 << 20]).replace('\0', 'X');
+
+        Race race = race(controlId, 1);
+        race.setGroup(large);
+        try {
+            raceDao.addRace(race);
+            fail("Expected the append to fail");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+
+        Race result = new Race(raceDao.getRaces(controlId, null, 1).get(0));
+        result.setTeamTwoDsq(large);
+        try {
+            raceDao.updateRace(result);
+            fail("Expected the append to fail");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+
+        try {
+            daoFactory.newRaceControlDaoInstance().addNewRaceControl(large);
+            fail("Expected the append to fail");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+
+        assertRecovered(controlId);
+    }
+
+    /**
+     * Adds a control and two rounds of races, records a result and deletes a race and a round
+     *
+     * @return the control ID
+     */
+    private int populate() {
+        RaceControl raceControl = daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.NORTHERN);
+        int controlId = raceControl.getControlId();
+
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        List<Race> races = raceDao.addRaces(Arrays.asList(
+                race(controlId, 1), race(controlId, 1), race(controlId, 1)));
+
+        Race result = new Race(races.get(0));
+        result.setTeamWin(1);
+        result.setTeamTwoDsq("DSQ");
+        raceDao.updateRace(result);
+
+        raceDao.deleteRace(races.get(2));
+        raceDao.addRace(race(controlId, 2));
+        raceDao.deleteRaces(controlId, 2);
+        return controlId;
+    }
+
+    private void assertRecovered(int controlId) {
+        List<RaceControl> raceControls = daoFactory.newRaceControlDaoInstance().getAllRaceControl();
+        assertEquals(1, raceControls.size());
+        assertEquals(League.NORTHERN, raceControls.get(0).getLeague());
+
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        List<Race> races = raceDao.getRaces(controlId, null, 1);
+        assertEquals(2, races.size());
+        assertEquals(1, races.get(0).getRaceNo());
+        assertEquals(1, races.get(0).getTeamWin());
+        assertEquals("DSQ", races.get(0).getTeamTwoDsq());
+        assertEquals(2, races.get(1).getRaceNo());
+        assertEquals(0, races.get(1).getTeamWin());
+        assertEquals(3, raceDao.getNextRaceNo(controlId, 1));
+        assertTrue(raceDao.getRaces(controlId, null, 2).isEmpty());
+    }
+
+    /**
+     * @return the position after the last non-zero byte of the log
+     */
+    private static long findEnd(RandomAccessFile raf) throws Exception {
+        long end = raf.length();
+        raf.seek(0);
+        byte[] bytes = new byte[(int) end];
+        raf.readFully(bytes);
+        while (end > 0 && bytes[(int) end - 1] == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    private static Race race(int controlId, int roundNo) {
+        return new Race.RaceBuilder()
+                .setControlId(controlId)
+                .setLeague(League.NORTHERN)
+                .setRoundNo(roundNo)
+                .setSet("Set 1")
+                .setDivision(Division.MIXED)
+                .setGroup("A")
+                .setTeamOne(1)
+                .setTeamTwo(2)
+                .build();
+    }
+}
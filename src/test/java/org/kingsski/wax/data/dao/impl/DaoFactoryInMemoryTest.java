@@ -0,0 +1,228 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.RaceControlDao;
+import org.kingsski.wax.data.dao.RaceControlDao.NonExistentRaceControlException;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DaoFactoryInMemory}
+ */
+public class DaoFactoryInMemoryTest {
+    private static final String CLUB = "Kings";
+
+    private DaoFactoryInMemory daoFactory;
+    private TeamDao teamDao;
+    private RaceDao raceDao;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryInMemory();
+        teamDao = daoFactory.newTeamDaoInstance();
+        raceDao = daoFactory.newRaceDaoInstance();
+    }
+
+    /**
+     * Data written through one DAO instance must be visible through another from the same factory
+     */
+    @Test
+    public void testSharedStore() {
+        Team team = teamDao.addTeam(team(League.NORTHERN, Division.MIXED, 1));
+
+        Team found = daoFactory.newTeamDaoInstance().getTeam(team.getTeamId());
+
+        assertNotNull(found);
+        assertEquals(CLUB, found.getClubName());
+    }
+
+    /**
+     * Competing teams are created when missing and retrieved on subsequent calls
+     */
+    @Test
+    public void testCompetingTeams() {
+        Club club = new Club();
+        club.setClubName(CLUB);
+        club.setLeague(League.NORTHERN);
+        club.setMixedTeams(2);
+        club.setLadiesTeams(1);
+
+        List<Team> mixed = teamDao.getCompetingTeams(Division.MIXED, Collections.singletonList(club), League.NORTHERN);
+        List<Team> mixedAgain = teamDao.getCompetingTeams(Division.MIXED, Collections.singletonList(club), League.NORTHERN);
+        List<Team> ladies = teamDao.getCompetingTeams(Division.LADIES, Collections.singletonList(club), League.NORTHERN);
+
+        assertEquals(2, mixed.size());
+        assertEquals(mixed.get(0).getTeamId(), mixedAgain.get(0).getTeamId());
+        assertEquals(mixed.get(1).getTeamId(), mixedAgain.get(1).getTeamId());
+        assertEquals(1, ladies.size());
+        assertEquals(3, teamDao.getAllTeams().size());
+        assertEquals(2, teamDao.getTeams(null, Division.MIXED, League.NORTHERN).size());
+        assertEquals(0, teamDao.getTeams(null, Division.MIXED, League.SOUTHERN).size());
+    }
+
+    /**
+     * Updating a team into another division must move it between the division indexes and modifying
+     * a returned object must not change the stored team
+     */
+    @Test
+    public void testUpdateTeam() {
+        Team team = teamDao.addTeam(team(League.NORTHERN, Division.MIXED, 1));
+
+        team.setDivision(Division.BOARD);
+        teamDao.updateTeam(team, false);
+        teamDao.getTeam(team.getTeamId()).setTeamName("Changed");
+
+        assertEquals(0, teamDao.getTeamsByDivision(Division.MIXED).size());
+        assertEquals(1, teamDao.getTeamsByDivision(Division.BOARD).size());
+        assertEquals(CLUB, teamDao.getTeam(team.getTeamId()).getTeamName());
+        assertNull(teamDao.updateTeam(team(League.NORTHERN, Division.MIXED, 2), false));
+    }
+
+    @Test
+    public void testResetTeams() {
+        Team team = team(League.NORTHERN, Division.MIXED, 1);
+        team.setScoreR1(10);
+        teamDao.addTeam(team);
+
+        assertEquals(1, teamDao.getSeededTeams(Division.MIXED).size());
+
+        teamDao.resetTeams(League.NORTHERN, Division.MIXED);
+
+        assertEquals(0, teamDao.getSeededTeams(Division.MIXED).size());
+    }
+
+    /**
+     * Races are numbered sequentially per control ID and round and retrieved in race number order
+     */
+    @Test
+    public void testAddAndGetRaces() {
+        raceDao.addRace(race(1, 1, Division.MIXED));
+        raceDao.addRace(race(1, 1, Division.LADIES));
+        raceDao.addRace(race(1, 1, Division.MIXED));
+        raceDao.addRace(race(1, 2, Division.MIXED));
+
+        List<Race> mixed = raceDao.getRaces(1, Division.MIXED, 1);
+
+        assertEquals(2, mixed.size());
+        assertEquals(1, mixed.get(0).getRaceNo());
+        assertEquals(3, mixed.get(1).getRaceNo());
+        assertEquals(3, raceDao.getRaces(1, null, 1).size());
+        assertEquals(4, raceDao.getRaces(1, null, 0).size());
+        assertEquals(4, raceDao.getNextRaceNo(1, 1));
+        assertEquals(1, raceDao.getNextRaceNo(2, 1));
+    }
+
+    /**
+     * Batched races continue the numbering of their round in list order
+     */
+    @Test
+    public void testAddRaces() {
+        raceDao.addRace(race(1, 1, Division.MIXED));
+
+        List<Race> races = raceDao.addRaces(Arrays.asList(
+                race(1, 1, Division.MIXED), race(1, 1, Division.LADIES), race(1, 2, Division.BOARD)));
+
+        assertEquals(3, races.size());
+        assertEquals(2, races.get(0).getRaceNo());
+        assertEquals(3, races.get(1).getRaceNo());
+        assertEquals(1, races.get(2).getRaceNo());
+        assertEquals(Division.LADIES, raceDao.getRace(races.get(1)).getDivision());
+        assertEquals(4, raceDao.getNextRaceNo(1, 1));
+    }
+
+    @Test
+    public void testUpdateAndDeleteRaces() {
+        Race race = raceDao.addRace(race(1, 1, Division.MIXED));
+        raceDao.addRace(race(1, 1, Division.MIXED));
+
+        race.setTeamWin(2);
+        race.setTeamOneDsq("Missed gate");
+        raceDao.updateRace(race);
+
+        Race updated = raceDao.getRace(race);
+        assertEquals(2, updated.getTeamWin());
+        assertEquals("Missed gate", updated.getTeamOneDsq());
+
+        raceDao.deleteRace(race);
+        assertNull(raceDao.getRace(race));
+        assertNull(raceDao.updateRace(race));
+
+        raceDao.deleteRaces(1, 1);
+        assertTrue(raceDao.getRaces(1, null, 1).isEmpty());
+    }
+
+    @Test
+    public void testRaceControls() throws NonExistentRaceControlException {
+        RaceControlDao raceControlDao = daoFactory.newRaceControlDaoInstance();
+
+        RaceControl northern = raceControlDao.addNewRaceControl(League.NORTHERN);
+        RaceControl southern = raceControlDao.addNewRaceControl(League.SOUTHERN);
+
+        assertEquals(northern.getControlId(), raceControlDao.getLastRaceControl(League.NORTHERN).getControlId());
+        assertEquals(southern.getControlId(), raceControlDao.getLastRaceControl(null).getControlId());
+        assertEquals(2, raceControlDao.getAllRaceControl().size());
+    }
+
+    @Test(expected = NonExistentRaceControlException.class)
+    public void testMissingRaceControl() throws NonExistentRaceControlException {
+        daoFactory.newRaceControlDaoInstance().getLastRaceControl(League.WESTERN);
+    }
+
+    @Test
+    public void testClubs() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        Club club = new Club();
+        club.setClubName(CLUB);
+        club.setLeague(League.SOUTHERN);
+
+        assertNotNull(clubDao.addClub(club));
+        assertNull(clubDao.addClub(club));
+        assertEquals(1, clubDao.getClubs(League.SOUTHERN).size());
+        assertEquals(0, clubDao.getClubs(League.NORTHERN).size());
+
+        club.setMixedTeams(3);
+        clubDao.updateClub(club);
+        assertEquals(3, clubDao.getClubs(null).get(0).getMixedTeams());
+
+        clubDao.deleteClub(club);
+        assertTrue(clubDao.getClubs(null).isEmpty());
+    }
+
+    private static Team team(String league, String division, int divisionIndex) {
+        Team team = new Team();
+        team.setLeague(league);
+        team.setDivision(division);
+        team.setClubName(CLUB);
+        team.setTeamName(CLUB);
+        team.setDivisionIndex(divisionIndex);
+        return team;
+    }
+
+    private static Race race(int controlId, int roundNo, String division) {
+        return new Race.RaceBuilder()
+                .setControlId(controlId)
+                .setRoundNo(roundNo)
+                .setDivision(division)
+                .setGroup("A")
+                .setTeamOne(1)
+                .setTeamTwo(2)
+                .build();
+    }
+}
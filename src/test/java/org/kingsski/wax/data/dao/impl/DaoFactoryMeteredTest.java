@@ -0,0 +1,38 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.Test;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.metrics.MetricsRegistry;
+import org.kingsski.wax.metrics.MetricsSnapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test class for {@link DaoFactoryMetered}
+ */
+public class DaoFactoryMeteredTest {
+
+    /**
+     * The methods every DAO inherits are timed under the DAO they were called on
+     */
+    @Test
+    public void testInheritedMethodsNamedByDao() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        DaoFactoryMetered daoFactory = new DaoFactoryMetered(new DaoFactoryInMemory(), metrics);
+
+        daoFactory.newRaceDaoInstance().isOpen();
+        daoFactory.newTeamDaoInstance().isOpen();
+        daoFactory.newTeamDaoInstance().isOpen();
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        session.getClubDao().isOpen();
+        session.close();
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getTimers().get("dao.raceDao.isOpen").getCount());
+        assertEquals(2, snapshot.getTimers().get("dao.teamDao.isOpen").getCount());
+        assertEquals(1, snapshot.getTimers().get("dao.clubDao.isOpen").getCount());
+        assertEquals(1, snapshot.getTimers().get("dao.session.close").getCount());
+        assertFalse(snapshot.getTimers().containsKey("dao.raceOrganiserDao.isOpen"));
+    }
+}
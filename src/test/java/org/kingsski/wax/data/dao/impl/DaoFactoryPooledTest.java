@@ -0,0 +1,106 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DaoFactoryPooled}
+ */
+public class DaoFactoryPooledTest {
+
+    private DaoFactoryPooled daoFactory;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryPooled(new DaoFactoryInMemory(), 1);
+    }
+
+    @After
+    public void tearDown() {
+        daoFactory.close();
+    }
+
+    /**
+     * The DAOs of a session are opened once and reused by the next user of the session
+     */
+    @Test
+    public void testSessionReused() {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        TeamDao teamDao = session.getTeamDao();
+        assertTrue(teamDao.isOpen());
+        assertSame(teamDao, session.getTeamDao());
+        session.close();
+
+        assertEquals(1, daoFactory.getIdleSessions());
+        assertTrue(teamDao.isOpen());
+
+        DaoSession next = daoFactory.newDaoSessionInstance();
+        assertSame(teamDao, next.getTeamDao());
+        next.close();
+    }
+
+    /**
+     * No more than the maximum number of sessions are in use at once
+     */
+    @Test
+    public void testBounded() throws Exception {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        AtomicReference<DaoSession> waiting = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            waiting.set(daoFactory.newDaoSessionInstance());
+            acquired.countDown();
+        });
+        thread.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        session.close();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertNotNull(waiting.get());
+        waiting.get().close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedSessionUnusable() {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        session.close();
+
+        session.getRaceDao();
+    }
+
+    /**
+     * Closing the pool closes the DAOs of the idle sessions
+     */
+    @Test
+    public void testClose() {
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        TeamDao teamDao = session.getTeamDao();
+        session.close();
+
+        daoFactory.close();
+
+        assertFalse(teamDao.isOpen());
+        assertEquals(0, daoFactory.getIdleSessions());
+    }
+
+    @Test(expected = DaoFactoryPooled.SessionUnavailableException.class)
+    public void testClosedPool() {
+        daoFactory.close();
+
+        daoFactory.newDaoSessionInstance();
+    }
+}
@@ -0,0 +1,122 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.ClubDao;
+import org.kingsski.wax.data.dao.TeamDao;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Test class for {@link DaoFactoryShared}
+ */
+public class DaoFactorySharedTest {
+
+    private DaoFactoryInMemory store;
+    private DaoFactoryShared daoFactory;
+
+    @Before
+    public void setup() {
+        store = new DaoFactoryInMemory();
+        store.newClubDaoInstance().addClub(club("Kings", League.NORTHERN));
+        store.newClubDaoInstance().addClub(club("Queens", League.SOUTHERN));
+        daoFactory = new DaoFactoryShared(store);
+    }
+
+    /**
+     * Clubs are read once and filtered by league, changes made behind the factory are not seen
+     * until invalidated
+     */
+    @Test
+    public void testClubsHeld() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        assertEquals(2, clubDao.getClubs(null).size());
+        assertEquals(1, clubDao.getClubs(League.NORTHERN).size());
+
+        store.newClubDaoInstance().addClub(club("Jesters", League.NORTHERN));
+        assertEquals(1, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+
+        daoFactory.invalidate();
+        assertEquals(2, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+    }
+
+    /**
+     * Teams are read once for each league and division, so every league of a race day is served
+     * its own teams
+     */
+    @Test
+    public void testTeamsHeldByLeague() {
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        teamDao.getCompetingTeams(Division.MIXED, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN),
+                League.NORTHERN);
+        teamDao.getCompetingTeams(Division.MIXED, daoFactory.newClubDaoInstance().getClubs(League.SOUTHERN),
+                League.SOUTHERN);
+
+        List<Team> northern = teamDao.getTeams(null, Division.MIXED, League.NORTHERN);
+        List<Team> southern = teamDao.getTeams(null, Division.MIXED, League.SOUTHERN);
+        assertEquals(1, northern.size());
+        assertEquals("Kings", northern.get(0).getTeamName());
+        assertEquals(1, southern.size());
+        assertEquals("Queens", southern.get(0).getTeamName());
+
+        Team team = new Team(southern.get(0));
+        team.setTeamId(0);
+        team.setTeamName("Queens 2");
+        team.setDivisionIndex(2);
+        store.newTeamDaoInstance().addTeam(team);
+        assertEquals(1, daoFactory.newTeamDaoInstance().getTeams(null, Division.MIXED, League.SOUTHERN).size());
+
+        daoFactory.invalidate();
+        assertEquals(2, daoFactory.newTeamDaoInstance().getTeams(null, Division.MIXED, League.SOUTHERN).size());
+        assertEquals(1, daoFactory.newTeamDaoInstance().getTeams(null, Division.MIXED, League.NORTHERN).size());
+    }
+
+    /**
+     * Changes made through the factory discard what is held
+     */
+    @Test
+    public void testWritesInvalidate() {
+        ClubDao clubDao = daoFactory.newClubDaoInstance();
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Club> northern = clubDao.getClubs(League.NORTHERN);
+        assertEquals(0, teamDao.getTeams(null, Division.MIXED, League.NORTHERN).size());
+
+        teamDao.getCompetingTeams(Division.MIXED, northern, League.NORTHERN);
+        assertEquals(1, teamDao.getTeams(null, Division.MIXED, League.NORTHERN).size());
+
+        clubDao.addClub(club("Jesters", League.NORTHERN));
+        assertEquals(2, clubDao.getClubs(League.NORTHERN).size());
+    }
+
+    /**
+     * Modifying what is returned must not modify what is held
+     */
+    @Test
+    public void testCopiesReturned() {
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        teamDao.getCompetingTeams(Division.MIXED, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN),
+                League.NORTHERN);
+
+        Team team = teamDao.getTeams(null, Division.MIXED, League.NORTHERN).get(0);
+        team.setTeamName("Changed");
+        Team held = teamDao.getTeams(null, Division.MIXED, League.NORTHERN).get(0);
+
+        assertNotSame(team, held);
+        assertEquals("Kings", held.getTeamName());
+    }
+
+    private static Club club(String name, String league) {
+        Club club = new Club();
+        club.setClubName(name);
+        club.setLeague(league);
+        club.setMixedTeams(1);
+        return club;
+    }
+}
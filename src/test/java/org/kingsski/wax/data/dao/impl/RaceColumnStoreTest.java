@@ -0,0 +1,172 @@
+package org.kingsski.wax.data.dao.impl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.dao.RaceDao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link RaceColumnStore}
+ */
+public class RaceColumnStoreTest {
+    private static final String[] DIVISIONS = {Division.MIXED, Division.LADIES, Division.BOARD};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RaceDao expected;
+    private List<Race> races;
+
+    @Before
+    public void setup() {
+        expected = new DaoFactoryInMemory().newRaceDaoInstance();
+        races = new ArrayList<>();
+        for (int controlId = 1; controlId <= 3; controlId++) {
+            for (int roundNo = 1; roundNo <= 3; roundNo++) {
+                for (int i = 0; i < 12; i++) {
+                    Race race = race(controlId, roundNo, DIVISIONS[i % 3], i + 1, i + 2);
+                    if (i % 4 == 0) {
+                        race.setTeamWin(2);
+                        race.setTeamOneDsq("DSQ");
+                        race.setNext(true);
+                    }
+                    races.add(race);
+                }
+            }
+        }
+        expected.addRaces(races);
+    }
+
+    /**
+     * The store returns the same races as the in-memory DAO however they are queried
+     */
+    @Test
+    public void testReadView() {
+        List<Race> shuffled = new ArrayList<>(races);
+        Collections.shuffle(shuffled);
+        RaceColumnStore store = RaceColumnStore.of(shuffled);
+
+        assertEquals(races.size(), store.size());
+        assertTrue(store.getMemorySize() <= 37L * races.size() + 128);
+        assertReads(store.newRaceDaoInstance());
+    }
+
+    /**
+     * A saved store maps back with the same races
+     */
+    @Test
+    public void testSaveOpen() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("races.columns");
+        RaceColumnStore.of(races).save(file);
+
+        RaceColumnStore store = RaceColumnStore.open(file);
+        assertEquals(races.size(), store.size());
+        assertReads(store.newRaceDaoInstance());
+
+        // Columns can be scanned without creating races
+        int wins = 0;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            if (store.getTeamWin(i) != 0 && Division.MIXED.equals(store.getDivision(i))) {
+                wins++;
+            }
+        }
+        assertEquals(9, wins);
+    }
+
+    /**
+     * Files which are not stores, or are truncated, are rejected
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("races.columns");
+        Files.write(file, new byte[64]);
+        assertInvalid(file);
+
+        RaceColumnStore.of(races).save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertInvalid(file);
+    }
+
+    /**
+     * The store cannot be changed
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        RaceColumnStore.of(races).newRaceDaoInstance().addRace(race(1, 1, Division.MIXED, 1, 2));
+    }
+
+    private void assertReads(RaceDao actual) {
+        for (int controlId = 0; controlId <= 4; controlId++) {
+            for (int roundNo = 0; roundNo <= 4; roundNo++) {
+                assertRaces(expected.getRaces(controlId, null, roundNo), actual.getRaces(controlId, null, roundNo));
+                for (String division : DIVISIONS) {
+                    assertRaces(expected.getRaces(controlId, division, roundNo),
+                            actual.getRaces(controlId, division, roundNo));
+                }
+                if (roundNo != 0) {
+                    assertEquals(expected.getNextRaceNo(controlId, roundNo), actual.getNextRaceNo(controlId, roundNo));
+                }
+            }
+        }
+        assertTrue(actual.getRaces(1, "Unknown", 0).isEmpty());
+
+        Race race = races.get(14);
+        assertRace(expected.getRace(race), actual.getRace(race));
+        assertNull(actual.getRace(race(1, 1, Division.MIXED, 1, 2)));
+    }
+
+    private static void assertRaces(List<Race> expected, List<Race> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertRace(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertRace(Race expected, Race actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getTeamWin(), actual.getTeamWin());
+        assertEquals(expected.getTeamOneDsq(), actual.getTeamOneDsq());
+        assertEquals(expected.getTeamTwoDsq(), actual.getTeamTwoDsq());
+        assertEquals(expected.isNext(), actual.isNext());
+    }
+
+    private static void assertInvalid(Path file) {
+        try {
+            RaceColumnStore.open(file);
+            fail("Expected an invalid store");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    private static Race race(int controlId, int roundNo, String division, int teamOne, int teamTwo) {
+        return new Race.RaceBuilder()
+                .setControlId(controlId)
+                .setLeague(League.NORTHERN)
+                .setRoundNo(roundNo)
+                .setSet("Set " + roundNo)
+                .setDivision(division)
+                .setGroup("A")
+                .setTeamOne(teamOne)
+                .setTeamTwo(teamTwo)
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package org.kingsski.wax.data.snapshot;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.RaceControl;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.DaoFactory;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryInMemory;
+import org.kingsski.wax.data.snapshot.RaceControlSnapshot.InvalidSnapshotException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link RaceControlSnapshot}
+ */
+public class RaceControlSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DaoFactory daoFactory;
+    private RaceControl raceControl;
+    private List<Team> teams;
+    private Path file;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryInMemory();
+        file = folder.getRoot().toPath().resolve("event.snapshot");
+
+        List<Club> clubs = Arrays.asList(club("Kings", 3), club("Queens", 2));
+        for (Club club : clubs) {
+            daoFactory.newClubDaoInstance().addClub(club);
+        }
+        teams = daoFactory.newTeamDaoInstance().getCompetingTeams(Division.MIXED, clubs, League.NORTHERN);
+        teams.get(0).setScoreR1(120);
+        teams.get(0).setSetOneWins(2);
+        daoFactory.newTeamDaoInstance().updateTeam(teams.get(0), false);
+
+        // Another league which is not part of the snapshot
+        daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.SOUTHERN);
+        raceControl = daoFactory.newRaceControlDaoInstance().addNewRaceControl(League.NORTHERN);
+
+        RaceDao raceDao = daoFactory.newRaceDaoInstance();
+        List<Race> races = new ArrayList<>();
+        for (int roundNo = 1; roundNo <= 2; roundNo++) {
+            for (int i = 0; i + 1 < teams.size(); i++) {
+                races.add(race(roundNo, teams.get(i).getTeamId(), teams.get(i + 1).getTeamId()));
+            }
+        }
+        raceDao.addRaces(races);
+
+        Race result = new Race(races.get(0));
+        result.setTeamWin(2);
+        result.setTeamOneDsq("DSQ");
+        raceDao.updateRace(result);
+    }
+
+    /**
+     * A saved snapshot loads with every field of the control, clubs, teams and races
+     */
+    @Test
+    public void testSaveLoad() throws Exception {
+        RaceControlSnapshot captured = RaceControlSnapshot.capture(daoFactory, raceControl);
+        assertEquals(2, captured.getClubs().size());
+        assertEquals(5, captured.getTeams().size());
+        assertEquals(8, captured.getRaces().size());
+
+        captured.save(file);
+        RaceControlSnapshot loaded = RaceControlSnapshot.load(file);
+
+        assertEquals(raceControl.getControlId(), loaded.getRaceControl().getControlId());
+        assertEquals(raceControl.getLeague(), loaded.getRaceControl().getLeague());
+        assertEquals(raceControl.getDate(), loaded.getRaceControl().getDate());
+
+        for (int i = 0; i < captured.getClubs().size(); i++) {
+            assertEquals(captured.getClubs().get(i).toString(), loaded.getClubs().get(i).toString());
+            assertEquals(captured.getClubs().get(i).getMixedTeams(), loaded.getClubs().get(i).getMixedTeams());
+        }
+        for (int i = 0; i < captured.getTeams().size(); i++) {
+            assertTeam(captured.getTeams().get(i), loaded.getTeams().get(i));
+        }
+        for (int i = 0; i < captured.getRaces().size(); i++) {
+            assertRace(captured.getRaces().get(i), loaded.getRaces().get(i));
+        }
+    }
+
+    /**
+     * A snapshot restored to another store recreates the event with the races referring to the
+     * restored teams
+     */
+    @Test
+    public void testRestore() throws Exception {
+        RaceControlSnapshot.capture(daoFactory, raceControl).save(file);
+
+        DaoFactory standby = new DaoFactoryInMemory();
+        RaceControl restored = RaceControlSnapshot.load(file).restore(standby);
+        assertEquals(League.NORTHERN, restored.getLeague());
+
+        List<Race> expected = daoFactory.newRaceDaoInstance().getRaces(raceControl.getControlId(), null, 0);
+        List<Race> actual = standby.newRaceDaoInstance().getRaces(restored.getControlId(), null, 0);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Race race = new Race(expected.get(i));
+            race.setControlId(restored.getControlId());
+            assertRace(race, actual.get(i));
+        }
+
+        assertEquals(2, standby.newClubDaoInstance().getClubs(League.NORTHERN).size());
+        Team team = standby.newTeamDaoInstance().getTeam(teams.get(0).getTeamId());
+        assertTeam(daoFactory.newTeamDaoInstance().getTeam(teams.get(0).getTeamId()), team);
+    }
+
+    /**
+     * Restoring into a store which already has teams updates the teams with the same names and
+     * leaves teams which only share an ID alone, with the races and results following the teams
+     */
+    @Test
+    public void testRestoreIntoExistingTeams() throws Exception {
+        RaceControlSnapshot snapshot = RaceControlSnapshot.capture(daoFactory, raceControl);
+
+        DaoFactory standby = new DaoFactoryInMemory();
+        Club southern = club("Jesters", 3);
+        southern.setLeague(League.SOUTHERN);
+        standby.newClubDaoInstance().addClub(southern);
+        List<Team> southernTeams = standby.newTeamDaoInstance().getCompetingTeams(Division.MIXED,
+                Arrays.asList(southern), League.SOUTHERN);
+        List<Team> northernTeams = standby.newTeamDaoInstance().getCompetingTeams(Division.MIXED,
+                Arrays.asList(club("Queens", 1)), League.NORTHERN);
+        assertEquals(1, southernTeams.get(0).getTeamId());
+
+        RaceControl restored = snapshot.restore(standby);
+
+        for (Team southernTeam : southernTeams) {
+            assertTeam(southernTeam, standby.newTeamDaoInstance().getTeam(southernTeam.getTeamId()));
+        }
+        assertEquals(3 + 5, standby.newTeamDaoInstance().getAllTeams().size());
+
+        // The existing team is updated in place
+        Team queens = standby.newTeamDaoInstance().getTeam(northernTeams.get(0).getTeamId());
+        assertEquals("Queens", queens.getTeamName());
+
+        List<Race> expected = daoFactory.newRaceDaoInstance().getRaces(raceControl.getControlId(), null, 0);
+        List<Race> actual = standby.newRaceDaoInstance().getRaces(restored.getControlId(), null, 0);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(teamName(daoFactory, expected.get(i).getTeamOne()), teamName(standby, actual.get(i).getTeamOne()));
+            assertEquals(teamName(daoFactory, expected.get(i).getTeamTwo()), teamName(standby, actual.get(i).getTeamTwo()));
+            assertEquals(expected.get(i).getTeamWin(), actual.get(i).getTeamWin());
+        }
+        assertEquals(2, actual.get(0).getTeamWin());
+    }
+
+    private static String teamName(DaoFactory daoFactory, int teamId) {
+        return daoFactory.newTeamDaoInstance().getTeam(teamId).getTeamName();
+    }
+
+    /**
+     * Files which are not snapshots or have been changed are rejected
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        Files.write(file, "not a snapshot".getBytes("UTF-8"));
+        assertInvalid();
+
+        RaceControlSnapshot.capture(daoFactory, raceControl).save(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertInvalid();
+
+        bytes[bytes.length / 2] ^= 1;
+        bytes[4]++;
+        Files.write(file, bytes);
+        assertInvalid();
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertInvalid();
+    }
+
+    private void assertInvalid() throws Exception {
+        try {
+            RaceControlSnapshot.load(file);
+            fail("Expected an invalid snapshot");
+        } catch (InvalidSnapshotException e) {
+            // Expected
+        }
+    }
+
+    private static void assertTeam(Team expected, Team actual) {
+        assertEquals(expected.getTeamId(), actual.getTeamId());
+        assertEquals(expected.getLeague(), actual.getLeague());
+        assertEquals(expected.getClubName(), actual.getClubName());
+        assertEquals(expected.getDivision(), actual.getDivision());
+        assertEquals(expected.getDivisionIndex(), actual.getDivisionIndex());
+        assertEquals(expected.getTeamName(), actual.getTeamName());
+        assertEquals(expected.getScoreR1(), actual.getScoreR1());
+        assertEquals(expected.getScoreTotal(), actual.getScoreTotal());
+        assertEquals(expected.getSetOneWins(), actual.getSetOneWins());
+    }
+
+    private static void assertRace(Race expected, Race actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getTeamWin(), actual.getTeamWin());
+        assertEquals(expected.getTeamOneDsq(), actual.getTeamOneDsq());
+        assertEquals(expected.getTeamTwoDsq(), actual.getTeamTwoDsq());
+        assertEquals(expected.isNext(), actual.isNext());
+    }
+
+    private static Club club(String name, int mixedTeams) {
+        Club club = new Club();
+        club.setClubName(name);
+        club.setLeague(League.NORTHERN);
+        club.setMixedTeams(mixedTeams);
+        return club;
+    }
+
+    private Race race(int roundNo, int teamOne, int teamTwo) {
+        return new Race.RaceBuilder()
+                .setControlId(raceControl.getControlId())
+                .setLeague(League.NORTHERN)
+                .setRoundNo(roundNo)
+                .setSet("Set 1")
+                .setDivision(Division.MIXED)
+                .setGroup("A")
+                .setTeamOne(teamOne)
+                .setTeamTwo(teamTwo)
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package org.kingsski.wax.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MetricsRegistry}
+ */
+public class MetricsRegistryTest {
+
+    /**
+     * Metrics are created once by name and read back in the snapshot
+     */
+    @Test
+    public void testSnapshot() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        assertSame(metrics.counter("races"), metrics.counter("races"));
+        metrics.counter("races").add(5);
+        metrics.counter("races").increment();
+        metrics.timer("persist").record(2, TimeUnit.MILLISECONDS);
+        metrics.histogram("teams").record(12);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(6, snapshot.getCount("races"));
+        assertEquals(0, snapshot.getCount("missing"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), snapshot.getTimers().get("persist").getSum());
+        assertEquals(12, snapshot.getHistograms().get("teams").getMax());
+
+        // Later changes are not seen by an earlier snapshot
+        metrics.counter("races").increment();
+        assertEquals(6, snapshot.getCount("races"));
+    }
+
+    /**
+     * Every bucket holds a contiguous range of values no wider than a sixteenth of its values
+     */
+    @Test
+    public void testBuckets() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(Histogram.SUB_BUCKETS, Histogram.bucketOf(Histogram.SUB_BUCKETS));
+
+        long previousHighest = -1;
+        for (int bucket = 0, last = Histogram.bucketOf(Long.MAX_VALUE); bucket <= last; bucket++) {
+            long lowest = Histogram.lowestOf(bucket);
+            long highest = Histogram.highestOf(bucket);
+            assertEquals(previousHighest + 1, lowest);
+            assertEquals(bucket, Histogram.bucketOf(lowest));
+            assertEquals(bucket, Histogram.bucketOf(highest));
+            assertTrue(highest - lowest <= Math.max(0, lowest / Histogram.SUB_BUCKETS));
+            previousHighest = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previousHighest);
+    }
+
+    /**
+     * Percentiles are within the precision of the buckets
+     */
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new MetricsRegistry().histogram("values");
+        Histogram.Snapshot empty = histogram.snapshot();
+        assertEquals(0, empty.getPercentile(99));
+        assertEquals(0, empty.getMin());
+
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10001, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile(0));
+        assertEquals(10000, snapshot.getPercentile(100));
+        assertEquals(5000, snapshot.getPercentile(50), 5000 / Histogram.SUB_BUCKETS);
+        assertEquals(9900, snapshot.getPercentile(99), 9900 / Histogram.SUB_BUCKETS);
+        assertEquals(16, snapshot.getCountAtOrBelow(15));
+    }
+
+    /**
+     * Nothing is lost when recording from many threads at once
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    metrics.counter("count").increment();
+                    metrics.timer("time").record(j);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(40000, snapshot.getCount("count"));
+        assertEquals(40000, snapshot.getTimers().get("time").getCount());
+        assertEquals(9999, snapshot.getTimers().get("time").getMax());
+    }
+
+    /**
+     * The text is one value per line with names made safe to scrape
+     */
+    @Test
+    public void testText() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("configure.set1.races").add(3);
+        metrics.timer("configure.set1.persist").record(1, TimeUnit.SECONDS);
+
+        String text = metrics.snapshot().toText();
+        assertTrue(text, text.contains("# TYPE configure_set1_races counter\nconfigure_set1_races 3\n"));
+        assertTrue(text, text.contains("configure_set1_persist_seconds_count 1\n"));
+        assertTrue(text, text.contains("configure_set1_persist_seconds_sum 1.0\n"));
+        assertTrue(text, text.contains("configure_set1_persist_seconds{quantile=\"0.5\"} 1.0\n"));
+    }
+}
@@ -0,0 +1,44 @@
+package org.kingsski.wax.seeding;
+
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClubNameIndexTest {
+
+    @Test
+    public void testFindIgnoresCase() {
+        Club kings = club("Kings", "KSC");
+        ClubNameIndex index = new ClubNameIndex(Arrays.asList(kings, club("Jesters", null)));
+
+        assertSame(kings, index.find("kings"));
+        assertSame(kings, index.find("ksc"));
+        assertSame(kings, index.find("KINGS"));
+        assertNull(index.find("Queens"));
+        assertNull(index.find(null));
+    }
+
+    @Test
+    public void testLastAddedWins() {
+        Club first = club("Kings", null);
+        Club second = club("Kings College", "Kings");
+        ClubNameIndex index = new ClubNameIndex(Arrays.asList(first, second));
+        assertSame(second, index.find("kings"));
+
+        Club third = club("KINGS", null);
+        index.add(third);
+        assertSame(third, index.find("Kings"));
+        assertSame(second, index.find("kings college"));
+    }
+
+    private static Club club(String name, String shortName) {
+        Club club = new Club();
+        club.setClubName(name);
+        club.setClubShortName(shortName);
+        return club;
+    }
+}
@@ -0,0 +1,264 @@
+package org.kingsski.wax.seeding;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryInMemory;
+import org.kingsski.wax.seeding.impl.SeedPersisterDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SeedRetrieverPersisterManagerTest {
+
+    private DaoFactoryInMemory daoFactory;
+    private int addedClubs;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryInMemory();
+
+        Club club = new Club();
+        club.setClubName("Kings");
+        club.setClubShortName("KSC");
+        club.setLeague(League.NORTHERN);
+        club.setMixedTeams(1);
+        daoFactory.newClubDaoInstance().addClub(club);
+
+        Team team = team("Kings", 10);
+        team.setClubName("Kings");
+        team.setDivisionIndex(1);
+        daoFactory.newTeamDaoInstance().addTeam(team);
+    }
+
+    @Test
+    public void testPersistSeededTeams() {
+        SeedPersister persister = new SeedPersisterDao(daoFactory) {
+            @Override
+            public boolean addClub(Club club) {
+                addedClubs++;
+                return super.addClub(club);
+            }
+        };
+        SeedRetrieverPersisterManager manager = new SeedRetrieverPersisterManager(
+                () -> new ArrayList<>(Arrays.asList(
+                        team("Kings", 40), team("KSC 2", 30), team("Jesters 2", 20), team("Jesters", 25))),
+                persister);
+
+        List<Team> teams = manager.execute();
+
+        assertEquals(4, teams.size());
+        assertTrue(manager.getFailedTeams().isEmpty());
+        // The new club is only added once for both of its teams
+        assertEquals(1, addedClubs);
+        assertEquals(2, daoFactory.newClubDaoInstance().getClubs(null).size());
+
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        List<Team> stored = teamDao.getTeamsByDivision(Division.MIXED);
+        assertEquals(4, stored.size());
+        for (Team team : teams) {
+            Team found = teamDao.getTeam(team.getTeamId());
+            assertEquals(team.getTeamName(), found.getTeamName());
+            assertEquals(team.getScoreR1(), found.getScoreR1());
+        }
+
+        Team kingsTwo = teamDao.getTeam(find(teams, "KSC 2").getTeamId());
+        assertEquals("Kings", kingsTwo.getClubName());
+        assertEquals(2, kingsTwo.getDivisionIndex());
+        Team jesters = teamDao.getTeam(find(teams, "Jesters 2").getTeamId());
+        assertEquals("Jesters", jesters.getClubName());
+        assertEquals(2, jesters.getDivisionIndex());
+    }
+
+    @Test
+    public void testStreaming() {
+        assertStreamed(null);
+    }
+
+    @Test
+    public void testStreamingBuffered() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertStreamed(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * An error reading the seeds ahead reaches the caller rather than leaving it waiting
+     */
+    @Test(timeout = 10000)
+    public void testStreamingSourceError() {
+        AtomicInteger retrieved = new AtomicInteger();
+        SeedRetriever retriever = new SeedRetriever() {
+            @Override
+            public List<Team> getSeeds() {
+                throw new AssertionError("The seeds should be streamed");
+            }
+
+            @Override
+            public Iterator<Team> getSeedIterator() {
+                return new Iterator<Team>() {
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+                    @Override
+                    public Team next() {
+                        if (retrieved.incrementAndGet() > 5) {
+                            throw new LinkageError("Unable to read the seeds");
+                        }
+                        return team("Club " + retrieved.get(), 100 - retrieved.get());
+                    }
+                };
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new SeedRetrieverPersisterManager(retriever, new SeedPersisterDao(daoFactory)).executeStreaming(2, executor);
+            throw new AssertionError("Expected the error to be thrown");
+        } catch (LinkageError e) {
+            assertEquals("Unable to read the seeds", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Each league and division streamed is reset once, before any of its teams are persisted
+     */
+    @Test
+    public void testStreamingResetsEachDivision() {
+        Team stale = team("Kings Ladies", 50);
+        stale.setClubName("Kings");
+        stale.setDivision(Division.LADIES);
+        stale.setDivisionIndex(1);
+        daoFactory.newTeamDaoInstance().addTeam(stale);
+
+        List<String> reset = new ArrayList<>();
+        SeedPersister persister = new SeedPersisterDao(daoFactory) {
+            @Override
+            public void resetTeams(String league, String division) {
+                reset.add(league + " " + division);
+                super.resetTeams(league, division);
+            }
+        };
+        List<Team> seeds = Arrays.asList(
+                team("Kings", 40), team("Jesters", 30), ladies("Jesters Ladies", 20),
+                team("Jesters 2", 25), ladies("Vikings Ladies", 15));
+        SeedRetriever retriever = new SeedRetriever() {
+            @Override
+            public List<Team> getSeeds() {
+                throw new AssertionError("The seeds should be streamed");
+            }
+
+            @Override
+            public Iterator<Team> getSeedIterator() {
+                return seeds.iterator();
+            }
+        };
+
+        SeedRetrieverPersisterManager manager = new SeedRetrieverPersisterManager(retriever, persister);
+
+        assertEquals(5, manager.executeStreaming(2, null));
+        assertEquals(Arrays.asList(League.NORTHERN + " " + Division.MIXED, League.NORTHERN + " " + Division.LADIES), reset);
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        assertEquals(3, teamDao.getTeamsByDivision(Division.MIXED).size());
+        assertEquals(3, teamDao.getTeamsByDivision(Division.LADIES).size());
+        // The ladies team which is no longer seeded is reset, the streamed ones are not
+        assertEquals(0, teamDao.getTeam(stale.getTeamId()).getScoreR1());
+        for (Team team : seeds) {
+            assertEquals(team.getScoreR1(), teamDao.getTeam(team.getTeamId()).getScoreR1());
+        }
+    }
+
+    private void assertStreamed(Executor executor) {
+        AtomicInteger retrieved = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        List<Integer> batchSizes = new ArrayList<>();
+        SeedPersister persister = new SeedPersisterDao(daoFactory) {
+            private int persisted;
+
+            @Override
+            public List<Team> addOrUpdateTeams(List<Team> teams) {
+                batchSizes.add(teams.size());
+                persisted += teams.size();
+                maxAhead.set(Math.max(maxAhead.get(), retrieved.get() - persisted));
+                return super.addOrUpdateTeams(teams);
+            }
+        };
+        SeedRetriever retriever = new SeedRetriever() {
+            @Override
+            public List<Team> getSeeds() {
+                throw new AssertionError("The seeds should be streamed");
+            }
+
+            @Override
+            public Iterator<Team> getSeedIterator() {
+                return new Iterator<Team>() {
+                    @Override
+                    public boolean hasNext() {
+                        return retrieved.get() < 25;
+                    }
+
+                    @Override
+                    public Team next() {
+                        int i = retrieved.incrementAndGet();
+                        return team(i == 1 ? "Kings" : "Club " + i, 100 - i);
+                    }
+                };
+            }
+        };
+
+        SeedRetrieverPersisterManager manager = new SeedRetrieverPersisterManager(retriever, persister);
+
+        assertEquals(25, manager.executeStreaming(10, executor));
+        assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+        assertTrue(manager.getFailedTeams().isEmpty());
+        // No more than the buffer, the batch being built and the team being handed over
+        assertTrue(maxAhead.get() <= 2 * 10 + 10 + 1);
+        assertEquals(25, daoFactory.newTeamDaoInstance().getTeamsByDivision(Division.MIXED).size());
+        // Every new team is guessed to be from the club "Club"
+        assertEquals(2, daoFactory.newClubDaoInstance().getClubs(null).size());
+    }
+
+    private static Team find(List<Team> teams, String teamName) {
+        for (Team team : teams) {
+            if (teamName.equals(team.getTeamName())) {
+                return team;
+            }
+        }
+        throw new AssertionError("No team " + teamName);
+    }
+
+    private static Team ladies(String teamName, int score) {
+        Team team = team(teamName, score);
+        team.setDivision(Division.LADIES);
+        return team;
+    }
+
+    private static Team team(String teamName, int score) {
+        Team team = new Team();
+        team.setTeamName(teamName);
+        team.setLeague(League.NORTHERN);
+        team.setDivision(Division.MIXED);
+        team.setScoreR1(score);
+        return team;
+    }
+}
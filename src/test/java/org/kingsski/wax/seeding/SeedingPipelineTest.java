@@ -0,0 +1,157 @@
+package org.kingsski.wax.seeding;
+
+import org.junit.Test;
+import org.kingsski.wax.data.Club;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryInMemory;
+import org.kingsski.wax.data.dao.impl.DaoFactoryPooled;
+import org.kingsski.wax.seeding.impl.SeedPersisterDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SeedingPipelineTest {
+
+    @Test
+    public void testPartitionedConcurrently() throws Exception {
+        DaoFactoryInMemory daoFactory = new DaoFactoryInMemory();
+
+        // A mixed feed with partitions of 6, 4, 3 and 2 teams
+        List<Team> teams = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            teams.add(team("North " + i, League.NORTHERN, Division.MIXED, 10 - i));
+            if (i <= 4) {
+                teams.add(team("South " + i, League.SOUTHERN, Division.MIXED, 10 - i));
+            }
+            if (i <= 3) {
+                teams.add(team("North Ladies " + i, League.NORTHERN, Division.LADIES, 10 - i));
+            }
+            if (i <= 2) {
+                teams.add(team("South Board " + i, League.SOUTHERN, Division.BOARD, 10 - i));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<SeedingPipeline.PartitionResult> results;
+        try {
+            results = new SeedingPipeline(() -> new SeedPersisterDao(daoFactory), executor)
+                    .persistSeededTeams(teams);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(4, results.size());
+        int[] sizes = {6, 4, 3, 2};
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(sizes[i], results.get(i).getTeams());
+            assertTrue(results.get(i).isSuccessful());
+        }
+        assertEquals(League.SOUTHERN, results.get(1).getLeague());
+        assertEquals(Division.MIXED, results.get(1).getDivision());
+
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        assertEquals(6, teamDao.getTeams(null, Division.MIXED, League.NORTHERN).size());
+        assertEquals(4, teamDao.getTeams(null, Division.MIXED, League.SOUTHERN).size());
+        assertEquals(3, teamDao.getTeams(null, Division.LADIES, League.NORTHERN).size());
+        assertEquals(2, teamDao.getTeams(null, Division.BOARD, League.SOUTHERN).size());
+    }
+
+    @Test
+    public void testClubInSeveralPartitions() throws Exception {
+        DaoFactoryInMemory daoFactory = new DaoFactoryInMemory();
+        List<Team> teams = new ArrayList<>(Arrays.asList(
+                team("North 1", League.NORTHERN, Division.MIXED, 9),
+                team("North 2", League.NORTHERN, Division.MIXED, 8),
+                team("North 1", League.NORTHERN, Division.LADIES, 7),
+                team("North 1", League.NORTHERN, Division.BOARD, 6)));
+
+        // Each persister waits for the others to read the clubs before adding any, as partitions
+        // racing would
+        CountDownLatch clubsRead = new CountDownLatch(3);
+        List<String> addedClubs = Collections.synchronizedList(new ArrayList<>());
+        Supplier<SeedPersister> seedPersisters = () -> new SeedPersisterDao(daoFactory) {
+            @Override
+            public List<Club> getClubs() {
+                List<Club> clubs = super.getClubs();
+                clubsRead.countDown();
+                try {
+                    clubsRead.await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return clubs;
+            }
+
+            @Override
+            public boolean addClub(Club club) {
+                addedClubs.add(club.getClubName());
+                return super.addClub(club);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<SeedingPipeline.PartitionResult> results;
+        try {
+            results = new SeedingPipeline(seedPersisters, executor).persistSeededTeams(teams);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(3, results.size());
+        for (SeedingPipeline.PartitionResult result : results) {
+            assertTrue(result.isSuccessful());
+        }
+        assertEquals(Collections.singletonList("North"), addedClubs);
+        assertEquals(1, daoFactory.newClubDaoInstance().getClubs(League.NORTHERN).size());
+        assertEquals(2, daoFactory.newTeamDaoInstance().getTeams(null, Division.MIXED, League.NORTHERN).size());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedPartitionReleasesSession() throws Exception {
+        // A single session is shared by every partition in turn
+        DaoFactoryPooled daoFactory = new DaoFactoryPooled(new DaoFactoryInMemory(), 1);
+        List<Team> teams = new ArrayList<>(Arrays.asList(
+                team("North 1", League.NORTHERN, Division.MIXED, 9),
+                team("North 2", League.NORTHERN, Division.MIXED, 8),
+                team("South 1", League.SOUTHERN, Division.MIXED, 7)));
+
+        List<SeedingPipeline.PartitionResult> results = new SeedingPipeline(() -> new SeedPersisterDao(daoFactory) {
+            @Override
+            public void resetTeams(String league, String division) {
+                if (League.NORTHERN.equals(league)) {
+                    throw new IllegalStateException("Reset failed");
+                }
+                super.resetTeams(league, division);
+            }
+        }, null).persistSeededTeams(teams);
+
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isSuccessful());
+        assertEquals("Reset failed", results.get(0).getFailure());
+        assertTrue(results.get(1).isSuccessful());
+        daoFactory.close();
+    }
+
+    private static Team team(String teamName, String league, String division, int score) {
+        Team team = new Team();
+        team.setTeamName(teamName);
+        team.setLeague(league);
+        team.setDivision(division);
+        team.setScoreR1(score);
+        return team;
+    }
+}
@@ -0,0 +1,154 @@
+package org.kingsski.wax.standings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kingsski.wax.configure.races.group.RaceGroup;
+import org.kingsski.wax.data.Division;
+import org.kingsski.wax.data.League;
+import org.kingsski.wax.data.Race;
+import org.kingsski.wax.data.Team;
+import org.kingsski.wax.data.dao.DaoSession;
+import org.kingsski.wax.data.dao.RaceDao;
+import org.kingsski.wax.data.dao.TeamDao;
+import org.kingsski.wax.data.dao.impl.DaoFactoryInMemory;
+import org.kingsski.wax.data.dao.impl.DaoFactoryNotifying;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StandingsTest {
+    private static final int CONTROL_ID = 1;
+    private static final int ROUND_NO = 1;
+
+    private DaoFactoryNotifying daoFactory;
+    private Standings standings;
+    private RaceDao raceDao;
+    private List<Race> races;
+
+    @Before
+    public void setup() {
+        daoFactory = new DaoFactoryNotifying(new DaoFactoryInMemory());
+        standings = new Standings(daoFactory);
+        daoFactory.addRaceUpdateListener(standings);
+
+        TeamDao teamDao = daoFactory.newTeamDaoInstance();
+        for (int i = 1; i <= 6; i++) {
+            Team team = new Team();
+            team.setLeague(League.NORTHERN);
+            team.setDivision(Division.MIXED);
+            team.setClubName("Club " + i);
+            team.setTeamName("Club " + i);
+            team.setDivisionIndex(1);
+            team.setScoreR1(100 - i);
+            teamDao.addTeam(team);
+        }
+
+        // Two groups of three, team one of each group wins all its races
+        raceDao = daoFactory.newRaceDaoInstance();
+        races = raceDao.addRaces(new ArrayList<>(Arrays.asList(
+                race("A", 1, 2, 1), race("A", 2, 3, 1), race("A", 3, 1, 2),
+                race("B", 4, 5, 1), race("B", 5, 6, 1), race("B", 6, 4, 2))));
+    }
+
+    @Test
+    public void testStandings() throws Exception {
+        assertTeamOrder(standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"), 1, 2, 3);
+        assertTeamOrder(standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "B"), 4, 5, 6);
+        assertTrue(standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "C").isEmpty());
+        assertEquals(2, standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO).size());
+    }
+
+    @Test
+    public void testUpdateOnlyRecalculatesChangedGroup() throws Exception {
+        List<Team> groupA = standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A");
+        List<Team> groupB = standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "B");
+        List<RaceGroup> raceGroups = standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO);
+
+        // Team 3 now beats team 2 leaving each team in group A with one win
+        Race update = new Race(races.get(1));
+        update.setTeamWin(2);
+        raceDao.updateRace(update);
+
+        assertSame(raceGroups, standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO));
+        assertSame(groupB, standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "B"));
+        assertNotSame(groupA, standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"));
+        assertTeamOrder(standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"), 1, 3, 2);
+    }
+
+    @Test
+    public void testRacesChangedReloads() throws Exception {
+        List<RaceGroup> raceGroups = standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO);
+
+        raceDao.deleteRaces(CONTROL_ID, ROUND_NO);
+
+        assertNotSame(raceGroups, standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO));
+        assertTrue(standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO).isEmpty());
+    }
+
+    @Test
+    public void testResultsHeldUntilCommit() throws Exception {
+        List<Team> groupA = standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A");
+        List<RaceGroup> raceGroups = standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO);
+
+        DaoSession session = daoFactory.newDaoSessionInstance();
+        try {
+            session.beginTransaction();
+            Race update = new Race(races.get(1));
+            update.setTeamWin(2);
+            session.getRaceDao().updateRace(update);
+
+            // Nothing is applied until the transaction is committed
+            assertSame(groupA, standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"));
+            session.setTransactionSuccessful();
+            session.endTransaction();
+        } finally {
+            session.close();
+        }
+
+        assertSame(raceGroups, standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO));
+        assertTeamOrder(standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"), 1, 3, 2);
+    }
+
+    @Test
+    public void testRollbackReloads() throws Exception {
+        List<Team> groupA = standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A");
+        List<RaceGroup> raceGroups = standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO);
+
+        raceDao.beginTransactionNonExclusive();
+        Race update = new Race(races.get(1));
+        update.setTeamWin(2);
+        raceDao.updateRace(update);
+        assertSame(groupA, standings.getStandings(CONTROL_ID, Division.MIXED, ROUND_NO, "A"));
+        raceDao.endTransaction();
+
+        // The result may have been rolled back so the round is read again from the DAO
+        assertNotSame(raceGroups, standings.getRaceGroups(CONTROL_ID, Division.MIXED, ROUND_NO));
+    }
+
+    private static Race race(String group, int teamOne, int teamTwo, int teamWin) {
+        return new Race.RaceBuilder()
+                .setControlId(CONTROL_ID)
+                .setLeague(League.NORTHERN)
+                .setRoundNo(ROUND_NO)
+                .setSet("1")
+                .setDivision(Division.MIXED)
+                .setGroup(group)
+                .setTeamOne(teamOne)
+                .setTeamTwo(teamTwo)
+                .setTeamWin(teamWin)
+                .build();
+    }
+
+    private static void assertTeamOrder(List<Team> teams, int... teamIds) {
+        assertEquals(teamIds.length, teams.size());
+        for (int i = 0; i < teamIds.length; i++) {
+            assertEquals("position " + (i + 1), teamIds[i], teams.get(i).getTeamId());
+        }
+    }
+}